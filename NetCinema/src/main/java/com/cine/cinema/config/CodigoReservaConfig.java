@@ -0,0 +1,54 @@
+package com.cine.cinema.config;
+
+import com.cine.cinema.util.CodigoCrockford;
+import com.cine.cinema.util.GeneradorCodigos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+/**
+ * Generador de los códigos de reserva. Cada instancia necesita su propio nodo
+ * (netcinema.reservas.nodo, 0-127) para que sus códigos no se crucen con los de otra.
+ * Solo puede faltar con una instancia (netcinema.reservas.instancias=1), que usa el
+ * nodo 0; con más no arranca sin él. No se adivina del hostname: cualquier nombre que
+ * termine en -NN daría un nodo, y dos máquinas con el mismo sufijo repetirían códigos.
+ * La clave que desordena los códigos (netcinema.reservas.clave-codigos, 16 caracteres
+ * o más) debe ser la misma en todas las instancias; con una sola instancia puede
+ * faltar y se genera una al arrancar.
+ */
+@Configuration
+public class CodigoReservaConfig {
+
+    @Bean
+    public GeneradorCodigos generadorCodigoReserva(@Value("${netcinema.reservas.nodo:#{null}}") Integer nodo,
+                                                   @Value("${netcinema.reservas.instancias:1}") int instancias,
+                                                   @Value("${netcinema.reservas.clave-codigos:}") String clave) {
+        return new CodigoCrockford("RES-", nodo != null ? nodo : nodoPorDefecto(instancias),
+                clave(clave, instancias));
+    }
+
+    private static byte[] clave(String clave, int instancias) {
+        if (!clave.isBlank()) {
+            return clave.getBytes(StandardCharsets.UTF_8);
+        }
+        if (instancias > 1) {
+            throw new IllegalStateException("Con " + instancias + " instancias hay que configurar la misma "
+                    + "netcinema.reservas.clave-codigos en todas");
+        }
+        System.out.println("⚠️ netcinema.reservas.clave-codigos sin configurar; se usa una clave al azar");
+        byte[] aleatoria = new byte[32];
+        new SecureRandom().nextBytes(aleatoria);
+        return aleatoria;
+    }
+
+    private static int nodoPorDefecto(int instancias) {
+        if (instancias > 1) {
+            throw new IllegalStateException("Con " + instancias + " instancias cada una necesita su propio "
+                    + "netcinema.reservas.nodo (0-" + (CodigoCrockford.NODOS - 1) + ")");
+        }
+        return 0;
+    }
+}
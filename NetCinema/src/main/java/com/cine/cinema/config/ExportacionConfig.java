@@ -0,0 +1,39 @@
+package com.cine.cinema.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Las respuestas que se escriben en streaming (StreamingResponseBody) se cortan al
+ * cumplirse spring.mvc.async.request-timeout, y como ya se mandó el 200 el cliente
+ * recibe un archivo truncado. Una exportación grande puede tardar más que eso, así
+ * que las peticiones marcadas con SIN_LIMITE_DE_TIEMPO quedan sin ese límite; solo
+ * terminan al escribirse completas o si el cliente se desconecta.
+ */
+@Configuration
+public class ExportacionConfig implements WebMvcConfigurer {
+
+    public static final String SIN_LIMITE_DE_TIEMPO = ExportacionConfig.class.getName() + ".sinLimiteDeTiempo";
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            // Corre antes de iniciar el procesamiento asíncrono, cuando aún se puede cambiar el límite
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                if (request instanceof AsyncWebRequest asincrona
+                        && Boolean.TRUE.equals(request.getAttribute(SIN_LIMITE_DE_TIEMPO, RequestAttributes.SCOPE_REQUEST))) {
+                    // Cero o negativo: el contenedor no corta la respuesta
+                    asincrona.setTimeout(-1L);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.cine.cinema.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Aplica la fila virtual a la selección de asientos.
+ * La creación de reservas (POST /api/reservas) trae la función en el cuerpo y la
+ * revisa ReservaController
+ */
+@Configuration
+@RequiredArgsConstructor
+public class FilaVirtualConfig implements WebMvcConfigurer {
+
+    private final FilaVirtualInterceptor filaVirtualInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(filaVirtualInterceptor)
+                .addPathPatterns(
+                        "/api/funciones/{id}",
+                        "/api/funciones/{id}/asientos",
+                        "/api/funciones/{id}/asientos/cambios",
+                        "/api/funciones/{id}/bloquear-asientos",
+                        "/api/funciones/{id}/mejores-asientos"
+                );
+    }
+}
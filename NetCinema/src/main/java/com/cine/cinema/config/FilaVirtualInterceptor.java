@@ -0,0 +1,52 @@
+package com.cine.cinema.config;
+
+import com.cine.cinema.dto.ApiResponse;
+import com.cine.cinema.service.FilaVirtualService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Rechaza, antes de llegar al controlador, las lecturas del mapa de asientos y los
+ * bloqueos de una función con fila virtual activa si el cliente no trae un turno
+ * admitido en el header X-Turno-Fila.
+ */
+@Component
+@RequiredArgsConstructor
+public class FilaVirtualInterceptor implements HandlerInterceptor {
+
+    public static final String HEADER_TURNO = "X-Turno-Fila";
+
+    private final FilaVirtualService filaVirtualService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!"GET".equals(request.getMethod()) && !"POST".equals(request.getMethod())) {
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String funcionId = variables == null ? null : variables.get("id");
+        if (funcionId == null || filaVirtualService.puedePasar(funcionId, request.getHeader(HEADER_TURNO))) {
+            return true;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getWriter(), new ApiResponse(false,
+                "Esta función tiene fila virtual: tome un turno en /api/fila-virtual/" + funcionId + "/entrar"));
+        return false;
+    }
+}
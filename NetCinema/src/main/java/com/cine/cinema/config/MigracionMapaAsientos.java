@@ -0,0 +1,92 @@
+package com.cine.cinema.config;
+
+import com.cine.cinema.model.MapaAsientos;
+import com.mongodb.DBRef;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Convierte al arrancar las funciones guardadas con el formato anterior
+ * (asientosOcupados como lista de códigos y asientosBloqueados como mapa
+ * código -> milisegundos) al mapa compacto de MapaAsientos.
+ * Corre al terminar de crear los beans, antes de que el servidor web acepte
+ * peticiones: ninguna reserva llega a ver una función sin migrar.
+ */
+@Component
+@RequiredArgsConstructor
+public class MigracionMapaAsientos implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        MongoCollection<Document> funciones = mongoTemplate.getCollection("funciones");
+        MongoCollection<Document> salas = mongoTemplate.getCollection("salas");
+
+        int migradas = 0;
+        for (Document funcion : funciones.find(Filters.or(
+                Filters.exists("asientosOcupados"),
+                Filters.exists("asientosBloqueados")))) {
+
+            Document sala = null;
+            if (funcion.get("sala") instanceof DBRef ref) {
+                sala = salas.find(Filters.eq("_id", ref.getId())).first();
+            }
+            if (sala == null) {
+                System.err.println("⚠️ Función " + funcion.get("_id") + " sin sala, no se migra su mapa de asientos");
+                continue;
+            }
+
+            MapaAsientos mapa = new MapaAsientos(sala.getInteger("filas"), sala.getInteger("columnas"));
+            long ahora = System.currentTimeMillis();
+
+            try {
+                for (String codigo : funcion.getList("asientosOcupados", String.class, List.of())) {
+                    mapa.ocupar(mapa.indice(codigo));
+                }
+
+                Document bloqueados = funcion.get("asientosBloqueados", Document.class);
+                if (bloqueados != null) {
+                    for (Map.Entry<String, Object> bloqueo : bloqueados.entrySet()) {
+                        long expiracion = ((Number) bloqueo.getValue()).longValue();
+                        if (expiracion > ahora) {
+                            mapa.bloquear(mapa.indice(bloqueo.getKey()), MapaAsientos.segundos(expiracion) + 1);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Función " + funcion.get("_id") + " no se pudo migrar: " + e.getMessage());
+                continue;
+            }
+
+            funciones.updateOne(Filters.eq("_id", funcion.get("_id")), Updates.combine(
+                    Updates.set("filas", mapa.getFilas()),
+                    Updates.set("columnas", mapa.getColumnas()),
+                    Updates.set("ocupados", toList(mapa.getOcupados())),
+                    Updates.set("bloqueos", new Document(new HashMap<String, Object>(mapa.getBloqueosPersistidos()))),
+                    Updates.unset("asientosOcupados"),
+                    Updates.unset("asientosBloqueados")
+            ));
+            migradas++;
+        }
+
+        if (migradas > 0) {
+            System.out.println("🎟️ Funciones migradas al mapa compacto de asientos: " + migradas);
+        }
+    }
+
+    private static List<Long> toList(long[] palabras) {
+        return Arrays.stream(palabras).boxed().toList();
+    }
+}
@@ -0,0 +1,136 @@
+package com.cine.cinema.config;
+
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.Reserva;
+import com.cine.cinema.service.ReferenciaResolver;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Pasa las funciones y reservas guardadas con DBRef (pelicula, sala, funcion, usuario)
+ * al formato de ids y copias embebidas, por lotes y en segundo plano para no
+ * retrasar el arranque. Mientras tanto, ReferenciaResolver completa al vuelo los
+ * documentos que aún no se han migrado.
+ */
+@Component
+@Order(2)
+@RequiredArgsConstructor
+public class MigracionReferencias implements ApplicationRunner {
+
+    private static final int LOTE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final ReferenciaResolver referenciaResolver;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread hilo = new Thread(this::migrar, "migracion-referencias");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    private void migrar() {
+        try {
+            int funciones = migrarFunciones();
+            int reservas = migrarReservas();
+            if (funciones > 0 || reservas > 0) {
+                System.out.println("🔗 Referencias migradas: " + funciones + " funciones y " + reservas + " reservas");
+            }
+        } catch (Exception e) {
+            System.err.println("Error al migrar las referencias: " + e.getMessage());
+        }
+    }
+
+    private int migrarFunciones() {
+        int migradas = 0;
+        String ultimoId = null;
+        while (true) {
+            Criteria criteria = new Criteria().orOperator(
+                    Criteria.where("peliculaLegado").exists(true),
+                    Criteria.where("salaLegado").exists(true));
+            List<Funcion> lote = mongoTemplate.find(lote(criteria, ultimoId), Funcion.class);
+            if (lote.isEmpty()) {
+                return migradas;
+            }
+
+            referenciaResolver.completarFunciones(lote);
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Funcion.class);
+            for (Funcion funcion : lote) {
+                Update update = new Update()
+                        .set("peliculaId", funcion.getPeliculaId())
+                        .set("salaId", funcion.getSalaId())
+                        .unset("peliculaLegado")
+                        .unset("salaLegado")
+                        .inc("version", 1);
+                if (funcion.getPelicula() != null) {
+                    update.set("pelicula", funcion.getPelicula());
+                }
+                if (funcion.getSala() != null) {
+                    update.set("sala", funcion.getSala());
+                }
+                bulk.updateOne(new Query(Criteria.where("_id").is(funcion.getId())), update);
+            }
+            bulk.execute();
+
+            migradas += lote.size();
+            ultimoId = lote.get(lote.size() - 1).getId();
+        }
+    }
+
+    private int migrarReservas() {
+        int migradas = 0;
+        String ultimoId = null;
+        while (true) {
+            Criteria criteria = new Criteria().orOperator(
+                    Criteria.where("funcionLegado").exists(true),
+                    Criteria.where("usuarioLegado").exists(true));
+            List<Reserva> lote = mongoTemplate.find(lote(criteria, ultimoId), Reserva.class);
+            if (lote.isEmpty()) {
+                return migradas;
+            }
+
+            referenciaResolver.completarReservas(lote);
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Reserva.class);
+            for (Reserva reserva : lote) {
+                Update update = new Update()
+                        .set("funcionId", reserva.getFuncionId())
+                        .set("usuarioId", reserva.getUsuarioId())
+                        .unset("funcionLegado")
+                        .unset("usuarioLegado")
+                        .inc("version", 1);
+                if (reserva.getFuncion() != null) {
+                    update.set("funcion", reserva.getFuncion());
+                }
+                if (reserva.getUsuario() != null) {
+                    update.set("usuario", reserva.getUsuario());
+                }
+                bulk.updateOne(new Query(Criteria.where("_id").is(reserva.getId())), update);
+            }
+            bulk.execute();
+
+            migradas += lote.size();
+            ultimoId = lote.get(lote.size() - 1).getId();
+        }
+    }
+
+    // Siguiente lote por _id, sin el mapa de asientos
+    private static Query lote(Criteria criteria, String ultimoId) {
+        Query query = new Query(criteria);
+        if (ultimoId != null) {
+            query.addCriteria(Criteria.where("_id").gt(ultimoId));
+        }
+        query.fields().exclude("ocupados", "bloqueos");
+        return query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(LOTE);
+    }
+}
@@ -0,0 +1,36 @@
+package com.cine.cinema.config;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Inicializa el campo version en las funciones y reservas guardadas antes de
+ * usar @Version. Sin él, Spring Data las trataría como nuevas y save() intentaría
+ * insertarlas otra vez.
+ * Corre antes de que el servidor web acepte peticiones (y antes de los
+ * ApplicationRunner, como MigracionReferencias, que ya guardan con @Version).
+ */
+@Component
+@RequiredArgsConstructor
+public class MigracionVersiones implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String coleccion : List.of("funciones", "reservas")) {
+            long actualizados = mongoTemplate.getCollection(coleccion)
+                    .updateMany(Filters.exists("version", false), Updates.set("version", 0L))
+                    .getModifiedCount();
+            if (actualizados > 0) {
+                System.out.println("🔢 Campo version inicializado en " + actualizados + " documentos de " + coleccion);
+            }
+        }
+    }
+}
@@ -24,6 +24,9 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
     // Mapa de usuarios conectados: userId -> sessionId
     private final ConcurrentHashMap<String, String> userSessions = new ConcurrentHashMap<>();
 
+    // Turnos de la fila virtual seguidos por cada sesión: token -> sessionId
+    private final ConcurrentHashMap<String, String> turnoSessions = new ConcurrentHashMap<>();
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -63,6 +66,14 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                     registrarUsuario(session.getId(), userId);
                     break;
 
+                case "FILA_VIRTUAL":
+                    // Recibir la posición de un turno de la fila virtual
+                    String token = (String) data.get("token");
+                    if (token != null) {
+                        turnoSessions.put(token, session.getId());
+                    }
+                    break;
+
                 case "PING":
                     // Responder a ping
                     enviarMensaje(session, "PONG", Map.of("timestamp", System.currentTimeMillis()));
@@ -87,6 +98,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
 
         // Remover de userSessions
         userSessions.entrySet().removeIf(entry -> entry.getValue().equals(sessionId));
+        turnoSessions.entrySet().removeIf(entry -> entry.getValue().equals(sessionId));
 
         System.out.println("❌ Dispositivo desconectado: " + sessionId);
         System.out.println("📱 Total dispositivos: " + sessions.size());
@@ -132,6 +144,35 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * Envía notificación a la sesión que sigue un turno de la fila virtual
+     */
+    public void notificarTurno(String token, String tipo, Map<String, Object> data) {
+        String sessionId = turnoSessions.get(token);
+        if (sessionId != null) {
+            WebSocketSession session = sessions.get(sessionId);
+            if (session != null && session.isOpen()) {
+                enviarMensaje(session, tipo, data);
+            }
+        }
+    }
+
+    /**
+     * Indica si alguna sesión abierta sigue el turno
+     */
+    public boolean isTurnoConectado(String token) {
+        String sessionId = turnoSessions.get(token);
+        WebSocketSession session = sessionId == null ? null : sessions.get(sessionId);
+        return session != null && session.isOpen();
+    }
+
+    /**
+     * Deja de seguir un turno que ya terminó
+     */
+    public void olvidarTurno(String token) {
+        turnoSessions.remove(token);
+    }
+
     /**
      * Envía notificación a TODOS los dispositivos conectados
      */
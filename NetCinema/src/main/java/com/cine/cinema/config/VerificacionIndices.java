@@ -0,0 +1,71 @@
+package com.cine.cinema.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Revisa al arrancar que existan en Mongo todos los índices declarados en los
+ * documentos (@Indexed, @CompoundIndex) y crea los que falten. Cada consulta de
+ * los repositorios tiene un índice declarado (ver IndicesRepositoriosTest), así que
+ * un índice que falta es un recorrido completo de la colección.
+ * Con spring.data.mongodb.auto-index-creation ya se crean solos; esto cubre los
+ * entornos donde está apagado o donde alguien borró un índice a mano.
+ */
+@Component
+@Order(-1)
+@RequiredArgsConstructor
+public class VerificacionIndices implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        int creados = 0;
+        int total = 0;
+
+        for (MongoPersistentEntity<?> entidad : mappingContext.getPersistentEntities()) {
+            if (!entidad.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indices = mongoTemplate.indexOps(entidad.getType());
+            Set<String> existentes = indices.getIndexInfo().stream()
+                    .map(IndexInfo::getName)
+                    .collect(Collectors.toSet());
+
+            for (IndexDefinition definicion : resolver.resolveIndexFor(entidad.getType())) {
+                total++;
+                String nombre = definicion.getIndexOptions().getString("name");
+                if (existentes.contains(nombre)) {
+                    continue;
+                }
+                try {
+                    indices.ensureIndex(definicion);
+                    creados++;
+                    System.out.println("🗂️ Índice " + nombre + " creado en " + entidad.getCollection());
+                } catch (Exception e) {
+                    // Un índice único con datos repetidos no impide arrancar, pero hay que verlo
+                    System.err.println("❌ No se pudo crear el índice " + nombre + " en "
+                            + entidad.getCollection() + ": " + e.getMessage());
+                }
+            }
+        }
+        System.out.println("🗂️ Índices verificados: " + total + " declarados, " + creados + " creados");
+    }
+}
@@ -0,0 +1,78 @@
+package com.cine.cinema.controller;
+
+import com.cine.cinema.dto.ApiResponse;
+import com.cine.cinema.dto.TurnoFila;
+import com.cine.cinema.service.FilaVirtualService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/fila-virtual")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class FilaVirtualController {
+
+    private final FilaVirtualService filaVirtualService;
+
+    // Tomar un turno para seleccionar asientos de una función
+    @PostMapping("/{funcionId}/entrar")
+    public ResponseEntity<ApiResponse> entrar(@PathVariable String funcionId,
+                                              @RequestBody(required = false) Map<String, String> request) {
+        try {
+            String usuarioId = request == null ? null : request.get("usuarioId");
+            TurnoFila turno = filaVirtualService.entrar(funcionId, usuarioId);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse(true, "Turno asignado", turno));
+        } catch (Exception e) {
+            // Fila llena
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    // Consultar la posición de un turno (alternativa al WebSocket)
+    @GetMapping("/turnos/{token}")
+    public ResponseEntity<ApiResponse> consultar(@PathVariable String token) {
+        try {
+            return ResponseEntity.ok(new ApiResponse(true, "Turno obtenido", filaVirtualService.consultar(token)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    // Salir de la fila
+    @DeleteMapping("/turnos/{token}")
+    public ResponseEntity<ApiResponse> salir(@PathVariable String token) {
+        filaVirtualService.salir(token);
+        return ResponseEntity.ok(new ApiResponse(true, "Turno liberado"));
+    }
+
+    // Activar la fila de una función (admin). Body opcional: admisionesPorSegundo, rafaga
+    @PostMapping("/{funcionId}/activar")
+    public ResponseEntity<ApiResponse> activar(@PathVariable String funcionId,
+                                               @RequestBody(required = false) Map<String, Number> request) {
+        try {
+            Number porSegundo = request == null ? null : request.get("admisionesPorSegundo");
+            Number rafaga = request == null ? null : request.get("rafaga");
+            filaVirtualService.activar(funcionId,
+                    porSegundo == null ? null : porSegundo.doubleValue(),
+                    rafaga == null ? null : rafaga.intValue());
+            return ResponseEntity.ok(new ApiResponse(true, "Fila virtual activada"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    // Desactivar la fila de una función (admin)
+    @PostMapping("/{funcionId}/desactivar")
+    public ResponseEntity<ApiResponse> desactivar(@PathVariable String funcionId) {
+        filaVirtualService.desactivar(funcionId);
+        return ResponseEntity.ok(new ApiResponse(true, "Fila virtual desactivada"));
+    }
+}
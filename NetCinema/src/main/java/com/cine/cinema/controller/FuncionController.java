@@ -1,16 +1,26 @@
 package com.cine.cinema.controller;
 
 import com.cine.cinema.dto.ApiResponse;
+import com.cine.cinema.dto.AsignacionAsientos;
+import com.cine.cinema.dto.CambiosAsientos;
 import com.cine.cinema.dto.FuncionDTO;
+import com.cine.cinema.dto.InstantaneaAsientos;
+import com.cine.cinema.dto.MejoresAsientosDTO;
+import com.cine.cinema.dto.ProgramacionDTO;
+import com.cine.cinema.dto.ResultadoProgramacion;
 import com.cine.cinema.model.Funcion;
-import com.cine.cinema.model.Pelicula;
-import com.cine.cinema.model.Sala;
+import com.cine.cinema.model.MapaAsientos;
 import com.cine.cinema.service.FuncionService;
+import com.cine.cinema.service.Paginador;
+import com.cine.cinema.service.SincronizacionAsientos;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -22,6 +32,7 @@ import java.util.Map;
 public class FuncionController {
 
     private final FuncionService funcionService;
+    private final SincronizacionAsientos sincronizacionAsientos;
 
     // Crear función
     @PostMapping
@@ -29,13 +40,8 @@ public class FuncionController {
         try {
             Funcion funcion = new Funcion();
 
-            Pelicula pelicula = new Pelicula();
-            pelicula.setId(funcionDTO.getPeliculaId());
-            funcion.setPelicula(pelicula);
-
-            Sala sala = new Sala();
-            sala.setId(funcionDTO.getSalaId());
-            funcion.setSala(sala);
+            funcion.setPeliculaId(funcionDTO.getPeliculaId());
+            funcion.setSalaId(funcionDTO.getSalaId());
 
             funcion.setFechaHora(funcionDTO.getFechaHora());
             funcion.setPrecio(funcionDTO.getPrecio());
@@ -51,10 +57,36 @@ public class FuncionController {
         }
     }
 
+    // Programar muchas funciones de una vez (película x sala x horarios x rango de fechas).
+    // Crea las que se pueden y devuelve el motivo de cada una que no
+    @PostMapping("/programacion")
+    public ResponseEntity<ApiResponse> programar(@Valid @RequestBody ProgramacionDTO programacion) {
+        try {
+            ResultadoProgramacion resultado = funcionService.programar(programacion);
+            if (resultado.getCreadas().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new ApiResponse(false, "No se pudo crear ninguna función", resultado));
+            }
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse(true, resultado.getCreadas().size() + " de "
+                            + resultado.getSolicitadas() + " funciones creadas", resultado));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    // Con ?limite= devuelve una Pagina (siguienteCursor va en ?cursor= para la siguiente);
+    // con ?fields=id,fechaHora,... solo esos campos (también por página si viene ?limite=)
     @GetMapping
-    public ResponseEntity<ApiResponse> obtenerTodas() {
+    public ResponseEntity<ApiResponse> obtenerTodas(@RequestParam(required = false) Integer limite,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) String fields) {
         try {
-            List<Funcion> funciones = funcionService.obtenerTodas();
+            Object funciones = fields != null && limite != null ? funcionService.obtenerCampos(null, fields, limite, cursor)
+                    : fields != null ? funcionService.obtenerCampos(null, fields)
+                    : limite != null ? funcionService.obtenerPagina(null, limite, cursor)
+                    : funcionService.obtenerTodas();
             return ResponseEntity.ok(new ApiResponse(true, "Funciones obtenidas", funciones));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -62,10 +94,18 @@ public class FuncionController {
         }
     }
 
+    // Todas las funciones como NDJSON, escritas según se leen de Mongo
+    @GetMapping(value = "/stream", produces = Paginador.NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitir() {
+        StreamingResponseBody cuerpo = funcionService::exportar;
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Paginador.NDJSON)).body(cuerpo);
+    }
+
+    // Los listados públicos devuelven FuncionResumen salvo que se pidan campos con ?fields=
     @GetMapping("/activas")
-    public ResponseEntity<ApiResponse> obtenerActivas() {
+    public ResponseEntity<ApiResponse> obtenerActivas(@RequestParam(required = false) String fields) {
         try {
-            List<Funcion> funciones = funcionService.obtenerActivas();
+            List<?> funciones = funcionService.resumir(funcionService.obtenerActivas(), fields);
             return ResponseEntity.ok(new ApiResponse(true, "Funciones activas obtenidas", funciones));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -74,9 +114,9 @@ public class FuncionController {
     }
 
     @GetMapping("/futuras")
-    public ResponseEntity<ApiResponse> obtenerFuturas() {
+    public ResponseEntity<ApiResponse> obtenerFuturas(@RequestParam(required = false) String fields) {
         try {
-            List<Funcion> funciones = funcionService.obtenerFuturas();
+            List<?> funciones = funcionService.resumir(funcionService.obtenerFuturas(), fields);
             return ResponseEntity.ok(new ApiResponse(true, "Funciones futuras obtenidas", funciones));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -84,6 +124,50 @@ public class FuncionController {
         }
     }
 
+    // Estado compacto de los asientos. El ETag es la versión de los asientos:
+    // con If-None-Match igual responde 304 sin cuerpo
+    @GetMapping("/{id}/asientos")
+    public ResponseEntity<ApiResponse> obtenerAsientos(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            InstantaneaAsientos instantanea = sincronizacionAsientos.instantanea(id);
+            String etag = etagAsientos(instantanea.getVersion());
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag)
+                    .body(new ApiResponse(true, "Asientos obtenidos", instantanea));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    // Asientos que cambiaron desde una versión (304 si no hubo cambios)
+    @GetMapping("/{id}/asientos/cambios")
+    public ResponseEntity<ApiResponse> obtenerCambiosAsientos(
+            @PathVariable String id,
+            @RequestParam long desde,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            CambiosAsientos cambios = sincronizacionAsientos.cambios(id, desde);
+            String etag = etagAsientos(cambios.getVersion());
+            if (cambios.getVersion() == desde || etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag)
+                    .body(new ApiResponse(true, "Cambios de asientos obtenidos", cambios));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    private static String etagAsientos(long version) {
+        return "\"" + version + "\"";
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse> obtenerPorId(@PathVariable String id) {
         try {
@@ -98,9 +182,10 @@ public class FuncionController {
     }
 
     @GetMapping("/pelicula/{peliculaId}")
-    public ResponseEntity<ApiResponse> obtenerPorPelicula(@PathVariable String peliculaId) {
+    public ResponseEntity<ApiResponse> obtenerPorPelicula(@PathVariable String peliculaId,
+                                                          @RequestParam(required = false) String fields) {
         try {
-            List<Funcion> funciones = funcionService.obtenerPorPelicula(peliculaId);
+            List<?> funciones = funcionService.resumir(funcionService.obtenerPorPelicula(peliculaId), fields);
             return ResponseEntity.ok(new ApiResponse(
                     true,
                     "Funciones de la película obtenidas",
@@ -113,9 +198,15 @@ public class FuncionController {
     }
 
     @GetMapping("/sala/{salaId}")
-    public ResponseEntity<ApiResponse> obtenerPorSala(@PathVariable String salaId) {
+    public ResponseEntity<ApiResponse> obtenerPorSala(@PathVariable String salaId,
+                                                      @RequestParam(required = false) Integer limite,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) String fields) {
         try {
-            List<Funcion> funciones = funcionService.obtenerPorSala(salaId);
+            Object funciones = fields != null && limite != null ? funcionService.obtenerCampos(salaId, fields, limite, cursor)
+                    : fields != null ? funcionService.obtenerCampos(salaId, fields)
+                    : limite != null ? funcionService.obtenerPagina(salaId, limite, cursor)
+                    : funcionService.obtenerPorSala(salaId);
             return ResponseEntity.ok(new ApiResponse(
                     true,
                     "Funciones de la sala obtenidas",
@@ -147,6 +238,29 @@ public class FuncionController {
         }
     }
 
+    // Buscar y bloquear los mejores asientos juntos para un grupo
+    @PostMapping("/{id}/mejores-asientos")
+    public ResponseEntity<ApiResponse> bloquearMejoresAsientos(
+            @PathVariable String id,
+            @Valid @RequestBody MejoresAsientosDTO request) {
+        try {
+            MapaAsientos.Preferencia preferencia = request.getPreferencia() == null
+                    ? MapaAsientos.Preferencia.CENTRO
+                    : MapaAsientos.Preferencia.valueOf(request.getPreferencia());
+            AsignacionAsientos asignacion = funcionService.bloquearMejoresAsientos(
+                    id, request.getCantidad(), preferencia);
+
+            return ResponseEntity.ok(new ApiResponse(
+                    true,
+                    "Asientos bloqueados exitosamente",
+                    asignacion
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     // Liberar asientos
     @PostMapping("/{id}/liberar-asientos")
     public ResponseEntity<ApiResponse> liberarAsientos(
@@ -174,13 +288,8 @@ public class FuncionController {
         try {
             Funcion funcion = new Funcion();
 
-            Pelicula pelicula = new Pelicula();
-            pelicula.setId(funcionDTO.getPeliculaId());
-            funcion.setPelicula(pelicula);
-
-            Sala sala = new Sala();
-            sala.setId(funcionDTO.getSalaId());
-            funcion.setSala(sala);
+            funcion.setPeliculaId(funcionDTO.getPeliculaId());
+            funcion.setSalaId(funcionDTO.getSalaId());
 
             funcion.setFechaHora(funcionDTO.getFechaHora());
             funcion.setPrecio(funcionDTO.getPrecio());
@@ -0,0 +1,81 @@
+package com.cine.cinema.controller;
+
+import com.cine.cinema.dto.ApiResponse;
+import com.cine.cinema.dto.ListaEsperaDTO;
+import com.cine.cinema.dto.ReclamarOfertaDTO;
+import com.cine.cinema.model.EntradaListaEspera;
+import com.cine.cinema.model.Reserva;
+import com.cine.cinema.service.ListaEsperaService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/lista-espera")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ListaEsperaController {
+
+    private final ListaEsperaService listaEsperaService;
+
+    // Inscribirse en la lista de espera de una función agotada
+    @PostMapping
+    public ResponseEntity<ApiResponse> inscribir(@Valid @RequestBody ListaEsperaDTO request) {
+        try {
+            EntradaListaEspera entrada = listaEsperaService.inscribir(
+                    request.getFuncionId(), request.getUsuarioId(), request.getCantidad());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse(true, "Inscrito en la lista de espera", Map.of(
+                            "entrada", entrada,
+                            "posicion", listaEsperaService.obtenerPosicion(entrada)
+                    )));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    // Obtener entradas de un usuario
+    @GetMapping("/usuario/{usuarioId}")
+    public ResponseEntity<ApiResponse> obtenerPorUsuario(@PathVariable String usuarioId) {
+        try {
+            List<EntradaListaEspera> entradas = listaEsperaService.obtenerPorUsuario(usuarioId);
+            return ResponseEntity.ok(new ApiResponse(true, "Lista de espera obtenida", entradas));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "Error al obtener lista de espera: " + e.getMessage()));
+        }
+    }
+
+    // Reclamar los asientos ofrecidos (crea una reserva pendiente de pago)
+    @PostMapping("/{id}/reclamar")
+    public ResponseEntity<ApiResponse> reclamar(@PathVariable String id,
+                                                @Valid @RequestBody ReclamarOfertaDTO request) {
+        try {
+            Reserva reserva = listaEsperaService.reclamar(id, request.getUsuarioId(),
+                    request.getNombreCliente(), request.getEmailCliente());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse(true, "Asientos reclamados, reserva creada", reserva));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    // Salir de la lista de espera (solo quien se inscribió)
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse> cancelar(@PathVariable String id, @RequestParam String usuarioId) {
+        try {
+            listaEsperaService.cancelar(id, usuarioId);
+            return ResponseEntity.ok(new ApiResponse(true, "Saliste de la lista de espera"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+}
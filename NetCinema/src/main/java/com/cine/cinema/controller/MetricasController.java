@@ -0,0 +1,45 @@
+package com.cine.cinema.controller;
+
+import com.cine.cinema.dto.ApiResponse;
+import com.cine.cinema.service.BloqueoExpirationService;
+import com.cine.cinema.service.CatalogoCache;
+import com.cine.cinema.service.FilaVirtualService;
+import com.cine.cinema.service.FuncionLockManager;
+import com.cine.cinema.service.ReintentoOptimista;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metricas")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class MetricasController {
+
+    private final ReintentoOptimista reintentoOptimista;
+    private final FuncionLockManager funcionLockManager;
+    private final BloqueoExpirationService bloqueoExpirationService;
+    private final FilaVirtualService filaVirtualService;
+    private final CatalogoCache catalogoCache;
+
+    // Métricas internas (concurrencia, fila virtual y caché)
+    @GetMapping
+    public ResponseEntity<ApiResponse> obtenerMetricas() {
+        try {
+            Map<String, Object> metricas = new LinkedHashMap<>();
+            metricas.put("reintentosOptimistas", reintentoOptimista.getMetricas());
+            metricas.put("candadosActivos", funcionLockManager.getCandadosActivos());
+            metricas.put("bloqueosProgramados", bloqueoExpirationService.getBloqueosProgramados());
+            metricas.put("filaVirtual", filaVirtualService.getMetricas());
+            metricas.put("cacheCatalogo", catalogoCache.getMetricas());
+            return ResponseEntity.ok(new ApiResponse(true, "Métricas obtenidas", metricas));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "Error al obtener métricas: " + e.getMessage()));
+        }
+    }
+}
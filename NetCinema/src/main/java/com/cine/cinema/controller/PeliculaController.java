@@ -1,6 +1,7 @@
 package com.cine.cinema.controller;
 
 import com.cine.cinema.dto.ApiResponse;
+import com.cine.cinema.dto.PeliculaResumen;
 import com.cine.cinema.model.Pelicula;
 import com.cine.cinema.service.PeliculaService;
 import jakarta.validation.Valid;
@@ -34,11 +35,13 @@ public class PeliculaController {
         }
     }
 
-    // Obtener todas las películas
+    // Obtener todas las películas (con ?fields=id,titulo,... solo esos campos)
     @GetMapping
-    public ResponseEntity<ApiResponse> obtenerTodas() {
+    public ResponseEntity<ApiResponse> obtenerTodas(@RequestParam(required = false) String fields) {
         try {
-            List<Pelicula> peliculas = peliculaService.obtenerTodas();
+            List<?> peliculas = fields != null
+                    ? peliculaService.obtenerTodas(fields)
+                    : peliculaService.obtenerTodas();
             return ResponseEntity.ok(new ApiResponse(true, "Películas obtenidas", peliculas));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -46,11 +49,13 @@ public class PeliculaController {
         }
     }
 
-    // Obtener cartelera (películas activas)
+    // Obtener cartelera (películas activas, en su versión resumida)
     @GetMapping("/cartelera")
-    public ResponseEntity<ApiResponse> obtenerCartelera() {
+    public ResponseEntity<ApiResponse> obtenerCartelera(@RequestParam(required = false) String fields) {
         try {
-            List<Pelicula> cartelera = peliculaService.obtenerCartelera();
+            List<?> cartelera = fields != null
+                    ? peliculaService.obtenerCartelera(fields)
+                    : peliculaService.obtenerCartelera();
             return ResponseEntity.ok(new ApiResponse(true, "Cartelera obtenida", cartelera));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -72,6 +77,32 @@ public class PeliculaController {
         }
     }
 
+    // Buscar en la cartelera (título, director, actores, géneros, descripción), sin importar acentos
+    @GetMapping("/buscar")
+    public ResponseEntity<ApiResponse> buscar(@RequestParam String q,
+                                              @RequestParam(defaultValue = "20") int limite) {
+        try {
+            List<PeliculaResumen> peliculas = peliculaService.buscar(q, limite);
+            return ResponseEntity.ok(new ApiResponse(true, "Búsqueda completada", peliculas));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "Error en la búsqueda: " + e.getMessage()));
+        }
+    }
+
+    // Sugerencias de títulos mientras se escribe
+    @GetMapping("/autocompletar")
+    public ResponseEntity<ApiResponse> autocompletar(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "8") int limite) {
+        try {
+            List<PeliculaResumen> sugerencias = peliculaService.autocompletar(q, limite);
+            return ResponseEntity.ok(new ApiResponse(true, "Sugerencias obtenidas", sugerencias));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "Error en la búsqueda: " + e.getMessage()));
+        }
+    }
+
     // Buscar películas por título
     @GetMapping("/buscar/titulo/{titulo}")
     public ResponseEntity<ApiResponse> buscarPorTitulo(@PathVariable String titulo) {
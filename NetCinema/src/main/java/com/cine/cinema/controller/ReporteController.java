@@ -0,0 +1,90 @@
+package com.cine.cinema.controller;
+
+import com.cine.cinema.dto.ApiResponse;
+import com.cine.cinema.dto.FilaReporte;
+import com.cine.cinema.model.ResumenVentas;
+import com.cine.cinema.service.ReporteService;
+import com.cine.cinema.service.ResumenVentasService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reportes")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ReporteController {
+
+    // Periodo por defecto: los últimos 30 días
+    private static final int DIAS_POR_DEFECTO = 30;
+
+    private final ReporteService reporteService;
+    private final ResumenVentasService resumenVentasService;
+
+    // Totales al momento de una función (boletos, ingresos, pendientes, cancelaciones)
+    @GetMapping("/resumen/funcion/{funcionId}")
+    public ResponseEntity<ApiResponse> resumenFuncion(@PathVariable String funcionId) {
+        return resumen(ResumenVentas.FUNCION, funcionId);
+    }
+
+    // Totales al momento de las funciones de un día (yyyy-MM-dd)
+    @GetMapping("/resumen/dia/{fecha}")
+    public ResponseEntity<ApiResponse> resumenDia(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        return resumen(ResumenVentas.DIA, fecha.toString());
+    }
+
+    // Recalcular los resúmenes desde las reservas (también corre cada noche)
+    @PostMapping("/resumen/reconstruir")
+    public ResponseEntity<ApiResponse> reconstruirResumen() {
+        try {
+            Map<String, Long> resultado = resumenVentasService.reconstruir();
+            return ResponseEntity.ok(new ApiResponse(true, "Resumen reconstruido", resultado));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "Error al reconstruir el resumen: " + e.getMessage()));
+        }
+    }
+
+    // Ingresos, boletos y ocupación agrupados por funcion, pelicula, sala, tipo, dia o total
+    // (ej: /api/reportes/pelicula?desde=2025-01-01&hasta=2025-12-31)
+    @GetMapping("/{agrupacion}")
+    public ResponseEntity<ApiResponse> generar(
+            @PathVariable String agrupacion,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            LocalDate fin = hasta != null ? hasta : LocalDate.now();
+            LocalDate inicio = desde != null ? desde : fin.minusDays(DIAS_POR_DEFECTO - 1);
+
+            List<FilaReporte> reporte = reporteService.generar(ReporteService.Agrupacion.de(agrupacion), inicio, fin);
+            return ResponseEntity.ok(new ApiResponse(true, "Reporte generado", reporte));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(false, "Error al generar el reporte: " + e.getMessage()));
+        }
+    }
+
+    // Sin ventas todavía el resumen no existe: se devuelve en ceros
+    private ResponseEntity<ApiResponse> resumen(String tipo, String clave) {
+        try {
+            ResumenVentas resumen = resumenVentasService.obtener(tipo, clave).orElseGet(() -> {
+                ResumenVentas vacio = new ResumenVentas();
+                vacio.setId(ResumenVentas.id(tipo, clave));
+                vacio.setTipo(tipo);
+                vacio.setClave(clave);
+                return vacio;
+            });
+            return ResponseEntity.ok(new ApiResponse(true, "Resumen obtenido", resumen));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "Error al obtener el resumen: " + e.getMessage()));
+        }
+    }
+}
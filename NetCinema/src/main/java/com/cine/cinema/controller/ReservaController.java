@@ -1,19 +1,31 @@
 package com.cine.cinema.controller;
 
+import com.cine.cinema.config.ExportacionConfig;
+import com.cine.cinema.config.FilaVirtualInterceptor;
 import com.cine.cinema.dto.ApiResponse;
 import com.cine.cinema.dto.ReservaDTO;
-import com.cine.cinema.model.Funcion;
 import com.cine.cinema.model.Reserva;
-import com.cine.cinema.model.Usuario;
+import com.cine.cinema.service.FilaVirtualService;
+import com.cine.cinema.service.IdempotenciaService;
+import com.cine.cinema.service.Paginador;
 import com.cine.cinema.service.ReservaService;
+import com.cine.cinema.util.EscritorFilas;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/reservas")
@@ -22,20 +34,39 @@ import java.util.Map;
 public class ReservaController {
 
     private final ReservaService reservaService;
+    private final IdempotenciaService idempotenciaService;
+    private final FilaVirtualService filaVirtualService;
 
+    // Los clientes pueden mandar Idempotency-Key: un reintento con la misma llave
+    // recibe la respuesta original en lugar de crear otra reserva.
+    // Si la función tiene fila virtual hace falta un turno admitido en X-Turno-Fila
+    // (la función viene en el cuerpo, por eso no lo revisa FilaVirtualInterceptor)
     @PostMapping
-    public ResponseEntity<ApiResponse> crearReserva(@Valid @RequestBody ReservaDTO reservaDTO) {
+    public ResponseEntity<ApiResponse> crearReserva(
+            @Valid @RequestBody ReservaDTO reservaDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(value = FilaVirtualInterceptor.HEADER_TURNO, required = false) String turno) {
+        // Un reintento de una reserva ya creada no vuelve a pedir turno
+        ResponseEntity<ApiResponse> guardada = idempotenciaService.respuestaGuardada("crear-reserva", idempotencyKey, reservaDTO);
+        if (guardada != null) {
+            return guardada;
+        }
+        if (!filaVirtualService.puedePasar(reservaDTO.getFuncionId(), turno)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(new ApiResponse(false, "Esta función tiene fila virtual: tome un turno en /api/fila-virtual/"
+                            + reservaDTO.getFuncionId() + "/entrar"));
+        }
+        return idempotenciaService.ejecutar("crear-reserva", idempotencyKey, reservaDTO,
+                () -> crearReservaInterno(reservaDTO));
+    }
+
+    private ResponseEntity<ApiResponse> crearReservaInterno(ReservaDTO reservaDTO) {
         try {
             Reserva reserva = new Reserva();
-
-            Funcion funcion = new Funcion();
-            funcion.setId(reservaDTO.getFuncionId());
-            reserva.setFuncion(funcion);
+            reserva.setFuncionId(reservaDTO.getFuncionId());
 
             if (reservaDTO.getUsuarioId() != null && !reservaDTO.getUsuarioId().isEmpty()) {
-                Usuario usuario = new Usuario();
-                usuario.setId(reservaDTO.getUsuarioId());
-                reserva.setUsuario(usuario);
+                reserva.setUsuarioId(reservaDTO.getUsuarioId());
             }
 
             reserva.setNombreCliente(reservaDTO.getNombreCliente());
@@ -46,6 +77,10 @@ public class ReservaController {
 
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(new ApiResponse(true, "Reserva creada exitosamente", reservaCreada));
+        } catch (DataAccessException e) {
+            // Falla de la base, no de la solicitud: 503 para que el reintento con la misma llave se ejecute
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ApiResponse(false, "Error al crear la reserva: " + e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(new ApiResponse(false, e.getMessage()));
@@ -55,7 +90,13 @@ public class ReservaController {
     @PostMapping("/{id}/confirmar")
     public ResponseEntity<ApiResponse> confirmarReserva(
             @PathVariable String id,
-            @RequestBody Map<String, String> request) {
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotenciaService.ejecutar("confirmar-reserva:" + id, idempotencyKey, request,
+                () -> confirmarReservaInterno(id, request));
+    }
+
+    private ResponseEntity<ApiResponse> confirmarReservaInterno(String id, Map<String, String> request) {
         try {
             String metodoPago = request.get("metodoPago");
             Reserva reservaConfirmada = reservaService.confirmarReserva(id, metodoPago);
@@ -66,12 +107,28 @@ public class ReservaController {
                     "Reserva confirmada exitosamente",
                     reservaConfirmada
             ));
+        } catch (DataAccessException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ApiResponse(false, "Error al confirmar la reserva: " + e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(new ApiResponse(false, e.getMessage()));
         }
     }
 
+    // Heartbeat del checkout: extiende el bloqueo de los asientos mientras el cliente paga
+    @PostMapping("/{id}/renovar")
+    public ResponseEntity<ApiResponse> renovarBloqueo(@PathVariable String id) {
+        try {
+            long expiracion = reservaService.renovarBloqueo(id);
+            return ResponseEntity.ok(new ApiResponse(true, "Bloqueo renovado",
+                    Map.of("reservaId", id, "expiracion", expiracion)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     @PostMapping("/{id}/cancelar")
     public ResponseEntity<ApiResponse> cancelarReserva(@PathVariable String id) {
         try {
@@ -90,10 +147,17 @@ public class ReservaController {
         }
     }
 
+    // Con ?limite= devuelve una Pagina (siguienteCursor va en ?cursor= para la siguiente);
+    // con ?fields=id,codigoReserva,... solo esos campos (también por página si viene ?limite=)
     @GetMapping
-    public ResponseEntity<ApiResponse> obtenerTodas() {
+    public ResponseEntity<ApiResponse> obtenerTodas(@RequestParam(required = false) Integer limite,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) String fields) {
         try {
-            List<Reserva> reservas = reservaService.obtenerTodas();
+            Object reservas = fields != null && limite != null ? reservaService.obtenerCampos(null, fields, limite, cursor)
+                    : fields != null ? reservaService.obtenerCampos(null, fields)
+                    : limite != null ? reservaService.obtenerTodas(limite, cursor)
+                    : reservaService.obtenerTodas();
             return ResponseEntity.ok(new ApiResponse(true, "Reservas obtenidas", reservas));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -101,6 +165,51 @@ public class ReservaController {
         }
     }
 
+    // Todas las reservas (o las de un estado) como NDJSON, escritas según se leen de Mongo
+    @GetMapping(value = "/stream", produces = Paginador.NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitir(@RequestParam(required = false) String estado) {
+        StreamingResponseBody cuerpo = salida -> reservaService.exportar(estado, salida);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Paginador.NDJSON)).body(cuerpo);
+    }
+
+    // Exportación para contabilidad: reservas creadas en el periodo como CSV o NDJSON,
+    // opcionalmente en gzip (ej: /api/reservas/exportar?desde=2025-01-01&hasta=2025-01-31&formato=csv&gzip=true).
+    // Un periodo largo puede tardar más que spring.mvc.async.request-timeout, así que esta
+    // respuesta no tiene ese límite (ExportacionConfig)
+    @GetMapping("/exportar")
+    public ResponseEntity<?> exportar(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String estado,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request) {
+        EscritorFilas.Formato tipo;
+        try {
+            tipo = EscritorFilas.Formato.de(formato);
+            reservaService.filtroPeriodo(desde, hasta, estado);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, "Error al exportar reservas: " + e.getMessage()));
+        }
+
+        request.setAttribute(ExportacionConfig.SIN_LIMITE_DE_TIEMPO, true);
+        StreamingResponseBody cuerpo = salida -> {
+            if (!gzip) {
+                reservaService.exportarPeriodo(desde, hasta, estado, tipo, salida);
+                return;
+            }
+            GZIPOutputStream comprimida = new GZIPOutputStream(salida, 64 * 1024);
+            reservaService.exportarPeriodo(desde, hasta, estado, tipo, comprimida);
+            comprimida.finish();
+        };
+        String archivo = "reservas_" + desde + "_" + hasta + "." + tipo.extension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : tipo.tipoContenido()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(archivo).build().toString())
+                .body(cuerpo);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse> obtenerPorId(@PathVariable String id) {
         try {
@@ -128,9 +237,15 @@ public class ReservaController {
     }
 
     @GetMapping("/usuario/{usuarioId}")
-    public ResponseEntity<ApiResponse> obtenerPorUsuario(@PathVariable String usuarioId) {
+    public ResponseEntity<ApiResponse> obtenerPorUsuario(@PathVariable String usuarioId,
+                                                         @RequestParam(required = false) Integer limite,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) String fields) {
         try {
-            List<Reserva> reservas = reservaService.obtenerPorUsuario(usuarioId);
+            Object reservas = fields != null && limite != null ? reservaService.obtenerCampos(usuarioId, fields, limite, cursor)
+                    : fields != null ? reservaService.obtenerCampos(usuarioId, fields)
+                    : limite != null ? reservaService.obtenerPorUsuario(usuarioId, limite, cursor)
+                    : reservaService.obtenerPorUsuario(usuarioId);
             return ResponseEntity.ok(new ApiResponse(
                     true,
                     "Reservas del usuario obtenidas",
@@ -143,9 +258,13 @@ public class ReservaController {
     }
 
     @GetMapping("/email/{email}")
-    public ResponseEntity<ApiResponse> obtenerPorEmail(@PathVariable String email) {
+    public ResponseEntity<ApiResponse> obtenerPorEmail(@PathVariable String email,
+                                                       @RequestParam(required = false) Integer limite,
+                                                       @RequestParam(required = false) String cursor) {
         try {
-            List<Reserva> reservas = reservaService.obtenerPorEmail(email);
+            Object reservas = limite != null
+                    ? reservaService.obtenerPorEmail(email, limite, cursor)
+                    : reservaService.obtenerPorEmail(email);
             return ResponseEntity.ok(new ApiResponse(
                     true,
                     "Reservas del email obtenidas",
@@ -158,9 +277,13 @@ public class ReservaController {
     }
 
     @GetMapping("/funcion/{funcionId}")
-    public ResponseEntity<ApiResponse> obtenerPorFuncion(@PathVariable String funcionId) {
+    public ResponseEntity<ApiResponse> obtenerPorFuncion(@PathVariable String funcionId,
+                                                         @RequestParam(required = false) Integer limite,
+                                                         @RequestParam(required = false) String cursor) {
         try {
-            List<Reserva> reservas = reservaService.obtenerPorFuncion(funcionId);
+            Object reservas = limite != null
+                    ? reservaService.obtenerPorFuncion(funcionId, limite, cursor)
+                    : reservaService.obtenerPorFuncion(funcionId);
             return ResponseEntity.ok(new ApiResponse(
                     true,
                     "Reservas de la función obtenidas",
@@ -173,9 +296,13 @@ public class ReservaController {
     }
 
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<ApiResponse> obtenerPorEstado(@PathVariable String estado) {
+    public ResponseEntity<ApiResponse> obtenerPorEstado(@PathVariable String estado,
+                                                        @RequestParam(required = false) Integer limite,
+                                                        @RequestParam(required = false) String cursor) {
         try {
-            List<Reserva> reservas = reservaService.obtenerPorEstado(estado);
+            Object reservas = limite != null
+                    ? reservaService.obtenerPorEstado(estado, limite, cursor)
+                    : reservaService.obtenerPorEstado(estado);
             return ResponseEntity.ok(new ApiResponse(
                     true,
                     "Reservas con estado obtenidas",
@@ -4,14 +4,15 @@ import com.cine.cinema.dto.ApiResponse;
 import com.cine.cinema.dto.LoginRequest;
 import com.cine.cinema.dto.UsuarioDTO;
 import com.cine.cinema.model.Usuario;
+import com.cine.cinema.service.Paginador;
 import com.cine.cinema.service.UsuarioService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/usuarios")
@@ -72,11 +73,14 @@ public class UsuarioController {
         }
     }
 
-    // Obtener todos los usuarios
+    // Obtener todos los usuarios (con ?limite= y ?cursor=, por páginas)
     @GetMapping
-    public ResponseEntity<ApiResponse> obtenerTodos() {
+    public ResponseEntity<ApiResponse> obtenerTodos(@RequestParam(required = false) Integer limite,
+                                                    @RequestParam(required = false) String cursor) {
         try {
-            List<Usuario> usuarios = usuarioService.obtenerTodos();
+            Object usuarios = limite != null
+                    ? usuarioService.obtenerTodos(limite, cursor)
+                    : usuarioService.obtenerTodos();
             return ResponseEntity.ok(new ApiResponse(true, "Usuarios obtenidos", usuarios));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -84,6 +88,13 @@ public class UsuarioController {
         }
     }
 
+    // Todos los usuarios como NDJSON, escritos según se leen de Mongo
+    @GetMapping(value = "/stream", produces = Paginador.NDJSON)
+    public ResponseEntity<StreamingResponseBody> transmitir() {
+        StreamingResponseBody cuerpo = usuarioService::exportar;
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(Paginador.NDJSON)).body(cuerpo);
+    }
+
     // Obtener usuario por ID
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse> obtenerPorId(@PathVariable String id) {
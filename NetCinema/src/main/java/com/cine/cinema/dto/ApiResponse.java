@@ -2,8 +2,10 @@ package com.cine.cinema.dto;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class ApiResponse {
     private boolean success;
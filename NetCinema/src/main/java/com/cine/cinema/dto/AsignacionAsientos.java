@@ -0,0 +1,14 @@
+package com.cine.cinema.dto;
+
+import com.cine.cinema.model.Funcion;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AsignacionAsientos {
+    private Funcion funcion;
+    private List<String> asientos; // Asientos que quedaron bloqueados
+}
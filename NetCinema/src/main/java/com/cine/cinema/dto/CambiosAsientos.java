@@ -0,0 +1,30 @@
+package com.cine.cinema.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Asientos que cambiaron entre la versión `desde` y `version`.
+ * Si el servidor ya no tiene la versión `desde`, completo es true y viene la
+ * instantánea entera en lugar de los cambios.
+ */
+@Data
+@AllArgsConstructor
+public class CambiosAsientos {
+    private String funcionId;
+    private long desde;
+    private long version;
+    private boolean completo;
+    private InstantaneaAsientos instantanea;
+    private List<String> ocupados;         // Pasaron a ocupados
+    private Map<String, Long> bloqueados;  // Bloqueados o renovados, con su expiración
+    private List<String> liberados;        // Volvieron a estar disponibles
+
+    public static CambiosAsientos completo(long desde, InstantaneaAsientos instantanea) {
+        return new CambiosAsientos(instantanea.getFuncionId(), desde, instantanea.getVersion(), true,
+                instantanea, null, null, null);
+    }
+}
@@ -0,0 +1,20 @@
+package com.cine.cinema.dto;
+
+import lombok.Data;
+
+/**
+ * Una fila de un reporte de ventas: los totales de un grupo (una función, película,
+ * sala, tipo de sala o día). ocupacion = boletos / capacidad de las funciones del
+ * grupo; null si el grupo no tiene funciones activas en el periodo.
+ */
+@Data
+public class FilaReporte {
+    private String clave;       // ID de la función/película/sala, tipo o fecha (yyyy-MM-dd)
+    private String nombre;      // Título de la película o nombre de la sala, si aplica
+    private long funciones;
+    private long capacidad;     // Asientos de todas las funciones del grupo
+    private long boletos;       // Asientos vendidos (reservas confirmadas)
+    private long reservas;
+    private double ingresos;
+    private Double ocupacion;
+}
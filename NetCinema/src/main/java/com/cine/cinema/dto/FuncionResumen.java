@@ -0,0 +1,51 @@
+package com.cine.cinema.dto;
+
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.model.ReferenciaPelicula;
+import com.cine.cinema.model.ReferenciaSala;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lo que muestran los listados de funciones: sin la lista de asientos, solo cuántos
+ * quedan. El mapa completo se pide con GET /api/funciones/{id}.
+ */
+@Data
+@AllArgsConstructor
+public class FuncionResumen {
+    private String id;
+    private LocalDateTime fechaHora;
+    private Double precio;
+    private Boolean activa;
+    private ReferenciaPelicula pelicula;
+    private ReferenciaSala sala;
+    private int ocupados;
+    private int disponibles;
+
+    public static FuncionResumen de(Funcion funcion) {
+        int ocupados = 0;
+        int disponibles = 0;
+        if (funcion.getFilas() != null && funcion.getColumnas() != null) {
+            MapaAsientos mapa = funcion.getMapaAsientos();
+            int bloqueados = 0;
+            int ahora = MapaAsientos.segundos(System.currentTimeMillis());
+            for (Integer expiracion : funcion.getBloqueos().values()) {
+                if (expiracion > ahora) {
+                    bloqueados++;
+                }
+            }
+            ocupados = mapa.contarOcupados();
+            disponibles = mapa.getCapacidad() - ocupados - bloqueados;
+        }
+        return new FuncionResumen(funcion.getId(), funcion.getFechaHora(), funcion.getPrecio(),
+                funcion.getActiva(), funcion.getPelicula(), funcion.getSala(), ocupados, disponibles);
+    }
+
+    public static List<FuncionResumen> de(List<Funcion> funciones) {
+        return funciones.stream().map(FuncionResumen::de).toList();
+    }
+}
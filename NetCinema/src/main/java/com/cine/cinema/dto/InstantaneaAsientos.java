@@ -0,0 +1,23 @@
+package com.cine.cinema.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Estado compacto de los asientos de una función en una versión.
+ * ocupados es el bitmap en base64 (8 bytes por cada 64 asientos, little-endian:
+ * el bit i es el asiento con índice i = fila * columnas + columna).
+ * bloqueados trae solo los asientos con bloqueo y su expiración en milisegundos.
+ */
+@Data
+@AllArgsConstructor
+public class InstantaneaAsientos {
+    private String funcionId;
+    private long version;
+    private int filas;
+    private int columnas;
+    private String ocupados;
+    private Map<String, Long> bloqueados;
+}
@@ -0,0 +1,22 @@
+package com.cine.cinema.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class ListaEsperaDTO {
+
+    @NotBlank(message = "El ID de la función es obligatorio")
+    private String funcionId;
+
+    @NotBlank(message = "El ID del usuario es obligatorio")
+    private String usuarioId;
+
+    @NotNull(message = "La cantidad de asientos es obligatoria")
+    @Min(value = 1, message = "Debe pedir al menos 1 asiento")
+    @Max(value = 20, message = "No se pueden pedir más de 20 asientos juntos")
+    private Integer cantidad;
+}
@@ -0,0 +1,19 @@
+package com.cine.cinema.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+@Data
+public class MejoresAsientosDTO {
+
+    @NotNull(message = "La cantidad de asientos es obligatoria")
+    @Min(value = 1, message = "Debe pedir al menos 1 asiento")
+    @Max(value = 20, message = "No se pueden pedir más de 20 asientos juntos")
+    private Integer cantidad;
+
+    @Pattern(regexp = "CENTRO|ATRAS|FRENTE", message = "La preferencia debe ser CENTRO, ATRAS o FRENTE")
+    private String preferencia = "CENTRO";
+}
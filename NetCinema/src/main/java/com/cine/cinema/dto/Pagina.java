@@ -0,0 +1,18 @@
+package com.cine.cinema.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Una página de un listado, de la más reciente a la más antigua.
+ * Para pedir la siguiente se manda siguienteCursor como ?cursor=; es null en la última.
+ */
+@Data
+@AllArgsConstructor
+public class Pagina<T> {
+    private List<T> contenido;
+    private String siguienteCursor;
+    private int limite;
+}
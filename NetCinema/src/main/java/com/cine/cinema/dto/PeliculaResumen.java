@@ -0,0 +1,21 @@
+package com.cine.cinema.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Lo que muestra la cartelera de cada película. PeliculaRepository la usa como
+ * proyección, así que Mongo solo devuelve estos campos (sin descripción ni actores).
+ */
+@Data
+@AllArgsConstructor
+public class PeliculaResumen {
+    private String id;
+    private String titulo;
+    private List<String> generos;
+    private Integer duracion;
+    private String clasificacion;
+    private String posterUrl;
+}
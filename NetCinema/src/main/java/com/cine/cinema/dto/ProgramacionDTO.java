@@ -0,0 +1,52 @@
+package com.cine.cinema.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Plantilla para programar muchas funciones de una vez (ej: la semana de un complejo).
+ * Cada bloque es una película en una sala con sus horarios; se repite en cada día
+ * entre fechaInicio y fechaFin (ambas incluidas) que esté en `dias`, o en todos si
+ * no se indican.
+ */
+@Data
+public class ProgramacionDTO {
+
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    private LocalDate fechaInicio;
+
+    @NotNull(message = "La fecha de fin es obligatoria")
+    private LocalDate fechaFin;
+
+    @NotEmpty(message = "Debe indicar al menos un bloque")
+    @Valid
+    private List<Bloque> bloques;
+
+    @Data
+    public static class Bloque {
+
+        @NotBlank(message = "El ID de la película es obligatorio")
+        private String peliculaId;
+
+        @NotBlank(message = "El ID de la sala es obligatorio")
+        private String salaId;
+
+        @NotEmpty(message = "Debe indicar al menos un horario")
+        private List<LocalTime> horarios; // Ej: ["14:00", "17:30", "21:00"]
+
+        private List<DayOfWeek> dias; // Ej: ["FRIDAY", "SATURDAY"]; vacío = todos
+
+        @NotNull(message = "El precio es obligatorio")
+        @Min(value = 1, message = "El precio debe ser mayor a 0")
+        private Double precio;
+    }
+}
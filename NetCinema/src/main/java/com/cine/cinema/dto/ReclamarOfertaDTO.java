@@ -0,0 +1,20 @@
+package com.cine.cinema.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class ReclamarOfertaDTO {
+
+    // Solo quien se inscribió puede reclamar la oferta
+    @NotBlank(message = "El usuario es obligatorio")
+    private String usuarioId;
+
+    @NotBlank(message = "El nombre del cliente es obligatorio")
+    private String nombreCliente;
+
+    @NotBlank(message = "El email del cliente es obligatorio")
+    @Email(message = "Email debe ser válido")
+    private String emailCliente;
+}
@@ -0,0 +1,28 @@
+package com.cine.cinema.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una programación por lotes: las funciones creadas y, para cada una
+ * que no se pudo crear, el motivo.
+ */
+@Data
+public class ResultadoProgramacion {
+    private int solicitadas;
+    private List<String> creadas = new ArrayList<>(); // IDs de las funciones creadas
+    private List<Fallo> fallos = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    public static class Fallo {
+        private String peliculaId;
+        private String salaId;
+        private LocalDateTime fechaHora;
+        private String motivo;
+    }
+}
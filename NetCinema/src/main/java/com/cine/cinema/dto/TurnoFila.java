@@ -0,0 +1,39 @@
+package com.cine.cinema.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Turno de la fila virtual de una función.
+ * Solo vive en memoria: si la instancia se reinicia, los clientes vuelven a formarse.
+ */
+@Data
+@NoArgsConstructor
+public class TurnoFila {
+
+    public static final String ESPERANDO = "ESPERANDO";
+    public static final String ADMITIDO = "ADMITIDO";
+    public static final String CANCELADO = "CANCELADO";
+
+    private String token;
+    private String funcionId;
+    private String usuarioId;
+    private String estado = ESPERANDO;
+    private long posicion;      // 0 cuando ya fue admitido
+    private Long admitidoHasta; // milisegundos
+
+    @JsonIgnore
+    private long numero; // Orden de llegada dentro de la función
+
+    @JsonIgnore
+    private volatile long ultimaConsulta;
+
+    public TurnoFila(String token, String funcionId, String usuarioId, long numero) {
+        this.token = token;
+        this.funcionId = funcionId;
+        this.usuarioId = usuarioId;
+        this.numero = numero;
+        this.ultimaConsulta = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,21 @@
+package com.cine.cinema.event;
+
+import java.util.List;
+
+/**
+ * Cambio en los asientos de una función, publicado por FuncionService.
+ * Los códigos van normalizados (ej: "B5").
+ */
+public record AsientosEvent(Tipo tipo, String funcionId, List<String> asientos, long expiracionMs) {
+
+    public enum Tipo {
+        BLOQUEADOS,
+        CONFIRMADOS,
+        LIBERADOS,
+        EXPIRADOS
+    }
+
+    public static AsientosEvent de(Tipo tipo, String funcionId, List<String> asientos) {
+        return new AsientosEvent(tipo, funcionId, asientos, 0);
+    }
+}
@@ -0,0 +1,9 @@
+package com.cine.cinema.event;
+
+/**
+ * Cambio en el catálogo (películas, salas o funciones) que invalida las listas cacheadas.
+ * entidad: "pelicula", "sala" o "funcion"; "programacion" para un lote de funciones
+ * nuevas creadas de una vez (id null).
+ */
+public record CatalogoEvent(String entidad, String id) {
+}
@@ -0,0 +1,57 @@
+package com.cine.cinema.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Usuario esperando asientos de una función agotada.
+ * Cuando se liberan asientos se le bloquean y se le ofrecen; tiene lo que dura
+ * el bloqueo para reclamarlos antes de que pasen al siguiente de la fila.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "lista_espera")
+@CompoundIndexes({
+        @CompoundIndex(name = "funcion_estado_fecha", def = "{'funcionId': 1, 'estado': 1, 'fechaRegistro': 1}"),
+        @CompoundIndex(name = "usuario_fecha", def = "{'usuarioId': 1, 'fechaRegistro': -1}")
+})
+public class EntradaListaEspera {
+
+    public static final String ESPERANDO = "ESPERANDO";
+    public static final String OFRECIDO = "OFRECIDO";
+    public static final String ATENDIDO = "ATENDIDO";
+    public static final String VENCIDO = "VENCIDO";
+    public static final String CANCELADO = "CANCELADO";
+
+    @Id
+    private String id;
+
+    private String funcionId;
+
+    private String usuarioId;
+
+    private Integer cantidad;
+
+    private String estado = ESPERANDO;
+
+    private LocalDateTime fechaRegistro = LocalDateTime.now();
+
+    // Asientos bloqueados para el usuario mientras dura la oferta
+    private List<String> asientosOfrecidos = new ArrayList<>();
+
+    private Long ofertaExpiraEn; // milisegundos
+
+    public EntradaListaEspera(String funcionId, String usuarioId, Integer cantidad) {
+        this.funcionId = funcionId;
+        this.usuarioId = usuarioId;
+        this.cantidad = cantidad;
+    }
+}
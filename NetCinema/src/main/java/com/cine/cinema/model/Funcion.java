@@ -1,11 +1,17 @@
 package com.cine.cinema.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mongodb.DBRef;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -19,18 +25,38 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "funciones")
+@CompoundIndexes({
+        @CompoundIndex(name = "sala_fecha", def = "{'salaId': 1, 'fechaHora': 1}"),
+        @CompoundIndex(name = "pelicula_activa_fecha", def = "{'peliculaId': 1, 'activa': 1, 'fechaHora': 1}"),
+        @CompoundIndex(name = "activa_fecha", def = "{'activa': 1, 'fechaHora': 1}"),
+        @CompoundIndex(name = "fecha", def = "{'fechaHora': 1}")
+})
 public class Funcion {
 
     @Id
     private String id;
 
-    @DBRef
     @NotNull(message = "La película es obligatoria")
-    private Pelicula pelicula;
+    private String peliculaId;
 
-    @DBRef
     @NotNull(message = "La sala es obligatoria")
-    private Sala sala;
+    private String salaId;
+
+    // Copias de lo que se muestra de la película y la sala, para no cargarlas por separado
+    @Field("peliculaResumen")
+    private ReferenciaPelicula pelicula;
+
+    @Field("salaResumen")
+    private ReferenciaSala sala;
+
+    // Formato anterior (DBRef). Solo se lee, hasta que MigracionReferencias lo convierte
+    @JsonIgnore
+    @Field("pelicula")
+    private DBRef peliculaLegado;
+
+    @JsonIgnore
+    @Field("sala")
+    private DBRef salaLegado;
 
     @NotNull(message = "La fecha y hora son obligatorias")
     private LocalDateTime fechaHora;
@@ -38,32 +64,92 @@ public class Funcion {
     @Min(value = 1, message = "El precio debe ser mayor a 0")
     private Double precio;
 
-    // Lista de asientos ocupados definitivamente (formato: "A1", "B5", etc.)
-    private List<String> asientosOcupados = new ArrayList<>();
+    // Geometría de la sala al crear la función (los índices de asiento dependen de ella)
+    private Integer filas;
+    private Integer columnas;
 
-    // Map de asientos bloqueados temporalmente
-    // Key: asiento (ej: "A1"), Value: timestamp de expiración
-    private Map<String, Long> asientosBloqueados = new HashMap<>();
+    // Bitmap de asientos ocupados definitivamente: bit i = asiento con índice i
+    // (índice = fila * columnas + columna, ej: "B5" en una sala de 10 columnas es 14)
+    @JsonIgnore
+    private long[] ocupados;
+
+    // Bloqueos temporales: key = índice del asiento, value = expiración
+    // en segundos desde MapaAsientos.EPOCA_MS. Solo se guardan los asientos bloqueados.
+    @JsonIgnore
+    private Map<String, Integer> bloqueos = new HashMap<>();
 
     private Boolean activa = true;
 
+    // Sube con cada cambio en los asientos (bloqueo, renovación, compra, liberación).
+    // Los clientes la usan para pedir solo los cambios (ver SincronizacionAsientos)
+    private long versionAsientos;
+
+    // Control de concurrencia optimista: save() falla si otro escritor cambió el documento
+    // (las operaciones de asientos también lo incrementan)
+    @Version
+    private Long version;
+
+    // Id de la película, también en documentos aún sin migrar
+    public String getPeliculaId() {
+        return peliculaId != null ? peliculaId : idDe(peliculaLegado);
+    }
+
+    // Id de la sala, también en documentos aún sin migrar
+    public String getSalaId() {
+        return salaId != null ? salaId : idDe(salaLegado);
+    }
+
+    static String idDe(DBRef ref) {
+        return ref == null ? null : ref.getId().toString();
+    }
+
+    // Prepara el mapa vacío con la geometría de la sala
+    public void inicializarAsientos(Sala sala) {
+        this.filas = sala.getFilas();
+        this.columnas = sala.getColumnas();
+        this.ocupados = new long[MapaAsientos.palabrasPara(filas * columnas)];
+        this.bloqueos = new HashMap<>();
+    }
+
+    // Vista compacta del estado de los asientos. Sin geometría (función sin asientos
+    // inicializados, o leída con una proyección que no trajo filas/columnas) no hay mapa
+    @JsonIgnore
+    @Transient
+    public MapaAsientos getMapaAsientos() {
+        if (!tieneMapaAsientos()) {
+            throw new RuntimeException("La función " + id + " no tiene mapa de asientos");
+        }
+        return MapaAsientos.desdePersistido(filas, columnas, ocupados, bloqueos);
+    }
+
+    public boolean tieneMapaAsientos() {
+        return filas != null && columnas != null;
+    }
+
+    // Copia al documento el estado de un mapa modificado en memoria
+    public void aplicarMapaAsientos(MapaAsientos mapa) {
+        this.ocupados = mapa.getOcupados();
+        this.bloqueos = mapa.getBloqueosPersistidos();
+    }
+
+    // Lista de asientos ocupados (formato: "A1", "B5", etc.), para los clientes
+    @Transient
+    public List<String> getAsientosOcupados() {
+        return tieneMapaAsientos() ? getMapaAsientos().getCodigosOcupados() : new ArrayList<>();
+    }
+
+    // Asientos bloqueados para los clientes. Key: asiento (ej: "A1"), Value: timestamp de expiración
+    @Transient
+    public Map<String, Long> getAsientosBloqueados() {
+        return tieneMapaAsientos() ? getMapaAsientos().getBloqueosPorCodigo() : new HashMap<>();
+    }
+
     // Método auxiliar para verificar si un asiento está disponible
     public boolean isAsientoDisponible(String asiento) {
-        // Si está ocupado, no está disponible
-        if (asientosOcupados.contains(asiento)) {
+        if (!tieneMapaAsientos()) {
             return false;
         }
-
-        // Si está bloqueado, verificar si el bloqueo expiró
-        if (asientosBloqueados.containsKey(asiento)) {
-            Long expiracion = asientosBloqueados.get(asiento);
-            if (System.currentTimeMillis() < expiracion) {
-                return false; // Aún bloqueado
-            }
-            // El bloqueo expiró, removerlo
-            asientosBloqueados.remove(asiento);
-        }
-
-        return true;
+        MapaAsientos mapa = getMapaAsientos();
+        return mapa.isDisponible(mapa.indice(asiento), System.currentTimeMillis());
     }
-}
\ No newline at end of file
+}
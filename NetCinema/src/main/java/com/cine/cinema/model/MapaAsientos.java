@@ -0,0 +1,396 @@
+package com.cine.cinema.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estado de los asientos de una función en forma compacta.
+ * Cada asiento se identifica por un índice fila * columnas + columna:
+ * los ocupados van en un bitmap y los bloqueos en un arreglo de expiraciones
+ * (segundos desde EPOCA_MS, 0 = sin bloqueo).
+ */
+public class MapaAsientos {
+
+    // Los bloqueos se guardan en segundos desde 2024-01-01 para que quepan en un int
+    public static final long EPOCA_MS = 1_704_067_200_000L;
+
+    private final int filas;
+    private final int columnas;
+    private final long[] ocupados;
+    private final int[] expiraciones;
+
+    // Índice de corridas libres: el bloque contiguo libre más largo de cada fila.
+    // Se calcula la primera vez que se busca y luego se mantiene fila por fila.
+    private int[] maxLibrePorFila;
+
+    // Preferencia de ubicación al buscar los mejores asientos
+    public enum Preferencia {
+        CENTRO,
+        ATRAS,
+        FRENTE
+    }
+
+    public MapaAsientos(int filas, int columnas) {
+        if (filas < 1 || columnas < 1) {
+            throw new RuntimeException("La sala debe tener al menos una fila y una columna");
+        }
+        this.filas = filas;
+        this.columnas = columnas;
+        this.ocupados = new long[palabrasPara(filas * columnas)];
+        this.expiraciones = new int[filas * columnas];
+    }
+
+    // Reconstruye el mapa a partir de lo que se guarda en el documento de la función
+    public static MapaAsientos desdePersistido(int filas, int columnas, long[] ocupados, Map<String, Integer> bloqueos) {
+        MapaAsientos mapa = new MapaAsientos(filas, columnas);
+        if (ocupados != null) {
+            System.arraycopy(ocupados, 0, mapa.ocupados, 0, Math.min(ocupados.length, mapa.ocupados.length));
+        }
+        if (bloqueos != null) {
+            bloqueos.forEach((indice, expiracion) -> {
+                int i = Integer.parseInt(indice);
+                if (i >= 0 && i < mapa.getCapacidad() && expiracion != null) {
+                    mapa.expiraciones[i] = expiracion;
+                }
+            });
+        }
+        return mapa;
+    }
+
+    // ========== Índices y códigos ==========
+
+    public static int palabrasPara(int capacidad) {
+        return (capacidad + 63) >>> 6;
+    }
+
+    public static int palabra(int indice) {
+        return indice >>> 6;
+    }
+
+    public static int bit(int indice) {
+        return indice & 63;
+    }
+
+    // Convierte un código como "B5" en su índice; la fila es la letra (A = 0) y la columna empieza en 1
+    public static int indice(String codigo, int filas, int columnas) {
+        if (codigo == null || codigo.isEmpty()) {
+            throw new RuntimeException("Código de asiento inválido: " + codigo);
+        }
+
+        int fila = 0;
+        int pos = 0;
+        while (pos < codigo.length() && Character.isLetter(codigo.charAt(pos))) {
+            char letra = Character.toUpperCase(codigo.charAt(pos));
+            if (letra < 'A' || letra > 'Z' || pos >= 2) {
+                throw new RuntimeException("Código de asiento inválido: " + codigo);
+            }
+            fila = fila * 26 + (letra - 'A' + 1);
+            pos++;
+        }
+
+        int columna = 0;
+        int digitos = 0;
+        while (pos < codigo.length() && Character.isDigit(codigo.charAt(pos)) && digitos < 4) {
+            columna = columna * 10 + (codigo.charAt(pos) - '0');
+            pos++;
+            digitos++;
+        }
+
+        if (fila == 0 || digitos == 0 || pos != codigo.length()) {
+            throw new RuntimeException("Código de asiento inválido: " + codigo);
+        }
+        if (fila > filas || columna < 1 || columna > columnas) {
+            throw new RuntimeException("El asiento " + codigo + " no existe en la sala");
+        }
+        return (fila - 1) * columnas + (columna - 1);
+    }
+
+    public static int[] indices(List<String> codigos, int filas, int columnas) {
+        if (codigos == null || codigos.isEmpty()) {
+            throw new RuntimeException("Debe seleccionar al menos un asiento");
+        }
+        int[] indices = new int[codigos.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indice(codigos.get(i), filas, columnas);
+            // Una reserva trae pocos asientos: comparar contra los anteriores basta ("a1" y "A1" son el mismo)
+            for (int j = 0; j < i; j++) {
+                if (indices[j] == indices[i]) {
+                    throw new RuntimeException("El asiento " + codigos.get(i) + " está repetido");
+                }
+            }
+        }
+        return indices;
+    }
+
+    public int indice(String codigo) {
+        return indice(codigo, filas, columnas);
+    }
+
+    public int[] indices(List<String> codigos) {
+        return indices(codigos, filas, columnas);
+    }
+
+    public String codigo(int indice) {
+        return codigo(indice, columnas);
+    }
+
+    public static String codigo(int indice, int columnas) {
+        return nombreFila(indice / columnas) + (indice % columnas + 1);
+    }
+
+    public static List<String> codigos(int[] indices, int columnas) {
+        List<String> codigos = new ArrayList<>(indices.length);
+        for (int indice : indices) {
+            codigos.add(codigo(indice, columnas));
+        }
+        return codigos;
+    }
+
+    private static String nombreFila(int fila) {
+        StringBuilder nombre = new StringBuilder();
+        int n = fila + 1;
+        while (n > 0) {
+            n--;
+            nombre.insert(0, (char) ('A' + n % 26));
+            n /= 26;
+        }
+        return nombre.toString();
+    }
+
+    // ========== Consultas ==========
+
+    public boolean isOcupado(int indice) {
+        return (ocupados[palabra(indice)] & (1L << bit(indice))) != 0;
+    }
+
+    public boolean isBloqueado(int indice, long ahoraMs) {
+        return expiraciones[indice] > segundos(ahoraMs);
+    }
+
+    public boolean isDisponible(int indice, long ahoraMs) {
+        return !isOcupado(indice) && !isBloqueado(indice, ahoraMs);
+    }
+
+    // El bloqueo sigue vigente y, si se da la expiración con la que se tomó, es ese mismo
+    // bloqueo: uno vencido pudo liberarse y volver a bloquearse para otro cliente
+    public boolean isBloqueoVigente(int indice, Integer expiracion, long ahoraMs) {
+        return isBloqueado(indice, ahoraMs) && (expiracion == null || expiraciones[indice] == expiracion);
+    }
+
+    // Un bloqueo registrado (vigente o ya expirado pero aún sin limpiar)
+    public boolean tieneBloqueo(int indice) {
+        return expiraciones[indice] != 0;
+    }
+
+    public int getExpiracion(int indice) {
+        return expiraciones[indice];
+    }
+
+    // ========== Cambios ==========
+
+    public void ocupar(int indice) {
+        ocupados[palabra(indice)] |= 1L << bit(indice);
+        expiraciones[indice] = 0;
+        actualizarIndiceFila(indice / columnas);
+    }
+
+    public void bloquear(int indice, int expiracion) {
+        expiraciones[indice] = expiracion;
+        actualizarIndiceFila(indice / columnas);
+    }
+
+    public void liberar(int indice) {
+        expiraciones[indice] = 0;
+        actualizarIndiceFila(indice / columnas);
+    }
+
+    // Quita los bloqueos expirados y devuelve cuántos había
+    public int limpiarExpirados(long ahoraMs) {
+        int ahora = segundos(ahoraMs);
+        int limpiados = 0;
+        for (int i = 0; i < expiraciones.length; i++) {
+            if (expiraciones[i] != 0 && expiraciones[i] <= ahora) {
+                expiraciones[i] = 0;
+                limpiados++;
+            }
+        }
+        if (limpiados > 0) {
+            maxLibrePorFila = null;
+        }
+        return limpiados;
+    }
+
+    // ========== Mejores asientos ==========
+
+    /**
+     * Busca el mejor bloque de asientos contiguos en una misma fila.
+     * Las filas que no tienen una corrida libre suficiente se descartan con el índice
+     * sin recorrer sus asientos. Devuelve los índices del bloque o null si no hay.
+     * Un asiento con bloqueo registrado no cuenta como libre aunque ya haya vencido.
+     */
+    public int[] buscarBloqueContiguo(int cantidad, Preferencia preferencia) {
+        if (cantidad < 1 || cantidad > columnas) {
+            return null;
+        }
+        if (maxLibrePorFila == null) {
+            maxLibrePorFila = new int[filas];
+            for (int fila = 0; fila < filas; fila++) {
+                actualizarIndiceFila(fila);
+            }
+        }
+
+        // Fila ideal para CENTRO: un poco detrás de la mitad, donde mejor se ve la pantalla
+        int filaIdeal = filas * 3 / 5;
+        int inicioIdeal = (columnas - cantidad) / 2;
+
+        int mejorFila = -1;
+        int mejorInicio = -1;
+        long mejorPuntaje = Long.MAX_VALUE;
+
+        for (int fila = 0; fila < filas; fila++) {
+            if (maxLibrePorFila[fila] < cantidad) {
+                continue;
+            }
+            int inicio = mejorInicioEnFila(fila, cantidad, inicioIdeal);
+            int distanciaColumna = Math.abs(inicio - inicioIdeal);
+
+            // CENTRO equilibra fila y columna; ATRAS y FRENTE priorizan la fila
+            // y dentro de ella buscan lo más centrado posible
+            long puntaje = switch (preferencia) {
+                case CENTRO -> 2L * Math.abs(fila - filaIdeal) + distanciaColumna;
+                case ATRAS -> (long) (filas - 1 - fila) * (columnas + 1) + distanciaColumna;
+                case FRENTE -> (long) fila * (columnas + 1) + distanciaColumna;
+            };
+            if (puntaje < mejorPuntaje) {
+                mejorPuntaje = puntaje;
+                mejorFila = fila;
+                mejorInicio = inicio;
+            }
+        }
+
+        if (mejorFila < 0) {
+            return null;
+        }
+        int[] bloque = new int[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            bloque[i] = mejorFila * columnas + mejorInicio + i;
+        }
+        return bloque;
+    }
+
+    // Columna inicial del bloque libre de la fila más cercano a la columna ideal
+    private int mejorInicioEnFila(int fila, int cantidad, int inicioIdeal) {
+        int base = fila * columnas;
+        int mejor = -1;
+        int corrida = 0;
+        for (int columna = 0; columna <= columnas; columna++) {
+            if (columna < columnas && isLibreParaIndice(base + columna)) {
+                corrida++;
+                continue;
+            }
+            if (corrida >= cantidad) {
+                int desde = columna - corrida;
+                int hasta = columna - cantidad;
+                int candidato = Math.max(desde, Math.min(inicioIdeal, hasta));
+                if (mejor < 0 || Math.abs(candidato - inicioIdeal) < Math.abs(mejor - inicioIdeal)) {
+                    mejor = candidato;
+                }
+            }
+            corrida = 0;
+        }
+        return mejor;
+    }
+
+    private boolean isLibreParaIndice(int indice) {
+        return !isOcupado(indice) && expiraciones[indice] == 0;
+    }
+
+    private void actualizarIndiceFila(int fila) {
+        if (maxLibrePorFila == null) {
+            return;
+        }
+        int base = fila * columnas;
+        int maximo = 0;
+        int corrida = 0;
+        for (int columna = 0; columna < columnas; columna++) {
+            corrida = isLibreParaIndice(base + columna) ? corrida + 1 : 0;
+            maximo = Math.max(maximo, corrida);
+        }
+        maxLibrePorFila[fila] = maximo;
+    }
+
+    // ========== Vistas ==========
+
+    public List<String> getCodigosOcupados() {
+        List<String> codigos = new ArrayList<>();
+        for (int w = 0; w < ocupados.length; w++) {
+            long palabra = ocupados[w];
+            while (palabra != 0) {
+                int indice = (w << 6) + Long.numberOfTrailingZeros(palabra);
+                codigos.add(codigo(indice));
+                palabra &= palabra - 1;
+            }
+        }
+        return codigos;
+    }
+
+    // Bloqueos registrados por código, con la expiración en milisegundos
+    public Map<String, Long> getBloqueosPorCodigo() {
+        Map<String, Long> bloqueos = new LinkedHashMap<>();
+        for (int i = 0; i < expiraciones.length; i++) {
+            if (expiraciones[i] != 0) {
+                bloqueos.put(codigo(i), milisegundos(expiraciones[i]));
+            }
+        }
+        return bloqueos;
+    }
+
+    // Forma persistida de los bloqueos: solo los asientos con bloqueo, por índice
+    public Map<String, Integer> getBloqueosPersistidos() {
+        Map<String, Integer> bloqueos = new HashMap<>();
+        for (int i = 0; i < expiraciones.length; i++) {
+            if (expiraciones[i] != 0) {
+                bloqueos.put(String.valueOf(i), expiraciones[i]);
+            }
+        }
+        return bloqueos;
+    }
+
+    public long[] getOcupados() {
+        return Arrays.copyOf(ocupados, ocupados.length);
+    }
+
+    public int getFilas() {
+        return filas;
+    }
+
+    public int getColumnas() {
+        return columnas;
+    }
+
+    public int getCapacidad() {
+        return filas * columnas;
+    }
+
+    public int contarOcupados() {
+        int total = 0;
+        for (long palabra : ocupados) {
+            total += Long.bitCount(palabra);
+        }
+        return total;
+    }
+
+    // ========== Tiempo ==========
+
+    public static int segundos(long ms) {
+        return (int) ((ms - EPOCA_MS) / 1000);
+    }
+
+    public static long milisegundos(int segundos) {
+        return EPOCA_MS + segundos * 1000L;
+    }
+}
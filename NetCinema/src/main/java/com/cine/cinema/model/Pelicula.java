@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.Min;
@@ -15,6 +17,12 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "peliculas")
+@CompoundIndexes({
+        @CompoundIndex(name = "activa", def = "{'activa': 1}"),
+        @CompoundIndex(name = "titulo", def = "{'titulo': 1}"),
+        @CompoundIndex(name = "generos", def = "{'generos': 1}"),
+        @CompoundIndex(name = "clasificacion", def = "{'clasificacion': 1}")
+})
 public class Pelicula {
 
     @Id
@@ -0,0 +1,28 @@
+package com.cine.cinema.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Copia de los datos de una función que se muestran con cada reserva.
+ * Sin el mapa de asientos: para eso está GET /api/funciones/{id}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReferenciaFuncion {
+
+    private String id;
+    private LocalDateTime fechaHora;
+    private Double precio;
+    private ReferenciaPelicula pelicula;
+    private ReferenciaSala sala;
+
+    public static ReferenciaFuncion de(Funcion funcion) {
+        return new ReferenciaFuncion(funcion.getId(), funcion.getFechaHora(), funcion.getPrecio(),
+                funcion.getPelicula(), funcion.getSala());
+    }
+}
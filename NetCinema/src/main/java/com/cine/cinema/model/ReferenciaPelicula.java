@@ -0,0 +1,26 @@
+package com.cine.cinema.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Copia de los datos de una película que se muestran junto con sus funciones y reservas.
+ * Se actualiza cuando la película cambia (ver ReferenciaResolver).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReferenciaPelicula {
+
+    private String id;
+    private String titulo;
+    private Integer duracion; // En minutos
+    private String clasificacion;
+    private String posterUrl;
+
+    public static ReferenciaPelicula de(Pelicula pelicula) {
+        return new ReferenciaPelicula(pelicula.getId(), pelicula.getTitulo(), pelicula.getDuracion(),
+                pelicula.getClasificacion(), pelicula.getPosterUrl());
+    }
+}
@@ -0,0 +1,27 @@
+package com.cine.cinema.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Copia de los datos de una sala que se muestran junto con sus funciones y reservas.
+ * Filas y columnas son las de la sala al crear la función (las mismas del mapa de asientos).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReferenciaSala {
+
+    private String id;
+    private String nombre;
+    private String tipo;
+    private Integer filas;
+    private Integer columnas;
+    private Integer capacidad;
+
+    public static ReferenciaSala de(Sala sala) {
+        return new ReferenciaSala(sala.getId(), sala.getNombre(), sala.getTipo(),
+                sala.getFilas(), sala.getColumnas(), sala.getCapacidad());
+    }
+}
@@ -0,0 +1,23 @@
+package com.cine.cinema.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Datos públicos del usuario que hizo una reserva (sin contraseña ni rol)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReferenciaUsuario {
+
+    private String id;
+    private String nombre;
+    private String apellido;
+    private String email;
+
+    public static ReferenciaUsuario de(Usuario usuario) {
+        return new ReferenciaUsuario(usuario.getId(), usuario.getNombre(), usuario.getApellido(), usuario.getEmail());
+    }
+}
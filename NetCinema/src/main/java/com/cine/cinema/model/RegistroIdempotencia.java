@@ -0,0 +1,41 @@
+package com.cine.cinema.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Resultado guardado de una solicitud con Idempotency-Key.
+ * Mongo borra el registro solo cuando vence el índice TTL de creadoEn.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "idempotencia")
+public class RegistroIdempotencia {
+
+    public static final String EN_PROCESO = "EN_PROCESO";
+    public static final String COMPLETADO = "COMPLETADO";
+
+    @Id
+    private String id; // operación + ":" + Idempotency-Key
+
+    private String huella; // Hash del cuerpo de la solicitud original
+
+    private String estado = EN_PROCESO;
+
+    private Integer status; // Código HTTP de la respuesta original
+
+    private String respuesta; // Cuerpo JSON de la respuesta original
+
+    @Indexed(expireAfterSeconds = 86400)
+    private Date creadoEn = new Date();
+
+    public RegistroIdempotencia(String id, String huella) {
+        this.id = id;
+        this.huella = huella;
+    }
+}
@@ -1,11 +1,17 @@
 package com.cine.cinema.model;
 
+import com.cine.cinema.util.GeneradorCodigos;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mongodb.DBRef;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.Indexed;
-import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Min;
@@ -14,22 +20,43 @@ import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
 
 @Data
 @NoArgsConstructor
 @Document(collection = "reservas")
+@CompoundIndexes({
+        @CompoundIndex(name = "usuario_id", def = "{'usuarioId': 1, '_id': -1}"),
+        @CompoundIndex(name = "email_id", def = "{'emailCliente': 1, '_id': -1}"),
+        @CompoundIndex(name = "funcion_estado", def = "{'funcionId': 1, 'estado': 1}"),
+        @CompoundIndex(name = "estado_fecha", def = "{'estado': 1, 'fechaCreacion': 1}"),
+        @CompoundIndex(name = "fecha_creacion", def = "{'fechaCreacion': 1}"),
+        @CompoundIndex(name = "estado_fecha_funcion", def = "{'estado': 1, 'funcionResumen.fechaHora': 1}")
+})
 public class Reserva {
 
     @Id
     private String id;
 
-    @DBRef
     @NotNull(message = "La función es obligatoria")
-    private Funcion funcion;
+    private String funcionId;
 
-    @DBRef
-    private Usuario usuario;
+    private String usuarioId; // Opcional, puede ser compra sin registro
+
+    // Copias de lo que se muestra de la función y el usuario, para no cargarlos por separado
+    @Field("funcionResumen")
+    private ReferenciaFuncion funcion;
+
+    @Field("usuarioResumen")
+    private ReferenciaUsuario usuario;
+
+    // Formato anterior (DBRef). Solo se lee, hasta que MigracionReferencias lo convierte
+    @JsonIgnore
+    @Field("funcion")
+    private DBRef funcionLegado;
+
+    @JsonIgnore
+    @Field("usuario")
+    private DBRef usuarioLegado;
 
     @NotBlank(message = "El nombre del cliente es obligatorio")
     private String nombreCliente;
@@ -54,29 +81,49 @@ public class Reserva {
 
     private String metodoPago;
 
-    // Constructor personalizado que genera el código automáticamente
+    // Expiración (segundos de MapaAsientos) del bloqueo de asientos de esta reserva mientras
+    // está PENDIENTE. Confirmar y renovar exigen ese mismo bloqueo: si venció y otro cliente
+    // bloqueó el asiento, el nuevo tiene otra expiración
+    private Integer expiracionBloqueo;
+
+    // Cuándo pasó a EXPIRADA por no pagarse a tiempo (ReservaExpirationService)
+    private LocalDateTime fechaExpiracion;
+
+    // Sube con cada cambio de estado; al deshacer uno se verifica que nadie más la tocó
+    @Version
+    private Long version;
+
+    // Constructor personalizado; el código se asigna al guardar (prepararParaGuardar)
     public Reserva(Funcion funcion, Usuario usuario, String nombreCliente,
                    String emailCliente, List<String> asientos, Double total) {
-        this.funcion = funcion;
-        this.usuario = usuario;
+        this.funcionId = funcion.getId();
+        this.funcion = ReferenciaFuncion.de(funcion);
+        if (usuario != null) {
+            this.usuarioId = usuario.getId();
+            this.usuario = ReferenciaUsuario.de(usuario);
+        }
         this.nombreCliente = nombreCliente;
         this.emailCliente = emailCliente;
         this.asientos = asientos;
         this.total = total;
         this.estado = "PENDIENTE";
-        this.codigoReserva = generarCodigoReserva();
         this.fechaCreacion = LocalDateTime.now();
     }
 
-    // Método para generar código único
-    public static String generarCodigoReserva() {
-        return "RES-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    // Id de la función, también en documentos aún sin migrar
+    public String getFuncionId() {
+        return funcionId != null ? funcionId : Funcion.idDe(funcionLegado);
+    }
+
+    // Id del usuario, también en documentos aún sin migrar
+    public String getUsuarioId() {
+        return usuarioId != null ? usuarioId : Funcion.idDe(usuarioLegado);
     }
 
     // Método para asegurar que siempre haya un código antes de guardar
-    public void prepararParaGuardar() {
+    public void prepararParaGuardar(GeneradorCodigos generadorCodigos) {
         if (this.codigoReserva == null || this.codigoReserva.isEmpty()) {
-            this.codigoReserva = generarCodigoReserva();
+            this.codigoReserva = generadorCodigos.generar();
         }
         if (this.fechaCreacion == null) {
             this.fechaCreacion = LocalDateTime.now();
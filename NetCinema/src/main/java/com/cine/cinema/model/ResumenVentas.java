@@ -0,0 +1,46 @@
+package com.cine.cinema.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Totales de ventas ya calculados de una función o de un día (el de la función),
+ * para que el panel los lea sin recorrer las reservas.
+ * Cada cambio de estado de una reserva los ajusta con $inc (ver ResumenVentasService);
+ * los contadores reflejan el estado actual de las reservas: una confirmada que se
+ * cancela deja de sumar boletos e ingresos y pasa a cancelaciones.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "resumen_ventas")
+public class ResumenVentas {
+
+    public static final String FUNCION = "funcion";
+    public static final String DIA = "dia";
+
+    @Id
+    private String id; // tipo + ":" + clave (ej: "funcion:665f..." o "dia:2025-03-14")
+
+    private String tipo;
+    private String clave; // ID de la función o fecha yyyy-MM-dd
+
+    private long reservasPendientes;
+    private long asientosPendientes; // Asientos retenidos por reservas pendientes
+    private long reservasConfirmadas;
+    private long boletos;
+    private double ingresos;
+    private long cancelaciones;
+    private long expiradas;
+
+    private long version; // Sube con cada cambio; la reconstrucción solo corrige si no cambió mientras recalculaba
+
+    private LocalDateTime fechaActualizacion;
+
+    public static String id(String tipo, String clave) {
+        return tipo + ":" + clave;
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.Min;
@@ -15,6 +17,10 @@ import jakarta.validation.constraints.Pattern;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "salas")
+@CompoundIndexes({
+        @CompoundIndex(name = "activa", def = "{'activa': 1}"),
+        @CompoundIndex(name = "tipo", def = "{'tipo': 1}")
+})
 public class Sala {
 
     @Id
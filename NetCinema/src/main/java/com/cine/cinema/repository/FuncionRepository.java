@@ -1,8 +1,6 @@
 package com.cine.cinema.repository;
 
 import com.cine.cinema.model.Funcion;
-import com.cine.cinema.model.Pelicula;
-import com.cine.cinema.model.Sala;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -16,17 +14,17 @@ public interface FuncionRepository extends MongoRepository<Funcion, String> {
     List<Funcion> findByActivaTrue();
 
     // Buscar por película
-    List<Funcion> findByPelicula(Pelicula pelicula);
+    List<Funcion> findByPeliculaId(String peliculaId);
 
     // Buscar por sala
-    List<Funcion> findBySala(Sala sala);
+    List<Funcion> findBySalaId(String salaId);
 
     // Buscar funciones futuras
     List<Funcion> findByFechaHoraAfter(LocalDateTime fecha);
 
     // Buscar funciones de una película activas y futuras
-    List<Funcion> findByPeliculaAndActivaTrueAndFechaHoraAfter(
-            Pelicula pelicula,
+    List<Funcion> findByPeliculaIdAndActivaTrueAndFechaHoraAfter(
+            String peliculaId,
             LocalDateTime fecha
     );
 
@@ -37,8 +35,8 @@ public interface FuncionRepository extends MongoRepository<Funcion, String> {
     );
 
     // Buscar funciones de una sala en un rango de fechas (para evitar conflictos)
-    List<Funcion> findBySalaAndFechaHoraBetween(
-            Sala sala,
+    List<Funcion> findBySalaIdAndFechaHoraBetween(
+            String salaId,
             LocalDateTime inicio,
             LocalDateTime fin
     );
@@ -0,0 +1,26 @@
+package com.cine.cinema.repository;
+
+import com.cine.cinema.model.EntradaListaEspera;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ListaEsperaRepository extends MongoRepository<EntradaListaEspera, String> {
+
+    // Entradas de una función en un estado, en orden de llegada
+    List<EntradaListaEspera> findByFuncionIdAndEstadoOrderByFechaRegistroAsc(String funcionId, String estado);
+
+    // Entradas en alguno de los estados (para saber qué funciones tienen fila)
+    List<EntradaListaEspera> findByEstadoIn(List<String> estados);
+
+    // Si la función tiene alguna entrada en ese estado
+    boolean existsByFuncionIdAndEstado(String funcionId, String estado);
+
+    // Entradas de un usuario
+    List<EntradaListaEspera> findByUsuarioIdOrderByFechaRegistroDesc(String usuarioId);
+
+    // Verificar si el usuario ya está en la fila de la función
+    boolean existsByFuncionIdAndUsuarioIdAndEstadoIn(String funcionId, String usuarioId, List<String> estados);
+}
@@ -1,5 +1,6 @@
 package com.cine.cinema.repository;
 
+import com.cine.cinema.dto.PeliculaResumen;
 import com.cine.cinema.model.Pelicula;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -12,6 +13,9 @@ public interface PeliculaRepository extends MongoRepository<Pelicula, String> {
     // Buscar películas activas
     List<Pelicula> findByActivaTrue();
 
+    // Películas activas, solo con los campos de la cartelera
+    List<PeliculaResumen> findResumenByActivaTrue();
+
     // Buscar por título (case insensitive)
     List<Pelicula> findByTituloContainingIgnoreCase(String titulo);
 
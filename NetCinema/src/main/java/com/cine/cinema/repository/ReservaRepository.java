@@ -1,8 +1,6 @@
 package com.cine.cinema.repository;
 
-import com.cine.cinema.model.Funcion;
 import com.cine.cinema.model.Reserva;
-import com.cine.cinema.model.Usuario;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -16,20 +14,20 @@ public interface ReservaRepository extends MongoRepository<Reserva, String> {
     Optional<Reserva> findByCodigoReserva(String codigoReserva);
 
     // Buscar por usuario
-    List<Reserva> findByUsuario(Usuario usuario);
+    List<Reserva> findByUsuarioId(String usuarioId);
 
     // Buscar por email
     List<Reserva> findByEmailCliente(String email);
 
     // Buscar por función
-    List<Reserva> findByFuncion(Funcion funcion);
+    List<Reserva> findByFuncionId(String funcionId);
 
     // Buscar por estado
     List<Reserva> findByEstado(String estado);
 
     // Buscar reservas confirmadas de una función
-    List<Reserva> findByFuncionAndEstado(Funcion funcion, String estado);
+    List<Reserva> findByFuncionIdAndEstado(String funcionId, String estado);
 
     // Contar reservas por función
-    long countByFuncion(Funcion funcion);
+    long countByFuncionId(String funcionId);
 }
\ No newline at end of file
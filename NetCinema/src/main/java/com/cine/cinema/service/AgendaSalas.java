@@ -0,0 +1,289 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.event.CatalogoEvent;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.util.ArbolIntervalos;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Horarios ocupados de cada sala, en memoria, para detectar choques entre funciones.
+ * Cada función ocupa su sala desde que empieza hasta que termina la película más
+ * el tiempo de limpieza; por sala se guarda un ArbolIntervalos, así que una función
+ * larga que empezó antes también cuenta como choque.
+ * Se carga al terminar de crear los beans, antes de que el servidor web acepte
+ * peticiones, se actualiza con cada CatalogoEvent de función o película (la duración
+ * puede cambiar) y se recarga completa cada tanto por los cambios hechos desde otra
+ * instancia. Como entre recargas puede no tener lo de otras instancias, reservar
+ * revisa también la base antes de apartar un horario.
+ * Solo se cargan las funciones que todavía pueden ocupar la sala (las que empezaron
+ * hace menos de MAXIMO_MINUTOS); las pasadas no chocan con nada que se programe.
+ */
+@Component
+@RequiredArgsConstructor
+public class AgendaSalas implements SmartInitializingSingleton {
+
+    // Tiempo entre funciones para limpiar la sala
+    public static final int LIMPIEZA_MINUTOS = 30;
+
+    // Hasta cuánto antes buscar en la base una función que siga en la sala (ninguna dura un día)
+    private static final long MAXIMO_MINUTOS = 24 * 60;
+
+    private static final String[] CAMPOS = {"salaId", "salaLegado", "fechaHora", "peliculaId", "peliculaLegado", "pelicula"};
+
+    // Choque de una función propuesta (por su posición en la lista)
+    public record Conflicto(int indice, String motivo) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ReferenciaResolver referenciaResolver;
+
+    // salaId -> funciones de la sala
+    private final Map<String, ArbolIntervalos> salas = new HashMap<>();
+    // funcionId -> salaId, para quitarla de su sala anterior si se mueve
+    private final Map<String, String> salaDeFuncion = new HashMap<>();
+    // Horarios apartados que aún no se guardan (o no se sabe); una recarga no los ve
+    // en la base y los volvería a aplicar. Salen al refrescar o quitar la función.
+    private final Map<String, Funcion> apartadas = new HashMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        recargar();
+        System.out.println("📅 Agenda de salas con " + salaDeFuncion.size() + " funciones");
+    }
+
+    @Scheduled(initialDelayString = "${netcinema.agenda.recarga-ms:600000}",
+            fixedDelayString = "${netcinema.agenda.recarga-ms:600000}")
+    public synchronized void recargar() {
+        // Con el candado tomado: un cambio hecho mientras se lee la base se perdería al reemplazar
+        List<Funcion> funciones = leer(Criteria.where("fechaHora")
+                .gt(LocalDateTime.now().minusMinutes(MAXIMO_MINUTOS)));
+
+        salas.clear();
+        salaDeFuncion.clear();
+        funciones.forEach(this::registrarSinCandado);
+        funciones.forEach(funcion -> apartadas.remove(funcion.getId()));
+        // Las que se están guardando todavía no están en la base
+        apartadas.values().forEach(this::registrarSinCandado);
+    }
+
+    /**
+     * Id de una función que ocupa la sala en el horario de `funcion` (sin contarla a
+     * ella misma si ya existe), o null si el horario está libre
+     */
+    public synchronized String buscarConflicto(Funcion funcion) {
+        ArbolIntervalos agenda = salas.get(funcion.getSalaId());
+        if (agenda == null) {
+            return null;
+        }
+        long inicio = minutos(funcion.getFechaHora());
+        ArbolIntervalos.Intervalo choque = agenda.primerSolapado(inicio, fin(inicio, funcion), funcion.getId());
+        return choque == null ? null : choque.id();
+    }
+
+    /**
+     * Choques de un lote de funciones propuestas (con id ya asignado), tanto con las ya
+     * programadas como entre ellas (una contra las anteriores de la lista en la misma
+     * sala). Las que no chocan quedan apartadas en la agenda en el mismo paso, así que
+     * otro alta no puede tomar su horario mientras se insertan; las que después no se
+     * puedan insertar hay que quitarlas. Lista vacía si todas se pueden programar.
+     * Como reservar, revisa también la base (una sola consulta para todo el lote).
+     */
+    public synchronized List<Conflicto> reservarLote(List<Funcion> propuestas) {
+        List<Conflicto> conflictos = new ArrayList<>();
+        Map<String, Integer> posiciones = new HashMap<>();
+        Map<String, ArbolIntervalos> enBase = salasEnBase(propuestas);
+
+        for (int i = 0; i < propuestas.size(); i++) {
+            Funcion propuesta = propuestas.get(i);
+            long inicio = minutos(propuesta.getFechaHora());
+            long fin = fin(inicio, propuesta);
+
+            ArbolIntervalos agenda = salas.get(propuesta.getSalaId());
+            ArbolIntervalos.Intervalo choque = agenda == null ? null
+                    : agenda.primerSolapado(inicio, fin, propuesta.getId());
+            ArbolIntervalos base = enBase.get(propuesta.getSalaId());
+            if (choque == null && base != null) {
+                choque = base.primerSolapado(inicio, fin, propuesta.getId());
+            }
+            if (choque != null) {
+                Integer delLote = posiciones.get(choque.id());
+                conflictos.add(new Conflicto(i, delLote == null
+                        ? "Choca con la función " + choque.id() + " de la sala"
+                        : "Choca con la función #" + delLote + " del lote"));
+                continue;
+            }
+            apartarSinCandado(propuesta);
+            posiciones.put(propuesta.getId(), i);
+        }
+        return conflictos;
+    }
+
+    /**
+     * Verifica y aparta en un solo paso el horario de `funcion` (que ya debe tener id):
+     * id de la función con la que choca, o null si quedó apartado. Además de la agenda en
+     * memoria revisa la base, por las funciones creadas desde otra instancia después de
+     * la última recarga. Si al final no se guarda hay que llamar a refrescar.
+     */
+    public synchronized String reservar(Funcion funcion) {
+        String choque = buscarConflicto(funcion);
+        if (choque == null) {
+            choque = buscarConflictoEnBase(funcion);
+        }
+        if (choque == null) {
+            apartarSinCandado(funcion);
+        }
+        return choque;
+    }
+
+    // Vuelve a dejar una función como está en la base (la quita si no existe)
+    public void refrescar(String funcionId) {
+        refrescar(List.of(funcionId));
+    }
+
+    // Lo mismo para varias, con una sola consulta
+    public void refrescar(List<String> funcionIds) {
+        Map<String, Funcion> guardadas = new HashMap<>();
+        leer(Criteria.where("_id").in(funcionIds)).forEach(funcion -> guardadas.put(funcion.getId(), funcion));
+        synchronized (this) {
+            for (String funcionId : funcionIds) {
+                Funcion funcion = guardadas.get(funcionId);
+                apartadas.remove(funcionId);
+                if (funcion == null) {
+                    quitarSinCandado(funcionId);
+                } else {
+                    registrarSinCandado(funcion);
+                }
+            }
+        }
+    }
+
+    // Agrega o mueve una función ya guardada
+    public synchronized void registrar(Funcion funcion) {
+        registrarSinCandado(funcion);
+    }
+
+    public synchronized void quitar(String funcionId) {
+        apartadas.remove(funcionId);
+        quitarSinCandado(funcionId);
+    }
+
+    private void quitarSinCandado(String funcionId) {
+        String salaId = salaDeFuncion.remove(funcionId);
+        ArbolIntervalos agenda = salaId == null ? null : salas.get(salaId);
+        if (agenda != null) {
+            agenda.quitar(funcionId);
+            if (agenda.size() == 0) {
+                salas.remove(salaId);
+            }
+        }
+    }
+
+    // Después de que ReferenciaResolver actualizó las copias de la película
+    @EventListener
+    @Order(5)
+    public void alCambiarCatalogo(CatalogoEvent evento) {
+        try {
+            switch (evento.entidad()) {
+                case "funcion" -> refrescar(evento.id());
+                case "pelicula" -> leer(Criteria.where("peliculaId").is(evento.id())).forEach(this::registrar);
+                default -> { }
+            }
+        } catch (Exception e) {
+            System.err.println("Error al actualizar la agenda de salas: " + e.getMessage());
+        }
+    }
+
+    private String buscarConflictoEnBase(Funcion funcion) {
+        long inicio = minutos(funcion.getFechaHora());
+        long fin = fin(inicio, funcion);
+        Criteria criteria = Criteria.where("salaId").is(funcion.getSalaId())
+                .and("fechaHora").gt(funcion.getFechaHora().minusMinutes(MAXIMO_MINUTOS))
+                .lt(funcion.getFechaHora().plusMinutes(fin - inicio));
+        if (funcion.getId() != null) {
+            criteria.and("_id").ne(funcion.getId());
+        }
+        for (Funcion otra : leer(criteria)) {
+            long otroInicio = minutos(otra.getFechaHora());
+            if (otroInicio < fin && inicio < fin(otroInicio, otra)) {
+                return otra.getId();
+            }
+        }
+        return null;
+    }
+
+    // Lo que hay en la base en las salas y el rango de horas del lote, sin contar el lote mismo
+    private Map<String, ArbolIntervalos> salasEnBase(List<Funcion> propuestas) {
+        List<String> salaIds = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        LocalDateTime desde = null;
+        LocalDateTime hasta = null;
+        for (Funcion propuesta : propuestas) {
+            long inicio = minutos(propuesta.getFechaHora());
+            LocalDateTime termina = propuesta.getFechaHora().plusMinutes(fin(inicio, propuesta) - inicio);
+            salaIds.add(propuesta.getSalaId());
+            ids.add(propuesta.getId());
+            desde = desde == null || propuesta.getFechaHora().isBefore(desde) ? propuesta.getFechaHora() : desde;
+            hasta = hasta == null || termina.isAfter(hasta) ? termina : hasta;
+        }
+        Map<String, ArbolIntervalos> enBase = new HashMap<>();
+        if (propuestas.isEmpty()) {
+            return enBase;
+        }
+        Criteria criteria = Criteria.where("salaId").in(salaIds).and("_id").nin(ids)
+                .and("fechaHora").gt(desde.minusMinutes(MAXIMO_MINUTOS)).lt(hasta);
+        for (Funcion otra : leer(criteria)) {
+            if (otra.getPelicula() != null) {
+                long inicio = minutos(otra.getFechaHora());
+                enBase.computeIfAbsent(otra.getSalaId(), s -> new ArbolIntervalos())
+                        .insertar(otra.getId(), inicio, fin(inicio, otra));
+            }
+        }
+        return enBase;
+    }
+
+    private List<Funcion> leer(Criteria criteria) {
+        Query query = new Query(criteria);
+        query.fields().include(CAMPOS);
+        return referenciaResolver.completarFunciones(mongoTemplate.find(query, Funcion.class));
+    }
+
+    private void apartarSinCandado(Funcion funcion) {
+        registrarSinCandado(funcion);
+        apartadas.put(funcion.getId(), funcion);
+    }
+
+    private void registrarSinCandado(Funcion funcion) {
+        quitarSinCandado(funcion.getId());
+        if (funcion.getSalaId() == null || funcion.getFechaHora() == null || funcion.getPelicula() == null) {
+            return;
+        }
+        long inicio = minutos(funcion.getFechaHora());
+        salas.computeIfAbsent(funcion.getSalaId(), s -> new ArbolIntervalos())
+                .insertar(funcion.getId(), inicio, fin(inicio, funcion));
+        salaDeFuncion.put(funcion.getId(), funcion.getSalaId());
+    }
+
+    private static long fin(long inicio, Funcion funcion) {
+        Integer duracion = funcion.getPelicula() == null ? null : funcion.getPelicula().getDuracion();
+        return inicio + (duracion == null ? 0 : duracion) + LIMPIEZA_MINUTOS;
+    }
+
+    private static long minutos(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
@@ -0,0 +1,168 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.config.NotificationWebSocketHandler;
+import com.cine.cinema.event.AsientosEvent;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.util.HierarchicalTimingWheel;
+import com.cine.cinema.util.HierarchicalTimingWheel.Temporizador;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vence los bloqueos de asientos en cuanto se cumple su plazo.
+ * Cada asiento bloqueado tiene un temporizador en una rueda jerárquica; al vencer,
+ * los asientos se liberan por lotes (uno por función) y se avisa a los clientes
+ * conectados con ASIENTOS_LIBERADOS.
+ */
+@Service
+@Order(20)
+public class BloqueoExpirationService implements ApplicationRunner {
+
+    private final FuncionService funcionService;
+    private final MongoTemplate mongoTemplate;
+    private final NotificationWebSocketHandler notificationHandler;
+
+    private final HierarchicalTimingWheel<BloqueoProgramado> rueda;
+
+    // funcionId -> asiento -> temporizador, para cancelar en O(1). Protegido por this
+    private final Map<String, Map<String, Temporizador<BloqueoProgramado>>> programados = new HashMap<>();
+
+    public BloqueoExpirationService(FuncionService funcionService,
+                                    MongoTemplate mongoTemplate,
+                                    NotificationWebSocketHandler notificationHandler,
+                                    @Value("${netcinema.asientos.expiracion.tick-ms:100}") long tickMs) {
+        this.funcionService = funcionService;
+        this.mongoTemplate = mongoTemplate;
+        this.notificationHandler = notificationHandler;
+        this.rueda = new HierarchicalTimingWheel<>(tickMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Programa los bloqueos que ya estaban guardados al arrancar
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        Query query = new Query(Criteria.where("fechaHora").gt(LocalDateTime.now().minusHours(3))
+                .and("bloqueos").exists(true));
+        query.fields().include("filas", "columnas", "bloqueos");
+
+        int total = 0;
+        for (Funcion funcion : mongoTemplate.find(query, Funcion.class)) {
+            if (funcion.getFilas() == null || funcion.getBloqueos() == null) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> bloqueo : funcion.getBloqueos().entrySet()) {
+                String asiento = MapaAsientos.codigo(Integer.parseInt(bloqueo.getKey()), funcion.getColumnas());
+                programar(funcion.getId(), List.of(asiento), MapaAsientos.milisegundos(bloqueo.getValue()));
+                total++;
+            }
+        }
+        System.out.println("⏱️ Bloqueos de asientos programados al arrancar: " + total);
+    }
+
+    @EventListener
+    public void alCambiarAsientos(AsientosEvent evento) {
+        if (evento.tipo() == AsientosEvent.Tipo.BLOQUEADOS) {
+            programar(evento.funcionId(), evento.asientos(), evento.expiracionMs());
+        } else {
+            cancelar(evento.funcionId(), evento.asientos());
+        }
+    }
+
+    /**
+     * Avanza la rueda y libera, por función, los bloqueos vencidos
+     */
+    @Scheduled(fixedDelayString = "${netcinema.asientos.expiracion.tick-ms:100}")
+    public void procesarVencidos() {
+        Map<String, List<String>> vencidosPorFuncion = new LinkedHashMap<>();
+        synchronized (this) {
+            rueda.avanzar(System.currentTimeMillis(), bloqueo -> {
+                quitarProgramado(bloqueo);
+                vencidosPorFuncion.computeIfAbsent(bloqueo.funcionId(), id -> new ArrayList<>()).add(bloqueo.asiento());
+            });
+        }
+
+        vencidosPorFuncion.forEach((funcionId, asientos) -> {
+            try {
+                List<String> liberados = funcionService.liberarBloqueosExpirados(funcionId, asientos);
+                if (!liberados.isEmpty()) {
+                    notificationHandler.notificarATodos("ASIENTOS_LIBERADOS", Map.of(
+                            "funcionId", funcionId,
+                            "asientos", liberados
+                    ));
+                }
+            } catch (Exception e) {
+                System.err.println("Error al liberar bloqueos vencidos de la función " + funcionId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Número de bloqueos pendientes de vencer
+     */
+    public synchronized int getBloqueosProgramados() {
+        return rueda.size();
+    }
+
+    private synchronized void programar(String funcionId, List<String> asientos, long expiracionMs) {
+        Map<String, Temporizador<BloqueoProgramado>> porAsiento =
+                programados.computeIfAbsent(funcionId, id -> new HashMap<>());
+
+        for (String asiento : asientos) {
+            rueda.cancelar(porAsiento.remove(asiento));
+            BloqueoProgramado bloqueo = new BloqueoProgramado(funcionId, asiento);
+
+            // Si ya venció, la rueda lo entrega en el siguiente avance
+            Temporizador<BloqueoProgramado> temporizador =
+                    rueda.agregar(Math.max(expiracionMs, System.currentTimeMillis() + 1), bloqueo, vencido -> { });
+            if (temporizador != null) {
+                porAsiento.put(asiento, temporizador);
+            }
+        }
+        if (porAsiento.isEmpty()) {
+            programados.remove(funcionId);
+        }
+    }
+
+    private synchronized void cancelar(String funcionId, List<String> asientos) {
+        Map<String, Temporizador<BloqueoProgramado>> porAsiento = programados.get(funcionId);
+        if (porAsiento == null) {
+            return;
+        }
+        for (String asiento : asientos) {
+            rueda.cancelar(porAsiento.remove(asiento));
+        }
+        if (porAsiento.isEmpty()) {
+            programados.remove(funcionId);
+        }
+    }
+
+    private void quitarProgramado(BloqueoProgramado bloqueo) {
+        Map<String, Temporizador<BloqueoProgramado>> porAsiento = programados.get(bloqueo.funcionId());
+        if (porAsiento != null) {
+            porAsiento.remove(bloqueo.asiento());
+            if (porAsiento.isEmpty()) {
+                programados.remove(bloqueo.funcionId());
+            }
+        }
+    }
+
+    private record BloqueoProgramado(String funcionId, String asiento) {
+    }
+}
@@ -0,0 +1,131 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.dto.PeliculaResumen;
+import com.cine.cinema.event.CatalogoEvent;
+import com.cine.cinema.model.Pelicula;
+import com.cine.cinema.repository.PeliculaRepository;
+import com.cine.cinema.util.IndiceInvertido;
+import com.cine.cinema.util.IndiceInvertido.Campo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Búsqueda de películas de la cartelera desde memoria.
+ * Hay dos índices: uno con título, director, actores, géneros y descripción (cada
+ * campo con su peso) para la búsqueda, y otro solo con el título para autocompletar.
+ * Se cargan al terminar de crear los beans, antes de que el servidor web acepte
+ * peticiones, y se actualizan con cada CatalogoEvent de película; las películas
+ * inactivas o eliminadas salen del índice. Como AgendaSalas, cada tanto se
+ * reconstruyen completos por los cambios hechos desde otra instancia: los índices
+ * nuevos se arman aparte y reemplazan a los anteriores de una vez, así que las
+ * búsquedas nunca ven uno a medio cargar.
+ */
+@Component
+@RequiredArgsConstructor
+public class BuscadorPeliculas implements SmartInitializingSingleton {
+
+    private static final double PESO_TITULO = 5;
+    private static final double PESO_DIRECTOR = 3;
+    private static final double PESO_ACTORES = 2;
+    private static final double PESO_GENEROS = 2;
+    private static final double PESO_DESCRIPCION = 1;
+
+    private final PeliculaRepository peliculaRepository;
+
+    // Se reemplaza entero al recargar; los cambios sueltos se aplican sobre el vigente
+    private volatile Indices actuales = new Indices();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        recargar();
+        System.out.println("🔎 Índice de búsqueda con " + actuales.indice.size() + " películas");
+    }
+
+    // Con el candado tomado, para que un cambio que llegue mientras se lee la base no se pierda
+    @Scheduled(initialDelayString = "${netcinema.buscador.recarga-ms:600000}",
+            fixedDelayString = "${netcinema.buscador.recarga-ms:600000}")
+    public synchronized void recargar() {
+        Indices nuevos = new Indices();
+        for (Pelicula pelicula : peliculaRepository.findByActivaTrue()) {
+            nuevos.indexar(pelicula);
+        }
+        actuales = nuevos;
+    }
+
+    // Búsqueda en todos los campos, de la más a la menos relevante
+    public List<PeliculaResumen> buscar(String consulta, int limite) {
+        Indices indices = actuales;
+        return indices.resumenes(indices.indice.buscar(consulta, limite));
+    }
+
+    // Sugerencias mientras se escribe: títulos que empiezan con lo escrito
+    public List<PeliculaResumen> autocompletar(String prefijo, int limite) {
+        Indices indices = actuales;
+        return indices.resumenes(indices.titulos.buscar(prefijo, limite));
+    }
+
+    // Vuelve a leer la película que cambió (se ejecuta antes de vaciar el caché)
+    @EventListener
+    @Order(5)
+    public synchronized void alCambiarCatalogo(CatalogoEvent evento) {
+        if (!"pelicula".equals(evento.entidad())) {
+            return;
+        }
+        Indices indices = actuales;
+        peliculaRepository.findById(evento.id())
+                .filter(pelicula -> Boolean.TRUE.equals(pelicula.getActiva()))
+                .ifPresentOrElse(indices::indexar, () -> indices.quitar(evento.id()));
+    }
+
+    // Los dos índices y los resúmenes que devuelven las búsquedas, siempre juntos
+    private static final class Indices {
+
+        private final IndiceInvertido indice = new IndiceInvertido();
+        private final IndiceInvertido titulos = new IndiceInvertido();
+        private final Map<String, PeliculaResumen> resumenes = new ConcurrentHashMap<>();
+
+        private void indexar(Pelicula pelicula) {
+            List<Campo> campos = new ArrayList<>();
+            campos.add(new Campo(pelicula.getTitulo(), PESO_TITULO));
+            campos.add(new Campo(pelicula.getDirector(), PESO_DIRECTOR));
+            if (pelicula.getActores() != null) {
+                pelicula.getActores().forEach(actor -> campos.add(new Campo(actor, PESO_ACTORES)));
+            }
+            if (pelicula.getGeneros() != null) {
+                pelicula.getGeneros().forEach(genero -> campos.add(new Campo(genero, PESO_GENEROS)));
+            }
+            campos.add(new Campo(pelicula.getDescripcion(), PESO_DESCRIPCION));
+
+            resumenes.put(pelicula.getId(), new PeliculaResumen(pelicula.getId(), pelicula.getTitulo(),
+                    pelicula.getGeneros(), pelicula.getDuracion(), pelicula.getClasificacion(), pelicula.getPosterUrl()));
+            indice.indexar(pelicula.getId(), campos);
+            titulos.indexar(pelicula.getId(), List.of(new Campo(pelicula.getTitulo(), 1)));
+        }
+
+        private void quitar(String id) {
+            indice.quitar(id);
+            titulos.quitar(id);
+            resumenes.remove(id);
+        }
+
+        private List<PeliculaResumen> resumenes(List<IndiceInvertido.Resultado> resultados) {
+            List<PeliculaResumen> peliculas = new ArrayList<>(resultados.size());
+            for (IndiceInvertido.Resultado resultado : resultados) {
+                PeliculaResumen resumen = resumenes.get(resultado.id());
+                if (resumen != null) {
+                    peliculas.add(resumen);
+                }
+            }
+            return peliculas;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.dto.PeliculaResumen;
+import com.cine.cinema.event.CatalogoEvent;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.util.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Listas del catálogo que se piden en cada carga de página (cartelera, funciones
+ * activas, futuras y por película) servidas desde memoria.
+ * Se vacían al recibir un CatalogoEvent; el TTL acota lo que pueda quedar viejo
+ * por cambios hechos en otra instancia. Las listas de funciones tienen un TTL más
+ * corto porque incluyen el estado de los asientos.
+ */
+@Component
+public class CatalogoCache {
+
+    private final TtlCache<String, List<PeliculaResumen>> peliculas;
+    private final TtlCache<String, List<Funcion>> funciones;
+
+    public CatalogoCache(@Value("${netcinema.cache.peliculas-ttl-segundos:300}") long peliculasTtlSegundos,
+                         @Value("${netcinema.cache.funciones-ttl-segundos:30}") long funcionesTtlSegundos) {
+        this.peliculas = new TtlCache<>(64, peliculasTtlSegundos * 1000);
+        this.funciones = new TtlCache<>(512, funcionesTtlSegundos * 1000);
+    }
+
+    public List<PeliculaResumen> peliculas(String clave, Supplier<List<PeliculaResumen>> cargar) {
+        return peliculas.obtener(clave, () -> List.copyOf(cargar.get()));
+    }
+
+    public List<Funcion> funciones(String clave, Supplier<List<Funcion>> cargar) {
+        return funciones.obtener(clave, () -> List.copyOf(cargar.get()));
+    }
+
+    // Las funciones llevan la película y la sala dentro, así que cualquier cambio vacía ambas
+    @EventListener
+    @Order(10)
+    public void alCambiarCatalogo(CatalogoEvent evento) {
+        peliculas.invalidarTodo();
+        funciones.invalidarTodo();
+    }
+
+    public Map<String, Object> getMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("peliculas", metricas(peliculas));
+        metricas.put("funciones", metricas(funciones));
+        return metricas;
+    }
+
+    private static Map<String, Object> metricas(TtlCache<?, ?> cache) {
+        long aciertos = cache.getAciertos();
+        long total = aciertos + cache.getFallos();
+        return Map.of(
+                "entradas", cache.size(),
+                "aciertos", aciertos,
+                "fallos", cache.getFallos(),
+                "tasaAciertos", total == 0 ? 0.0 : (double) aciertos / total
+        );
+    }
+}
@@ -0,0 +1,272 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.config.NotificationWebSocketHandler;
+import com.cine.cinema.dto.TurnoFila;
+import com.cine.cinema.util.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fila virtual para estrenos.
+ * Mientras está activa para una función, solo los clientes con un turno admitido
+ * pueden ver sus asientos y bloquearlos (ver FilaVirtualInterceptor). Los turnos se
+ * admiten en orden de llegada al ritmo de una cubeta de fichas por función, y la
+ * posición se avisa por /ws/notifications (mensaje FILA_VIRTUAL con el token).
+ * Todo vive en memoria: esperar en la fila no toca Mongo ni retiene hilos. Por eso
+ * hay un máximo de turnos en espera por función y de turnos vivos en total; pasado
+ * ese máximo entrar falla y el cliente debe reintentar más tarde.
+ */
+@Service
+public class FilaVirtualService {
+
+    // Un turno en espera sin WebSocket ni consultas en este tiempo se da por abandonado
+    private static final long ABANDONO_MS = 60_000;
+
+    // Cada cuánto se avisa la posición a los que esperan
+    private static final long AVISO_POSICION_MS = 2_000;
+
+    private final NotificationWebSocketHandler notificationHandler;
+    private final double admisionesPorSegundo;
+    private final int rafaga;
+    private final long admisionMs;
+    private final int maximoEspera;
+    private final int maximoTurnos;
+
+    // funcionId -> fila (solo las funciones con la fila activa)
+    private final Map<String, FilaFuncion> filas = new ConcurrentHashMap<>();
+
+    // token -> turno
+    private final Map<String, TurnoFila> turnos = new ConcurrentHashMap<>();
+
+    private long ultimoAviso;
+
+    public FilaVirtualService(NotificationWebSocketHandler notificationHandler,
+                              @Value("${netcinema.fila-virtual.admisiones-por-segundo:5}") double admisionesPorSegundo,
+                              @Value("${netcinema.fila-virtual.rafaga:10}") int rafaga,
+                              @Value("${netcinema.fila-virtual.admision-minutos:10}") long admisionMinutos,
+                              @Value("${netcinema.fila-virtual.maximo-espera:20000}") int maximoEspera,
+                              @Value("${netcinema.fila-virtual.maximo-turnos:100000}") int maximoTurnos) {
+        this.notificationHandler = notificationHandler;
+        this.admisionesPorSegundo = admisionesPorSegundo;
+        this.rafaga = rafaga;
+        this.admisionMs = admisionMinutos * 60_000;
+        this.maximoEspera = maximoEspera;
+        this.maximoTurnos = maximoTurnos;
+    }
+
+    // Activar la fila de una función (o cambiar su ritmo de admisión)
+    public void activar(String funcionId, Double porSegundo, Integer rafagaFuncion) {
+        TokenBucket cubeta = new TokenBucket(
+                porSegundo != null ? porSegundo : admisionesPorSegundo,
+                rafagaFuncion != null ? rafagaFuncion : rafaga,
+                System.nanoTime());
+
+        filas.compute(funcionId, (id, actual) -> {
+            if (actual == null) {
+                return new FilaFuncion(cubeta);
+            }
+            synchronized (actual) {
+                actual.cubeta = cubeta;
+            }
+            return actual;
+        });
+        System.out.println("🚦 Fila virtual activa para la función " + funcionId);
+    }
+
+    // Desactivar la fila: todos los que esperaban quedan admitidos
+    public void desactivar(String funcionId) {
+        FilaFuncion fila = filas.remove(funcionId);
+        if (fila == null) {
+            return;
+        }
+        synchronized (fila) {
+            while (!fila.espera.isEmpty()) {
+                admitir(fila, fila.espera.poll());
+            }
+        }
+    }
+
+    public boolean isActiva(String funcionId) {
+        return filas.containsKey(funcionId);
+    }
+
+    // Tomar un turno. Sin fila activa, o si hay fichas y nadie esperando, se admite al momento
+    public TurnoFila entrar(String funcionId, String usuarioId) {
+        if (turnos.size() >= maximoTurnos) {
+            throw new RuntimeException("La fila virtual está llena, intente de nuevo en unos minutos");
+        }
+        FilaFuncion fila = filas.get(funcionId);
+        if (fila == null) {
+            TurnoFila turno = new TurnoFila(UUID.randomUUID().toString(), funcionId, usuarioId, 0);
+            marcarAdmitido(turno);
+            turnos.put(turno.getToken(), turno);
+            return turno;
+        }
+
+        synchronized (fila) {
+            if (fila.espera.size() >= maximoEspera) {
+                throw new RuntimeException("La fila virtual de esta función está llena, intente de nuevo en unos minutos");
+            }
+            TurnoFila turno = new TurnoFila(UUID.randomUUID().toString(), funcionId, usuarioId, ++fila.ultimoNumero);
+            turnos.put(turno.getToken(), turno);
+
+            if (fila.espera.isEmpty() && fila.cubeta.intentarConsumir(System.nanoTime())) {
+                admitir(fila, turno);
+            } else {
+                fila.espera.add(turno);
+                turno.setPosicion(turno.getNumero() - fila.ultimoAdmitido);
+            }
+            return turno;
+        }
+    }
+
+    // Consultar un turno (también cuenta como señal de que el cliente sigue ahí)
+    public TurnoFila consultar(String token) {
+        TurnoFila turno = turnos.get(token);
+        if (turno == null) {
+            throw new RuntimeException("Turno no encontrado");
+        }
+        turno.setUltimaConsulta(System.currentTimeMillis());
+        actualizarPosicion(turno);
+        return turno;
+    }
+
+    public void salir(String token) {
+        TurnoFila turno = turnos.remove(token);
+        if (turno != null) {
+            // Se queda en la cola y se salta al llegar su turno
+            turno.setEstado(TurnoFila.CANCELADO);
+            notificationHandler.olvidarTurno(token);
+        }
+    }
+
+    // Verdadero si la función no tiene fila activa o el token está admitido para ella
+    public boolean puedePasar(String funcionId, String token) {
+        if (!filas.containsKey(funcionId)) {
+            return true;
+        }
+        TurnoFila turno = token == null ? null : turnos.get(token);
+        return turno != null
+                && turno.getFuncionId().equals(funcionId)
+                && TurnoFila.ADMITIDO.equals(turno.getEstado())
+                && turno.getAdmitidoHasta() > System.currentTimeMillis();
+    }
+
+    /**
+     * Admite a los siguientes de cada fila según las fichas disponibles
+     */
+    @Scheduled(fixedDelayString = "${netcinema.fila-virtual.tick-ms:250}")
+    public void procesarFilas() {
+        long ahoraNanos = System.nanoTime();
+        long ahora = System.currentTimeMillis();
+
+        for (FilaFuncion fila : filas.values()) {
+            synchronized (fila) {
+                while (!fila.espera.isEmpty()) {
+                    TurnoFila siguiente = fila.espera.peek();
+                    if (!TurnoFila.ESPERANDO.equals(siguiente.getEstado()) || abandonado(siguiente, ahora)) {
+                        fila.espera.poll();
+                        turnos.remove(siguiente.getToken());
+                        continue;
+                    }
+                    if (!fila.cubeta.intentarConsumir(ahoraNanos)) {
+                        break;
+                    }
+                    admitir(fila, fila.espera.poll());
+                }
+            }
+        }
+
+        if (ahora - ultimoAviso >= AVISO_POSICION_MS) {
+            ultimoAviso = ahora;
+            avisarPosiciones();
+            turnos.values().removeIf(turno -> TurnoFila.ADMITIDO.equals(turno.getEstado())
+                    && turno.getAdmitidoHasta() <= ahora);
+        }
+    }
+
+    public Map<String, Object> getMetricas() {
+        Map<String, Object> porFuncion = new LinkedHashMap<>();
+        filas.forEach((funcionId, fila) -> {
+            synchronized (fila) {
+                porFuncion.put(funcionId, Map.of(
+                        "esperando", fila.espera.size(),
+                        "admitidos", fila.admitidos,
+                        "admisionesPorSegundo", fila.cubeta.getPorSegundo()
+                ));
+            }
+        });
+
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("turnos", turnos.size());
+        metricas.put("filas", porFuncion);
+        return metricas;
+    }
+
+    private void avisarPosiciones() {
+        for (FilaFuncion fila : filas.values()) {
+            synchronized (fila) {
+                for (TurnoFila turno : fila.espera) {
+                    turno.setPosicion(turno.getNumero() - fila.ultimoAdmitido);
+                    notificationHandler.notificarTurno(turno.getToken(), "TURNO_POSICION", Map.of(
+                            "token", turno.getToken(),
+                            "funcionId", turno.getFuncionId(),
+                            "posicion", turno.getPosicion()
+                    ));
+                }
+            }
+        }
+    }
+
+    private void actualizarPosicion(TurnoFila turno) {
+        FilaFuncion fila = filas.get(turno.getFuncionId());
+        if (fila != null && TurnoFila.ESPERANDO.equals(turno.getEstado())) {
+            synchronized (fila) {
+                turno.setPosicion(Math.max(1, turno.getNumero() - fila.ultimoAdmitido));
+            }
+        }
+    }
+
+    // Se llama con el candado de la fila tomado
+    private void admitir(FilaFuncion fila, TurnoFila turno) {
+        fila.ultimoAdmitido = Math.max(fila.ultimoAdmitido, turno.getNumero());
+        fila.admitidos++;
+        marcarAdmitido(turno);
+
+        notificationHandler.notificarTurno(turno.getToken(), "TURNO_ADMITIDO", Map.of(
+                "token", turno.getToken(),
+                "funcionId", turno.getFuncionId(),
+                "admitidoHasta", turno.getAdmitidoHasta()
+        ));
+    }
+
+    private void marcarAdmitido(TurnoFila turno) {
+        turno.setEstado(TurnoFila.ADMITIDO);
+        turno.setPosicion(0);
+        turno.setAdmitidoHasta(System.currentTimeMillis() + admisionMs);
+    }
+
+    private boolean abandonado(TurnoFila turno, long ahora) {
+        return ahora - turno.getUltimaConsulta() > ABANDONO_MS
+                && !notificationHandler.isTurnoConectado(turno.getToken());
+    }
+
+    private static class FilaFuncion {
+        private final ArrayDeque<TurnoFila> espera = new ArrayDeque<>();
+        private TokenBucket cubeta;
+        private long ultimoNumero;
+        private long ultimoAdmitido;
+        private long admitidos;
+
+        FilaFuncion(TokenBucket cubeta) {
+            this.cubeta = cubeta;
+        }
+    }
+}
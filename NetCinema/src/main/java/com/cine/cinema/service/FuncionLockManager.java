@@ -0,0 +1,65 @@
+package com.cine.cinema.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Candados por función para las operaciones de asientos.
+ * Las operaciones sobre la misma función se serializan; las de funciones distintas
+ * corren en paralelo. Cada candado vive solo mientras alguien lo usa o lo espera,
+ * así que la memoria queda acotada por el número de funciones con actividad.
+ */
+@Component
+public class FuncionLockManager {
+
+    private final ConcurrentHashMap<String, Entrada> candados = new ConcurrentHashMap<>();
+
+    /**
+     * Ejecuta la acción con el candado de la función tomado
+     */
+    public <T> T conBloqueo(String funcionId, Supplier<T> accion) {
+        Entrada entrada = adquirirReferencia(funcionId);
+        entrada.lock.lock();
+        try {
+            return accion.get();
+        } finally {
+            entrada.lock.unlock();
+            liberarReferencia(funcionId);
+        }
+    }
+
+    /**
+     * Número de funciones con candado vivo (en uso o en espera)
+     */
+    public int getCandadosActivos() {
+        return candados.size();
+    }
+
+    // Incrementa las referencias del candado, creándolo si no existe
+    private Entrada adquirirReferencia(String funcionId) {
+        return candados.compute(funcionId, (id, entrada) -> {
+            if (entrada == null) {
+                entrada = new Entrada();
+            }
+            entrada.referencias++;
+            return entrada;
+        });
+    }
+
+    // Decrementa las referencias y desaloja el candado cuando nadie lo usa
+    private void liberarReferencia(String funcionId) {
+        candados.computeIfPresent(funcionId, (id, entrada) -> {
+            entrada.referencias--;
+            return entrada.referencias == 0 ? null : entrada;
+        });
+    }
+
+    // Las referencias solo se modifican dentro de compute, que ya es atómico por llave
+    private static final class Entrada {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int referencias;
+    }
+}
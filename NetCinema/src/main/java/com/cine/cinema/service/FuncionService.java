@@ -1,232 +1,769 @@
 package com.cine.cinema.service;
 
+import com.cine.cinema.dto.AsignacionAsientos;
+import com.cine.cinema.dto.FuncionResumen;
+import com.cine.cinema.dto.Pagina;
+import com.cine.cinema.dto.ProgramacionDTO;
+import com.cine.cinema.dto.ResultadoProgramacion;
+import com.cine.cinema.event.AsientosEvent;
+import com.cine.cinema.event.CatalogoEvent;
 import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
 import com.cine.cinema.model.Pelicula;
+import com.cine.cinema.model.ReferenciaPelicula;
+import com.cine.cinema.model.ReferenciaSala;
 import com.cine.cinema.model.Sala;
 import com.cine.cinema.repository.FuncionRepository;
 import com.cine.cinema.repository.PeliculaRepository;
 import com.cine.cinema.repository.SalaRepository;
+import com.cine.cinema.util.Campos;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
 
 @Service
 @RequiredArgsConstructor
 public class FuncionService {
 
+    // Reintentos al buscar asientos juntos cuando otro cliente gana la carrera
+    private static final int INTENTOS_MEJORES_ASIENTOS = 3;
+
+    // Funciones que puede generar una sola programación por lotes
+    private static final int MAXIMO_PROGRAMACION = 5000;
+
+    private static final FindAndModifyOptions RETORNAR_NUEVO = FindAndModifyOptions.options().returnNew(true);
+
     private final FuncionRepository funcionRepository;
     private final PeliculaRepository peliculaRepository;
     private final SalaRepository salaRepository;
+    private final FuncionLockManager funcionLockManager;
+    private final MongoTemplate mongoTemplate;
+    private final MotorAsientos motorAsientos;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReintentoOptimista reintentoOptimista;
+    private final CatalogoCache catalogoCache;
+    private final ReferenciaResolver referenciaResolver;
+    private final Paginador paginador;
+    private final AgendaSalas agendaSalas;
+
+    // Campos que se pueden pedir con ?fields= y las propiedades que hay que leer para cada uno
+    // (las copias de película y sala se completan desde su id en documentos sin migrar)
+    private static final Map<String, List<String>> CAMPOS = Map.ofEntries(
+            Map.entry("id", List.of("id")),
+            Map.entry("fechaHora", List.of("fechaHora")),
+            Map.entry("precio", List.of("precio")),
+            Map.entry("activa", List.of("activa")),
+            Map.entry("peliculaId", List.of("peliculaId", "peliculaLegado")),
+            Map.entry("salaId", List.of("salaId", "salaLegado")),
+            Map.entry("pelicula", List.of("pelicula", "peliculaId", "peliculaLegado")),
+            Map.entry("sala", List.of("sala", "salaId", "salaLegado", "filas", "columnas")),
+            Map.entry("asientosOcupados", List.of("filas", "columnas", "ocupados")),
+            Map.entry("asientosBloqueados", List.of("filas", "columnas", "bloqueos"))
+    );
+
+    // Duración de un bloqueo de asientos; el checkout la extiende con renovarBloqueo
+    @Value("${netcinema.asientos.bloqueo.duracion-segundos:120}")
+    private int duracionBloqueoSegundos;
+
+    // funcionId -> geometría del mapa de asientos
+    private final Map<String, Geometria> geometrias = new ConcurrentHashMap<>();
 
     // Crear función
     public Funcion crearFuncion(Funcion funcion) {
         // Verificar que la película existe
-        if (funcion.getPelicula() == null || funcion.getPelicula().getId() == null) {
+        if (funcion.getPeliculaId() == null) {
             throw new RuntimeException("Debe especificar una película válida");
         }
 
         // Verificar que la sala existe
-        if (funcion.getSala() == null || funcion.getSala().getId() == null) {
+        if (funcion.getSalaId() == null) {
             throw new RuntimeException("Debe especificar una sala válida");
         }
 
         // Cargar película completa
-        Pelicula pelicula = peliculaRepository.findById(funcion.getPelicula().getId())
+        Pelicula pelicula = peliculaRepository.findById(funcion.getPeliculaId())
                 .orElseThrow(() -> new RuntimeException("Película no encontrada"));
 
         // Cargar sala completa
-        Sala sala = salaRepository.findById(funcion.getSala().getId())
+        Sala sala = salaRepository.findById(funcion.getSalaId())
                 .orElseThrow(() -> new RuntimeException("Sala no encontrada"));
 
-        funcion.setPelicula(pelicula);
-        funcion.setSala(sala);
+        funcion.setPelicula(ReferenciaPelicula.de(pelicula));
+        funcion.setSala(ReferenciaSala.de(sala));
 
-        // Verificar conflictos de horario
-        if (existeConflictoHorario(funcion)) {
-            throw new RuntimeException("Ya existe una función en esa sala en ese horario");
+        // Inicializar el mapa de asientos vacío con la geometría de la sala
+        funcion.inicializarAsientos(sala);
+
+        // El id se asigna aquí para apartar el horario en la agenda antes de guardar
+        if (funcion.getId() == null) {
+            funcion.setId(new ObjectId().toHexString());
         }
+        apartarHorario(funcion);
+
+        Funcion creada;
+        try {
+            creada = funcionRepository.save(funcion);
+        } catch (RuntimeException e) {
+            agendaSalas.refrescar(funcion.getId());
+            throw e;
+        }
+        publicarCambioCatalogo(creada.getId());
+        return creada;
+    }
 
-        // Inicializar listas vacías
-        if (funcion.getAsientosOcupados() == null) {
-            funcion.setAsientosOcupados(new ArrayList<>());
+    // Programar muchas funciones de una vez a partir de una plantilla (ej: una semana).
+    // Las películas y salas se leen con una consulta cada una, los choques se revisan
+    // en memoria para todo el lote (apartando en la agenda los horarios aceptados) y las
+    // funciones válidas se insertan con una sola escritura por lotes sin orden; cada una
+    // que falla se informa con su motivo y se quita de la agenda.
+    public ResultadoProgramacion programar(ProgramacionDTO programacion) {
+        if (programacion.getFechaFin().isBefore(programacion.getFechaInicio())) {
+            throw new RuntimeException("La fecha de fin no puede ser anterior a la de inicio");
         }
-        if (funcion.getAsientosBloqueados() == null) {
-            funcion.setAsientosBloqueados(new java.util.HashMap<>());
+        long dias = ChronoUnit.DAYS.between(programacion.getFechaInicio(), programacion.getFechaFin()) + 1;
+        long maximoPosible = dias * programacion.getBloques().stream().mapToLong(b -> b.getHorarios().size()).sum();
+        if (maximoPosible > MAXIMO_PROGRAMACION) {
+            throw new RuntimeException("La programación puede generar hasta " + maximoPosible
+                    + " funciones; el máximo por solicitud es " + MAXIMO_PROGRAMACION);
         }
 
-        return funcionRepository.save(funcion);
-    }
+        Map<String, Pelicula> peliculas = new HashMap<>();
+        peliculaRepository.findAllById(programacion.getBloques().stream().map(ProgramacionDTO.Bloque::getPeliculaId).toList())
+                .forEach(p -> peliculas.put(p.getId(), p));
+        Map<String, Sala> salas = new HashMap<>();
+        salaRepository.findAllById(programacion.getBloques().stream().map(ProgramacionDTO.Bloque::getSalaId).toList())
+                .forEach(s -> salas.put(s.getId(), s));
+
+        ResultadoProgramacion resultado = new ResultadoProgramacion();
+        List<Funcion> propuestas = new ArrayList<>();
+        for (LocalDate dia = programacion.getFechaInicio(); !dia.isAfter(programacion.getFechaFin()); dia = dia.plusDays(1)) {
+            for (ProgramacionDTO.Bloque bloque : programacion.getBloques()) {
+                if (bloque.getDias() != null && !bloque.getDias().isEmpty() && !bloque.getDias().contains(dia.getDayOfWeek())) {
+                    continue;
+                }
+                Pelicula pelicula = peliculas.get(bloque.getPeliculaId());
+                Sala sala = salas.get(bloque.getSalaId());
+                for (LocalTime horario : bloque.getHorarios()) {
+                    LocalDateTime fechaHora = dia.atTime(horario);
+                    if (pelicula == null || sala == null) {
+                        resultado.getFallos().add(new ResultadoProgramacion.Fallo(bloque.getPeliculaId(), bloque.getSalaId(),
+                                fechaHora, pelicula == null ? "Película no encontrada" : "Sala no encontrada"));
+                        continue;
+                    }
+                    propuestas.add(nuevaFuncion(pelicula, sala, fechaHora, bloque.getPrecio()));
+                }
+            }
+        }
+        resultado.setSolicitadas(propuestas.size() + resultado.getFallos().size());
 
-    // Verificar si existe conflicto de horario
-    private boolean existeConflictoHorario(Funcion nuevaFuncion) {
-        // Calcular inicio y fin de la nueva función
-        LocalDateTime inicio = nuevaFuncion.getFechaHora();
-        LocalDateTime fin = inicio.plusMinutes(nuevaFuncion.getPelicula().getDuracion() + 30); // +30 min de limpieza
+        // Choques con lo ya programado y entre las propuestas; las válidas quedan apartadas
+        Set<Integer> descartadas = new HashSet<>();
+        for (AgendaSalas.Conflicto conflicto : agendaSalas.reservarLote(propuestas)) {
+            descartadas.add(conflicto.indice());
+            resultado.getFallos().add(fallo(propuestas.get(conflicto.indice()), conflicto.motivo()));
+        }
+        List<Funcion> validas = new ArrayList<>();
+        for (int i = 0; i < propuestas.size(); i++) {
+            if (!descartadas.contains(i)) {
+                validas.add(propuestas.get(i));
+            }
+        }
+        if (validas.isEmpty()) {
+            return resultado;
+        }
 
-        // Buscar funciones en la misma sala en ese rango
-        List<Funcion> funcionesConflicto = funcionRepository.findBySalaAndFechaHoraBetween(
-                nuevaFuncion.getSala(),
-                inicio.minusMinutes(30),
-                fin
-        );
+        // Una sola escritura; sin orden, un error no detiene las demás inserciones
+        Set<Integer> fallidas = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Funcion.class).insert(validas).execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> {
+                fallidas.add(error.getIndex());
+                resultado.getFallos().add(fallo(validas.get(error.getIndex()), error.getMessage()));
+            });
+        } catch (RuntimeException e) {
+            // No se sabe cuáles llegaron a insertarse: la agenda vuelve a lo que hay en la base
+            agendaSalas.refrescar(validas.stream().map(Funcion::getId).toList());
+            throw e;
+        }
 
-        // Si estamos actualizando, excluir la función actual
-        if (nuevaFuncion.getId() != null) {
-            funcionesConflicto.removeIf(f -> f.getId().equals(nuevaFuncion.getId()));
+        for (int i = 0; i < validas.size(); i++) {
+            if (fallidas.contains(i)) {
+                agendaSalas.quitar(validas.get(i).getId());
+            } else {
+                resultado.getCreadas().add(validas.get(i).getId());
+            }
+        }
+        if (!resultado.getCreadas().isEmpty()) {
+            eventPublisher.publishEvent(new CatalogoEvent("programacion", null));
         }
+        return resultado;
+    }
+
+    // Función lista para insertar (el id se asigna aquí porque la inserción por lotes no lo devuelve)
+    private static Funcion nuevaFuncion(Pelicula pelicula, Sala sala, LocalDateTime fechaHora, Double precio) {
+        Funcion funcion = new Funcion();
+        funcion.setId(new ObjectId().toHexString());
+        funcion.setPeliculaId(pelicula.getId());
+        funcion.setSalaId(sala.getId());
+        funcion.setPelicula(ReferenciaPelicula.de(pelicula));
+        funcion.setSala(ReferenciaSala.de(sala));
+        funcion.setFechaHora(fechaHora);
+        funcion.setPrecio(precio);
+        funcion.setVersion(0L);
+        funcion.inicializarAsientos(sala);
+        return funcion;
+    }
 
-        return !funcionesConflicto.isEmpty();
+    private static ResultadoProgramacion.Fallo fallo(Funcion funcion, String motivo) {
+        return new ResultadoProgramacion.Fallo(funcion.getPeliculaId(), funcion.getSalaId(), funcion.getFechaHora(), motivo);
+    }
+
+    // Verificar conflictos de horario y apartar el horario en la agenda de la sala
+    // en el mismo paso, para que dos altas simultáneas no pasen las dos
+    private void apartarHorario(Funcion funcion) {
+        if (agendaSalas.reservar(funcion) != null) {
+            throw new RuntimeException("Ya existe una función en esa sala en ese horario");
+        }
     }
 
     // Obtener todas las funciones
     public List<Funcion> obtenerTodas() {
-        return funcionRepository.findAll();
+        return referenciaResolver.completarFunciones(funcionRepository.findAll());
     }
 
     // Obtener funciones activas
     public List<Funcion> obtenerActivas() {
-        return funcionRepository.findByActivaTrue();
+        return catalogoCache.funciones("activas", () ->
+                referenciaResolver.completarFunciones(funcionRepository.findByActivaTrue()));
     }
 
     // Obtener funciones futuras
     public List<Funcion> obtenerFuturas() {
-        return funcionRepository.findByFechaHoraAfter(LocalDateTime.now());
+        return catalogoCache.funciones("futuras", () ->
+                referenciaResolver.completarFunciones(funcionRepository.findByFechaHoraAfter(LocalDateTime.now())));
     }
 
     // Obtener función por ID
     public Optional<Funcion> obtenerPorId(String id) {
-        return funcionRepository.findById(id);
+        return funcionRepository.findById(id)
+                .map(referenciaResolver::completar)
+                .map(motorAsientos::superponerEstado);
     }
 
     // Obtener funciones por película
     public List<Funcion> obtenerPorPelicula(String peliculaId) {
-        Pelicula pelicula = peliculaRepository.findById(peliculaId)
-                .orElseThrow(() -> new RuntimeException("Película no encontrada"));
+        return catalogoCache.funciones("pelicula:" + peliculaId, () -> {
+            if (!peliculaRepository.existsById(peliculaId)) {
+                throw new RuntimeException("Película no encontrada");
+            }
 
-        return funcionRepository.findByPeliculaAndActivaTrueAndFechaHoraAfter(
-                pelicula,
-                LocalDateTime.now()
-        );
+            return referenciaResolver.completarFunciones(funcionRepository.findByPeliculaIdAndActivaTrueAndFechaHoraAfter(
+                    peliculaId,
+                    LocalDateTime.now()
+            ));
+        });
     }
 
     // Obtener funciones por sala
     public List<Funcion> obtenerPorSala(String salaId) {
-        Sala sala = salaRepository.findById(salaId)
-                .orElseThrow(() -> new RuntimeException("Sala no encontrada"));
+        if (!salaRepository.existsById(salaId)) {
+            throw new RuntimeException("Sala no encontrada");
+        }
+
+        return referenciaResolver.completarFunciones(funcionRepository.findBySalaId(salaId));
+    }
+
+    // Funciones con los campos pedidos, leyendo de Mongo solo lo necesario (todas o las de una sala)
+    public List<Map<String, Object>> obtenerCampos(String salaId, String fields) {
+        Campos campos = Campos.de(fields, CAMPOS);
+        Query query = salaId == null ? new Query() : new Query(Criteria.where("salaId").is(salaId));
+        return campos.recortar(referenciaResolver.completarFunciones(
+                mongoTemplate.find(campos.aplicar(query), Funcion.class)));
+    }
+
+    // Una página de funciones con los campos pedidos; la proyección va en la misma consulta por cursor
+    public Pagina<Map<String, Object>> obtenerCampos(String salaId, String fields, int limite, String cursor) {
+        Campos campos = Campos.de(fields, CAMPOS);
+        Criteria filtro = salaId == null ? null : Criteria.where("salaId").is(salaId);
+        Pagina<Funcion> pagina = paginador.pagina(filtro, Funcion.class, Funcion::getId, limite, cursor, campos,
+                referenciaResolver::completarFunciones);
+        return new Pagina<>(campos.recortar(pagina.getContenido()), pagina.getSiguienteCursor(), pagina.getLimite());
+    }
 
-        return funcionRepository.findBySala(sala);
+    // Un listado ya cargado (activas, futuras, por película) como resumen o con los campos pedidos
+    public List<?> resumir(List<Funcion> funciones, String fields) {
+        return fields == null ? FuncionResumen.de(funciones) : Campos.de(fields, CAMPOS).recortar(funciones);
+    }
+
+    // Obtener una página de funciones (más recientes primero), todas o las de una sala
+    public Pagina<Funcion> obtenerPagina(String salaId, int limite, String cursor) {
+        Criteria filtro = salaId == null ? null : Criteria.where("salaId").is(salaId);
+        return paginador.pagina(filtro, Funcion.class, Funcion::getId, limite, cursor,
+                referenciaResolver::completarFunciones);
+    }
+
+    // Escribir todas las funciones como NDJSON
+    public void exportar(OutputStream salida) throws IOException {
+        paginador.exportar(null, Funcion.class, salida, referenciaResolver::completarFunciones);
     }
 
     // Actualizar función
+    // Si otro escritor (por ejemplo un bloqueo de asientos) cambió el documento entre la
+    // lectura y el guardado, @Version hace fallar el save y se repite sobre datos frescos
     public Funcion actualizarFuncion(String id, Funcion funcionActualizada) {
+        try {
+            return reintentoOptimista.ejecutar("actualizarFuncion", () -> actualizarFuncionInterno(id, funcionActualizada));
+        } catch (RuntimeException e) {
+            // El horario pudo quedar apartado sin guardarse: la agenda vuelve a lo que hay en la base
+            agendaSalas.refrescar(id);
+            throw e;
+        }
+    }
+
+    private Funcion actualizarFuncionInterno(String id, Funcion funcionActualizada) {
         Funcion funcion = funcionRepository.findById(id)
+                .map(referenciaResolver::completar)
                 .orElseThrow(() -> new RuntimeException("Función no encontrada"));
 
         // Cargar película si cambió
-        if (funcionActualizada.getPelicula() != null) {
-            Pelicula pelicula = peliculaRepository.findById(funcionActualizada.getPelicula().getId())
+        if (funcionActualizada.getPeliculaId() != null) {
+            Pelicula pelicula = peliculaRepository.findById(funcionActualizada.getPeliculaId())
                     .orElseThrow(() -> new RuntimeException("Película no encontrada"));
-            funcion.setPelicula(pelicula);
+            funcion.setPeliculaId(pelicula.getId());
+            funcion.setPelicula(ReferenciaPelicula.de(pelicula));
         }
 
         // Cargar sala si cambió
-        if (funcionActualizada.getSala() != null) {
-            Sala sala = salaRepository.findById(funcionActualizada.getSala().getId())
+        if (funcionActualizada.getSalaId() != null) {
+            Sala sala = salaRepository.findById(funcionActualizada.getSalaId())
                     .orElseThrow(() -> new RuntimeException("Sala no encontrada"));
-            funcion.setSala(sala);
+            funcion.setSalaId(sala.getId());
+
+            // Los índices de asiento dependen de la geometría: solo se puede cambiar sin asientos tomados
+            if (!sala.getFilas().equals(funcion.getFilas()) || !sala.getColumnas().equals(funcion.getColumnas())) {
+                if (!funcion.getBloqueos().isEmpty() || funcion.getMapaAsientos().contarOcupados() > 0) {
+                    throw new RuntimeException("No se puede cambiar a una sala de otro tamaño con asientos vendidos o bloqueados");
+                }
+                funcion.inicializarAsientos(sala);
+                geometrias.remove(id);
+            }
+            funcion.setSala(ReferenciaResolver.referenciaSala(sala, funcion));
         }
 
         funcion.setFechaHora(funcionActualizada.getFechaHora());
         funcion.setPrecio(funcionActualizada.getPrecio());
         funcion.setActiva(funcionActualizada.getActiva());
 
-        // Verificar conflictos de horario
-        if (existeConflictoHorario(funcion)) {
-            throw new RuntimeException("Ya existe una función en esa sala en ese horario");
-        }
+        apartarHorario(funcion);
 
-        return funcionRepository.save(funcion);
+        Funcion guardada = funcionRepository.save(funcion);
+        motorAsientos.refrescar(guardada);
+        publicarCambioCatalogo(id);
+        return guardada;
     }
 
     // Desactivar función
     public void desactivarFuncion(String id) {
-        Funcion funcion = funcionRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Función no encontrada"));
-
-        funcion.setActiva(false);
-        funcionRepository.save(funcion);
+        reintentoOptimista.ejecutar("desactivarFuncion", () -> {
+            Funcion funcion = funcionRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Función no encontrada"));
+
+            funcion.setActiva(false);
+            motorAsientos.refrescar(funcionRepository.save(funcion));
+        });
+        publicarCambioCatalogo(id);
     }
 
     // Eliminar función permanentemente
     public void eliminarFuncion(String id) {
         funcionRepository.deleteById(id);
+        geometrias.remove(id);
+        motorAsientos.descartar(id);
+        publicarCambioCatalogo(id);
     }
 
-    // Bloquear asientos temporalmente (15 minutos)
-    public synchronized Funcion bloquearAsientos(String funcionId, List<String> asientos) {
-        Funcion funcion = funcionRepository.findById(funcionId)
-                .orElseThrow(() -> new RuntimeException("Función no encontrada"));
+    // Vacía las listas de funciones cacheadas
+    private void publicarCambioCatalogo(String id) {
+        eventPublisher.publishEvent(new CatalogoEvent("funcion", id));
+    }
 
-        // Limpiar bloqueos expirados primero
-        limpiarBloqueosExpirados(funcion);
 
-        // Verificar disponibilidad de todos los asientos
-        for (String asiento : asientos) {
-            if (!funcion.isAsientoDisponible(asiento)) {
-                throw new RuntimeException("El asiento " + asiento + " no está disponible");
+    // Bloquear asientos temporalmente (duracionBloqueoSegundos)
+    // Con el motor en memoria se resuelve ahí; si no, con una sola operación condicional
+    // en Mongo que solo se aplica si ningún asiento está ocupado ni bloqueado, así que
+    // es segura aunque corran varias instancias. El candado local solo evita
+    // reintentos inútiles dentro de esta instancia.
+    public Funcion bloquearAsientos(String funcionId, List<String> asientos) {
+        Funcion funcion = motorAsientos.isHabilitado()
+                ? motorAsientos.bloquear(funcionId, asientos, duracionBloqueoSegundos)
+                : funcionLockManager.conBloqueo(funcionId, () -> bloquearAsientosInterno(funcionId, asientos));
+
+        publicarBloqueo(funcion, asientos);
+        return funcion;
+    }
+
+    // Buscar y bloquear los mejores asientos contiguos para un grupo
+    public AsignacionAsientos bloquearMejoresAsientos(String funcionId, int cantidad,
+                                                      MapaAsientos.Preferencia preferencia) {
+        if (motorAsientos.isHabilitado()) {
+            AsignacionAsientos asignacion = motorAsientos.bloquearMejores(
+                    funcionId, cantidad, preferencia, duracionBloqueoSegundos);
+            publicarBloqueo(asignacion.getFuncion(), asignacion.getAsientos());
+            return asignacion;
+        }
+
+        // Sin motor: se busca sobre una lectura del mapa y se bloquea con la operación
+        // condicional; si otro cliente ganó alguno de esos asientos, se vuelve a buscar
+        for (int intento = 1; ; intento++) {
+            Query query = new Query(Criteria.where("_id").is(funcionId));
+            query.fields().include("filas", "columnas", "ocupados", "bloqueos");
+            Funcion mapaActual = mongoTemplate.findOne(query, Funcion.class);
+            if (mapaActual == null) {
+                throw new RuntimeException("Función no encontrada");
+            }
+
+            int[] bloque = mapaActual.getMapaAsientos().buscarBloqueContiguo(cantidad, preferencia);
+            if (bloque == null) {
+                throw new RuntimeException("No hay " + cantidad + " asientos juntos disponibles");
+            }
+
+            // Solo se reintenta si la operación condicional no se aplicó (otro cliente ganó
+            // algún asiento); cualquier otro error sale tal cual
+            List<String> asientos = MapaAsientos.codigos(bloque, mapaActual.getColumnas());
+            Funcion funcion = funcionLockManager.conBloqueo(funcionId, () -> intentarBloquear(funcionId, asientos));
+            if (funcion != null) {
+                publicarBloqueo(funcion, asientos);
+                return new AsignacionAsientos(funcion, asientos);
+            }
+            if (intento >= INTENTOS_MEJORES_ASIENTOS) {
+                throw new RuntimeException("No se pudieron apartar asientos juntos, intente de nuevo");
             }
         }
+    }
 
-        // Bloquear los asientos (15 minutos = 900000 ms)
-        long expiracion = System.currentTimeMillis() + 900000;
-        for (String asiento : asientos) {
-            funcion.getAsientosBloqueados().put(asiento, expiracion);
+    // Renovar un bloqueo vigente (heartbeat del checkout): lo extiende otra
+    // duracionBloqueoSegundos sin pasar de limiteMs. Nunca acorta un bloqueo.
+    // actual es la expiración con la que la reserva tomó el bloqueo (null = cualquiera vigente)
+    public Funcion renovarBloqueo(String funcionId, List<String> asientos, Integer actual, long limiteMs) {
+        long ahora = System.currentTimeMillis();
+        int expiracion = MapaAsientos.segundos(Math.min(ahora + duracionBloqueoSegundos * 1000L, limiteMs));
+        if (expiracion <= MapaAsientos.segundos(ahora)) {
+            throw new RuntimeException("El bloqueo alcanzó su duración máxima");
+        }
+
+        Funcion funcion = motorAsientos.isHabilitado()
+                ? motorAsientos.renovar(funcionId, asientos, actual, expiracion)
+                : funcionLockManager.conBloqueo(funcionId, () -> renovarBloqueoInterno(funcionId, asientos, actual, expiracion));
+
+        publicarBloqueo(funcion, asientos);
+        return funcion;
+    }
+
+    private Funcion renovarBloqueoInterno(String funcionId, List<String> asientos, Integer actual, int expiracion) {
+        Geometria geometria = obtenerGeometria(funcionId);
+        int[] indices = geometria.indices(asientos);
+
+        Criteria criteria = bloqueosVigentes(geometria.criterio(funcionId), indices, actual);
+        Update update = new Update();
+        for (int indice : indices) {
+            update.max("bloqueos." + indice, expiracion);
+        }
+        update.inc("version", 1).inc("versionAsientos", 1);
+
+        Funcion funcion = mongoTemplate.findAndModify(new Query(criteria), update, RETORNAR_NUEVO, Funcion.class);
+        if (funcion == null) {
+            throw conflictoDeAsientos(funcionId, asientos, "ya no está bloqueado para esta reserva",
+                    (mapa, indice) -> !mapa.isBloqueoVigente(indice, actual, System.currentTimeMillis()));
+        }
+        return funcion;
+    }
+
+    // Todos los bloqueos deben seguir vigentes (uno vencido ya puede ser de otro cliente) y,
+    // si se conoce la expiración con la que se tomaron, ser esos mismos: si el bloqueo venció
+    // y otro cliente bloqueó el asiento, el suyo tiene otra expiración
+    private static Criteria bloqueosVigentes(Criteria criteria, int[] indices, Integer expiracion) {
+        int ahora = MapaAsientos.segundos(System.currentTimeMillis());
+        if (expiracion != null && expiracion <= ahora) {
+            throw new RuntimeException("El bloqueo de los asientos ya venció");
+        }
+        for (int indice : indices) {
+            if (expiracion != null) {
+                criteria.and("bloqueos." + indice).is(expiracion);
+            } else {
+                criteria.and("bloqueos." + indice).gt(ahora);
+            }
+        }
+        return criteria;
+    }
+
+    // La expiración es la misma para todos los asientos del bloqueo
+    private void publicarBloqueo(Funcion funcion, List<String> asientos) {
+        MapaAsientos mapa = funcion.getMapaAsientos();
+        int[] indices = mapa.indices(asientos);
+        eventPublisher.publishEvent(new AsientosEvent(AsientosEvent.Tipo.BLOQUEADOS, funcion.getId(),
+                MapaAsientos.codigos(indices, mapa.getColumnas()),
+                MapaAsientos.milisegundos(mapa.getExpiracion(indices[0]))));
+    }
+
+    private Funcion bloquearAsientosInterno(String funcionId, List<String> asientos) {
+        Funcion funcion = intentarBloquear(funcionId, asientos);
+        if (funcion == null) {
+            throw conflictoDeAsientos(funcionId, asientos, "no está disponible",
+                    (mapa, indice) -> !mapa.isDisponible(indice, System.currentTimeMillis()));
+        }
+        return funcion;
+    }
+
+    // La operación condicional del bloqueo; null si algún asiento ya no estaba libre
+    private Funcion intentarBloquear(String funcionId, List<String> asientos) {
+        Geometria geometria = obtenerGeometria(funcionId);
+        int[] indices = geometria.indices(asientos);
+        int ahora = MapaAsientos.segundos(System.currentTimeMillis());
+
+        // Ningún bit ocupado y ningún bloqueo vigente (los expirados cuentan como libres)
+        List<Criteria> condiciones = new ArrayList<>();
+        bitsPorPalabra(indices).forEach((palabra, bits) ->
+                condiciones.add(Criteria.where("ocupados." + palabra).bits().allClear(bits)));
+        for (int indice : indices) {
+            condiciones.add(Criteria.where("bloqueos." + indice).not().gt(ahora));
+        }
+        Query query = new Query(geometria.criterio(funcionId)
+                .andOperator(condiciones.toArray(new Criteria[0])));
+
+        int expiracion = ahora + duracionBloqueoSegundos;
+        Update update = new Update();
+        for (int indice : indices) {
+            update.set("bloqueos." + indice, expiracion);
         }
+        update.inc("version", 1).inc("versionAsientos", 1);
 
-        return funcionRepository.save(funcion);
+        return mongoTemplate.findAndModify(query, update, RETORNAR_NUEVO, Funcion.class);
     }
 
     // Limpiar bloqueos expirados
     public void limpiarBloqueosExpirados(Funcion funcion) {
-        long ahora = System.currentTimeMillis();
-        funcion.getAsientosBloqueados().entrySet()
-                .removeIf(entry -> entry.getValue() < ahora);
+        int ahora = MapaAsientos.segundos(System.currentTimeMillis());
+        funcion.getBloqueos().entrySet()
+                .removeIf(entry -> entry.getValue() <= ahora);
     }
 
-    // Confirmar compra (mover de bloqueados a ocupados)
-    public synchronized Funcion confirmarCompra(String funcionId, List<String> asientos) {
-        Funcion funcion = funcionRepository.findById(funcionId)
-                .orElseThrow(() -> new RuntimeException("Función no encontrada"));
+    // Liberar bloqueos vencidos (los entrega BloqueoExpirationService al cumplirse su plazo).
+    // Solo quita los que siguen vencidos, sin pisar un bloqueo nuevo sobre el mismo asiento,
+    // y devuelve los asientos que realmente se liberaron.
+    public List<String> liberarBloqueosExpirados(String funcionId, List<String> asientos) {
+        List<String> liberados = motorAsientos.isHabilitado()
+                ? motorAsientos.liberarExpirados(funcionId, asientos)
+                : funcionLockManager.conBloqueo(funcionId, () -> liberarBloqueosExpiradosInterno(funcionId, asientos));
 
-        // Verificar que los asientos estén bloqueados
-        for (String asiento : asientos) {
-            if (!funcion.getAsientosBloqueados().containsKey(asiento)) {
-                throw new RuntimeException("El asiento " + asiento + " no está bloqueado");
+        if (!liberados.isEmpty()) {
+            eventPublisher.publishEvent(AsientosEvent.de(AsientosEvent.Tipo.EXPIRADOS, funcionId, liberados));
+        }
+        return liberados;
+    }
+
+    private List<String> liberarBloqueosExpiradosInterno(String funcionId, List<String> asientos) {
+        Geometria geometria;
+        try {
+            geometria = obtenerGeometria(funcionId);
+        } catch (RuntimeException e) {
+            return List.of(); // La función ya no existe
+        }
+        int[] indices = geometria.indices(asientos);
+        int ahora = MapaAsientos.segundos(System.currentTimeMillis());
+
+        // Caso normal: todos siguen vencidos y se quitan en una sola operación
+        Criteria criteria = geometria.criterio(funcionId);
+        Update update = new Update();
+        for (int indice : indices) {
+            criteria.and("bloqueos." + indice).lte(ahora);
+            update.unset("bloqueos." + indice);
+        }
+        update.inc("version", 1).inc("versionAsientos", 1);
+        if (mongoTemplate.updateFirst(new Query(criteria), update, Funcion.class).getModifiedCount() > 0) {
+            return MapaAsientos.codigos(indices, geometria.columnas());
+        }
+
+        // Alguno se renovó, confirmó o liberó antes: ir asiento por asiento
+        List<String> liberados = new ArrayList<>();
+        for (int indice : indices) {
+            String campo = "bloqueos." + indice;
+            long modificados = mongoTemplate.updateFirst(
+                    new Query(geometria.criterio(funcionId).and(campo).lte(ahora)),
+                    new Update().unset(campo).inc("version", 1).inc("versionAsientos", 1),
+                    Funcion.class
+            ).getModifiedCount();
+            if (modificados > 0) {
+                liberados.add(MapaAsientos.codigo(indice, geometria.columnas()));
             }
         }
+        return liberados;
+    }
+
+    // Confirmar compra (mover de bloqueados a ocupados). expiracionBloqueo es la expiración
+    // del bloqueo de la reserva (null en reservas de antes de guardarla: basta uno vigente)
+    public Funcion confirmarCompra(String funcionId, List<String> asientos, Integer expiracionBloqueo) {
+        Funcion funcion = motorAsientos.isHabilitado()
+                ? motorAsientos.confirmar(funcionId, asientos, expiracionBloqueo)
+                : funcionLockManager.conBloqueo(funcionId, () -> confirmarCompraInterno(funcionId, asientos, expiracionBloqueo));
+
+        publicar(AsientosEvent.Tipo.CONFIRMADOS, funcion, asientos);
+        return funcion;
+    }
+
+    private Funcion confirmarCompraInterno(String funcionId, List<String> asientos, Integer expiracionBloqueo) {
+        Geometria geometria = obtenerGeometria(funcionId);
+        int[] indices = geometria.indices(asientos);
+
+        // Todos los asientos deben seguir bloqueados para esta reserva
+        Criteria criteria = bloqueosVigentes(geometria.criterio(funcionId), indices, expiracionBloqueo);
 
         // Mover de bloqueados a ocupados
-        for (String asiento : asientos) {
-            funcion.getAsientosBloqueados().remove(asiento);
-            funcion.getAsientosOcupados().add(asiento);
+        Update update = new Update();
+        for (int indice : indices) {
+            update.unset("bloqueos." + indice);
         }
-
-        return funcionRepository.save(funcion);
+        bitsPorPalabra(indices).forEach((palabra, bits) ->
+                update.bitwise("ocupados." + palabra).or(mascara(bits)));
+        update.inc("version", 1).inc("versionAsientos", 1);
+
+        Funcion funcion = mongoTemplate.findAndModify(new Query(criteria), update, RETORNAR_NUEVO, Funcion.class);
+        if (funcion == null) {
+            throw conflictoDeAsientos(funcionId, asientos, "ya no está bloqueado para esta reserva",
+                    (mapa, indice) -> !mapa.isBloqueoVigente(indice, expiracionBloqueo, System.currentTimeMillis()));
+        }
+        return funcion;
     }
 
     // Liberar asientos bloqueados (cancelar selección)
-    public synchronized Funcion liberarAsientos(String funcionId, List<String> asientos) {
-        Funcion funcion = funcionRepository.findById(funcionId)
+    public Funcion liberarAsientos(String funcionId, List<String> asientos) {
+        Funcion funcion = motorAsientos.isHabilitado()
+                ? motorAsientos.liberar(funcionId, asientos)
+                : funcionLockManager.conBloqueo(funcionId, () -> liberarAsientosInterno(funcionId, asientos));
+
+        publicar(AsientosEvent.Tipo.LIBERADOS, funcion, asientos);
+        return funcion;
+    }
+
+    private Funcion liberarAsientosInterno(String funcionId, List<String> asientos) {
+        Geometria geometria = obtenerGeometria(funcionId);
+        int[] indices = geometria.indices(asientos);
+
+        Update update = new Update();
+        for (int indice : indices) {
+            update.unset("bloqueos." + indice);
+        }
+        update.inc("version", 1).inc("versionAsientos", 1);
+
+        Funcion funcion = mongoTemplate.findAndModify(
+                new Query(geometria.criterio(funcionId)), update, RETORNAR_NUEVO, Funcion.class);
+        if (funcion == null) {
+            throw conflictoDeAsientos(funcionId, asientos, "no pertenece a la sala", (mapa, indice) -> false);
+        }
+        return funcion;
+    }
+
+    private void publicar(AsientosEvent.Tipo tipo, Funcion funcion, List<String> asientos) {
+        int[] indices = MapaAsientos.indices(asientos, funcion.getFilas(), funcion.getColumnas());
+        eventPublisher.publishEvent(AsientosEvent.de(tipo, funcion.getId(),
+                MapaAsientos.codigos(indices, funcion.getColumnas())));
+    }
+
+    // Geometría de la función (filas y columnas), cacheada porque casi nunca cambia.
+    // Todas las operaciones la incluyen en el filtro, así que si otra instancia
+    // la cambió la operación no aplica y se vuelve a leer.
+    private Geometria obtenerGeometria(String funcionId) {
+        Geometria geometria = geometrias.get(funcionId);
+        if (geometria != null) {
+            return geometria;
+        }
+
+        Query query = new Query(Criteria.where("_id").is(funcionId));
+        query.fields().include("filas", "columnas");
+        Funcion funcion = mongoTemplate.findOne(query, Funcion.class);
+        if (funcion == null) {
+            throw new RuntimeException("Función no encontrada");
+        }
+        return recordarGeometria(funcion);
+    }
+
+    private Geometria recordarGeometria(Funcion funcion) {
+        if (funcion.getFilas() == null || funcion.getColumnas() == null) {
+            throw new RuntimeException("La función no tiene mapa de asientos");
+        }
+        Geometria geometria = new Geometria(funcion.getFilas(), funcion.getColumnas());
+        geometrias.put(funcion.getId(), geometria);
+        return geometria;
+    }
+
+    // Agrupa los índices por palabra del bitmap: palabra -> posiciones de bit
+    private static Map<Integer, List<Integer>> bitsPorPalabra(int[] indices) {
+        Map<Integer, List<Integer>> bits = new TreeMap<>();
+        for (int indice : indices) {
+            bits.computeIfAbsent(MapaAsientos.palabra(indice), p -> new ArrayList<>())
+                    .add(MapaAsientos.bit(indice));
+        }
+        return bits;
+    }
+
+    private static long mascara(List<Integer> bits) {
+        long mascara = 0L;
+        for (int bit : bits) {
+            mascara |= 1L << bit;
+        }
+        return mascara;
+    }
+
+    // Cuando la operación condicional no aplicó, averigua qué asiento la bloqueó
+    private RuntimeException conflictoDeAsientos(String funcionId, List<String> asientos, String motivo,
+                                                 BiPredicate<MapaAsientos, Integer> enConflicto) {
+        Funcion actual = funcionRepository.findById(funcionId)
                 .orElseThrow(() -> new RuntimeException("Función no encontrada"));
+        recordarGeometria(actual);
 
+        MapaAsientos mapa = actual.getMapaAsientos();
         for (String asiento : asientos) {
-            funcion.getAsientosBloqueados().remove(asiento);
+            if (enConflicto.test(mapa, mapa.indice(asiento))) {
+                return new RuntimeException("El asiento " + asiento + " " + motivo);
+            }
+        }
+        return new RuntimeException("Los asientos cambiaron mientras se procesaba la solicitud, intente de nuevo");
+    }
+
+    private record Geometria(int filas, int columnas) {
+
+        int[] indices(List<String> asientos) {
+            return MapaAsientos.indices(asientos, filas, columnas);
         }
 
-        return funcionRepository.save(funcion);
+        Criteria criterio(String funcionId) {
+            return Criteria.where("_id").is(funcionId).and("filas").is(filas).and("columnas").is(columnas);
+        }
     }
-}
\ No newline at end of file
+}
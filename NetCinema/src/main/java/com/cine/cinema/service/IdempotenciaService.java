@@ -0,0 +1,169 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.dto.ApiResponse;
+import com.cine.cinema.model.RegistroIdempotencia;
+import com.cine.cinema.util.TtlCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Soporte para el header Idempotency-Key.
+ * La primera solicitud con una llave se ejecuta y su respuesta se guarda en la colección
+ * "idempotencia" (con TTL de 24 h) y en una caché local; los reintentos con la misma
+ * llave reciben la respuesta original sin volver a ejecutar la operación.
+ */
+@Service
+public class IdempotenciaService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Respuestas recientes, para no ir a Mongo en los reintentos inmediatos
+    private final TtlCache<String, RegistroIdempotencia> recientes = new TtlCache<>(10_000, 10 * 60 * 1000);
+
+    public IdempotenciaService(MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por llave.
+     * Sin llave, simplemente la ejecuta.
+     */
+    public ResponseEntity<ApiResponse> ejecutar(String operacion, String llave, Object solicitud,
+                                                Supplier<ResponseEntity<ApiResponse>> accion) {
+        if (llave == null || llave.isBlank()) {
+            return accion.get();
+        }
+        if (llave.length() > 128) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, "El Idempotency-Key no puede tener más de 128 caracteres"));
+        }
+
+        String id = operacion + ":" + llave;
+        String huella = huella(solicitud);
+
+        RegistroIdempotencia previo = recientes.get(id);
+        if (previo != null) {
+            return repetir(previo, huella);
+        }
+
+        // Reservar la llave; si ya existe, otra solicitud la ganó antes
+        try {
+            mongoTemplate.insert(new RegistroIdempotencia(id, huella));
+        } catch (DuplicateKeyException e) {
+            RegistroIdempotencia existente = mongoTemplate.findById(id, RegistroIdempotencia.class);
+            if (existente == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ApiResponse(false, "La solicitud con este Idempotency-Key cambió de estado, intente de nuevo"));
+            }
+            if (RegistroIdempotencia.EN_PROCESO.equals(existente.getEstado())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ApiResponse(false, "La solicitud con este Idempotency-Key aún se está procesando"));
+            }
+            recientes.put(id, existente);
+            return repetir(existente, huella);
+        }
+
+        ResponseEntity<ApiResponse> respuesta;
+        try {
+            respuesta = accion.get();
+        } catch (RuntimeException e) {
+            liberarLlave(id);
+            throw e;
+        }
+
+        // Los errores del servidor no se guardan: el cliente debe poder reintentar
+        if (respuesta.getStatusCode().is5xxServerError()) {
+            liberarLlave(id);
+            return respuesta;
+        }
+
+        RegistroIdempotencia completado = new RegistroIdempotencia(id, huella);
+        completado.setEstado(RegistroIdempotencia.COMPLETADO);
+        completado.setStatus(respuesta.getStatusCode().value());
+        completado.setRespuesta(aJson(respuesta.getBody()));
+
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(id)),
+                new Update()
+                        .set("estado", completado.getEstado())
+                        .set("status", completado.getStatus())
+                        .set("respuesta", completado.getRespuesta()),
+                RegistroIdempotencia.class
+        );
+        recientes.put(id, completado);
+        return respuesta;
+    }
+
+    /**
+     * Respuesta ya guardada para la llave, o null si no hay (o aún se está procesando).
+     * Sirve para contestar un reintento antes de las validaciones que dependen del
+     * momento, como la fila virtual: la operación original ya pasó por ellas.
+     */
+    public ResponseEntity<ApiResponse> respuestaGuardada(String operacion, String llave, Object solicitud) {
+        if (llave == null || llave.isBlank() || llave.length() > 128) {
+            return null;
+        }
+        String id = operacion + ":" + llave;
+        RegistroIdempotencia registro = recientes.get(id);
+        if (registro == null) {
+            registro = mongoTemplate.findById(id, RegistroIdempotencia.class);
+            if (registro == null || !RegistroIdempotencia.COMPLETADO.equals(registro.getEstado())) {
+                return null;
+            }
+            recientes.put(id, registro);
+        }
+        return repetir(registro, huella(solicitud));
+    }
+
+    // Devuelve la respuesta original, salvo que la llave se esté reutilizando con otro cuerpo
+    private ResponseEntity<ApiResponse> repetir(RegistroIdempotencia registro, String huella) {
+        if (!registro.getHuella().equals(huella)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(new ApiResponse(false, "El Idempotency-Key ya se usó con una solicitud diferente"));
+        }
+        try {
+            ApiResponse cuerpo = objectMapper.readValue(registro.getRespuesta(), ApiResponse.class);
+            return ResponseEntity.status(registro.getStatus()).body(cuerpo);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo leer la respuesta guardada: " + e.getMessage());
+        }
+    }
+
+    private void liberarLlave(String id) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(id)), RegistroIdempotencia.class);
+        recientes.invalidar(id);
+    }
+
+    private String huella(Object solicitud) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(aJson(solicitud).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String aJson(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo serializar la solicitud: " + e.getMessage());
+        }
+    }
+}
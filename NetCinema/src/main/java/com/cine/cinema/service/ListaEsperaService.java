@@ -0,0 +1,299 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.config.NotificationWebSocketHandler;
+import com.cine.cinema.dto.AsignacionAsientos;
+import com.cine.cinema.event.AsientosEvent;
+import com.cine.cinema.model.EntradaListaEspera;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.model.Reserva;
+import com.cine.cinema.repository.ListaEsperaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lista de espera por función (FIFO).
+ * Las entradas se guardan en Mongo y cada función tiene además su fila en memoria,
+ * cargada la primera vez que se usa. Cuando se liberan o vencen asientos, se le
+ * bloquean los mejores disponibles al primero de la fila al que le alcancen y se le
+ * avisa por WebSocket con ASIENTOS_OFRECIDOS; si no los reclama antes de que venza
+ * el bloqueo, vuelven a liberarse y pasan al siguiente.
+ * Cada función se atiende con su propio candado (las operaciones de una no frenan a
+ * las de otra); es un FuncionLockManager aparte del de los asientos, y los asientos se
+ * piden con el de la lista tomado, nunca al revés.
+ * Casi ninguna función tiene fila, así que se lleva en memoria cuáles sí (con entradas
+ * esperando u ofertas abiertas) y los eventos de las demás se ignoran sin ir a Mongo.
+ * Se carga al arrancar y se vuelve a leer cada tanto por las inscripciones hechas
+ * desde otra instancia.
+ */
+@Service
+@RequiredArgsConstructor
+public class ListaEsperaService implements SmartInitializingSingleton {
+
+    private final ListaEsperaRepository listaEsperaRepository;
+    private final FuncionService funcionService;
+    private final ReservaService reservaService;
+    private final NotificationWebSocketHandler notificationHandler;
+
+    // Las ofertas se hacen fuera del hilo que publica el evento y de una en una
+    private final ExecutorService ofertas = Executors.newSingleThreadExecutor();
+
+    private final FuncionLockManager candados = new FuncionLockManager();
+
+    // funcionId -> entradas esperando, en orden de llegada. Cada cola se usa solo con
+    // el candado de su función
+    private final Map<String, Deque<EntradaListaEspera>> colas = new ConcurrentHashMap<>();
+
+    // Funciones con entradas ESPERANDO u OFRECIDO. Se agregan al inscribir o al recargar
+    // y solo se quitan con el candado de la función, cuando ya no queda nada pendiente
+    private final Set<String> conFila = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        recargarFunciones();
+        System.out.println("⏳ Lista de espera en " + conFila.size() + " funciones");
+    }
+
+    // Solo agrega: quitar aquí podría borrar una inscripción hecha mientras se leía
+    @Scheduled(initialDelayString = "${netcinema.lista-espera.recarga-ms:600000}",
+            fixedDelayString = "${netcinema.lista-espera.recarga-ms:600000}")
+    public void recargarFunciones() {
+        listaEsperaRepository.findByEstadoIn(List.of(EntradaListaEspera.ESPERANDO, EntradaListaEspera.OFRECIDO))
+                .forEach(entrada -> conFila.add(entrada.getFuncionId()));
+    }
+
+    // Inscribirse en la lista de espera de una función agotada
+    public EntradaListaEspera inscribir(String funcionId, String usuarioId, int cantidad) {
+        return candados.conBloqueo(funcionId, () -> inscribirInterno(funcionId, usuarioId, cantidad));
+    }
+
+    private EntradaListaEspera inscribirInterno(String funcionId, String usuarioId, int cantidad) {
+        Funcion funcion = funcionService.obtenerPorId(funcionId)
+                .orElseThrow(() -> new RuntimeException("Función no encontrada"));
+
+        if (!Boolean.TRUE.equals(funcion.getActiva())) {
+            throw new RuntimeException("La función no está activa");
+        }
+        if (asientosDisponibles(funcion) >= cantidad) {
+            throw new RuntimeException("Todavía hay asientos disponibles para esta función");
+        }
+        if (listaEsperaRepository.existsByFuncionIdAndUsuarioIdAndEstadoIn(funcionId, usuarioId,
+                List.of(EntradaListaEspera.ESPERANDO, EntradaListaEspera.OFRECIDO))) {
+            throw new RuntimeException("Ya estás en la lista de espera de esta función");
+        }
+
+        EntradaListaEspera entrada = listaEsperaRepository.save(
+                new EntradaListaEspera(funcionId, usuarioId, cantidad));
+        cola(funcionId).addLast(entrada);
+        conFila.add(funcionId);
+        return entrada;
+    }
+
+    // Posición en la fila (1 = el siguiente), 0 si ya no está esperando
+    public int obtenerPosicion(EntradaListaEspera entrada) {
+        return candados.conBloqueo(entrada.getFuncionId(), () -> {
+            int posicion = 1;
+            for (EntradaListaEspera enFila : cola(entrada.getFuncionId())) {
+                if (enFila.getId().equals(entrada.getId())) {
+                    return posicion;
+                }
+                posicion++;
+            }
+            return 0;
+        });
+    }
+
+    public List<EntradaListaEspera> obtenerPorUsuario(String usuarioId) {
+        return listaEsperaRepository.findByUsuarioIdOrderByFechaRegistroDesc(usuarioId);
+    }
+
+    // Salir de la lista; si tenía una oferta, sus asientos pasan al siguiente
+    public void cancelar(String entradaId, String usuarioId) {
+        String funcionId = buscar(entradaId, usuarioId).getFuncionId();
+        candados.conBloqueo(funcionId, () -> {
+            cancelarInterno(entradaId, usuarioId);
+            return null;
+        });
+    }
+
+    private void cancelarInterno(String entradaId, String usuarioId) {
+        // Se vuelve a leer con el candado: pudo cambiar mientras se esperaba
+        EntradaListaEspera entrada = buscar(entradaId, usuarioId);
+
+        String estadoAnterior = entrada.getEstado();
+        if (!EntradaListaEspera.ESPERANDO.equals(estadoAnterior) && !EntradaListaEspera.OFRECIDO.equals(estadoAnterior)) {
+            throw new RuntimeException("La entrada ya no está en la lista de espera");
+        }
+
+        entrada.setEstado(EntradaListaEspera.CANCELADO);
+        listaEsperaRepository.save(entrada);
+        cola(entrada.getFuncionId()).removeIf(e -> e.getId().equals(entradaId));
+
+        if (EntradaListaEspera.OFRECIDO.equals(estadoAnterior)) {
+            // Publica LIBERADOS, que vuelve a disparar las ofertas
+            funcionService.liberarAsientos(entrada.getFuncionId(), entrada.getAsientosOfrecidos());
+        }
+    }
+
+    // Reclamar los asientos ofrecidos: crea la reserva pendiente sobre el bloqueo vigente
+    public Reserva reclamar(String entradaId, String usuarioId, String nombreCliente, String emailCliente) {
+        String funcionId = buscar(entradaId, usuarioId).getFuncionId();
+        return candados.conBloqueo(funcionId, () -> reclamarInterno(entradaId, usuarioId, nombreCliente, emailCliente));
+    }
+
+    private Reserva reclamarInterno(String entradaId, String usuarioId, String nombreCliente, String emailCliente) {
+        EntradaListaEspera entrada = buscar(entradaId, usuarioId);
+
+        if (!EntradaListaEspera.OFRECIDO.equals(entrada.getEstado())
+                || entrada.getOfertaExpiraEn() <= System.currentTimeMillis()) {
+            throw new RuntimeException("No hay una oferta vigente para esta entrada");
+        }
+
+        Reserva reserva = new Reserva();
+        reserva.setFuncionId(entrada.getFuncionId());
+        reserva.setUsuarioId(entrada.getUsuarioId());
+        reserva.setNombreCliente(nombreCliente);
+        reserva.setEmailCliente(emailCliente);
+        reserva.setAsientos(entrada.getAsientosOfrecidos());
+        reserva.setExpiracionBloqueo(MapaAsientos.segundos(entrada.getOfertaExpiraEn()));
+
+        Reserva creada = reservaService.crearReservaConAsientosBloqueados(reserva);
+
+        entrada.setEstado(EntradaListaEspera.ATENDIDO);
+        listaEsperaRepository.save(entrada);
+        return creada;
+    }
+
+    /**
+     * Asientos liberados (cancelación de una reserva pendiente o selección) o vencidos
+     */
+    @EventListener
+    public void alCambiarAsientos(AsientosEvent evento) {
+        if ((evento.tipo() == AsientosEvent.Tipo.LIBERADOS || evento.tipo() == AsientosEvent.Tipo.EXPIRADOS)
+                && conFila.contains(evento.funcionId())) {
+            ofertas.execute(() -> procesarLiberados(evento));
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        ofertas.shutdown();
+    }
+
+    private void procesarLiberados(AsientosEvent evento) {
+        try {
+            candados.conBloqueo(evento.funcionId(), () -> {
+                if (evento.tipo() == AsientosEvent.Tipo.EXPIRADOS) {
+                    vencerOfertas(evento.funcionId(), evento.asientos());
+                }
+                ofrecer(evento.funcionId(), evento.asientos().size());
+                // ofrecer quita la cola vacía; sin ofertas abiertas ya no hay a quién avisar
+                if (!colas.containsKey(evento.funcionId())
+                        && !listaEsperaRepository.existsByFuncionIdAndEstado(evento.funcionId(), EntradaListaEspera.OFRECIDO)) {
+                    conFila.remove(evento.funcionId());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            System.err.println("Error al procesar la lista de espera de la función " + evento.funcionId()
+                    + ": " + e.getMessage());
+        }
+    }
+
+    // Las ofertas cuyos asientos vencieron sin reclamarse dejan de valer
+    private void vencerOfertas(String funcionId, List<String> vencidos) {
+        for (EntradaListaEspera entrada : listaEsperaRepository
+                .findByFuncionIdAndEstadoOrderByFechaRegistroAsc(funcionId, EntradaListaEspera.OFRECIDO)) {
+            if (entrada.getAsientosOfrecidos().stream().anyMatch(vencidos::contains)) {
+                entrada.setEstado(EntradaListaEspera.VENCIDO);
+                listaEsperaRepository.save(entrada);
+            }
+        }
+    }
+
+    // Reparte hasta `liberados` asientos entre los primeros de la fila a los que les alcancen.
+    // Un grupo grande que no cabe no detiene a los que vienen detrás.
+    private void ofrecer(String funcionId, int liberados) {
+        Deque<EntradaListaEspera> cola = cola(funcionId);
+        int restantes = liberados;
+
+        Iterator<EntradaListaEspera> iterator = cola.iterator();
+        while (restantes > 0 && iterator.hasNext()) {
+            EntradaListaEspera entrada = iterator.next();
+            if (entrada.getCantidad() > restantes) {
+                continue;
+            }
+
+            AsignacionAsientos asignacion;
+            try {
+                asignacion = funcionService.bloquearMejoresAsientos(
+                        funcionId, entrada.getCantidad(), MapaAsientos.Preferencia.CENTRO);
+            } catch (RuntimeException e) {
+                continue; // No hay asientos juntos para este grupo
+            }
+
+            MapaAsientos mapa = asignacion.getFuncion().getMapaAsientos();
+            long expiracion = MapaAsientos.milisegundos(
+                    mapa.getExpiracion(mapa.indice(asignacion.getAsientos().get(0))));
+
+            entrada.setEstado(EntradaListaEspera.OFRECIDO);
+            entrada.setAsientosOfrecidos(asignacion.getAsientos());
+            entrada.setOfertaExpiraEn(expiracion);
+            listaEsperaRepository.save(entrada);
+            iterator.remove();
+            restantes -= entrada.getCantidad();
+
+            notificationHandler.notificarUsuario(entrada.getUsuarioId(), "ASIENTOS_OFRECIDOS", Map.of(
+                    "entradaId", entrada.getId(),
+                    "funcionId", funcionId,
+                    "asientos", asignacion.getAsientos(),
+                    "expiracion", expiracion
+            ));
+            System.out.println("🎟️ Asientos " + asignacion.getAsientos() + " ofrecidos al usuario "
+                    + entrada.getUsuarioId() + " (función " + funcionId + ")");
+        }
+
+        if (cola.isEmpty()) {
+            colas.remove(funcionId);
+        }
+    }
+
+    // La entrada, solo si es del usuario (para otro usuario es como si no existiera)
+    private EntradaListaEspera buscar(String entradaId, String usuarioId) {
+        return listaEsperaRepository.findById(entradaId)
+                .filter(entrada -> entrada.getUsuarioId().equals(usuarioId))
+                .orElseThrow(() -> new RuntimeException("Entrada de lista de espera no encontrada"));
+    }
+
+    // Cola en memoria de la función; se carga de Mongo la primera vez
+    private Deque<EntradaListaEspera> cola(String funcionId) {
+        return colas.computeIfAbsent(funcionId, id -> new ArrayDeque<>(listaEsperaRepository
+                .findByFuncionIdAndEstadoOrderByFechaRegistroAsc(id, EntradaListaEspera.ESPERANDO)));
+    }
+
+    private int asientosDisponibles(Funcion funcion) {
+        MapaAsientos mapa = funcion.getMapaAsientos();
+        long ahora = System.currentTimeMillis();
+        int disponibles = 0;
+        for (int i = 0; i < mapa.getCapacidad(); i++) {
+            if (mapa.isDisponible(i, ahora)) {
+                disponibles++;
+            }
+        }
+        return disponibles;
+    }
+}
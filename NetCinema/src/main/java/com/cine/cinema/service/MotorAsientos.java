@@ -0,0 +1,517 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.dto.AsignacionAsientos;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.repository.FuncionRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Motor de asientos en memoria.
+ * Cada función tiene un buzón de tareas que se procesa en un solo hilo a la vez,
+ * así que su MapaAsientos nunca se toca concurrentemente y no hace falta candado.
+ * Los cambios se guardan en Mongo por lotes cada pocos milisegundos (write-behind).
+ * Las funciones que ya pasaron o que nadie usa hace un rato se sacan de memoria
+ * (solo si todo lo suyo ya está guardado) y se vuelven a cargar si se piden otra vez.
+ *
+ * Como la memoria es la fuente de verdad, solo debe habilitarse cuando una sola
+ * instancia atiende las operaciones de asientos.
+ */
+@Component
+@Order(10)
+public class MotorAsientos implements ApplicationRunner {
+
+    // Tareas que se procesan de un buzón antes de ceder el hilo a otra función
+    private static final int TAREAS_POR_TURNO = 64;
+    private static final long TIMEOUT_MS = 5000;
+    // Una función sigue en memoria hasta estas horas después de empezar
+    private static final long HORAS_DESPUES_DE_FUNCION = 3;
+    // Sin operaciones en este tiempo se saca de memoria
+    private static final long INACTIVA_MS = 30 * 60_000;
+
+    private final FuncionRepository funcionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final boolean habilitado;
+    private final ExecutorService executor;
+
+    private final ConcurrentHashMap<String, EstadoFuncion> estados = new ConcurrentHashMap<>();
+
+    // Funciones con cambios aún no guardados en Mongo
+    private final Set<String> pendientes = ConcurrentHashMap.newKeySet();
+
+    public MotorAsientos(FuncionRepository funcionRepository,
+                         MongoTemplate mongoTemplate,
+                         @Value("${netcinema.asientos.motor-memoria.habilitado:false}") boolean habilitado) {
+        this.funcionRepository = funcionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.habilitado = habilitado;
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Reconstruye desde Mongo el estado de las funciones próximas al arrancar
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!habilitado) {
+            return;
+        }
+
+        List<Funcion> proximas = funcionRepository.findByFechaHoraAfter(
+                LocalDateTime.now().minusHours(HORAS_DESPUES_DE_FUNCION));
+        for (Funcion funcion : proximas) {
+            if (Boolean.TRUE.equals(funcion.getActiva()) && funcion.getFilas() != null) {
+                EstadoFuncion estado = new EstadoFuncion(funcion.getId());
+                estado.cargar(funcion);
+                estados.put(funcion.getId(), estado);
+            }
+        }
+        System.out.println("🎬 Motor de asientos en memoria con " + estados.size() + " funciones");
+    }
+
+    // ========== Operaciones ==========
+
+    public Funcion bloquear(String funcionId, List<String> asientos, int duracionSegundos) {
+        return ejecutar(funcionId, estado -> {
+            MapaAsientos mapa = estado.mapa;
+            int[] indices = mapa.indices(asientos);
+            long ahora = System.currentTimeMillis();
+
+            for (int i = 0; i < indices.length; i++) {
+                if (!mapa.isDisponible(indices[i], ahora)) {
+                    throw new RuntimeException("El asiento " + asientos.get(i) + " no está disponible");
+                }
+            }
+
+            int expiracion = MapaAsientos.segundos(ahora) + duracionSegundos;
+            for (int indice : indices) {
+                mapa.bloquear(indice, expiracion);
+            }
+            marcarCambio(estado);
+            return copia(estado);
+        });
+    }
+
+    // Busca y bloquea en un solo paso el mejor bloque contiguo para un grupo
+    public AsignacionAsientos bloquearMejores(String funcionId, int cantidad,
+                                              MapaAsientos.Preferencia preferencia, int duracionSegundos) {
+        return ejecutar(funcionId, estado -> {
+            MapaAsientos mapa = estado.mapa;
+            int[] bloque = mapa.buscarBloqueContiguo(cantidad, preferencia);
+            if (bloque == null) {
+                throw new RuntimeException("No hay " + cantidad + " asientos juntos disponibles");
+            }
+
+            int expiracion = MapaAsientos.segundos(System.currentTimeMillis()) + duracionSegundos;
+            for (int indice : bloque) {
+                mapa.bloquear(indice, expiracion);
+            }
+            marcarCambio(estado);
+            return new AsignacionAsientos(copia(estado), MapaAsientos.codigos(bloque, mapa.getColumnas()));
+        });
+    }
+
+    // Extiende bloqueos vigentes hasta la expiración dada, sin acortarlos.
+    // actual: la expiración con la que se tomó el bloqueo (null = cualquiera vigente)
+    public Funcion renovar(String funcionId, List<String> asientos, Integer actual, int expiracion) {
+        return ejecutar(funcionId, estado -> {
+            MapaAsientos mapa = estado.mapa;
+            int[] indices = mapa.indices(asientos);
+            long ahora = System.currentTimeMillis();
+
+            for (int i = 0; i < indices.length; i++) {
+                if (!mapa.isBloqueoVigente(indices[i], actual, ahora)) {
+                    throw new RuntimeException("El asiento " + asientos.get(i) + " ya no está bloqueado");
+                }
+            }
+
+            for (int indice : indices) {
+                mapa.bloquear(indice, Math.max(mapa.getExpiracion(indice), expiracion));
+            }
+            marcarCambio(estado);
+            return copia(estado);
+        });
+    }
+
+    // Vende asientos cuyo bloqueo sigue vigente y es el que se tomó (expiracion; null = cualquiera vigente)
+    public Funcion confirmar(String funcionId, List<String> asientos, Integer expiracion) {
+        return ejecutar(funcionId, estado -> {
+            MapaAsientos mapa = estado.mapa;
+            int[] indices = mapa.indices(asientos);
+            long ahora = System.currentTimeMillis();
+
+            for (int i = 0; i < indices.length; i++) {
+                if (!mapa.isBloqueoVigente(indices[i], expiracion, ahora)) {
+                    throw new RuntimeException("El asiento " + asientos.get(i) + " ya no está bloqueado para esta reserva");
+                }
+            }
+
+            for (int indice : indices) {
+                mapa.ocupar(indice);
+            }
+            marcarCambio(estado);
+            return copia(estado);
+        });
+    }
+
+    public Funcion liberar(String funcionId, List<String> asientos) {
+        return ejecutar(funcionId, estado -> {
+            for (int indice : estado.mapa.indices(asientos)) {
+                estado.mapa.liberar(indice);
+            }
+            marcarCambio(estado);
+            return copia(estado);
+        });
+    }
+
+    // Libera los asientos cuyo bloqueo sigue vencido y devuelve los que liberó
+    public List<String> liberarExpirados(String funcionId, List<String> asientos) {
+        return ejecutar(funcionId, estado -> {
+            MapaAsientos mapa = estado.mapa;
+            long ahora = System.currentTimeMillis();
+            List<String> liberados = new ArrayList<>();
+
+            for (int indice : mapa.indices(asientos)) {
+                if (mapa.tieneBloqueo(indice) && !mapa.isBloqueado(indice, ahora)) {
+                    mapa.liberar(indice);
+                    liberados.add(mapa.codigo(indice));
+                }
+            }
+            if (!liberados.isEmpty()) {
+                marcarCambio(estado);
+            }
+            return liberados;
+        });
+    }
+
+    /**
+     * Sobrescribe los asientos de una función leída de Mongo con el estado en memoria,
+     * si el motor la tiene cargada (lo de Mongo puede ir unos milisegundos atrás)
+     */
+    public Funcion superponerEstado(Funcion funcion) {
+        if (!habilitado || funcion == null || !estados.containsKey(funcion.getId())) {
+            return funcion;
+        }
+        return ejecutar(funcion.getId(), estado -> {
+            funcion.aplicarMapaAsientos(estado.mapa);
+            funcion.setVersionAsientos(estado.versionAsientos);
+            return funcion;
+        });
+    }
+
+    /**
+     * Actualiza los datos de la función (precio, horario...) que el motor devuelve junto con
+     * los asientos. Marca la función como pendiente para que la siguiente escritura
+     * vuelva a imponer el estado de memoria sobre lo que se haya guardado.
+     */
+    public void refrescar(Funcion funcion) {
+        if (!habilitado || !estados.containsKey(funcion.getId())) {
+            return;
+        }
+        ejecutar(funcion.getId(), estado -> {
+            estado.funcion = funcion;
+            estado.fechaHora = funcion.getFechaHora();
+            if (!funcion.getFilas().equals(estado.mapa.getFilas())
+                    || !funcion.getColumnas().equals(estado.mapa.getColumnas())) {
+                estado.mapa = funcion.getMapaAsientos();
+            }
+            marcarPendiente(estado);
+            return null;
+        });
+    }
+
+    /**
+     * Olvida una función eliminada
+     */
+    public void descartar(String funcionId) {
+        EstadoFuncion estado = estados.remove(funcionId);
+        if (estado != null) {
+            estado.descartado = true;
+        }
+        pendientes.remove(funcionId);
+    }
+
+    /**
+     * Saca de memoria las funciones que ya pasaron y las que nadie usó en INACTIVA_MS,
+     * si no tienen cambios sin guardar (esas se revisan en la siguiente pasada)
+     */
+    @Scheduled(initialDelayString = "${netcinema.asientos.motor-memoria.limpieza-ms:300000}",
+            fixedDelayString = "${netcinema.asientos.motor-memoria.limpieza-ms:300000}")
+    public void descartarInactivas() {
+        if (!habilitado) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        LocalDateTime pasadas = LocalDateTime.now().minusHours(HORAS_DESPUES_DE_FUNCION);
+        int descartadas = 0;
+
+        for (EstadoFuncion estado : estados.values()) {
+            boolean pasada = estado.fechaHora != null && estado.fechaHora.isBefore(pasadas);
+            if (!pasada && ahora - estado.ultimoUso < INACTIVA_MS) {
+                continue;
+            }
+            try {
+                // En su buzón, para que ninguna operación la toque mientras se descarta
+                boolean descartada = ejecutar(estado.funcionId, actual -> {
+                    if (actual.cambios != actual.cambiosGuardados || pendientes.contains(actual.funcionId)) {
+                        return false;
+                    }
+                    actual.descartado = true;
+                    estados.remove(actual.funcionId, actual);
+                    return true;
+                });
+                if (descartada) {
+                    descartadas++;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error al descartar la función " + estado.funcionId + " del motor: " + e.getMessage());
+            }
+        }
+        if (descartadas > 0) {
+            System.out.println("🧹 Motor de asientos: " + descartadas + " funciones fuera de memoria, quedan " + estados.size());
+        }
+    }
+
+    // ========== Buzón por función ==========
+
+    // Encola la acción en el buzón de la función y espera su resultado.
+    // Si el tiempo se vence antes de que la tarea empiece, se anula: no se aplica después
+    // sobre una solicitud que ya recibió error (y que el cliente puede reintentar).
+    private <T> T ejecutar(String funcionId, Function<EstadoFuncion, T> accion) {
+        while (true) {
+            EstadoFuncion estado = estados.computeIfAbsent(funcionId, EstadoFuncion::new);
+            estado.ultimoUso = System.currentTimeMillis();
+            CompletableFuture<T> resultado = new CompletableFuture<>();
+            // La toma la tarea al empezar o quien espera al rendirse; solo uno de los dos
+            AtomicBoolean tomada = new AtomicBoolean();
+
+            estado.buzon.add(() -> {
+                if (!tomada.compareAndSet(false, true)) {
+                    return;
+                }
+                if (estado.descartado) {
+                    resultado.completeExceptionally(new EstadoDescartado());
+                    return;
+                }
+                try {
+                    if (estado.mapa == null) {
+                        Funcion funcion = funcionRepository.findById(funcionId).orElse(null);
+                        if (funcion == null) {
+                            estado.descartado = true;
+                            estados.remove(funcionId, estado);
+                            throw new RuntimeException("Función no encontrada");
+                        }
+                        estado.cargar(funcion);
+                    }
+                    resultado.complete(accion.apply(estado));
+                } catch (Throwable e) {
+                    resultado.completeExceptionally(e);
+                }
+            });
+            programar(estado);
+
+            try {
+                try {
+                    return resultado.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (tomada.compareAndSet(false, true)) {
+                        // Transitorio como una caída de Mongo: el cliente recibe 503 y puede reintentar
+                        throw new TransientDataAccessResourceException("El motor de asientos no respondió a tiempo");
+                    }
+                    // Ya empezó: se espera a que termine para no contestar error de algo que sí se aplicó
+                    return resultado.get();
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof EstadoDescartado) {
+                    continue;
+                }
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tomada.compareAndSet(false, true);
+                throw new TransientDataAccessResourceException("Operación de asientos interrumpida");
+            }
+        }
+    }
+
+    private void programar(EstadoFuncion estado) {
+        if (estado.enEjecucion.compareAndSet(false, true)) {
+            executor.execute(() -> drenar(estado));
+        }
+    }
+
+    private void drenar(EstadoFuncion estado) {
+        Runnable tarea;
+        int procesadas = 0;
+        while (procesadas < TAREAS_POR_TURNO && (tarea = estado.buzon.poll()) != null) {
+            tarea.run();
+            procesadas++;
+        }
+        estado.enEjecucion.set(false);
+        if (!estado.buzon.isEmpty()) {
+            programar(estado);
+        }
+    }
+
+    private void marcarPendiente(EstadoFuncion estado) {
+        estado.cambios++;
+        pendientes.add(estado.funcionId);
+    }
+
+    // Cambio en los asientos: sube su versión y queda pendiente de guardar
+    private void marcarCambio(EstadoFuncion estado) {
+        estado.versionAsientos++;
+        marcarPendiente(estado);
+    }
+
+    private Funcion copia(EstadoFuncion estado) {
+        Funcion copia = new Funcion();
+        BeanUtils.copyProperties(estado.funcion, copia);
+        copia.aplicarMapaAsientos(estado.mapa);
+        copia.setVersionAsientos(estado.versionAsientos);
+        return copia;
+    }
+
+    // ========== Persistencia ==========
+
+    /**
+     * Guarda en Mongo, en un solo bulk write, el estado de las funciones con cambios
+     */
+    @Scheduled(fixedDelayString = "${netcinema.asientos.motor-memoria.flush-ms:200}")
+    public void persistirPendientes() {
+        if (!habilitado || pendientes.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<>(pendientes);
+        pendientes.removeAll(ids);
+
+        List<Instantanea> lote = new ArrayList<>();
+        for (String id : ids) {
+            if (!estados.containsKey(id)) {
+                continue;
+            }
+            try {
+                lote.add(ejecutar(id, estado -> {
+                    estado.mapa.limpiarExpirados(System.currentTimeMillis());
+                    return new Instantanea(id, estado.mapa.getOcupados(), estado.mapa.getBloqueosPersistidos(),
+                            estado.versionAsientos, estado.cambios);
+                }));
+            } catch (RuntimeException e) {
+                // Sin instantánea no se guardó: queda pendiente para el siguiente ciclo
+                pendientes.add(id);
+                System.err.println("Error al leer el estado de la función " + id + ": " + e.getMessage());
+            }
+        }
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Funcion.class);
+        for (Instantanea instantanea : lote) {
+            bulk.updateOne(
+                    new Query(Criteria.where("_id").is(instantanea.funcionId())),
+                    new Update()
+                            .set("ocupados", Arrays.stream(instantanea.ocupados()).boxed().toList())
+                            .set("bloqueos", instantanea.bloqueos())
+                            .max("versionAsientos", instantanea.versionAsientos())
+                            .inc("version", 1)
+            );
+        }
+
+        try {
+            bulk.execute();
+            for (Instantanea instantanea : lote) {
+                EstadoFuncion estado = estados.get(instantanea.funcionId());
+                if (estado != null) {
+                    estado.cambiosGuardados = instantanea.cambios();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Se reintentan en el siguiente ciclo
+            lote.forEach(instantanea -> pendientes.add(instantanea.funcionId()));
+            System.err.println("Error al guardar asientos en Mongo: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        persistirPendientes();
+        executor.shutdown();
+    }
+
+    private record Instantanea(String funcionId, long[] ocupados, Map<String, Integer> bloqueos,
+                               long versionAsientos, long cambios) {
+    }
+
+    // Señal interna: el estado se descartó mientras la tarea esperaba en su buzón
+    private static final class EstadoDescartado extends RuntimeException {
+    }
+
+    private static final class EstadoFuncion {
+        private final String funcionId;
+        private final Queue<Runnable> buzon = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean enEjecucion = new AtomicBoolean();
+
+        // Solo se leen y escriben desde el hilo que drena el buzón
+        private Funcion funcion;
+        private MapaAsientos mapa;
+        private long versionAsientos;
+        // Cuántas veces quedó pendiente de guardar; lo guardado llega hasta cambiosGuardados
+        private long cambios;
+        private volatile long cambiosGuardados;
+        private volatile boolean descartado;
+        // Para descartar las que ya pasaron o nadie usa, sin entrar al buzón
+        private volatile LocalDateTime fechaHora;
+        private volatile long ultimoUso = System.currentTimeMillis();
+
+        private EstadoFuncion(String funcionId) {
+            this.funcionId = funcionId;
+        }
+
+        private void cargar(Funcion funcion) {
+            this.funcion = funcion;
+            this.fechaHora = funcion.getFechaHora();
+            this.mapa = funcion.getMapaAsientos();
+            this.versionAsientos = funcion.getVersionAsientos();
+        }
+    }
+}
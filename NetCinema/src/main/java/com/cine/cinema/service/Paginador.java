@@ -0,0 +1,166 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.dto.Pagina;
+import com.cine.cinema.util.Campos;
+import com.cine.cinema.util.EscritorFilas;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Paginación por cursor (keyset sobre _id) y exportación NDJSON de los listados.
+ * Cada página es una consulta por índice que empieza donde terminó la anterior,
+ * así que cuesta lo mismo la primera que la número mil. La exportación lee de un
+ * cursor de Mongo y escribe por lotes, sin cargar la colección en memoria.
+ * exportarFilas es la versión para archivos grandes (CSV/NDJSON): lee solo las
+ * columnas pedidas como Document, sin pasar por las entidades.
+ */
+@Component
+@RequiredArgsConstructor
+public class Paginador {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final int LIMITE_MAXIMO = 200;
+
+    private static final int LOTE_EXPORTACION = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Página de `limite` documentos que cumplen el filtro, después del cursor
+    public <T> Pagina<T> pagina(Criteria filtro, Class<T> tipo, Function<T, String> id,
+                                int limite, String cursor, UnaryOperator<List<T>> completar) {
+        return pagina(filtro, tipo, id, limite, cursor, null, completar);
+    }
+
+    // Lo mismo leyendo solo las propiedades de los campos pedidos (todas si campos es null)
+    public <T> Pagina<T> pagina(Criteria filtro, Class<T> tipo, Function<T, String> id,
+                                int limite, String cursor, Campos campos, UnaryOperator<List<T>> completar) {
+        if (limite < 1) {
+            throw new RuntimeException("El límite debe ser mayor a cero");
+        }
+        int tamano = Math.min(limite, LIMITE_MAXIMO);
+
+        Query query = consulta(filtro);
+        if (cursor != null && !cursor.isBlank()) {
+            if (!ObjectId.isValid(cursor)) {
+                throw new RuntimeException("Cursor inválido");
+            }
+            query.addCriteria(Criteria.where("_id").lt(new ObjectId(cursor)));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "_id")).limit(tamano + 1);
+        if (campos != null) {
+            campos.aplicar(query);
+        }
+
+        List<T> documentos = mongoTemplate.find(query, tipo);
+        String siguiente = null;
+        if (documentos.size() > tamano) {
+            documentos = new ArrayList<>(documentos.subList(0, tamano));
+            siguiente = id.apply(documentos.get(tamano - 1));
+        }
+        return new Pagina<>(completar.apply(documentos), siguiente, tamano);
+    }
+
+    // Escribe un documento JSON por línea; la memoria usada es la de un lote
+    public <T> void exportar(Criteria filtro, Class<T> tipo, OutputStream salida,
+                             UnaryOperator<List<T>> completar) throws IOException {
+        Query query = consulta(filtro).with(Sort.by(Sort.Direction.DESC, "_id"));
+        query.cursorBatchSize(LOTE_EXPORTACION);
+
+        List<T> lote = new ArrayList<>(LOTE_EXPORTACION);
+        try (Stream<T> documentos = mongoTemplate.stream(query, tipo)) {
+            Iterator<T> iterador = documentos.iterator();
+            while (iterador.hasNext()) {
+                lote.add(iterador.next());
+                if (lote.size() == LOTE_EXPORTACION) {
+                    escribir(completar.apply(lote), salida);
+                    lote.clear();
+                }
+            }
+        }
+        escribir(completar.apply(lote), salida);
+    }
+
+    /**
+     * Escribe una fila por documento con las `columnas` (nombre -> ruta en el documento
+     * guardado, ej. "funcionResumen.sala.nombre"). Mongo solo devuelve esas rutas y el
+     * cursor pide el siguiente lote cuando el anterior ya se escribió, así que un cliente
+     * lento frena la lectura en lugar de acumular documentos en memoria.
+     */
+    public void exportarFilas(Query query, Class<?> tipo, Map<String, String> columnas,
+                              EscritorFilas.Formato formato, OutputStream salida) throws IOException {
+        columnas.values().forEach(query.fields()::include);
+        query.cursorBatchSize(LOTE_EXPORTACION);
+
+        EscritorFilas escritor = new EscritorFilas(salida, formato, new ArrayList<>(columnas.keySet()));
+        List<Object> fila = new ArrayList<>(columnas.size());
+        int escritas = 0;
+        try (Stream<Document> documentos = mongoTemplate.stream(query, Document.class,
+                mongoTemplate.getCollectionName(tipo))) {
+            Iterator<Document> iterador = documentos.iterator();
+            while (iterador.hasNext()) {
+                Document documento = iterador.next();
+                fila.clear();
+                for (String ruta : columnas.values()) {
+                    fila.add(valor(documento, ruta));
+                }
+                escritor.escribir(fila);
+                if (++escritas % LOTE_EXPORTACION == 0) {
+                    escritor.vaciar();
+                }
+            }
+        }
+        escritor.vaciar();
+    }
+
+    // Valor de una ruta con puntos; ids como texto y fechas en la zona del servidor (la de LocalDateTime)
+    private static Object valor(Document documento, String ruta) {
+        Object valor = documento;
+        for (String parte : ruta.split("\\.")) {
+            if (!(valor instanceof Document actual)) {
+                return null;
+            }
+            valor = actual.get(parte);
+        }
+        if (valor instanceof ObjectId id) {
+            return id.toHexString();
+        }
+        if (valor instanceof Date fecha) {
+            return LocalDateTime.ofInstant(fecha.toInstant(), ZoneId.systemDefault());
+        }
+        return valor;
+    }
+
+    // Sin filtro (null) se listan todos
+    private static Query consulta(Criteria filtro) {
+        return filtro == null ? new Query() : new Query(filtro);
+    }
+
+    private void escribir(List<?> documentos, OutputStream salida) throws IOException {
+        for (Object documento : documentos) {
+            salida.write(objectMapper.writeValueAsBytes(documento));
+            salida.write('\n');
+        }
+        salida.flush();
+    }
+}
@@ -1,11 +1,18 @@
 package com.cine.cinema.service;
 
+import com.cine.cinema.dto.PeliculaResumen;
+import com.cine.cinema.event.CatalogoEvent;
 import com.cine.cinema.model.Pelicula;
 import com.cine.cinema.repository.PeliculaRepository;
+import com.cine.cinema.util.Campos;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -13,10 +20,26 @@ import java.util.Optional;
 public class PeliculaService {
 
     private final PeliculaRepository peliculaRepository;
+    private final CatalogoCache catalogoCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MongoTemplate mongoTemplate;
+    private final BuscadorPeliculas buscadorPeliculas;
+
+    // Campos que se pueden pedir con ?fields=; cada uno se lee tal cual del documento
+    private static final Map<String, List<String>> CAMPOS = Campos.directos(
+            "id", "titulo", "descripcion", "generos", "duracion", "clasificacion",
+            "director", "actores", "posterUrl", "trailerUrl", "activa");
+
+    private static final int LIMITE_BUSQUEDA = 50;
+
+    private static final Map<String, List<String>> CAMPOS_CARTELERA = Campos.directos(
+            "id", "titulo", "generos", "duracion", "clasificacion", "posterUrl");
 
     // Crear película
     public Pelicula crearPelicula(Pelicula pelicula) {
-        return peliculaRepository.save(pelicula);
+        Pelicula creada = peliculaRepository.save(pelicula);
+        publicarCambio(creada.getId());
+        return creada;
     }
 
     // Obtener todas las películas
@@ -24,9 +47,20 @@ public class PeliculaService {
         return peliculaRepository.findAll();
     }
 
+    // Obtener todas las películas, solo con los campos pedidos
+    public List<Map<String, Object>> obtenerTodas(String fields) {
+        Campos campos = Campos.de(fields, CAMPOS);
+        return campos.recortar(mongoTemplate.find(campos.aplicar(new Query()), Pelicula.class));
+    }
+
     // Obtener películas activas (cartelera)
-    public List<Pelicula> obtenerCartelera() {
-        return peliculaRepository.findByActivaTrue();
+    public List<PeliculaResumen> obtenerCartelera() {
+        return catalogoCache.peliculas("cartelera", peliculaRepository::findResumenByActivaTrue);
+    }
+
+    // Cartelera con los campos pedidos (todos salen del resumen)
+    public List<Map<String, Object>> obtenerCartelera(String fields) {
+        return Campos.de(fields, CAMPOS_CARTELERA).recortar(obtenerCartelera());
     }
 
     // Obtener película por ID
@@ -39,6 +73,16 @@ public class PeliculaService {
         return peliculaRepository.findByTituloContainingIgnoreCase(titulo);
     }
 
+    // Búsqueda en cartelera por título, director, actores, géneros y descripción (con ranking)
+    public List<PeliculaResumen> buscar(String consulta, int limite) {
+        return buscadorPeliculas.buscar(consulta, Math.min(limite, LIMITE_BUSQUEDA));
+    }
+
+    // Sugerencias de títulos para lo que se va escribiendo
+    public List<PeliculaResumen> autocompletar(String prefijo, int limite) {
+        return buscadorPeliculas.autocompletar(prefijo, Math.min(limite, LIMITE_BUSQUEDA));
+    }
+
     // Buscar por género
     public List<Pelicula> buscarPorGenero(String genero) {
         return peliculaRepository.findByGenerosContaining(genero);
@@ -64,7 +108,9 @@ public class PeliculaService {
         pelicula.setPosterUrl(peliculaActualizada.getPosterUrl());
         pelicula.setActiva(peliculaActualizada.getActiva());
 
-        return peliculaRepository.save(pelicula);
+        Pelicula guardada = peliculaRepository.save(pelicula);
+        publicarCambio(id);
+        return guardada;
     }
 
     // Desactivar película (soft delete)
@@ -74,10 +120,17 @@ public class PeliculaService {
 
         pelicula.setActiva(false);
         peliculaRepository.save(pelicula);
+        publicarCambio(id);
     }
 
     // Eliminar película permanentemente
     public void eliminarPelicula(String id) {
         peliculaRepository.deleteById(id);
+        publicarCambio(id);
+    }
+
+    // Vacía las listas cacheadas de cartelera y funciones
+    private void publicarCambio(String id) {
+        eventPublisher.publishEvent(new CatalogoEvent("pelicula", id));
     }
 }
\ No newline at end of file
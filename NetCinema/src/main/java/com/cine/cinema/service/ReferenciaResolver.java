@@ -0,0 +1,213 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.event.CatalogoEvent;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.Pelicula;
+import com.cine.cinema.model.ReferenciaFuncion;
+import com.cine.cinema.model.ReferenciaPelicula;
+import com.cine.cinema.model.ReferenciaSala;
+import com.cine.cinema.model.ReferenciaUsuario;
+import com.cine.cinema.model.Reserva;
+import com.cine.cinema.model.Sala;
+import com.cine.cinema.model.Usuario;
+import com.cine.cinema.repository.PeliculaRepository;
+import com.cine.cinema.repository.SalaRepository;
+import com.cine.cinema.repository.UsuarioRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Mantiene las copias de película, sala, función y usuario que llevan las funciones
+ * y reservas en lugar de DBRef.
+ * Para documentos que aún no tienen su copia (sin migrar), la completa con una sola
+ * consulta $in por colección para toda la lista, en vez de una por documento.
+ * Cuando una película, sala o función cambia, actualiza las copias guardadas.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReferenciaResolver {
+
+    private final MongoTemplate mongoTemplate;
+    private final PeliculaRepository peliculaRepository;
+    private final SalaRepository salaRepository;
+    private final UsuarioRepository usuarioRepository;
+
+    // ========== Completar copias faltantes ==========
+
+    public Funcion completar(Funcion funcion) {
+        completarFunciones(List.of(funcion));
+        return funcion;
+    }
+
+    public List<Funcion> completarFunciones(List<Funcion> funciones) {
+        Set<String> peliculaIds = new HashSet<>();
+        Set<String> salaIds = new HashSet<>();
+        for (Funcion funcion : funciones) {
+            if (funcion.getPelicula() == null && funcion.getPeliculaId() != null) {
+                peliculaIds.add(funcion.getPeliculaId());
+            }
+            if (funcion.getSala() == null && funcion.getSalaId() != null) {
+                salaIds.add(funcion.getSalaId());
+            }
+        }
+        if (peliculaIds.isEmpty() && salaIds.isEmpty()) {
+            return funciones;
+        }
+
+        Map<String, Pelicula> peliculas = porId(peliculaIds, peliculaRepository::findAllById, Pelicula::getId);
+        Map<String, Sala> salas = porId(salaIds, salaRepository::findAllById, Sala::getId);
+
+        for (Funcion funcion : funciones) {
+            funcion.setPeliculaId(funcion.getPeliculaId());
+            funcion.setSalaId(funcion.getSalaId());
+
+            Pelicula pelicula = funcion.getPelicula() == null ? peliculas.get(funcion.getPeliculaId()) : null;
+            if (pelicula != null) {
+                funcion.setPelicula(ReferenciaPelicula.de(pelicula));
+            }
+            Sala sala = funcion.getSala() == null ? salas.get(funcion.getSalaId()) : null;
+            if (sala != null) {
+                funcion.setSala(referenciaSala(sala, funcion));
+            }
+        }
+        return funciones;
+    }
+
+    public Reserva completar(Reserva reserva) {
+        completarReservas(List.of(reserva));
+        return reserva;
+    }
+
+    public List<Reserva> completarReservas(List<Reserva> reservas) {
+        Set<String> funcionIds = new HashSet<>();
+        Set<String> usuarioIds = new HashSet<>();
+        for (Reserva reserva : reservas) {
+            if (reserva.getFuncion() == null && reserva.getFuncionId() != null) {
+                funcionIds.add(reserva.getFuncionId());
+            }
+            if (reserva.getUsuario() == null && reserva.getUsuarioId() != null) {
+                usuarioIds.add(reserva.getUsuarioId());
+            }
+        }
+        if (funcionIds.isEmpty() && usuarioIds.isEmpty()) {
+            return reservas;
+        }
+
+        Map<String, Funcion> funciones = porId(funcionIds, this::buscarFunciones, Funcion::getId);
+        Map<String, Usuario> usuarios = porId(usuarioIds, usuarioRepository::findAllById, Usuario::getId);
+
+        for (Reserva reserva : reservas) {
+            reserva.setFuncionId(reserva.getFuncionId());
+            reserva.setUsuarioId(reserva.getUsuarioId());
+
+            Funcion funcion = reserva.getFuncion() == null ? funciones.get(reserva.getFuncionId()) : null;
+            if (funcion != null) {
+                reserva.setFuncion(ReferenciaFuncion.de(funcion));
+            }
+            Usuario usuario = reserva.getUsuario() == null ? usuarios.get(reserva.getUsuarioId()) : null;
+            if (usuario != null) {
+                reserva.setUsuario(ReferenciaUsuario.de(usuario));
+            }
+        }
+        return reservas;
+    }
+
+    // La sala se muestra con la geometría de la función, que es la del mapa de asientos
+    public static ReferenciaSala referenciaSala(Sala sala, Funcion funcion) {
+        ReferenciaSala referencia = ReferenciaSala.de(sala);
+        if (funcion.getFilas() != null && funcion.getColumnas() != null) {
+            referencia.setFilas(funcion.getFilas());
+            referencia.setColumnas(funcion.getColumnas());
+            referencia.setCapacidad(funcion.getFilas() * funcion.getColumnas());
+        }
+        return referencia;
+    }
+
+    // Funciones sin el mapa de asientos, con sus copias completas
+    private List<Funcion> buscarFunciones(Set<String> ids) {
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().exclude("ocupados", "bloqueos");
+        return completarFunciones(mongoTemplate.find(query, Funcion.class));
+    }
+
+    private static <T> Map<String, T> porId(Set<String> ids, Function<Set<String>, Iterable<T>> buscar,
+                                            Function<T, String> id) {
+        Map<String, T> porId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            buscar.apply(ids).forEach(valor -> porId.put(id.apply(valor), valor));
+        }
+        return porId;
+    }
+
+    // ========== Propagar cambios ==========
+
+    /**
+     * Actualiza las copias guardadas antes de que CatalogoCache vacíe las listas,
+     * para que no se vuelvan a cargar con los datos viejos
+     */
+    @EventListener
+    @Order(0)
+    public void alCambiarCatalogo(CatalogoEvent evento) {
+        try {
+            switch (evento.entidad()) {
+                case "pelicula" -> peliculaRepository.findById(evento.id()).ifPresent(this::propagarPelicula);
+                case "sala" -> salaRepository.findById(evento.id()).ifPresent(this::propagarSala);
+                case "funcion" -> {
+                    Funcion funcion = mongoTemplate.findById(evento.id(), Funcion.class);
+                    if (funcion != null) {
+                        propagarFuncion(completar(funcion));
+                    }
+                }
+                default -> { }
+            }
+        } catch (Exception e) {
+            System.err.println("Error al actualizar las copias de " + evento.entidad() + " " + evento.id()
+                    + ": " + e.getMessage());
+        }
+    }
+
+    private void propagarPelicula(Pelicula pelicula) {
+        ReferenciaPelicula referencia = ReferenciaPelicula.de(pelicula);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("peliculaId").is(pelicula.getId())),
+                new Update().set("pelicula", referencia).inc("version", 1),
+                Funcion.class);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("funcion.pelicula.id").is(pelicula.getId())),
+                new Update().set("funcion.pelicula", referencia).inc("version", 1),
+                Reserva.class);
+    }
+
+    // Nombre y tipo; la geometría de cada función no cambia con la sala
+    private void propagarSala(Sala sala) {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("salaId").is(sala.getId())),
+                new Update().set("sala.nombre", sala.getNombre()).set("sala.tipo", sala.getTipo()).inc("version", 1),
+                Funcion.class);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("funcion.sala.id").is(sala.getId())),
+                new Update().set("funcion.sala.nombre", sala.getNombre())
+                        .set("funcion.sala.tipo", sala.getTipo()).inc("version", 1),
+                Reserva.class);
+    }
+
+    private void propagarFuncion(Funcion funcion) {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("funcionId").is(funcion.getId())),
+                new Update().set("funcion", ReferenciaFuncion.de(funcion)).inc("version", 1),
+                Reserva.class);
+    }
+}
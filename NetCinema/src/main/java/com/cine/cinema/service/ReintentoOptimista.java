@@ -0,0 +1,80 @@
+package com.cine.cinema.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Reintenta las operaciones de leer-modificar-guardar cuando el documento cambió
+ * entre la lectura y el guardado (campo @Version). Cada reintento vuelve a leer,
+ * con una espera exponencial con jitter para que los escritores no choquen otra vez.
+ */
+@Component
+public class ReintentoOptimista {
+
+    private static final int MAX_INTENTOS = 5;
+    private static final long ESPERA_BASE_MS = 10;
+
+    private final AtomicLong ejecuciones = new AtomicLong();
+    private final AtomicLong reintentos = new AtomicLong();
+    private final AtomicLong agotados = new AtomicLong();
+
+    // operación -> número de reintentos
+    private final Map<String, AtomicLong> reintentosPorOperacion = new ConcurrentHashMap<>();
+
+    /**
+     * Ejecuta la acción y la repite si pierde la carrera contra otra escritura
+     */
+    public <T> T ejecutar(String operacion, Supplier<T> accion) {
+        ejecuciones.incrementAndGet();
+        for (int intento = 1; ; intento++) {
+            try {
+                return accion.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (intento >= MAX_INTENTOS) {
+                    agotados.incrementAndGet();
+                    throw new RuntimeException("El registro fue modificado por otra operación, intente de nuevo");
+                }
+                reintentos.incrementAndGet();
+                reintentosPorOperacion.computeIfAbsent(operacion, o -> new AtomicLong()).incrementAndGet();
+                esperar(intento);
+            }
+        }
+    }
+
+    public void ejecutar(String operacion, Runnable accion) {
+        ejecutar(operacion, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    public Map<String, Object> getMetricas() {
+        Map<String, Long> porOperacion = new LinkedHashMap<>();
+        reintentosPorOperacion.forEach((operacion, total) -> porOperacion.put(operacion, total.get()));
+
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("ejecuciones", ejecuciones.get());
+        metricas.put("reintentos", reintentos.get());
+        metricas.put("agotados", agotados.get());
+        metricas.put("reintentosPorOperacion", porOperacion);
+        return metricas;
+    }
+
+    // 10, 20, 40, 80 ms más un jitter de hasta el mismo tanto
+    private void esperar(int intento) {
+        long espera = ESPERA_BASE_MS << (intento - 1);
+        try {
+            Thread.sleep(espera + ThreadLocalRandom.current().nextLong(espera + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Operación interrumpida");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.dto.FilaReporte;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.Reserva;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.aggregation.LiteralOperators;
+import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reportes de ingresos, boletos vendidos y ocupación calculados en Mongo con
+ * agregaciones: al servidor solo llega una fila por grupo.
+ * Se cuentan las reservas CONFIRMADAS de las funciones cuya fecha cae en el periodo
+ * (índice estado + funcionResumen.fechaHora), usando las copias de función, película
+ * y sala que lleva cada reserva. La capacidad sale de una segunda agregación sobre
+ * las funciones activas del periodo, así que las funciones sin ventas también cuentan
+ * para la ocupación.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReporteService {
+
+    private static final AggregationOptions OPCIONES = AggregationOptions.builder().allowDiskUse(true).build();
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Cómo se agrupa el reporte: la clave en las reservas, la clave en las funciones
+     * y el nombre que se muestra (de la función)
+     */
+    public enum Agrupacion {
+        FUNCION("funcionId", "id", "pelicula.titulo"),
+        PELICULA("funcion.pelicula.id", "peliculaId", "pelicula.titulo"),
+        SALA("funcion.sala.id", "salaId", "sala.nombre"),
+        TIPO("funcion.sala.tipo", "sala.tipo", null),
+        DIA("funcion.fechaHora", "fechaHora", null),
+        TOTAL(null, null, null);
+
+        private final String campoReserva;
+        private final String campoFuncion;
+        private final String campoNombre;
+
+        Agrupacion(String campoReserva, String campoFuncion, String campoNombre) {
+            this.campoReserva = campoReserva;
+            this.campoFuncion = campoFuncion;
+            this.campoNombre = campoNombre;
+        }
+
+        public static Agrupacion de(String nombre) {
+            try {
+                return valueOf(nombre.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Agrupación no válida: " + nombre
+                        + " (disponibles: funcion, pelicula, sala, tipo, dia, total)");
+            }
+        }
+
+        // Clave del grupo; el día se calcula en la zona del servidor, que es con la que se guarda LocalDateTime
+        private AggregationExpression clave(String campo) {
+            if (this == TOTAL) {
+                return LiteralOperators.Literal.asLiteral("total");
+            }
+            if (this == DIA) {
+                return DateOperators.DateToString.dateOf(campo).toString("%Y-%m-%d")
+                        .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()));
+            }
+            return ConvertOperators.valueOf(campo).convertToString();
+        }
+    }
+
+    // Reporte del periodo [desde, hasta] (días completos) agrupado como se pida
+    public List<FilaReporte> generar(Agrupacion agrupacion, LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new RuntimeException("La fecha final no puede ser anterior a la inicial");
+        }
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+
+        Map<String, FilaReporte> filas = new LinkedHashMap<>();
+        for (Document grupo : capacidad(agrupacion, inicio, fin)) {
+            FilaReporte fila = fila(filas, grupo.getString("_id"));
+            fila.setNombre(grupo.getString("nombre"));
+            fila.setFunciones(numero(grupo, "funciones"));
+            fila.setCapacidad(numero(grupo, "capacidad"));
+        }
+        for (Document grupo : ventas(agrupacion, inicio, fin)) {
+            FilaReporte fila = fila(filas, grupo.getString("_id"));
+            fila.setBoletos(numero(grupo, "boletos"));
+            fila.setReservas(numero(grupo, "reservas"));
+            fila.setIngresos(((Number) grupo.get("ingresos")).doubleValue());
+        }
+
+        List<FilaReporte> reporte = new ArrayList<>(filas.values());
+        for (FilaReporte fila : reporte) {
+            fila.setOcupacion(fila.getCapacidad() == 0 ? null : (double) fila.getBoletos() / fila.getCapacidad());
+        }
+        reporte.sort(agrupacion == Agrupacion.DIA
+                ? Comparator.comparing(FilaReporte::getClave, Comparator.nullsLast(Comparator.naturalOrder()))
+                : Comparator.comparingDouble(FilaReporte::getIngresos).reversed());
+        return reporte;
+    }
+
+    // Reservas confirmadas: ingresos, boletos y número de reservas por grupo
+    private List<Document> ventas(Agrupacion agrupacion, LocalDateTime inicio, LocalDateTime fin) {
+        TypedAggregation<Reserva> agregacion = Aggregation.newAggregation(Reserva.class,
+                Aggregation.match(Criteria.where("estado").is("CONFIRMADA")
+                        .and("funcion.fechaHora").gte(inicio).lt(fin)),
+                Aggregation.project()
+                        .and(agrupacion.clave(agrupacion.campoReserva)).as("clave")
+                        .and("total").as("total")
+                        .and(ArrayOperators.Size.lengthOfArray("asientos")).as("boletos"),
+                Aggregation.group("clave")
+                        .sum("total").as("ingresos")
+                        .sum("boletos").as("boletos")
+                        .count().as("reservas")
+        ).withOptions(OPCIONES);
+        return mongoTemplate.aggregate(agregacion, Document.class).getMappedResults();
+    }
+
+    // Funciones activas: cuántas hay y cuántos asientos suman por grupo
+    private List<Document> capacidad(Agrupacion agrupacion, LocalDateTime inicio, LocalDateTime fin) {
+        ProjectionOperation proyeccion = Aggregation.project()
+                .and(agrupacion.clave(agrupacion.campoFuncion)).as("clave")
+                .and(ArithmeticOperators.valueOf("filas").multiplyBy("columnas")).as("capacidad");
+        GroupOperation grupo = Aggregation.group("clave")
+                .sum("capacidad").as("capacidad")
+                .count().as("funciones");
+        if (agrupacion.campoNombre != null) {
+            proyeccion = proyeccion.and(agrupacion.campoNombre).as("nombre");
+            grupo = grupo.first("nombre").as("nombre");
+        }
+
+        TypedAggregation<Funcion> agregacion = Aggregation.newAggregation(Funcion.class,
+                Aggregation.match(Criteria.where("activa").is(true).and("fechaHora").gte(inicio).lt(fin)),
+                proyeccion,
+                grupo
+        ).withOptions(OPCIONES);
+        return mongoTemplate.aggregate(agregacion, Document.class).getMappedResults();
+    }
+
+    private static FilaReporte fila(Map<String, FilaReporte> filas, String clave) {
+        return filas.computeIfAbsent(clave, c -> {
+            FilaReporte fila = new FilaReporte();
+            fila.setClave(c);
+            return fila;
+        });
+    }
+
+    private static long numero(Document grupo, String campo) {
+        Object valor = grupo.get(campo);
+        return valor == null ? 0 : ((Number) valor).longValue();
+    }
+}
@@ -0,0 +1,199 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.config.NotificationWebSocketHandler;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.model.Reserva;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Marca como EXPIRADA las reservas que se quedaron PENDIENTES: las creadas hace más
+ * que el bloqueo máximo de asientos (ya no pueden retenerlos ni confirmarse).
+ * Las busca por el índice estado + fechaCreacion de la más antigua a la más nueva, en
+ * lotes de LOTE: cada lote se marca con un solo bulk write (solo si siguen pendientes,
+ * por si se confirmaron en medio), se liberan los bloqueos que aún queden en sus
+ * funciones, se actualiza el resumen de ventas y se avisa a los usuarios.
+ * Confirmar también cambia el estado solo si sigue PENDIENTE y antes de vender los
+ * asientos, así que de una carrera entre los dos gana uno solo y una reserva expirada
+ * nunca se queda con asientos vendidos.
+ * Cada ejecución trabaja como mucho PRESUPUESTO_MS para no frenar las otras tareas
+ * programadas (comparten hilo); un atraso grande se termina en las siguientes.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReservaExpirationService {
+
+    private static final int LOTE = 500;
+    private static final long PRESUPUESTO_MS = 250;
+    // Después del bloqueo máximo, para no adelantarse a un pago que está terminando
+    private static final long GRACIA_SEGUNDOS = 60;
+
+    private static final String[] CAMPOS = {"funcionId", "funcionLegado", "funcion", "usuarioId", "usuarioLegado",
+            "asientos", "total", "estado", "codigoReserva", "fechaCreacion"};
+
+    private final MongoTemplate mongoTemplate;
+    private final FuncionService funcionService;
+    private final ResumenVentasService resumenVentasService;
+    private final NotificationWebSocketHandler notificationHandler;
+
+    @Value("${netcinema.asientos.bloqueo.maximo-segundos:900}")
+    private long maximoBloqueoSegundos;
+
+    @Scheduled(initialDelayString = "${netcinema.reservas.expiracion.intervalo-ms:5000}",
+            fixedDelayString = "${netcinema.reservas.expiracion.intervalo-ms:5000}")
+    public void expirarPendientes() {
+        LocalDateTime limite = LocalDateTime.now().minusSeconds(maximoBloqueoSegundos + GRACIA_SEGUNDOS);
+        long inicio = System.currentTimeMillis();
+        int total = 0;
+        try {
+            Lote lote;
+            do {
+                lote = expirarLote(limite);
+                total += lote.expiradas();
+            } while (lote.leidas() == LOTE && System.currentTimeMillis() - inicio < PRESUPUESTO_MS);
+        } catch (Exception e) {
+            System.err.println("Error al expirar reservas pendientes: " + e.getMessage());
+        }
+        if (total > 0) {
+            System.out.println("⌛ Reservas pendientes expiradas: " + total
+                    + " (" + (System.currentTimeMillis() - inicio) + " ms)");
+        }
+    }
+
+    // Un lote: cuántas leyó (menos de LOTE = no quedan atrasadas) y cuántas expiró
+    private Lote expirarLote(LocalDateTime limite) {
+        Query query = new Query(Criteria.where("estado").is("PENDIENTE").and("fechaCreacion").lt(limite))
+                .with(Sort.by(Sort.Direction.ASC, "fechaCreacion"))
+                .limit(LOTE);
+        query.fields().include(CAMPOS);
+        List<Reserva> pendientes = mongoTemplate.find(query, Reserva.class);
+        if (pendientes.isEmpty()) {
+            return new Lote(0, 0);
+        }
+
+        // Marca de esta ejecución, al milisegundo como la guarda Mongo
+        LocalDateTime marca = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Reserva.class);
+        for (Reserva reserva : pendientes) {
+            bulk.updateOne(new Query(Criteria.where("_id").is(reserva.getId()).and("estado").is("PENDIENTE")),
+                    new Update().set("estado", "EXPIRADA").set("fechaExpiracion", marca).inc("version", 1));
+        }
+        BulkWriteResult resultado = bulk.execute();
+
+        List<Reserva> expiradas = resultado.getModifiedCount() == pendientes.size()
+                ? pendientes
+                : expiradasEnEsta(pendientes, marca);
+        expiradas.forEach(reserva -> reserva.setEstado("EXPIRADA"));
+
+        liberarAsientos(expiradas);
+        resumenVentasService.registrar(expiradas, "PENDIENTE", "EXPIRADA");
+        notificar(expiradas);
+        return new Lote(pendientes.size(), expiradas.size());
+    }
+
+    // Alguna se confirmó o canceló entre la lectura y el bulk (u otra instancia la expiró):
+    // se vuelve a leer cuáles quedaron expiradas con la marca de esta ejecución
+    private List<Reserva> expiradasEnEsta(List<Reserva> pendientes, LocalDateTime marca) {
+        Query query = new Query(Criteria.where("_id").in(pendientes.stream().map(Reserva::getId).toList())
+                .and("estado").is("EXPIRADA").and("fechaExpiracion").is(marca));
+        query.fields().include("_id");
+        Set<String> ids = new HashSet<>();
+        mongoTemplate.find(query, Reserva.class).forEach(r -> ids.add(r.getId()));
+        return pendientes.stream().filter(r -> ids.contains(r.getId())).toList();
+    }
+
+    // Los bloqueos de estas reservas ya vencieron y casi siempre BloqueoExpirationService
+    // ya los quitó; si alguno sigue guardado (por ejemplo si la instancia estaba caída al
+    // vencer) se quita aquí. Se leen las funciones del lote una vez para tocar solo los
+    // asientos que siguen bloqueados, y solo se quitan bloqueos vencidos, así que uno
+    // nuevo de otro cliente sobre el mismo asiento no se toca
+    private void liberarAsientos(List<Reserva> expiradas) {
+        Map<String, List<String>> asientosPorFuncion = new LinkedHashMap<>();
+        for (Reserva reserva : expiradas) {
+            if (reserva.getFuncionId() != null && reserva.getAsientos() != null) {
+                asientosPorFuncion.computeIfAbsent(reserva.getFuncionId(), id -> new ArrayList<>())
+                        .addAll(reserva.getAsientos());
+            }
+        }
+        if (asientosPorFuncion.isEmpty()) {
+            return;
+        }
+
+        Query query = new Query(Criteria.where("_id").in(asientosPorFuncion.keySet())
+                .and("bloqueos").exists(true));
+        query.fields().include("filas", "columnas", "bloqueos");
+        for (Funcion funcion : mongoTemplate.find(query, Funcion.class)) {
+            try {
+                List<String> bloqueados = siguenBloqueados(funcion, asientosPorFuncion.get(funcion.getId()));
+                if (bloqueados.isEmpty()) {
+                    continue;
+                }
+                List<String> liberados = funcionService.liberarBloqueosExpirados(funcion.getId(), bloqueados);
+                if (!liberados.isEmpty()) {
+                    notificationHandler.notificarATodos("ASIENTOS_LIBERADOS", Map.of(
+                            "funcionId", funcion.getId(),
+                            "asientos", liberados
+                    ));
+                }
+            } catch (Exception e) {
+                System.err.println("Error al liberar asientos de reservas expiradas de la función "
+                        + funcion.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static List<String> siguenBloqueados(Funcion funcion, List<String> asientos) {
+        if (funcion.getFilas() == null || funcion.getColumnas() == null || funcion.getBloqueos() == null) {
+            return List.of();
+        }
+        // Sin repetidos: el mismo asiento puede venir de dos reservas expiradas
+        List<String> distintos = List.copyOf(new LinkedHashSet<>(asientos));
+        List<String> bloqueados = new ArrayList<>();
+        for (int indice : MapaAsientos.indices(distintos, funcion.getFilas(), funcion.getColumnas())) {
+            if (funcion.getBloqueos().containsKey(String.valueOf(indice))) {
+                bloqueados.add(MapaAsientos.codigo(indice, funcion.getColumnas()));
+            }
+        }
+        return bloqueados;
+    }
+
+    private void notificar(List<Reserva> expiradas) {
+        for (Reserva reserva : expiradas) {
+            if (reserva.getUsuarioId() == null) {
+                continue;
+            }
+            Map<String, Object> datos = new HashMap<>();
+            datos.put("reservaId", reserva.getId());
+            datos.put("codigoReserva", reserva.getCodigoReserva());
+            datos.put("funcionId", reserva.getFuncionId());
+            datos.put("asientos", reserva.getAsientos());
+            datos.put("mensaje", "La reserva " + reserva.getCodigoReserva()
+                    + " expiró porque no se completó el pago a tiempo");
+            notificationHandler.notificarUsuario(reserva.getUsuarioId(), "RESERVA_EXPIRADA", datos);
+        }
+    }
+
+    private record Lote(int leidas, int expiradas) {
+    }
+}
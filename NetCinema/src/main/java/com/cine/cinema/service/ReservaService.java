@@ -1,15 +1,35 @@
 package com.cine.cinema.service;
 
+import com.cine.cinema.dto.Pagina;
 import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.model.ReferenciaFuncion;
+import com.cine.cinema.model.ReferenciaUsuario;
 import com.cine.cinema.model.Reserva;
 import com.cine.cinema.model.Usuario;
 import com.cine.cinema.repository.FuncionRepository;
 import com.cine.cinema.repository.ReservaRepository;
 import com.cine.cinema.repository.UsuarioRepository;
+import com.cine.cinema.util.Campos;
+import com.cine.cinema.util.EscritorFilas;
+import com.cine.cinema.util.GeneradorCodigos;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -20,27 +40,88 @@ public class ReservaService {
     private final FuncionRepository funcionRepository;  // ✅ Minúscula
     private final UsuarioRepository usuarioRepository;  // ✅ Minúscula
     private final FuncionService funcionService;
+    private final ReferenciaResolver referenciaResolver;
+    private final Paginador paginador;
+    private final MongoTemplate mongoTemplate;
+    private final ResumenVentasService resumenVentasService;
+    private final GeneradorCodigos generadorCodigos;
+
+    // Campos que se pueden pedir con ?fields= y las propiedades que hay que leer para cada uno
+    private static final Map<String, List<String>> CAMPOS = Map.ofEntries(
+            Map.entry("id", List.of("id")),
+            Map.entry("codigoReserva", List.of("codigoReserva")),
+            Map.entry("funcionId", List.of("funcionId", "funcionLegado")),
+            Map.entry("usuarioId", List.of("usuarioId", "usuarioLegado")),
+            Map.entry("funcion", List.of("funcion", "funcionId", "funcionLegado")),
+            Map.entry("usuario", List.of("usuario", "usuarioId", "usuarioLegado")),
+            Map.entry("nombreCliente", List.of("nombreCliente")),
+            Map.entry("emailCliente", List.of("emailCliente")),
+            Map.entry("asientos", List.of("asientos")),
+            Map.entry("total", List.of("total")),
+            Map.entry("estado", List.of("estado")),
+            Map.entry("metodoPago", List.of("metodoPago")),
+            Map.entry("fechaCreacion", List.of("fechaCreacion"))
+    );
+
+    // Columnas de la exportación para contabilidad y su ruta en el documento guardado
+    private static final Map<String, String> COLUMNAS_EXPORTACION = new LinkedHashMap<>();
+
+    static {
+        COLUMNAS_EXPORTACION.put("id", "_id");
+        COLUMNAS_EXPORTACION.put("codigoReserva", "codigoReserva");
+        COLUMNAS_EXPORTACION.put("fechaCreacion", "fechaCreacion");
+        COLUMNAS_EXPORTACION.put("estado", "estado");
+        COLUMNAS_EXPORTACION.put("funcionId", "funcionId");
+        COLUMNAS_EXPORTACION.put("fechaFuncion", "funcionResumen.fechaHora");
+        COLUMNAS_EXPORTACION.put("pelicula", "funcionResumen.pelicula.titulo");
+        COLUMNAS_EXPORTACION.put("sala", "funcionResumen.sala.nombre");
+        COLUMNAS_EXPORTACION.put("nombreCliente", "nombreCliente");
+        COLUMNAS_EXPORTACION.put("emailCliente", "emailCliente");
+        COLUMNAS_EXPORTACION.put("asientos", "asientos");
+        COLUMNAS_EXPORTACION.put("total", "total");
+        COLUMNAS_EXPORTACION.put("metodoPago", "metodoPago");
+    }
+
+    // Tiempo máximo que una reserva pendiente puede retener sus asientos renovando el bloqueo
+    @Value("${netcinema.asientos.bloqueo.maximo-segundos:900}")
+    private long maximoBloqueoSegundos;
 
     // Crear reserva
     public Reserva crearReserva(Reserva reserva) {
+        return crearReserva(reserva, true);
+    }
+
+    // Crear reserva sobre asientos que ya están bloqueados para el cliente
+    // (oferta de la lista de espera)
+    public Reserva crearReservaConAsientosBloqueados(Reserva reserva) {
+        return crearReserva(reserva, false);
+    }
+
+    private Reserva crearReserva(Reserva reserva, boolean bloquearAsientos) {
         // Verificar que la función existe
-        Funcion funcion = funcionRepository.findById(reserva.getFuncion().getId())  // ✅ minúscula
+        Funcion funcion = funcionRepository.findById(reserva.getFuncionId())  // ✅ minúscula
+                .map(referenciaResolver::completar)
                 .orElseThrow(() -> new RuntimeException("Función no encontrada"));
 
-        reserva.setFuncion(funcion);
+        reserva.setFuncion(ReferenciaFuncion.de(funcion));
 
         // Si hay usuario, cargarlo
-        if (reserva.getUsuario() != null && reserva.getUsuario().getId() != null) {
-            Usuario usuario = usuarioRepository.findById(reserva.getUsuario().getId())  // ✅ minúscula
+        if (reserva.getUsuarioId() != null) {
+            Usuario usuario = usuarioRepository.findById(reserva.getUsuarioId())  // ✅ minúscula
                     .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-            reserva.setUsuario(usuario);
+            reserva.setUsuario(ReferenciaUsuario.de(usuario));
         }
 
         // 🆕 PREPARAR RESERVA (genera código, fecha, estado)
-        reserva.prepararParaGuardar();
+        reserva.prepararParaGuardar(generadorCodigos);
 
-        // Bloquear asientos temporalmente
-        funcionService.bloquearAsientos(funcion.getId(), reserva.getAsientos());
+        // Bloquear asientos temporalmente; la reserva guarda la expiración del bloqueo para
+        // confirmar o renovar solo ese mismo (en la lista de espera ya la trae la oferta)
+        if (bloquearAsientos) {
+            Funcion bloqueada = funcionService.bloquearAsientos(funcion.getId(), reserva.getAsientos());
+            MapaAsientos mapa = bloqueada.getMapaAsientos();
+            reserva.setExpiracionBloqueo(mapa.getExpiracion(mapa.indice(reserva.getAsientos().get(0))));
+        }
 
         // Calcular total
         double total = funcion.getPrecio() * reserva.getAsientos().size();
@@ -49,11 +130,34 @@ public class ReservaService {
         // LOG PARA DEBUGGING
         System.out.println("📝 Guardando reserva con código: " + reserva.getCodigoReserva());
 
-        return reservaRepository.save(reserva);
+        Reserva guardada = reservaRepository.save(reserva);
+        resumenVentasService.registrar(guardada, null, guardada.getEstado());
+        return guardada;
     }
 
-    // Confirmar reserva (después del pago)
+    // Confirmar reserva (después del pago).
+    // Primero se pasa a CONFIRMADA con una escritura condicionada a que siga PENDIENTE:
+    // si una cancelación o el vencimiento ganaron, no se toca ningún asiento. Solo
+    // después se venden los asientos; si eso falla, la reserva vuelve a PENDIENTE
     public Reserva confirmarReserva(String reservaId, String metodoPago) {
+        Reserva reserva = cambiarEstado(reservaId, Criteria.where("estado").is("PENDIENTE"),
+                new Update().set("estado", "CONFIRMADA").set("metodoPago", metodoPago), true);
+
+        try {
+            // Confirmar compra en la función (mover de bloqueados a ocupados)
+            funcionService.confirmarCompra(reserva.getFuncionId(), reserva.getAsientos(), reserva.getExpiracionBloqueo());
+        } catch (RuntimeException e) {
+            revertirEstado(reserva, "CONFIRMADA", new Update().set("estado", "PENDIENTE").unset("metodoPago"));
+            throw e;
+        }
+
+        resumenVentasService.registrar(reserva, "PENDIENTE", "CONFIRMADA");
+        return reserva;
+    }
+
+    // Renovar el bloqueo de los asientos de una reserva pendiente (heartbeat del checkout).
+    // Devuelve la nueva expiración en milisegundos.
+    public long renovarBloqueo(String reservaId) {
         Reserva reserva = reservaRepository.findById(reservaId)
                 .orElseThrow(() -> new RuntimeException("Reserva no encontrada"));
 
@@ -61,69 +165,201 @@ public class ReservaService {
             throw new RuntimeException("La reserva ya fue procesada");
         }
 
-        // Confirmar compra en la función (mover de bloqueados a ocupados)
-        funcionService.confirmarCompra(reserva.getFuncion().getId(), reserva.getAsientos());
+        long limite = reserva.getFechaCreacion().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + maximoBloqueoSegundos * 1000;
+        Funcion funcion = funcionService.renovarBloqueo(reserva.getFuncionId(), reserva.getAsientos(),
+                reserva.getExpiracionBloqueo(), limite);
 
-        // Actualizar estado
-        reserva.setEstado("CONFIRMADA");
-        reserva.setMetodoPago(metodoPago);
-
-        return reservaRepository.save(reserva);
+        // La reserva pasa a tener el bloqueo renovado. Una confirmación que llegue entre las
+        // dos escrituras todavía ve la expiración anterior y falla sin tocar nada; la reserva
+        // vuelve a PENDIENTE y el cliente puede reintentar
+        MapaAsientos mapa = funcion.getMapaAsientos();
+        int expiracion = mapa.getExpiracion(mapa.indice(reserva.getAsientos().get(0)));
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(reservaId).and("estado").is("PENDIENTE")),
+                new Update().set("expiracionBloqueo", expiracion), Reserva.class);
+        return MapaAsientos.milisegundos(expiracion);
     }
 
-    // Cancelar reserva
+    // Cancelar reserva. Igual que al confirmar, el estado cambia primero (de forma
+    // condicional) y los asientos se liberan después; si liberarlos falla, la reserva
+    // vuelve al estado que tenía
     public void cancelarReserva(String reservaId) {
-        Reserva reserva = reservaRepository.findById(reservaId)
-                .orElseThrow(() -> new RuntimeException("Reserva no encontrada"));
+        // Una EXPIRADA ya liberó sus asientos y cuenta como expirada en el resumen: no se cancela
+        Reserva anterior = cambiarEstado(reservaId, Criteria.where("estado").in("PENDIENTE", "CONFIRMADA"),
+                new Update().set("estado", "CANCELADA"), false);
+        if (anterior == null) {
+            return; // Ya estaba cancelada
+        }
+        String estadoAnterior = anterior.getEstado();
 
         // Liberar asientos
-        if ("PENDIENTE".equals(reserva.getEstado())) {
-            funcionService.liberarAsientos(reserva.getFuncion().getId(), reserva.getAsientos());
+        if ("PENDIENTE".equals(estadoAnterior)) {
+            try {
+                funcionService.liberarAsientos(anterior.getFuncionId(), anterior.getAsientos());
+            } catch (RuntimeException e) {
+                anterior.setVersion(anterior.getVersion() == null ? 1 : anterior.getVersion() + 1);
+                revertirEstado(anterior, "CANCELADA", new Update().set("estado", estadoAnterior));
+                throw e;
+            }
         }
 
-        reserva.setEstado("CANCELADA");
-        reservaRepository.save(reserva);
+        anterior.setEstado("CANCELADA");
+        resumenVentasService.registrar(anterior, estadoAnterior, "CANCELADA");
+    }
+
+    /**
+     * Aplica el cambio de estado solo si la reserva cumple `condicion`, en una sola
+     * operación. Devuelve la reserva después del cambio (`nueva`) o antes; si no la
+     * cumple lanza "ya fue procesada", salvo al cancelar una ya cancelada (null)
+     */
+    private Reserva cambiarEstado(String reservaId, Criteria condicion, Update update, boolean nueva) {
+        Query query = new Query(Criteria.where("_id").is(reservaId).andOperator(condicion));
+        Reserva reserva = mongoTemplate.findAndModify(query, update.inc("version", 1),
+                FindAndModifyOptions.options().returnNew(nueva), Reserva.class);
+        if (reserva != null) {
+            return reserva;
+        }
+
+        Reserva actual = reservaRepository.findById(reservaId)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada"));
+        if (!nueva && "CANCELADA".equals(actual.getEstado())) {
+            return null;
+        }
+        throw new RuntimeException("La reserva ya fue procesada");
+    }
+
+    // Deshace un cambio de estado si nadie más tocó la reserva después (misma versión)
+    private void revertirEstado(Reserva reserva, String estado, Update update) {
+        Query query = new Query(Criteria.where("_id").is(reserva.getId()).and("estado").is(estado)
+                .and("version").is(reserva.getVersion()));
+        if (mongoTemplate.updateFirst(query, update.inc("version", 1), Reserva.class).getModifiedCount() == 0) {
+            System.err.println("⚠️ No se pudo revertir la reserva " + reserva.getId()
+                    + ": cambió mientras se actualizaban sus asientos");
+        }
     }
 
     // Obtener todas las reservas
     public List<Reserva> obtenerTodas() {
-        return reservaRepository.findAll();
+        return referenciaResolver.completarReservas(reservaRepository.findAll());
+    }
+
+    // Reservas con los campos pedidos, leyendo de Mongo solo lo necesario (todas o las de un usuario)
+    public List<Map<String, Object>> obtenerCampos(String usuarioId, String fields) {
+        Campos campos = Campos.de(fields, CAMPOS);
+        Query query = usuarioId == null ? new Query() : new Query(Criteria.where("usuarioId").is(usuarioId));
+        return campos.recortar(referenciaResolver.completarReservas(
+                mongoTemplate.find(campos.aplicar(query), Reserva.class)));
+    }
+
+    // Una página de reservas con los campos pedidos; la proyección va en la misma consulta por cursor
+    public Pagina<Map<String, Object>> obtenerCampos(String usuarioId, String fields, int limite, String cursor) {
+        Campos campos = Campos.de(fields, CAMPOS);
+        Criteria filtro = usuarioId == null ? null : Criteria.where("usuarioId").is(usuarioId);
+        Pagina<Reserva> pagina = paginador.pagina(filtro, Reserva.class, Reserva::getId, limite, cursor, campos,
+                referenciaResolver::completarReservas);
+        return new Pagina<>(campos.recortar(pagina.getContenido()), pagina.getSiguienteCursor(), pagina.getLimite());
     }
 
     // Obtener reserva por ID
     public Optional<Reserva> obtenerPorId(String id) {
-        return reservaRepository.findById(id);
+        return reservaRepository.findById(id).map(referenciaResolver::completar);
     }
 
     // Obtener reserva por código
+    // (acepta minúsculas y O/I/L en lugar de 0/1; un código con la verificación mal ni se busca)
     public Optional<Reserva> obtenerPorCodigo(String codigo) {
-        return reservaRepository.findByCodigoReserva(codigo);
+        String normalizado = generadorCodigos.normalizar(codigo);
+        if (normalizado == null) {
+            return Optional.empty();
+        }
+        return reservaRepository.findByCodigoReserva(normalizado).map(referenciaResolver::completar);
     }
 
     // Obtener reservas por usuario
     public List<Reserva> obtenerPorUsuario(String usuarioId) {
-        Usuario usuario = usuarioRepository.findById(usuarioId)  // ✅ minúscula
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        if (!usuarioRepository.existsById(usuarioId)) {
+            throw new RuntimeException("Usuario no encontrado");
+        }
 
-        return reservaRepository.findByUsuario(usuario);
+        return referenciaResolver.completarReservas(reservaRepository.findByUsuarioId(usuarioId));
     }
 
     // Obtener reservas por email
     public List<Reserva> obtenerPorEmail(String email) {
-        return reservaRepository.findByEmailCliente(email);
+        return referenciaResolver.completarReservas(reservaRepository.findByEmailCliente(email));
     }
 
     // Obtener reservas por función
     public List<Reserva> obtenerPorFuncion(String funcionId) {
-        Funcion funcion = funcionRepository.findById(funcionId)  // ✅ minúscula
-                .orElseThrow(() -> new RuntimeException("Función no encontrada"));
+        if (!funcionRepository.existsById(funcionId)) {
+            throw new RuntimeException("Función no encontrada");
+        }
 
-        return reservaRepository.findByFuncion(funcion);
+        return referenciaResolver.completarReservas(reservaRepository.findByFuncionId(funcionId));
     }
 
     // Obtener reservas por estado
     public List<Reserva> obtenerPorEstado(String estado) {
-        return reservaRepository.findByEstado(estado);
+        return referenciaResolver.completarReservas(reservaRepository.findByEstado(estado));
+    }
+
+    // ========== Listados paginados (más recientes primero) ==========
+
+    public Pagina<Reserva> obtenerTodas(int limite, String cursor) {
+        return pagina(null, limite, cursor);
+    }
+
+    public Pagina<Reserva> obtenerPorUsuario(String usuarioId, int limite, String cursor) {
+        if (!usuarioRepository.existsById(usuarioId)) {
+            throw new RuntimeException("Usuario no encontrado");
+        }
+
+        return pagina(Criteria.where("usuarioId").is(usuarioId), limite, cursor);
+    }
+
+    public Pagina<Reserva> obtenerPorEmail(String email, int limite, String cursor) {
+        return pagina(Criteria.where("emailCliente").is(email), limite, cursor);
+    }
+
+    public Pagina<Reserva> obtenerPorFuncion(String funcionId, int limite, String cursor) {
+        if (!funcionRepository.existsById(funcionId)) {
+            throw new RuntimeException("Función no encontrada");
+        }
+
+        return pagina(Criteria.where("funcionId").is(funcionId), limite, cursor);
+    }
+
+    public Pagina<Reserva> obtenerPorEstado(String estado, int limite, String cursor) {
+        return pagina(Criteria.where("estado").is(estado), limite, cursor);
+    }
+
+    // Escribir las reservas (todas o las de un estado) como NDJSON
+    public void exportar(String estado, OutputStream salida) throws IOException {
+        Criteria filtro = estado == null ? null : Criteria.where("estado").is(estado);
+        paginador.exportar(filtro, Reserva.class, salida, referenciaResolver::completarReservas);
+    }
+
+    // Reservas creadas entre desde y hasta (días completos), opcionalmente de un estado,
+    // en orden de creación. Usa el índice fecha_creacion o estado_fecha
+    public void exportarPeriodo(LocalDate desde, LocalDate hasta, String estado,
+                                EscritorFilas.Formato formato, OutputStream salida) throws IOException {
+        Query query = new Query(filtroPeriodo(desde, hasta, estado))
+                .with(Sort.by(Sort.Direction.ASC, "fechaCreacion"));
+        paginador.exportarFilas(query, Reserva.class, COLUMNAS_EXPORTACION, formato, salida);
+    }
+
+    // Se llama antes de empezar a responder, para poder contestar con un error
+    public Criteria filtroPeriodo(LocalDate desde, LocalDate hasta, String estado) {
+        if (hasta.isBefore(desde)) {
+            throw new RuntimeException("La fecha final no puede ser anterior a la inicial");
+        }
+        Criteria filtro = Criteria.where("fechaCreacion").gte(desde.atStartOfDay()).lt(hasta.plusDays(1).atStartOfDay());
+        return estado == null ? filtro : filtro.and("estado").is(estado);
+    }
+
+    private Pagina<Reserva> pagina(Criteria filtro, int limite, String cursor) {
+        return paginador.pagina(filtro, Reserva.class, Reserva::getId, limite, cursor,
+                referenciaResolver::completarReservas);
     }
 
     // Eliminar reserva
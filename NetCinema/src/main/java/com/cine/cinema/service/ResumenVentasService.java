@@ -0,0 +1,294 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.model.Reserva;
+import com.cine.cinema.model.ResumenVentas;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Mantiene los totales de ventas por función y por día (ResumenVentas).
+ * Cada vez que una reserva cambia de estado se resta lo que aportaba en el estado
+ * anterior y se suma lo del nuevo, con un $inc atómico sobre los dos documentos
+ * (función y día), así que el panel lee un documento en lugar de agregar reservas.
+ * La reconstrucción recalcula todo desde las reservas con una agregación, informa
+ * cuántos documentos no coincidían y los corrige, sin pisar los $inc que lleguen
+ * mientras tanto.
+ */
+@Service
+@RequiredArgsConstructor
+public class ResumenVentasService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ReferenciaResolver referenciaResolver;
+
+    // Una reserva nueva (estadoAnterior null) o que pasó de un estado a otro.
+    // Si falla solo se registra: la reconstrucción corrige los totales.
+    public void registrar(Reserva reserva, String estadoAnterior, String estadoNuevo) {
+        registrar(List.of(reserva), estadoAnterior, estadoNuevo);
+    }
+
+    // Varias reservas que pasaron del mismo estado al mismo estado (ej. las que vencen juntas):
+    // se suman por documento y se escribe una vez cada uno
+    public void registrar(List<Reserva> reservas, String estadoAnterior, String estadoNuevo) {
+        if (reservas.isEmpty()) {
+            return;
+        }
+        try {
+            List<Reserva> sinFuncion = reservas.stream().filter(r -> r.getFuncion() == null).toList();
+            if (!sinFuncion.isEmpty()) {
+                referenciaResolver.completarReservas(sinFuncion);
+            }
+
+            // id del documento -> tipo, clave y cuánto cambia cada contador
+            Map<String, Cambio> cambios = new LinkedHashMap<>();
+            for (Reserva reserva : reservas) {
+                for (String[] clave : claves(reserva)) {
+                    Cambio cambio = cambios.computeIfAbsent(ResumenVentas.id(clave[0], clave[1]),
+                            id -> new Cambio(clave[0], clave[1], new LinkedHashMap<>()));
+                    aportar(cambio.contadores(), reserva, estadoAnterior, -1);
+                    aportar(cambio.contadores(), reserva, estadoNuevo, 1);
+                }
+            }
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ResumenVentas.class);
+            LocalDateTime ahora = LocalDateTime.now();
+            cambios.forEach((id, cambio) -> {
+                Update update = new Update()
+                        .setOnInsert("tipo", cambio.tipo())
+                        .setOnInsert("clave", cambio.clave())
+                        .set("fechaActualizacion", ahora)
+                        .inc("version", 1);
+                cambio.contadores().forEach(update::inc);
+                bulk.upsert(new Query(Criteria.where("_id").is(id)), update);
+            });
+            bulk.execute();
+        } catch (Exception e) {
+            String cuales = reservas.size() == 1 ? "la reserva " + reservas.get(0).getId() : reservas.size() + " reservas";
+            System.err.println("❌ No se pudo actualizar el resumen de ventas de " + cuales + ": " + e.getMessage());
+        }
+    }
+
+    public Optional<ResumenVentas> obtener(String tipo, String clave) {
+        return Optional.ofNullable(mongoTemplate.findById(ResumenVentas.id(tipo, clave), ResumenVentas.class));
+    }
+
+    /**
+     * Recalcula todos los resúmenes desde las reservas y corrige los guardados.
+     * Cada corrección solo se aplica si el documento sigue en la versión que se leyó:
+     * si un $inc llegó mientras se recalculaba, ese documento se deja como está (el
+     * cálculo ya no lo refleja) y lo revisa la siguiente reconstrucción. Los guardados
+     * se leen antes de agregar, así que un cambio que caiga en medio sube la versión y
+     * también se omite. Solo queda el instante entre que una reserva se guarda y llega
+     * su $inc: si la corrección cae justo ahí, ese cambio cuenta doble hasta la siguiente.
+     * Devuelve cuántos había, cuántos quedaron, cuántos no coincidían y cuántos se omitieron.
+     */
+    @Scheduled(cron = "${netcinema.resumen-ventas.reconstruccion-cron:0 30 4 * * *}")
+    public Map<String, Long> reconstruir() {
+        Map<String, ResumenVentas> guardados = new HashMap<>();
+        mongoTemplate.findAll(ResumenVentas.class).forEach(r -> guardados.put(r.getId(), r));
+        Map<String, ResumenVentas> calculados = calcular();
+
+        long diferentes = 0;
+        LocalDateTime ahora = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ResumenVentas.class);
+        for (ResumenVentas calculado : calculados.values()) {
+            ResumenVentas guardado = guardados.get(calculado.getId());
+            if (iguales(calculado, guardado)) {
+                continue;
+            }
+            diferentes++;
+            if (guardado == null) {
+                // Si otro lo creó mientras tanto no se toca
+                bulk.upsert(new Query(Criteria.where("_id").is(calculado.getId())),
+                        contadores(calculado, ahora, true)
+                                .setOnInsert("tipo", calculado.getTipo())
+                                .setOnInsert("clave", calculado.getClave()));
+            } else {
+                bulk.updateOne(enVersion(guardado), contadores(calculado, ahora, false).inc("version", 1));
+            }
+        }
+        for (ResumenVentas guardado : guardados.values()) {
+            if (!calculados.containsKey(guardado.getId())) {
+                diferentes++;
+                bulk.remove(enVersion(guardado));
+            }
+        }
+        long omitidos = 0;
+        if (diferentes > 0) {
+            BulkWriteResult resultado = bulk.execute();
+            omitidos = diferentes - resultado.getModifiedCount() - resultado.getDeletedCount()
+                    - resultado.getUpserts().size();
+        }
+
+        System.out.println("📊 Resumen de ventas reconstruido: " + calculados.size() + " documentos, "
+                + (diferentes - omitidos) + " corregidos, " + omitidos + " omitidos por cambios en curso");
+        return Map.of("guardados", (long) guardados.size(), "calculados", (long) calculados.size(),
+                "corregidos", diferentes - omitidos, "omitidos", omitidos);
+    }
+
+    // ========== Internos ==========
+
+    // El documento tal como se leyó; los anteriores a la versión no tienen el campo
+    private static Query enVersion(ResumenVentas guardado) {
+        Criteria criteria = Criteria.where("_id").is(guardado.getId());
+        return new Query(guardado.getVersion() == 0
+                ? criteria.and("version").in(Arrays.asList(0L, null))
+                : criteria.and("version").is(guardado.getVersion()));
+    }
+
+    // Los contadores calculados; al crear el documento solo se escriben si nadie lo creó antes
+    private static Update contadores(ResumenVentas resumen, LocalDateTime ahora, boolean soloAlInsertar) {
+        Map<String, Object> valores = new LinkedHashMap<>();
+        valores.put("reservasPendientes", resumen.getReservasPendientes());
+        valores.put("asientosPendientes", resumen.getAsientosPendientes());
+        valores.put("reservasConfirmadas", resumen.getReservasConfirmadas());
+        valores.put("boletos", resumen.getBoletos());
+        valores.put("ingresos", resumen.getIngresos());
+        valores.put("cancelaciones", resumen.getCancelaciones());
+        valores.put("expiradas", resumen.getExpiradas());
+        valores.put("fechaActualizacion", ahora);
+
+        Update update = new Update();
+        valores.forEach(soloAlInsertar ? update::setOnInsert : update::set);
+        return update;
+    }
+
+    // Lo que aporta una reserva en un estado, con signo (+1 al entrar, -1 al salir)
+    private static void aportar(Map<String, Number> contadores, Reserva reserva, String estado, int signo) {
+        if (estado == null) {
+            return;
+        }
+        long asientos = reserva.getAsientos() == null ? 0 : reserva.getAsientos().size();
+        switch (estado) {
+            case "PENDIENTE" -> {
+                contar(contadores, "reservasPendientes", signo);
+                contar(contadores, "asientosPendientes", signo * asientos);
+            }
+            case "CONFIRMADA" -> {
+                contar(contadores, "reservasConfirmadas", signo);
+                contar(contadores, "boletos", signo * asientos);
+                contadores.merge("ingresos", signo * (reserva.getTotal() == null ? 0.0 : reserva.getTotal()),
+                        (a, b) -> a.doubleValue() + b.doubleValue());
+            }
+            case "CANCELADA" -> contar(contadores, "cancelaciones", signo);
+            case "EXPIRADA" -> contar(contadores, "expiradas", signo);
+            default -> { }
+        }
+    }
+
+    private static void contar(Map<String, Number> contadores, String campo, long cantidad) {
+        contadores.merge(campo, cantidad, (a, b) -> a.longValue() + b.longValue());
+    }
+
+    // Documentos que afecta una reserva: su función y el día de la función
+    private static List<String[]> claves(Reserva reserva) {
+        List<String[]> claves = new ArrayList<>(2);
+        claves.add(new String[]{ResumenVentas.FUNCION, reserva.getFuncionId()});
+        if (reserva.getFuncion() != null && reserva.getFuncion().getFechaHora() != null) {
+            claves.add(new String[]{ResumenVentas.DIA, reserva.getFuncion().getFechaHora().toLocalDate().toString()});
+        }
+        return claves;
+    }
+
+    // Totales por función con una agregación; los de cada día se suman aquí
+    private Map<String, ResumenVentas> calcular() {
+        TypedAggregation<Reserva> agregacion = Aggregation.newAggregation(Reserva.class,
+                Aggregation.group("funcionId")
+                        .first("funcion.fechaHora").as("fechaHora")
+                        .sum(si("PENDIENTE", 1)).as("reservasPendientes")
+                        .sum(si("PENDIENTE", ArrayOperators.Size.lengthOfArray("asientos"))).as("asientosPendientes")
+                        .sum(si("CONFIRMADA", 1)).as("reservasConfirmadas")
+                        .sum(si("CONFIRMADA", ArrayOperators.Size.lengthOfArray("asientos"))).as("boletos")
+                        .sum(si("CONFIRMADA", "total")).as("ingresos")
+                        .sum(si("CANCELADA", 1)).as("cancelaciones")
+                        .sum(si("EXPIRADA", 1)).as("expiradas")
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        Map<String, ResumenVentas> resumenes = new HashMap<>();
+        for (Document grupo : mongoTemplate.aggregate(agregacion, Document.class).getMappedResults()) {
+            String funcionId = grupo.getString("_id");
+            if (funcionId == null) {
+                continue;
+            }
+            sumar(resumenes, ResumenVentas.FUNCION, funcionId, grupo);
+
+            Object fecha = grupo.get("fechaHora");
+            if (fecha instanceof Date date) {
+                // LocalDateTime se guarda con la zona del servidor
+                String dia = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toString();
+                sumar(resumenes, ResumenVentas.DIA, dia, grupo);
+            }
+        }
+        return resumenes;
+    }
+
+    // valor si la reserva está en ese estado, 0 si no (un String es el nombre de un campo)
+    private static AggregationExpression si(String estado, Object valor) {
+        ConditionalOperators.Cond.ThenBuilder cuando = ConditionalOperators.when(Criteria.where("estado").is(estado));
+        return (valor instanceof String campo ? cuando.thenValueOf(campo) : cuando.then(valor)).otherwise(0);
+    }
+
+    private static void sumar(Map<String, ResumenVentas> resumenes, String tipo, String clave, Document grupo) {
+        ResumenVentas resumen = resumenes.computeIfAbsent(ResumenVentas.id(tipo, clave), id -> {
+            ResumenVentas nuevo = new ResumenVentas();
+            nuevo.setId(id);
+            nuevo.setTipo(tipo);
+            nuevo.setClave(clave);
+            return nuevo;
+        });
+        resumen.setReservasPendientes(resumen.getReservasPendientes() + numero(grupo, "reservasPendientes"));
+        resumen.setAsientosPendientes(resumen.getAsientosPendientes() + numero(grupo, "asientosPendientes"));
+        resumen.setReservasConfirmadas(resumen.getReservasConfirmadas() + numero(grupo, "reservasConfirmadas"));
+        resumen.setBoletos(resumen.getBoletos() + numero(grupo, "boletos"));
+        resumen.setIngresos(resumen.getIngresos() + ((Number) grupo.get("ingresos")).doubleValue());
+        resumen.setCancelaciones(resumen.getCancelaciones() + numero(grupo, "cancelaciones"));
+        resumen.setExpiradas(resumen.getExpiradas() + numero(grupo, "expiradas"));
+    }
+
+    private record Cambio(String tipo, String clave, Map<String, Number> contadores) {
+    }
+
+    private static long numero(Document grupo, String campo) {
+        Object valor = grupo.get(campo);
+        return valor == null ? 0 : ((Number) valor).longValue();
+    }
+
+    // Compara solo los contadores (no la fecha de actualización); los ingresos con tolerancia de centavos
+    private static boolean iguales(ResumenVentas a, ResumenVentas b) {
+        return b != null
+                && a.getReservasPendientes() == b.getReservasPendientes()
+                && a.getAsientosPendientes() == b.getAsientosPendientes()
+                && a.getReservasConfirmadas() == b.getReservasConfirmadas()
+                && a.getBoletos() == b.getBoletos()
+                && Math.abs(a.getIngresos() - b.getIngresos()) < 0.005
+                && a.getCancelaciones() == b.getCancelaciones()
+                && a.getExpiradas() == b.getExpiradas()
+                && Objects.equals(a.getTipo(), b.getTipo());
+    }
+}
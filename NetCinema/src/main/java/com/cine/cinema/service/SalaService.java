@@ -1,8 +1,10 @@
 package com.cine.cinema.service;
 
+import com.cine.cinema.event.CatalogoEvent;
 import com.cine.cinema.model.Sala;
 import com.cine.cinema.repository.SalaRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,6 +15,7 @@ import java.util.Optional;
 public class SalaService {
 
     private final SalaRepository salaRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Crear sala
     public Sala crearSala(Sala sala) {
@@ -66,7 +69,9 @@ public class SalaService {
         // Recalcular capacidad
         sala.calcularCapacidad();
 
-        return salaRepository.save(sala);
+        Sala guardada = salaRepository.save(sala);
+        publicarCambio(id);
+        return guardada;
     }
 
     // Desactivar sala (soft delete)
@@ -76,10 +81,17 @@ public class SalaService {
 
         sala.setActiva(false);
         salaRepository.save(sala);
+        publicarCambio(id);
     }
 
     // Eliminar sala permanentemente
     public void eliminarSala(String id) {
         salaRepository.deleteById(id);
+        publicarCambio(id);
+    }
+
+    // Las funciones cacheadas llevan la sala dentro
+    private void publicarCambio(String id) {
+        eventPublisher.publishEvent(new CatalogoEvent("sala", id));
     }
 }
\ No newline at end of file
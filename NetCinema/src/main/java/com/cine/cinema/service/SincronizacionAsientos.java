@@ -0,0 +1,119 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.dto.CambiosAsientos;
+import com.cine.cinema.dto.InstantaneaAsientos;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.util.TtlCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sincronización del mapa de asientos para la página de selección.
+ * En lugar de la función completa, el cliente pide una instantánea compacta y
+ * después solo los asientos que cambiaron desde la versión que ya tiene
+ * (Funcion.versionAsientos). Para calcular los cambios se guardan en memoria las
+ * últimas versiones leídas de cada función; si la pedida ya no está (o la leyó otra
+ * instancia) se responde con la instantánea completa.
+ */
+@Service
+@RequiredArgsConstructor
+public class SincronizacionAsientos {
+
+    private static final int VERSIONES_POR_FUNCION = 32;
+
+    private final MongoTemplate mongoTemplate;
+    private final MotorAsientos motorAsientos;
+
+    // funcionId -> últimas versiones del mapa
+    private final TtlCache<String, Map<Long, MapaAsientos>> historial = new TtlCache<>(1024, 10 * 60_000);
+
+    public InstantaneaAsientos instantanea(String funcionId) {
+        Funcion funcion = leer(funcionId);
+        return instantanea(funcionId, funcion.getVersionAsientos(), funcion.getMapaAsientos());
+    }
+
+    public CambiosAsientos cambios(String funcionId, long desde) {
+        Funcion funcion = leer(funcionId);
+        long version = funcion.getVersionAsientos();
+        MapaAsientos actual = funcion.getMapaAsientos();
+
+        MapaAsientos anterior;
+        Map<Long, MapaAsientos> versiones = versiones(funcionId);
+        synchronized (versiones) {
+            anterior = versiones.get(desde);
+        }
+        if (anterior == null || anterior.getFilas() != actual.getFilas()
+                || anterior.getColumnas() != actual.getColumnas()) {
+            return CambiosAsientos.completo(desde, instantanea(funcionId, version, actual));
+        }
+
+        List<String> ocupados = new ArrayList<>();
+        Map<String, Long> bloqueados = new LinkedHashMap<>();
+        List<String> liberados = new ArrayList<>();
+        for (int i = 0; i < actual.getCapacidad(); i++) {
+            if (actual.isOcupado(i)) {
+                if (!anterior.isOcupado(i)) {
+                    ocupados.add(actual.codigo(i));
+                }
+            } else if (actual.tieneBloqueo(i)) {
+                if (anterior.isOcupado(i) || anterior.getExpiracion(i) != actual.getExpiracion(i)) {
+                    bloqueados.put(actual.codigo(i), MapaAsientos.milisegundos(actual.getExpiracion(i)));
+                }
+            } else if (anterior.isOcupado(i) || anterior.tieneBloqueo(i)) {
+                liberados.add(actual.codigo(i));
+            }
+        }
+        return new CambiosAsientos(funcionId, desde, version, false, null, ocupados, bloqueados, liberados);
+    }
+
+    // Solo los campos del mapa, con el estado del motor en memoria si está activo
+    private Funcion leer(String funcionId) {
+        Query query = new Query(Criteria.where("_id").is(funcionId));
+        query.fields().include("filas", "columnas", "ocupados", "bloqueos", "versionAsientos");
+        Funcion funcion = motorAsientos.superponerEstado(mongoTemplate.findOne(query, Funcion.class));
+        if (funcion == null || funcion.getFilas() == null) {
+            throw new RuntimeException("Función no encontrada");
+        }
+
+        Map<Long, MapaAsientos> versiones = versiones(funcionId);
+        synchronized (versiones) {
+            versiones.put(funcion.getVersionAsientos(), funcion.getMapaAsientos());
+        }
+        return funcion;
+    }
+
+    private Map<Long, MapaAsientos> versiones(String funcionId) {
+        return historial.obtener(funcionId, () -> new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MapaAsientos> eldest) {
+                return size() > VERSIONES_POR_FUNCION;
+            }
+        });
+    }
+
+    private static InstantaneaAsientos instantanea(String funcionId, long version, MapaAsientos mapa) {
+        long[] palabras = mapa.getOcupados();
+        ByteBuffer bytes = ByteBuffer.allocate(palabras.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (long palabra : palabras) {
+            bytes.putLong(palabra);
+        }
+        // Solo los bytes que cubren la capacidad
+        byte[] bitmap = Arrays.copyOf(bytes.array(), (mapa.getCapacidad() + 7) / 8);
+
+        return new InstantaneaAsientos(funcionId, version, mapa.getFilas(), mapa.getColumnas(),
+                Base64.getEncoder().encodeToString(bitmap), mapa.getBloqueosPorCodigo());
+    }
+}
@@ -1,19 +1,24 @@
 package com.cine.cinema.service;
 
+import com.cine.cinema.dto.Pagina;
 import com.cine.cinema.model.Usuario;
 import com.cine.cinema.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 @Service
 @RequiredArgsConstructor
 public class UsuarioService {
 
     private final UsuarioRepository usuarioRepository;
+    private final Paginador paginador;
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     // Crear usuario
@@ -39,6 +44,16 @@ public class UsuarioService {
         return usuarioRepository.findAll();
     }
 
+    // Obtener una página de usuarios (más recientes primero)
+    public Pagina<Usuario> obtenerTodos(int limite, String cursor) {
+        return paginador.pagina(null, Usuario.class, Usuario::getId, limite, cursor, UnaryOperator.identity());
+    }
+
+    // Escribir todos los usuarios como NDJSON
+    public void exportar(OutputStream salida) throws IOException {
+        paginador.exportar(null, Usuario.class, salida, UnaryOperator.identity());
+    }
+
     // Obtener usuario por ID
     public Optional<Usuario> obtenerPorId(String id) {
         return usuarioRepository.findById(id);
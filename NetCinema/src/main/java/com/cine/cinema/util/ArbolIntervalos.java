@@ -0,0 +1,200 @@
+package com.cine.cinema.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Árbol de intervalos [inicio, fin) identificados por id.
+ * Es un AVL ordenado por inicio (y id para desempatar) donde cada nodo guarda además
+ * el fin más tardío de su subárbol; con eso una búsqueda descarta ramas enteras que
+ * terminan antes del intervalo buscado o empiezan después, y encontrar un choque
+ * cuesta O(log n). No es seguro para varios hilos: quien lo use debe sincronizar.
+ */
+public class ArbolIntervalos {
+
+    public record Intervalo(String id, long inicio, long fin) {
+    }
+
+    private Nodo raiz;
+    private final Map<String, Intervalo> porId = new HashMap<>();
+
+    // Agrega o reemplaza el intervalo del id
+    public void insertar(String id, long inicio, long fin) {
+        if (fin <= inicio) {
+            throw new IllegalArgumentException("El intervalo debe terminar después de empezar");
+        }
+        quitar(id);
+        Intervalo intervalo = new Intervalo(id, inicio, fin);
+        raiz = insertar(raiz, intervalo);
+        porId.put(id, intervalo);
+    }
+
+    public void quitar(String id) {
+        Intervalo intervalo = porId.remove(id);
+        if (intervalo != null) {
+            raiz = quitar(raiz, intervalo);
+        }
+    }
+
+    public Intervalo get(String id) {
+        return porId.get(id);
+    }
+
+    public int size() {
+        return porId.size();
+    }
+
+    /**
+     * Algún intervalo que se cruza con [inicio, fin), sin contar el de id `excluir`
+     * (la función que se está editando); null si no hay
+     */
+    public Intervalo primerSolapado(long inicio, long fin, String excluir) {
+        List<Intervalo> encontrados = new ArrayList<>(1);
+        buscar(raiz, inicio, fin, excluir, encontrados, 1);
+        return encontrados.isEmpty() ? null : encontrados.get(0);
+    }
+
+    // Todos los que se cruzan con [inicio, fin), en orden de inicio
+    public List<Intervalo> solapados(long inicio, long fin) {
+        List<Intervalo> encontrados = new ArrayList<>();
+        buscar(raiz, inicio, fin, null, encontrados, Integer.MAX_VALUE);
+        return encontrados;
+    }
+
+    // ========== Búsqueda ==========
+
+    private static void buscar(Nodo nodo, long inicio, long fin, String excluir,
+                               List<Intervalo> encontrados, int maximo) {
+        // Nada en este subárbol termina después de que empieza el buscado
+        if (nodo == null || nodo.finMaximo <= inicio || encontrados.size() >= maximo) {
+            return;
+        }
+        buscar(nodo.izquierdo, inicio, fin, excluir, encontrados, maximo);
+        if (encontrados.size() >= maximo) {
+            return;
+        }
+
+        Intervalo intervalo = nodo.intervalo;
+        // Este y todos los de la derecha empiezan cuando el buscado ya terminó
+        if (intervalo.inicio() >= fin) {
+            return;
+        }
+        if (intervalo.fin() > inicio && !intervalo.id().equals(excluir)) {
+            encontrados.add(intervalo);
+        }
+        buscar(nodo.derecho, inicio, fin, excluir, encontrados, maximo);
+    }
+
+    // ========== AVL ==========
+
+    private static int comparar(Intervalo a, Intervalo b) {
+        int porInicio = Long.compare(a.inicio(), b.inicio());
+        return porInicio != 0 ? porInicio : a.id().compareTo(b.id());
+    }
+
+    private static Nodo insertar(Nodo nodo, Intervalo intervalo) {
+        if (nodo == null) {
+            return new Nodo(intervalo);
+        }
+        if (comparar(intervalo, nodo.intervalo) < 0) {
+            nodo.izquierdo = insertar(nodo.izquierdo, intervalo);
+        } else {
+            nodo.derecho = insertar(nodo.derecho, intervalo);
+        }
+        return balancear(nodo);
+    }
+
+    private static Nodo quitar(Nodo nodo, Intervalo intervalo) {
+        if (nodo == null) {
+            return null;
+        }
+        int comparacion = comparar(intervalo, nodo.intervalo);
+        if (comparacion < 0) {
+            nodo.izquierdo = quitar(nodo.izquierdo, intervalo);
+        } else if (comparacion > 0) {
+            nodo.derecho = quitar(nodo.derecho, intervalo);
+        } else {
+            if (nodo.izquierdo == null) {
+                return nodo.derecho;
+            }
+            if (nodo.derecho == null) {
+                return nodo.izquierdo;
+            }
+            // Se reemplaza por el menor de la derecha
+            Nodo sucesor = nodo.derecho;
+            while (sucesor.izquierdo != null) {
+                sucesor = sucesor.izquierdo;
+            }
+            nodo.intervalo = sucesor.intervalo;
+            nodo.derecho = quitar(nodo.derecho, sucesor.intervalo);
+        }
+        return balancear(nodo);
+    }
+
+    private static Nodo balancear(Nodo nodo) {
+        nodo.actualizar();
+        int balance = altura(nodo.izquierdo) - altura(nodo.derecho);
+        if (balance > 1) {
+            if (altura(nodo.izquierdo.izquierdo) < altura(nodo.izquierdo.derecho)) {
+                nodo.izquierdo = rotarIzquierda(nodo.izquierdo);
+            }
+            return rotarDerecha(nodo);
+        }
+        if (balance < -1) {
+            if (altura(nodo.derecho.derecho) < altura(nodo.derecho.izquierdo)) {
+                nodo.derecho = rotarDerecha(nodo.derecho);
+            }
+            return rotarIzquierda(nodo);
+        }
+        return nodo;
+    }
+
+    private static Nodo rotarDerecha(Nodo nodo) {
+        Nodo izquierdo = nodo.izquierdo;
+        nodo.izquierdo = izquierdo.derecho;
+        izquierdo.derecho = nodo;
+        nodo.actualizar();
+        izquierdo.actualizar();
+        return izquierdo;
+    }
+
+    private static Nodo rotarIzquierda(Nodo nodo) {
+        Nodo derecho = nodo.derecho;
+        nodo.derecho = derecho.izquierdo;
+        derecho.izquierdo = nodo;
+        nodo.actualizar();
+        derecho.actualizar();
+        return derecho;
+    }
+
+    private static int altura(Nodo nodo) {
+        return nodo == null ? 0 : nodo.altura;
+    }
+
+    private static final class Nodo {
+        private Intervalo intervalo;
+        private Nodo izquierdo;
+        private Nodo derecho;
+        private int altura = 1;
+        // Fin más tardío de este nodo y sus descendientes
+        private long finMaximo;
+
+        private Nodo(Intervalo intervalo) {
+            this.intervalo = intervalo;
+            this.finMaximo = intervalo.fin();
+        }
+
+        private void actualizar() {
+            altura = 1 + Math.max(altura(izquierdo), altura(derecho));
+            finMaximo = intervalo.fin();
+            if (izquierdo != null) {
+                finMaximo = Math.max(finMaximo, izquierdo.finMaximo);
+            }
+            if (derecho != null) {
+                finMaximo = Math.max(finMaximo, derecho.finMaximo);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.cine.cinema.util;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Campos pedidos con ?fields= (ej: fields=id,fechaHora,precio,sala).
+ * Cada campo que se puede pedir indica qué propiedades del documento hay que leer
+ * para armarlo; con eso se arma la proyección de Mongo y la respuesta lleva solo
+ * los campos pedidos.
+ */
+public class Campos {
+
+    private final Set<String> nombres;
+    private final Map<String, List<String>> permitidos;
+
+    private Campos(Set<String> nombres, Map<String, List<String>> permitidos) {
+        this.nombres = nombres;
+        this.permitidos = permitidos;
+    }
+
+    // Campos que salen cada uno de la propiedad del mismo nombre
+    public static Map<String, List<String>> directos(String... nombres) {
+        Map<String, List<String>> permitidos = new LinkedHashMap<>();
+        for (String nombre : nombres) {
+            permitidos.put(nombre, List.of(nombre));
+        }
+        return permitidos;
+    }
+
+    // Interpreta el parámetro; lanza si pide un campo que no existe
+    public static Campos de(String fields, Map<String, List<String>> permitidos) {
+        Set<String> nombres = new LinkedHashSet<>();
+        for (String campo : fields.split(",")) {
+            String nombre = campo.trim();
+            if (nombre.isEmpty()) {
+                continue;
+            }
+            if (!permitidos.containsKey(nombre)) {
+                throw new RuntimeException("Campo no válido: " + nombre + " (disponibles: "
+                        + String.join(", ", permitidos.keySet()) + ")");
+            }
+            nombres.add(nombre);
+        }
+        if (nombres.isEmpty()) {
+            throw new RuntimeException("Indique al menos un campo en fields");
+        }
+        return new Campos(nombres, permitidos);
+    }
+
+    // Limita la consulta a las propiedades necesarias (el _id siempre viene)
+    public Query aplicar(Query query) {
+        for (String nombre : nombres) {
+            permitidos.get(nombre).forEach(query.fields()::include);
+        }
+        return query;
+    }
+
+    public Map<String, Object> recortar(Object documento) {
+        BeanWrapper bean = new BeanWrapperImpl(documento);
+        Map<String, Object> recortado = new LinkedHashMap<>();
+        for (String nombre : nombres) {
+            recortado.put(nombre, bean.getPropertyValue(nombre));
+        }
+        return recortado;
+    }
+
+    public List<Map<String, Object>> recortar(List<?> documentos) {
+        List<Map<String, Object>> recortados = new ArrayList<>(documentos.size());
+        for (Object documento : documentos) {
+            recortados.add(recortar(documento));
+        }
+        return recortados;
+    }
+}
@@ -0,0 +1,197 @@
+package com.cine.cinema.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Códigos cortos y únicos sin consultar la base: prefijo + 12 caracteres en base32 de
+ * Crockford + 1 de verificación (ej. RES-0TB3A4MFGM00N).
+ * Los 12 caracteres son 60 bits: 41 de milisegundos desde 2025 (alcanza hasta 2094),
+ * 7 del nodo (0-127, uno distinto por instancia) y 12 de secuencia (4096 por milisegundo).
+ * El milisegundo y la secuencia viven juntos en un AtomicLong que solo avanza: si en un
+ * milisegundo se agota la secuencia se toma el siguiente, y si el reloj retrocede se
+ * sigue desde el último usado, así que una instancia nunca repite un código.
+ * Antes de escribirlos, los 60 bits pasan por una permutación con clave (Feistel de 4
+ * rondas): sigue siendo uno a uno, así que no aparecen repetidos, pero sin la clave no
+ * se puede adivinar otro código a partir de uno conocido (el siguiente de la secuencia
+ * queda en cualquier parte). Cada ronda es una multiplicación y unos corrimientos sobre
+ * una subclave sacada de la clave con SHA-256 al crear el generador, sin objetos por
+ * código; no es un cifrado (con muchos códigos y tiempo se podría analizar), solo evita
+ * que los códigos se puedan recorrer. Todas las instancias deben usar la misma clave.
+ * El dígito de verificación es el valor módulo 37 (como lo define Crockford) y detecta
+ * cualquier carácter mal escrito y cualquier par de caracteres contiguos intercambiados.
+ */
+public class CodigoCrockford implements GeneradorCodigos {
+
+    public static final int NODOS = 1 << 7;
+
+    private static final long EPOCA = 1_735_689_600_000L; // 2025-01-01T00:00:00Z
+    private static final int BITS_NODO = 7;
+    private static final int BITS_SECUENCIA = 12;
+    private static final int CARACTERES = 12;
+    private static final int BITS_MITAD = 30;
+    private static final long MASCARA_MITAD = (1L << BITS_MITAD) - 1;
+    private static final int RONDAS = 4;
+    private static final int LARGO_MINIMO_CLAVE = 16;
+    private static final String ALFABETO = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    // Los 32 de arriba más los 5 que Crockford agrega para la verificación
+    private static final String ALFABETO_VERIFICACION = ALFABETO + "*~$=U";
+    private static final int[] VALORES = new int[128];
+
+    static {
+        Arrays.fill(VALORES, -1);
+        for (int i = 0; i < ALFABETO.length(); i++) {
+            VALORES[ALFABETO.charAt(i)] = i;
+        }
+    }
+
+    private final String prefijo;
+    private final long nodo;
+    private final LongSupplier reloj;
+    // Una subclave por ronda
+    private final long[] subclaves = new long[RONDAS];
+    // (milisegundo << BITS_SECUENCIA) | secuencia del último código generado
+    private final AtomicLong ultimo = new AtomicLong();
+
+    public CodigoCrockford(String prefijo, int nodo, byte[] clave) {
+        this(prefijo, nodo, clave, System::currentTimeMillis);
+    }
+
+    public CodigoCrockford(String prefijo, int nodo, byte[] clave, LongSupplier reloj) {
+        if (nodo < 0 || nodo >= NODOS) {
+            throw new IllegalArgumentException("El nodo debe estar entre 0 y " + (NODOS - 1));
+        }
+        if (clave == null || clave.length < LARGO_MINIMO_CLAVE) {
+            throw new IllegalArgumentException("La clave debe tener al menos " + LARGO_MINIMO_CLAVE + " bytes");
+        }
+        this.prefijo = prefijo;
+        this.nodo = nodo;
+        this.reloj = reloj;
+        try {
+            // 32 bytes del hash: 8 por ronda
+            ByteBuffer hash = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(clave));
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                subclaves[ronda] = hash.getLong();
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    @Override
+    public String generar() {
+        long ahora = (reloj.getAsLong() - EPOCA) << BITS_SECUENCIA;
+        long siguiente = ultimo.accumulateAndGet(ahora, (anterior, actual) -> Math.max(anterior + 1, actual));
+
+        long milisegundo = siguiente >>> BITS_SECUENCIA;
+        long secuencia = siguiente & ((1 << BITS_SECUENCIA) - 1);
+        return codificar(permutar((milisegundo << (BITS_NODO + BITS_SECUENCIA)) | (nodo << BITS_SECUENCIA) | secuencia));
+    }
+
+    // Mayúsculas, O por 0 e I/L por 1 (las confusiones que Crockford acepta al leer);
+    // null si tiene el largo de un código nuestro pero no pasa la verificación.
+    // Otros largos (códigos de antes de este formato) se devuelven solo en mayúsculas
+    @Override
+    public String normalizar(String codigo) {
+        if (codigo == null) {
+            return null;
+        }
+        String limpio = codigo.trim().toUpperCase(Locale.ROOT);
+        if (limpio.length() != prefijo.length() + CARACTERES + 1 || !limpio.startsWith(prefijo)) {
+            return limpio;
+        }
+        char[] caracteres = limpio.toCharArray();
+        for (int i = prefijo.length(); i < caracteres.length - 1; i++) {
+            caracteres[i] = switch (caracteres[i]) {
+                case 'O' -> '0';
+                case 'I', 'L' -> '1';
+                default -> caracteres[i];
+            };
+        }
+        String normalizado = new String(caracteres);
+        return valor(normalizado) < 0 ? null : normalizado;
+    }
+
+    /**
+     * Los 60 bits de un código (sin el prefijo), o -1 si tiene caracteres que no son
+     * del alfabeto o la verificación no coincide
+     */
+    public long valor(String codigo) {
+        if (codigo.length() != prefijo.length() + CARACTERES + 1) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = prefijo.length(); i < codigo.length() - 1; i++) {
+            char c = codigo.charAt(i);
+            int digito = c < VALORES.length ? VALORES[c] : -1;
+            if (digito < 0) {
+                return -1;
+            }
+            valor = (valor << 5) | digito;
+        }
+        return ALFABETO_VERIFICACION.charAt((int) (valor % 37)) == codigo.charAt(codigo.length() - 1) ? valor : -1;
+    }
+
+    /**
+     * Milisegundo, nodo y secuencia con los que se generó un código (antes de la
+     * permutación), o -1 si no es válido
+     */
+    public long original(String codigo) {
+        long valor = valor(codigo);
+        return valor < 0 ? -1 : despermutar(valor);
+    }
+
+    // ========== Permutación ==========
+
+    // Feistel sobre dos mitades de 30 bits: (izq, der) -> (der, izq ^ F(der))
+    private long permutar(long valor) {
+        long izquierda = valor >>> BITS_MITAD;
+        long derecha = valor & MASCARA_MITAD;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long siguiente = izquierda ^ mezclar(ronda, derecha);
+            izquierda = derecha;
+            derecha = siguiente;
+        }
+        return (izquierda << BITS_MITAD) | derecha;
+    }
+
+    private long despermutar(long valor) {
+        long izquierda = valor >>> BITS_MITAD;
+        long derecha = valor & MASCARA_MITAD;
+        for (int ronda = RONDAS - 1; ronda >= 0; ronda--) {
+            long anterior = derecha ^ mezclar(ronda, izquierda);
+            derecha = izquierda;
+            izquierda = anterior;
+        }
+        return (izquierda << BITS_MITAD) | derecha;
+    }
+
+    // 30 bits de la mitad mezclada con la subclave de la ronda (finalizador de SplitMix64:
+    // cada bit de entrada cambia en promedio la mitad de los de salida)
+    private long mezclar(int ronda, long mitad) {
+        long x = mitad ^ subclaves[ronda];
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        x ^= x >>> 31;
+        return (x >>> 34) & MASCARA_MITAD;
+    }
+
+    // Un solo arreglo de caracteres por código, que se convierte en el String
+    private String codificar(long valor) {
+        int largo = prefijo.length();
+        char[] codigo = new char[largo + CARACTERES + 1];
+        prefijo.getChars(0, largo, codigo, 0);
+        long resto = valor;
+        for (int i = largo + CARACTERES - 1; i >= largo; i--) {
+            codigo[i] = ALFABETO.charAt((int) (resto & 31));
+            resto >>>= 5;
+        }
+        codigo[codigo.length - 1] = ALFABETO_VERIFICACION.charAt((int) (valor % 37));
+        return new String(codigo);
+    }
+}
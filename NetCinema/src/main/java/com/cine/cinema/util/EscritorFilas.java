@@ -0,0 +1,192 @@
+package com.cine.cinema.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Escribe filas (una lista de valores por fila) como CSV o NDJSON directo a la salida,
+ * con un búfer fijo: no guarda filas, así que la memoria no depende de cuántas se escriban.
+ * Los valores pueden ser texto, números, booleanos, null o listas de esos; en CSV una
+ * lista se une con espacios y en NDJSON sale como arreglo.
+ */
+public class EscritorFilas {
+
+    private static final int BUFER = 64 * 1024;
+
+    public enum Formato {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String tipoContenido;
+        private final String extension;
+
+        Formato(String tipoContenido, String extension) {
+            this.tipoContenido = tipoContenido;
+            this.extension = extension;
+        }
+
+        public String tipoContenido() {
+            return tipoContenido;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Formato de(String nombre) {
+            try {
+                return valueOf(nombre.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Formato no válido: " + nombre + " (disponibles: csv, ndjson)");
+            }
+        }
+    }
+
+    private final Writer salida;
+    private final Formato formato;
+    private final List<String> columnas;
+
+    // En CSV escribe de una vez el encabezado
+    public EscritorFilas(OutputStream salida, Formato formato, List<String> columnas) throws IOException {
+        this.salida = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), BUFER);
+        this.formato = formato;
+        this.columnas = List.copyOf(columnas);
+        if (formato == Formato.CSV) {
+            // BOM para que Excel reconozca los acentos
+            this.salida.write('\uFEFF');
+            escribirCsv(this.columnas);
+        }
+    }
+
+    // Una fila con un valor por columna, en el mismo orden
+    public void escribir(List<?> valores) throws IOException {
+        if (valores.size() != columnas.size()) {
+            throw new IllegalArgumentException("La fila tiene " + valores.size() + " valores y hay "
+                    + columnas.size() + " columnas");
+        }
+        if (formato == Formato.CSV) {
+            escribirCsv(valores);
+        } else {
+            escribirJson(valores);
+        }
+    }
+
+    // Manda lo que queda en el búfer; no cierra la salida
+    public void vaciar() throws IOException {
+        salida.flush();
+    }
+
+    // ========== CSV ==========
+
+    private void escribirCsv(List<?> valores) throws IOException {
+        for (int i = 0; i < valores.size(); i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            Object valor = valores.get(i);
+            if (valor instanceof Collection<?> lista) {
+                StringBuilder unidos = new StringBuilder();
+                for (Object elemento : lista) {
+                    if (!unidos.isEmpty()) {
+                        unidos.append(' ');
+                    }
+                    unidos.append(elemento);
+                }
+                valor = unidos.toString();
+            }
+            if (valor instanceof String texto) {
+                celda(texto);
+            } else if (valor != null) {
+                salida.write(valor.toString());
+            }
+        }
+        salida.write("\r\n");
+    }
+
+    // Entre comillas si hace falta; un texto que empieza como fórmula se marca con '
+    // para que la hoja de cálculo no lo ejecute
+    private void celda(String texto) throws IOException {
+        if (!texto.isEmpty() && "=+-@".indexOf(texto.charAt(0)) >= 0) {
+            texto = "'" + texto;
+        }
+        boolean comillas = false;
+        for (int i = 0; i < texto.length() && !comillas; i++) {
+            char c = texto.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            salida.write(texto);
+            return;
+        }
+        salida.write('"');
+        salida.write(texto.replace("\"", "\"\""));
+        salida.write('"');
+    }
+
+    // ========== NDJSON ==========
+
+    private void escribirJson(List<?> valores) throws IOException {
+        salida.write('{');
+        for (int i = 0; i < valores.size(); i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            texto(columnas.get(i));
+            salida.write(':');
+            valorJson(valores.get(i));
+        }
+        salida.write("}\n");
+    }
+
+    private void valorJson(Object valor) throws IOException {
+        if (valor == null) {
+            salida.write("null");
+        } else if (valor instanceof Number numero && Double.isFinite(numero.doubleValue())) {
+            salida.write(numero.toString());
+        } else if (valor instanceof Boolean) {
+            salida.write(valor.toString());
+        } else if (valor instanceof Collection<?> lista) {
+            salida.write('[');
+            boolean primero = true;
+            for (Object elemento : lista) {
+                if (!primero) {
+                    salida.write(',');
+                }
+                primero = false;
+                valorJson(elemento);
+            }
+            salida.write(']');
+        } else {
+            texto(valor.toString());
+        }
+    }
+
+    private void texto(String texto) throws IOException {
+        salida.write('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> salida.write("\\\"");
+                case '\\' -> salida.write("\\\\");
+                case '\n' -> salida.write("\\n");
+                case '\r' -> salida.write("\\r");
+                case '\t' -> salida.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        salida.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        salida.write(c);
+                    }
+                }
+            }
+        }
+        salida.write('"');
+    }
+}
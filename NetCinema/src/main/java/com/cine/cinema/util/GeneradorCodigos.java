@@ -0,0 +1,16 @@
+package com.cine.cinema.util;
+
+/**
+ * Genera los códigos que se le dan al cliente (ej. el código de reserva).
+ * La implementación se elige en la configuración; ver CodigoCrockford.
+ */
+public interface GeneradorCodigos {
+
+    // Código nuevo, distinto de todos los que se generaron antes aquí y en las demás instancias
+    String generar();
+
+    // Código escrito por una persona en la forma en que se guarda, o null si no puede ser uno válido
+    default String normalizar(String codigo) {
+        return codigo == null ? null : codigo.trim();
+    }
+}
@@ -0,0 +1,201 @@
+package com.cine.cinema.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Rueda de temporizadores jerárquica.
+ * El tiempo avanza en ticks de tickMs; el nivel 0 tiene una cubeta por tick y cada
+ * nivel superior cubre 64 veces más tiempo. Cuando el reloj cruza el límite de una
+ * cubeta de nivel superior, sus temporizadores bajan de nivel, así que cada uno se
+ * mueve como mucho una vez por nivel.
+ *
+ * Agregar y cancelar son O(1). No es thread-safe: quien la use debe sincronizar.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int TAMANO = 1 << BITS;
+    private static final int MASCARA = TAMANO - 1;
+    private static final int NIVELES = 5;
+
+    private final long tickMs;
+    private final Cubeta<T>[][] niveles;
+
+    // Último tick procesado: todo temporizador con tick <= tickActual ya venció
+    private long tickActual;
+    private int tamano;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMs, long ahoraMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs debe ser positivo");
+        }
+        this.tickMs = tickMs;
+        this.tickActual = ahoraMs / tickMs;
+        this.niveles = new Cubeta[NIVELES][TAMANO];
+        for (Cubeta<T>[] nivel : niveles) {
+            for (int i = 0; i < TAMANO; i++) {
+                nivel[i] = new Cubeta<>();
+            }
+        }
+    }
+
+    /**
+     * Programa un valor para vencer en expiracionMs.
+     * Si ya venció se entrega de inmediato a alVencer y devuelve null.
+     */
+    public Temporizador<T> agregar(long expiracionMs, T valor, Consumer<T> alVencer) {
+        Temporizador<T> temporizador = new Temporizador<>(ticksHasta(expiracionMs), valor);
+        if (!colocar(temporizador)) {
+            alVencer.accept(valor);
+            return null;
+        }
+        return temporizador;
+    }
+
+    /**
+     * Cancela un temporizador pendiente; devuelve false si ya había vencido o se canceló antes
+     */
+    public boolean cancelar(Temporizador<T> temporizador) {
+        if (temporizador == null || temporizador.cubeta == null) {
+            return false;
+        }
+        temporizador.cubeta.quitar(temporizador);
+        tamano--;
+        return true;
+    }
+
+    /**
+     * Avanza el reloj hasta ahoraMs entregando cada temporizador vencido a alVencer
+     */
+    public void avanzar(long ahoraMs, Consumer<T> alVencer) {
+        long tickObjetivo = ahoraMs / tickMs;
+        while (tickActual < tickObjetivo) {
+            tickActual++;
+
+            // Bajar de nivel las cubetas cuyo límite acabamos de cruzar, de arriba hacia abajo
+            for (int nivel = NIVELES - 1; nivel >= 1; nivel--) {
+                long unidad = 1L << (BITS * nivel);
+                if ((tickActual & (unidad - 1)) == 0) {
+                    Cubeta<T> cubeta = niveles[nivel][(int) ((tickActual >>> (BITS * nivel)) & MASCARA)];
+                    vaciar(cubeta, alVencer);
+                }
+            }
+
+            vaciar(niveles[0][(int) (tickActual & MASCARA)], alVencer);
+
+            if (tamano == 0) {
+                // Nada pendiente: saltar directo al final sin recorrer ticks vacíos
+                tickActual = tickObjetivo;
+            }
+        }
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    // Tick en el que vence: el primer límite de tick igual o posterior a la expiración
+    private long ticksHasta(long expiracionMs) {
+        return (expiracionMs + tickMs - 1) / tickMs;
+    }
+
+    // Coloca el temporizador en el nivel más bajo que comparte prefijo con el reloj;
+    // devuelve false si ya venció
+    private boolean colocar(Temporizador<T> temporizador) {
+        long tick = temporizador.tick;
+        if (tick <= tickActual) {
+            return false;
+        }
+
+        int nivel = 0;
+        while (nivel < NIVELES - 1 && (tick >>> (BITS * (nivel + 1))) != (tickActual >>> (BITS * (nivel + 1)))) {
+            nivel++;
+        }
+        if (nivel == NIVELES - 1) {
+            // El nivel superior es circular: una cubeta sirve para cualquier tick hasta 63
+            // unidades adelante, aunque cruce el límite de 2^30 ticks. Más lejos se acota a
+            // la última (la que se vacía justo antes de volver a la actual) y al vaciarse
+            // se vuelve a colocar
+            long maximo = ((tickActual >>> (BITS * nivel)) + MASCARA) << (BITS * nivel);
+            tick = Math.min(tick, maximo);
+        }
+
+        niveles[nivel][(int) ((tick >>> (BITS * nivel)) & MASCARA)].agregar(temporizador);
+        tamano++;
+        return true;
+    }
+
+    private void vaciar(Cubeta<T> cubeta, Consumer<T> alVencer) {
+        Temporizador<T> temporizador = cubeta.quitarTodos();
+        while (temporizador != null) {
+            Temporizador<T> siguiente = temporizador.siguiente;
+            temporizador.siguiente = null;
+            temporizador.anterior = null;
+            tamano--;
+            if (!colocar(temporizador)) {
+                alVencer.accept(temporizador.valor);
+            }
+            temporizador = siguiente;
+        }
+    }
+
+    /**
+     * Temporizador programado; sirve de manija para cancelarlo
+     */
+    public static final class Temporizador<T> {
+        private final long tick;
+        private final T valor;
+        private Cubeta<T> cubeta;
+        private Temporizador<T> anterior;
+        private Temporizador<T> siguiente;
+
+        private Temporizador(long tick, T valor) {
+            this.tick = tick;
+            this.valor = valor;
+        }
+
+        public T getValor() {
+            return valor;
+        }
+    }
+
+    // Lista doblemente enlazada intrusiva
+    private static final class Cubeta<T> {
+        private Temporizador<T> cabeza;
+
+        private void agregar(Temporizador<T> temporizador) {
+            temporizador.cubeta = this;
+            temporizador.anterior = null;
+            temporizador.siguiente = cabeza;
+            if (cabeza != null) {
+                cabeza.anterior = temporizador;
+            }
+            cabeza = temporizador;
+        }
+
+        private void quitar(Temporizador<T> temporizador) {
+            if (temporizador.anterior != null) {
+                temporizador.anterior.siguiente = temporizador.siguiente;
+            } else {
+                cabeza = temporizador.siguiente;
+            }
+            if (temporizador.siguiente != null) {
+                temporizador.siguiente.anterior = temporizador.anterior;
+            }
+            temporizador.cubeta = null;
+            temporizador.anterior = null;
+            temporizador.siguiente = null;
+        }
+
+        // Desengancha la lista completa y la devuelve; los temporizadores quedan sin cubeta
+        private Temporizador<T> quitarTodos() {
+            Temporizador<T> lista = cabeza;
+            cabeza = null;
+            for (Temporizador<T> t = lista; t != null; t = t.siguiente) {
+                t.cubeta = null;
+            }
+            return lista;
+        }
+    }
+}
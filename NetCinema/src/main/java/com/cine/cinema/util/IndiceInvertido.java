@@ -0,0 +1,304 @@
+package com.cine.cinema.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria para búsqueda de texto.
+ * Los textos se normalizan (minúsculas y sin acentos: "Acción" -> "accion") y se
+ * parten en palabras. Cada palabra apunta a los documentos que la contienen con el
+ * peso del campo donde aparece, y un trie de prefijos guarda en cada nodo los
+ * documentos que tienen alguna palabra que empieza así, para autocompletar sin
+ * recorrer el vocabulario.
+ *
+ * En una consulta las palabras deben aparecer todas; la última se toma como prefijo
+ * (lo que el usuario sigue escribiendo). El puntaje suma el peso de cada palabra
+ * multiplicado por lo rara que es en el índice.
+ */
+public class IndiceInvertido {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    // Palabras tan comunes que no sirven para distinguir documentos
+    private static final Set<String> VACIAS = Set.of(
+            "el", "la", "los", "las", "lo", "un", "una", "unos", "unas", "de", "del", "al",
+            "y", "e", "o", "u", "en", "a", "con", "por", "para", "que", "se", "su", "sus");
+
+    // Un prefijo que solo coincide parcialmente vale menos que la palabra completa
+    private static final double PESO_PREFIJO = 0.5;
+
+    public record Campo(String texto, double peso) {
+    }
+
+    public record Resultado(String id, double puntaje) {
+    }
+
+    // palabra -> (documento -> peso)
+    private final Map<String, Map<String, Double>> palabras = new HashMap<>();
+    // documento -> (palabra -> peso), para poder quitarlo
+    private final Map<String, Map<String, Double>> documentos = new HashMap<>();
+    private final Nodo raiz = new Nodo();
+    private final ReadWriteLock candado = new ReentrantReadWriteLock();
+
+    /**
+     * Minúsculas y sin acentos ni diéresis (la ñ queda como n)
+     */
+    public static String normalizar(String texto) {
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        return MARCAS.matcher(descompuesto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> palabras(String texto) {
+        List<String> resultado = new ArrayList<>();
+        if (texto == null) {
+            return resultado;
+        }
+        for (String palabra : SEPARADORES.split(normalizar(texto))) {
+            if (!palabra.isEmpty()) {
+                resultado.add(palabra);
+            }
+        }
+        return resultado;
+    }
+
+    // Agrega o reemplaza un documento
+    public void indexar(String id, List<Campo> campos) {
+        // Peso de cada palabra: el del campo más importante donde aparece
+        Map<String, Double> pesos = new HashMap<>();
+        for (Campo campo : campos) {
+            for (String palabra : palabras(campo.texto())) {
+                if (!VACIAS.contains(palabra)) {
+                    pesos.merge(palabra, campo.peso(), Math::max);
+                }
+            }
+        }
+
+        candado.writeLock().lock();
+        try {
+            quitarSinCandado(id);
+            if (pesos.isEmpty()) {
+                return;
+            }
+            documentos.put(id, pesos);
+            pesos.forEach((palabra, peso) -> {
+                palabras.computeIfAbsent(palabra, p -> new HashMap<>()).put(id, peso);
+                Nodo nodo = raiz;
+                for (int i = 0; i < palabra.length(); i++) {
+                    nodo = nodo.hijos.computeIfAbsent(palabra.charAt(i), c -> new Nodo());
+                    nodo.sumar(id, peso);
+                }
+            });
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void quitar(String id) {
+        candado.writeLock().lock();
+        try {
+            quitarSinCandado(id);
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        candado.writeLock().lock();
+        try {
+            palabras.clear();
+            documentos.clear();
+            raiz.hijos.clear();
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        candado.readLock().lock();
+        try {
+            return documentos.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documentos que contienen todas las palabras de la consulta (la última como
+     * prefijo), del más al menos relevante
+     */
+    public List<Resultado> buscar(String consulta, int limite) {
+        List<String> terminos = palabras(consulta);
+        if (terminos.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+
+        candado.readLock().lock();
+        try {
+            // Palabras completas: deben estar todas
+            Map<String, Double> puntajes = null;
+            for (String termino : terminos.subList(0, terminos.size() - 1)) {
+                // Una palabra vacía en medio de la consulta no filtra nada
+                if (VACIAS.contains(termino)) {
+                    continue;
+                }
+                puntajes = combinar(puntajes, palabras.get(termino));
+                if (puntajes.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            // La última como prefijo: el nodo del trie ya tiene sus documentos
+            String prefijo = terminos.get(terminos.size() - 1);
+            Nodo nodo = raiz;
+            for (int i = 0; i < prefijo.length() && nodo != null; i++) {
+                nodo = nodo.hijos.get(prefijo.charAt(i));
+            }
+            if (nodo == null) {
+                return List.of();
+            }
+
+            Map<String, Double> exactas = palabras.getOrDefault(prefijo, Map.of());
+            double idf = idf(nodo.documentos.size());
+            Mejores mejores = new Mejores(limite);
+            if (puntajes == null) {
+                nodo.documentos.forEach((id, acumulado) ->
+                        mejores.ofrecer(id, pesoPrefijo(exactas.get(id), acumulado) * idf));
+            } else {
+                Map<String, Acumulado> documentosNodo = nodo.documentos;
+                puntajes.forEach((id, puntaje) -> {
+                    Acumulado acumulado = documentosNodo.get(id);
+                    if (acumulado != null) {
+                        mejores.ofrecer(id, puntaje + pesoPrefijo(exactas.get(id), acumulado) * idf);
+                    }
+                });
+            }
+            return mejores.ordenados();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    // ========== Internos (con el candado tomado) ==========
+
+    // La palabra completa vale su peso; si solo empieza así, la mitad del peso acumulado
+    private static double pesoPrefijo(Double exacta, Acumulado acumulado) {
+        return exacta != null ? exacta : acumulado.peso * PESO_PREFIJO;
+    }
+
+    // Se quedan los documentos que también tienen la palabra, sumando su puntaje
+    private Map<String, Double> combinar(Map<String, Double> puntajes, Map<String, Double> documentosPalabra) {
+        if (documentosPalabra == null) {
+            return Map.of();
+        }
+        double idf = idf(documentosPalabra.size());
+        if (puntajes == null) {
+            Map<String, Double> iniciales = new HashMap<>();
+            documentosPalabra.forEach((id, peso) -> iniciales.put(id, peso * idf));
+            return iniciales;
+        }
+        puntajes.keySet().retainAll(documentosPalabra.keySet());
+        puntajes.replaceAll((id, puntaje) -> puntaje + documentosPalabra.get(id) * idf);
+        return puntajes;
+    }
+
+    private double idf(int frecuencia) {
+        return Math.log(1.0 + (double) documentos.size() / frecuencia);
+    }
+
+    private void quitarSinCandado(String id) {
+        Map<String, Double> pesos = documentos.remove(id);
+        if (pesos == null) {
+            return;
+        }
+        pesos.forEach((palabra, peso) -> {
+            Map<String, Double> documentosPalabra = palabras.get(palabra);
+            documentosPalabra.remove(id);
+            if (documentosPalabra.isEmpty()) {
+                palabras.remove(palabra);
+            }
+            quitarDelTrie(raiz, palabra, 0, id, peso);
+        });
+    }
+
+    // Resta el documento en el camino de la palabra y borra los nodos que quedan vacíos
+    private static void quitarDelTrie(Nodo nodo, String palabra, int posicion, String id, double peso) {
+        if (posicion == palabra.length()) {
+            return;
+        }
+        char letra = palabra.charAt(posicion);
+        Nodo hijo = nodo.hijos.get(letra);
+        hijo.restar(id, peso);
+        quitarDelTrie(hijo, palabra, posicion + 1, id, peso);
+        if (hijo.documentos.isEmpty()) {
+            nodo.hijos.remove(letra);
+        }
+    }
+
+    // Los `limite` documentos de mayor puntaje sin ordenar todas las coincidencias
+    private static final class Mejores {
+        private static final Comparator<Resultado> ORDEN = Comparator.comparingDouble(Resultado::puntaje)
+                .reversed().thenComparing(Resultado::id);
+
+        private final int limite;
+        // El peor de los guardados queda arriba
+        private final PriorityQueue<Resultado> cola;
+
+        private Mejores(int limite) {
+            this.limite = limite;
+            this.cola = new PriorityQueue<>(limite + 1, ORDEN.reversed());
+        }
+
+        private void ofrecer(String id, double puntaje) {
+            Resultado resultado = new Resultado(id, puntaje);
+            if (cola.size() < limite) {
+                cola.add(resultado);
+            } else if (ORDEN.compare(resultado, cola.peek()) < 0) {
+                cola.poll();
+                cola.add(resultado);
+            }
+        }
+
+        private List<Resultado> ordenados() {
+            List<Resultado> resultados = new ArrayList<>(cola);
+            resultados.sort(ORDEN);
+            return resultados;
+        }
+    }
+
+    private static final class Nodo {
+        private final Map<Character, Nodo> hijos = new HashMap<>();
+        // Documentos con alguna palabra que pasa por este nodo
+        private final Map<String, Acumulado> documentos = new HashMap<>();
+
+        private void sumar(String id, double peso) {
+            Acumulado acumulado = documentos.computeIfAbsent(id, d -> new Acumulado());
+            acumulado.palabras++;
+            acumulado.peso += peso;
+        }
+
+        private void restar(String id, double peso) {
+            Acumulado acumulado = documentos.get(id);
+            if (--acumulado.palabras == 0) {
+                documentos.remove(id);
+            } else {
+                acumulado.peso -= peso;
+            }
+        }
+    }
+
+    private static final class Acumulado {
+        private int palabras;
+        private double peso;
+    }
+}
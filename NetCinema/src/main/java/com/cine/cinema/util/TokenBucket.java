@@ -0,0 +1,54 @@
+package com.cine.cinema.util;
+
+/**
+ * Cubeta de fichas: se rellena a `porSegundo` fichas por segundo hasta `capacidad`,
+ * así que admite ráfagas de hasta `capacidad` y en promedio `porSegundo`.
+ * No es thread-safe; quien la use debe sincronizar.
+ */
+public class TokenBucket {
+
+    private final double capacidad;
+    private final double porNanosegundo;
+
+    private double fichas;
+    private long ultimoRelleno;
+
+    public TokenBucket(double porSegundo, double capacidad, long ahoraNanos) {
+        if (porSegundo <= 0 || capacidad < 1) {
+            throw new IllegalArgumentException("La tasa debe ser positiva y la capacidad de al menos 1");
+        }
+        this.capacidad = capacidad;
+        this.porNanosegundo = porSegundo / 1_000_000_000d;
+        this.fichas = capacidad;
+        this.ultimoRelleno = ahoraNanos;
+    }
+
+    /**
+     * Toma una ficha si hay; devuelve false si la cubeta está vacía
+     */
+    public boolean intentarConsumir(long ahoraNanos) {
+        rellenar(ahoraNanos);
+        if (fichas >= 1) {
+            fichas -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    public double getFichas(long ahoraNanos) {
+        rellenar(ahoraNanos);
+        return fichas;
+    }
+
+    public double getPorSegundo() {
+        return porNanosegundo * 1_000_000_000d;
+    }
+
+    private void rellenar(long ahoraNanos) {
+        long transcurrido = ahoraNanos - ultimoRelleno;
+        if (transcurrido > 0) {
+            fichas = Math.min(capacidad, fichas + transcurrido * porNanosegundo);
+            ultimoRelleno = ahoraNanos;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.cine.cinema.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché local acotada: guarda como máximo `capacidad` entradas (desaloja la menos
+ * usada) y cada entrada vence `ttlMs` después de guardarse. Lleva la cuenta de
+ * aciertos y fallos para exponerlos como métricas.
+ */
+public class TtlCache<K, V> {
+
+    private final int capacidad;
+    private final long ttlMs;
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+    // Sube con cada invalidación (se lee y escribe con el candado de entradas)
+    private long generacion;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+
+    public TtlCache(int capacidad, long ttlMs) {
+        this.capacidad = capacidad;
+        this.ttlMs = ttlMs;
+        // Orden de acceso: la primera entrada es la menos usada
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+                return size() > TtlCache.this.capacidad;
+            }
+        };
+    }
+
+    /**
+     * Devuelve el valor vigente o null si no está o ya venció
+     */
+    public V get(K clave) {
+        synchronized (entradas) {
+            Entrada<V> entrada = entradas.get(clave);
+            if (entrada != null && entrada.expira > System.currentTimeMillis()) {
+                aciertos.incrementAndGet();
+                return entrada.valor;
+            }
+            if (entrada != null) {
+                entradas.remove(clave);
+            }
+        }
+        fallos.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Devuelve el valor cacheado o lo carga y lo guarda.
+     * La carga se hace fuera del candado, así que dos hilos pueden cargar a la vez
+     * la misma clave; se queda el último. Si hubo una invalidación mientras se cargaba,
+     * lo cargado puede ser de antes del cambio: se devuelve pero no se guarda.
+     */
+    public V obtener(K clave, Supplier<V> cargar) {
+        V valor = get(clave);
+        if (valor != null) {
+            return valor;
+        }
+        long generacionAlCargar;
+        synchronized (entradas) {
+            generacionAlCargar = generacion;
+        }
+        valor = cargar.get();
+        if (valor != null) {
+            synchronized (entradas) {
+                if (generacion == generacionAlCargar) {
+                    entradas.put(clave, new Entrada<>(valor, System.currentTimeMillis() + ttlMs));
+                }
+            }
+        }
+        return valor;
+    }
+
+    public void put(K clave, V valor) {
+        if (valor == null) {
+            return;
+        }
+        synchronized (entradas) {
+            entradas.put(clave, new Entrada<>(valor, System.currentTimeMillis() + ttlMs));
+        }
+    }
+
+    public void invalidar(K clave) {
+        synchronized (entradas) {
+            generacion++;
+            entradas.remove(clave);
+        }
+    }
+
+    public void invalidarTodo() {
+        synchronized (entradas) {
+            generacion++;
+            entradas.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    private record Entrada<V>(V valor, long expira) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.cine.cinema.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MapaAsientosTest {
+
+    private static final long AHORA = 1_760_000_000_000L;
+
+    @Test
+    void codigosEIndicesSonInversos() {
+        MapaAsientos mapa = new MapaAsientos(30, 12);
+
+        assertEquals(0, mapa.indice("A1"));
+        assertEquals(12 + 4, mapa.indice("b5"));
+        assertEquals(26 * 12, mapa.indice("AA1"));
+        for (int indice = 0; indice < mapa.getCapacidad(); indice++) {
+            assertEquals(indice, mapa.indice(mapa.codigo(indice)));
+        }
+    }
+
+    @Test
+    void rechazaCodigosInvalidosOFueraDeLaSala() {
+        MapaAsientos mapa = new MapaAsientos(5, 10);
+
+        for (String codigo : new String[]{"", "1A", "A", "A0", "A1B", "ABC1", "A12345"}) {
+            assertThrows(RuntimeException.class, () -> mapa.indice(codigo), codigo);
+        }
+        assertThrows(RuntimeException.class, () -> mapa.indice("F1"));
+        assertThrows(RuntimeException.class, () -> mapa.indice("A11"));
+        assertThrows(RuntimeException.class, () -> mapa.indices(List.of()));
+        RuntimeException repetido = assertThrows(RuntimeException.class, () -> mapa.indices(List.of("A1", "B2", "a1")));
+        assertEquals("El asiento a1 está repetido", repetido.getMessage());
+        assertThrows(RuntimeException.class, () -> new MapaAsientos(0, 10));
+    }
+
+    @Test
+    void ocuparBloquearYLiberar() {
+        MapaAsientos mapa = new MapaAsientos(3, 70);
+        int ocupado = mapa.indice("B65");
+        int bloqueado = mapa.indice("C1");
+        int expiracion = MapaAsientos.segundos(AHORA) + 120;
+
+        mapa.ocupar(ocupado);
+        mapa.bloquear(bloqueado, expiracion);
+
+        assertTrue(mapa.isOcupado(ocupado));
+        assertFalse(mapa.isDisponible(ocupado, AHORA));
+        assertTrue(mapa.isBloqueado(bloqueado, AHORA));
+        assertFalse(mapa.isBloqueado(bloqueado, MapaAsientos.milisegundos(expiracion)));
+        assertTrue(mapa.isDisponible(mapa.indice("A1"), AHORA));
+        assertEquals(1, mapa.contarOcupados());
+        assertIterableEquals(List.of("B65"), mapa.getCodigosOcupados());
+        assertEquals(Map.of("C1", MapaAsientos.milisegundos(expiracion)), mapa.getBloqueosPorCodigo());
+
+        // Vencido pero sin limpiar sigue registrado
+        assertTrue(mapa.tieneBloqueo(bloqueado));
+        assertEquals(1, mapa.limpiarExpirados(MapaAsientos.milisegundos(expiracion)));
+        assertFalse(mapa.tieneBloqueo(bloqueado));
+
+        mapa.bloquear(bloqueado, expiracion);
+        mapa.liberar(bloqueado);
+        assertTrue(mapa.isDisponible(bloqueado, AHORA));
+    }
+
+    @Test
+    void unBloqueoVencidoYRetomadoNoEsElDeLaReserva() {
+        MapaAsientos mapa = new MapaAsientos(1, 4);
+        int asiento = mapa.indice("A1");
+        int vencida = MapaAsientos.segundos(AHORA) - 10;
+        mapa.bloquear(asiento, vencida);
+        assertFalse(mapa.isBloqueoVigente(asiento, vencida, AHORA));
+
+        // Otro cliente lo bloquea: está vigente, pero con otra expiración
+        int nueva = MapaAsientos.segundos(AHORA) + 120;
+        mapa.bloquear(asiento, nueva);
+        assertFalse(mapa.isBloqueoVigente(asiento, vencida, AHORA));
+        assertTrue(mapa.isBloqueoVigente(asiento, nueva, AHORA));
+        assertTrue(mapa.isBloqueoVigente(asiento, null, AHORA));
+    }
+
+    @Test
+    void seReconstruyeDeLoPersistido() {
+        MapaAsientos mapa = new MapaAsientos(4, 20);
+        mapa.ocupar(mapa.indice("D20"));
+        mapa.ocupar(mapa.indice("A3"));
+        mapa.bloquear(mapa.indice("B7"), MapaAsientos.segundos(AHORA) + 60);
+
+        MapaAsientos copia = MapaAsientos.desdePersistido(4, 20, mapa.getOcupados(), mapa.getBloqueosPersistidos());
+
+        assertArrayEquals(mapa.getOcupados(), copia.getOcupados());
+        assertEquals(mapa.getBloqueosPersistidos(), copia.getBloqueosPersistidos());
+        // Sin datos guardados queda vacío; índices fuera de la sala se ignoran
+        MapaAsientos vacio = MapaAsientos.desdePersistido(4, 20, null, Map.of("999", 10));
+        assertEquals(0, vacio.contarOcupados());
+        assertTrue(vacio.getBloqueosPersistidos().isEmpty());
+    }
+
+    @Test
+    void buscaElBloqueSegunLaPreferencia() {
+        MapaAsientos mapa = new MapaAsientos(10, 12);
+
+        // CENTRO: fila 6 (3/5 de la sala) y columnas centradas
+        assertIterableEquals(List.of("G5", "G6", "G7", "G8"), codigos(mapa, mapa.buscarBloqueContiguo(4, MapaAsientos.Preferencia.CENTRO)));
+        assertIterableEquals(List.of("A6", "A7"), codigos(mapa, mapa.buscarBloqueContiguo(2, MapaAsientos.Preferencia.FRENTE)));
+        assertIterableEquals(List.of("J6", "J7"), codigos(mapa, mapa.buscarBloqueContiguo(2, MapaAsientos.Preferencia.ATRAS)));
+    }
+
+    @Test
+    void esquivaAsientosOcupadosYBloqueados() {
+        MapaAsientos mapa = new MapaAsientos(2, 6);
+        mapa.ocupar(mapa.indice("A3"));
+        // Un bloqueo vencido sin limpiar tampoco cuenta como libre
+        mapa.bloquear(mapa.indice("A4"), MapaAsientos.segundos(AHORA) - 10);
+
+        // A1-A2 y A5-A6 quedan igual de lejos del centro: gana la primera
+        assertIterableEquals(List.of("A1", "A2"), codigos(mapa, mapa.buscarBloqueContiguo(2, MapaAsientos.Preferencia.FRENTE)));
+        assertIterableEquals(List.of("B2", "B3", "B4"), codigos(mapa, mapa.buscarBloqueContiguo(3, MapaAsientos.Preferencia.FRENTE)));
+
+        // El índice por fila se mantiene al cambiar asientos después de la primera búsqueda
+        mapa.ocupar(mapa.indice("B2"));
+        assertNull(mapa.buscarBloqueContiguo(5, MapaAsientos.Preferencia.CENTRO));
+        assertIterableEquals(List.of("B3", "B4", "B5", "B6"), codigos(mapa, mapa.buscarBloqueContiguo(4, MapaAsientos.Preferencia.CENTRO)));
+        mapa.limpiarExpirados(AHORA);
+        assertIterableEquals(List.of("A4", "A5", "A6"), codigos(mapa, mapa.buscarBloqueContiguo(3, MapaAsientos.Preferencia.FRENTE)));
+
+        assertNull(mapa.buscarBloqueContiguo(7, MapaAsientos.Preferencia.CENTRO));
+        assertNull(mapa.buscarBloqueContiguo(0, MapaAsientos.Preferencia.CENTRO));
+    }
+
+    private static List<String> codigos(MapaAsientos mapa, int[] bloque) {
+        return MapaAsientos.codigos(bloque, mapa.getColumnas());
+    }
+}
@@ -0,0 +1,168 @@
+package com.cine.cinema.repository;
+
+import com.cine.cinema.config.VerificacionIndices;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Ejecuta cada consulta declarada en los repositorios contra un Mongo real, pide el
+ * plan (explain) de lo que se mandó y falla si alguno recorre la colección completa.
+ * Así una consulta nueva sin índice se detecta aquí y no cuando crecen los datos.
+ * Necesita Docker; sin él se omite.
+ */
+@DataMongoTest
+@Testcontainers(disabledWithoutDocker = true)
+@Import({VerificacionIndices.class, IndicesRepositoriosTest.RegistroComandos.class})
+class IndicesRepositoriosTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static final Set<String> CONSULTAS = Set.of("find", "aggregate", "count", "distinct");
+    private static final List<BsonDocument> comandos = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class RegistroComandos {
+        @Bean
+        MongoClientSettingsBuilderCustomizer registrarComandos() {
+            return builder -> builder.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent evento) {
+                    if (CONSULTAS.contains(evento.getCommandName())) {
+                        comandos.add(evento.getCommand().clone());
+                    }
+                }
+            });
+        }
+    }
+
+    @Autowired
+    private ApplicationContext contexto;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VerificacionIndices verificacionIndices;
+
+    @TestFactory
+    Stream<DynamicTest> ningunaConsultaRecorreLaColeccion() {
+        verificacionIndices.run(null);
+
+        Repositories repositorios = new Repositories(contexto);
+        return StreamSupport.stream(repositorios.spliterator(), false).flatMap(tipo -> {
+            RepositoryInformation informacion = repositorios.getRequiredRepositoryInformation(tipo);
+            Object repositorio = repositorios.getRepositoryFor(tipo).orElseThrow();
+            String nombre = informacion.getRepositoryInterface().getSimpleName();
+
+            return informacion.getQueryMethods().stream()
+                    .map(metodo -> DynamicTest.dynamicTest(nombre + "." + metodo.getName(),
+                            () -> verificarPlan(repositorio, metodo)));
+        });
+    }
+
+    private void verificarPlan(Object repositorio, Method metodo) throws Exception {
+        comandos.clear();
+        metodo.invoke(repositorio, argumentos(metodo));
+        assertFalse(comandos.isEmpty(), metodo.getName() + " no mandó ninguna consulta");
+
+        for (BsonDocument comando : comandos) {
+            Document plan = mongoTemplate.getDb().runCommand(
+                    new Document("explain", sinMetadatos(comando)).append("verbosity", "queryPlanner"));
+            assertFalse(recorreColeccion(plan, false),
+                    metodo.getName() + " recorre toda la colección: " + plan.toJson());
+        }
+    }
+
+    // Valores de ejemplo; el plan depende de los campos consultados, no de los valores
+    private static Object[] argumentos(Method metodo) {
+        Class<?>[] tipos = metodo.getParameterTypes();
+        Object[] argumentos = new Object[tipos.length];
+        for (int i = 0; i < tipos.length; i++) {
+            Class<?> tipo = tipos[i];
+            if (tipo == String.class) {
+                argumentos[i] = "x";
+            } else if (tipo == LocalDateTime.class) {
+                argumentos[i] = LocalDateTime.now();
+            } else if (Collection.class.isAssignableFrom(tipo)) {
+                argumentos[i] = List.of("x");
+            } else if (tipo == boolean.class || tipo == Boolean.class) {
+                argumentos[i] = true;
+            } else if (tipo == int.class || tipo == Integer.class) {
+                argumentos[i] = 1;
+            } else if (tipo == long.class || tipo == Long.class) {
+                argumentos[i] = 1L;
+            } else if (tipo == double.class || tipo == Double.class) {
+                argumentos[i] = 1.0;
+            } else {
+                throw new IllegalArgumentException("Falta un valor de ejemplo para " + tipo.getSimpleName()
+                        + " en " + metodo.getName());
+            }
+        }
+        return argumentos;
+    }
+
+    // Quita lo que agrega el driver ($db, sesión) para poder mandarlo dentro de explain
+    private static BsonDocument sinMetadatos(BsonDocument comando) {
+        BsonDocument limpio = new BsonDocument();
+        comando.forEach((clave, valor) -> {
+            if (!clave.startsWith("$") && !clave.equals("lsid") && !clave.equals("txnNumber")) {
+                limpio.put(clave, valor);
+            }
+        });
+        return limpio;
+    }
+
+    // Busca un COLLSCAN dentro del plan elegido (los planes descartados no cuentan)
+    private static boolean recorreColeccion(Object nodo, boolean enPlanGanador) {
+        if (nodo instanceof Map<?, ?> mapa) {
+            if (enPlanGanador && "COLLSCAN".equals(mapa.get("stage"))) {
+                return true;
+            }
+            for (Map.Entry<?, ?> entrada : mapa.entrySet()) {
+                if (!"rejectedPlans".equals(entrada.getKey())
+                        && recorreColeccion(entrada.getValue(), enPlanGanador || "winningPlan".equals(entrada.getKey()))) {
+                    return true;
+                }
+            }
+        } else if (nodo instanceof List<?> lista) {
+            for (Object elemento : lista) {
+                if (recorreColeccion(elemento, enPlanGanador)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
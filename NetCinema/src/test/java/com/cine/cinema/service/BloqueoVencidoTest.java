@@ -0,0 +1,97 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.model.ReferenciaPelicula;
+import com.cine.cinema.model.ReferenciaSala;
+import com.cine.cinema.model.Reserva;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El bloqueo de la reserva A vence y el cliente B bloquea el mismo asiento: A ya no
+ * puede confirmar ni renovar (se llevaría el bloqueo de B), y B sí puede confirmar.
+ * Necesita Docker; sin él se omite.
+ */
+@SpringBootTest(properties = "netcinema.reservas.expiracion.intervalo-ms=3600000")
+@Testcontainers(disabledWithoutDocker = true)
+class BloqueoVencidoTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static final int COLUMNAS = 4;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void unaReservaConElBloqueoVencidoNoSeLlevaElDeOtroCliente() {
+        Funcion funcion = crearFuncion();
+        Reserva a = reservaService.crearReserva(nuevaReserva(funcion, "A1"));
+
+        // El bloqueo de A vence (la reserva y la función guardan la misma expiración)
+        int vencida = MapaAsientos.segundos(System.currentTimeMillis()) - 10;
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(funcion.getId())),
+                new Update().set("bloqueos.0", vencida), Funcion.class);
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(a.getId())),
+                new Update().set("expiracionBloqueo", vencida), Reserva.class);
+
+        // Un bloqueo vencido cuenta como libre: B lo toma
+        Reserva b = reservaService.crearReserva(nuevaReserva(funcion, "A1"));
+
+        assertThrows(RuntimeException.class, () -> reservaService.confirmarReserva(a.getId(), "TARJETA"));
+        assertThrows(RuntimeException.class, () -> reservaService.renovarBloqueo(a.getId()));
+        assertEquals("PENDIENTE", mongoTemplate.findById(a.getId(), Reserva.class).getEstado());
+
+        reservaService.confirmarReserva(b.getId(), "TARJETA");
+        MapaAsientos mapa = mongoTemplate.findById(funcion.getId(), Funcion.class).getMapaAsientos();
+        assertTrue(mapa.isOcupado(mapa.indice("A1")));
+        assertEquals("CONFIRMADA", mongoTemplate.findById(b.getId(), Reserva.class).getEstado());
+    }
+
+    private Funcion crearFuncion() {
+        Funcion funcion = new Funcion();
+        funcion.setPeliculaId("pelicula-bloqueo");
+        funcion.setSalaId("sala-bloqueo");
+        funcion.setPelicula(new ReferenciaPelicula("pelicula-bloqueo", "Bloqueo", 100, "A", null));
+        funcion.setSala(new ReferenciaSala("sala-bloqueo", "Sala 1", "2D", 1, COLUMNAS, COLUMNAS));
+        funcion.setFechaHora(LocalDateTime.now().plusDays(1));
+        funcion.setPrecio(50.0);
+        funcion.setFilas(1);
+        funcion.setColumnas(COLUMNAS);
+        funcion.setOcupados(new long[MapaAsientos.palabrasPara(COLUMNAS)]);
+        funcion.setBloqueos(new HashMap<>());
+        return mongoTemplate.insert(funcion);
+    }
+
+    private static Reserva nuevaReserva(Funcion funcion, String asiento) {
+        Reserva reserva = new Reserva();
+        reserva.setFuncionId(funcion.getId());
+        reserva.setNombreCliente("Cliente");
+        reserva.setEmailCliente("cliente@correo.com");
+        reserva.setAsientos(List.of(asiento));
+        return reserva;
+    }
+}
@@ -0,0 +1,206 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.event.CatalogoEvent;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.model.Pelicula;
+import com.cine.cinema.model.ReferenciaPelicula;
+import com.cine.cinema.model.ReferenciaSala;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carga de la página de inicio por HTTP (GET /api/peliculas/cartelera y
+ * /api/funciones/futuras, lo que pide el frontend) con CatalogoCache y sin ella.
+ * Sin caché los servicios usan una CatalogoCache con TTL cero, así que cada carga va
+ * a Mongo; cada CAMBIO_CADA cargas se publica un CatalogoEvent, como al editar el
+ * catálogo desde la administración.
+ * Solo mide e imprime; no corre con las pruebas (mvn test -Pbenchmark). Necesita Docker.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "netcinema.reservas.expiracion.intervalo-ms=3600000")
+@Testcontainers(disabledWithoutDocker = true)
+class CatalogoCacheBenchmark {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static final int CLIENTES = 16;
+    private static final int CARGAS_POR_CLIENTE = 300;
+    private static final int CAMBIO_CADA = 2_000;
+    private static final int PELICULAS = 40;
+    private static final int FUNCIONES = 300;
+    private static final int COLUMNAS = 10;
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private PeliculaService peliculaService;
+
+    @Autowired
+    private FuncionService funcionService;
+
+    @Autowired
+    private CatalogoCache catalogoCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    // La función que "edita" la administración
+    private String editada;
+
+    @BeforeEach
+    void sembrar() {
+        mongoTemplate.dropCollection(Pelicula.class);
+        mongoTemplate.dropCollection(Funcion.class);
+        List<Pelicula> peliculas = new ArrayList<>();
+        for (int i = 0; i < PELICULAS; i++) {
+            Pelicula pelicula = new Pelicula();
+            pelicula.setTitulo("Película " + i);
+            pelicula.setDescripcion("Descripción de la película " + i);
+            pelicula.setGeneros(List.of("Drama"));
+            pelicula.setDuracion(120);
+            pelicula.setClasificacion("B");
+            pelicula.setDirector("Director");
+            pelicula.setActores(List.of("Actor"));
+            peliculas.add(pelicula);
+        }
+        peliculas = new ArrayList<>(mongoTemplate.insertAll(peliculas));
+
+        List<Funcion> funciones = new ArrayList<>();
+        for (int i = 0; i < FUNCIONES; i++) {
+            Pelicula pelicula = peliculas.get(i % PELICULAS);
+            Funcion funcion = new Funcion();
+            funcion.setPeliculaId(pelicula.getId());
+            funcion.setSalaId("sala-" + (i % 10));
+            funcion.setPelicula(new ReferenciaPelicula(pelicula.getId(), pelicula.getTitulo(), 120, "B", null));
+            funcion.setSala(new ReferenciaSala("sala-" + (i % 10), "Sala " + (i % 10), "2D", 10, COLUMNAS, 10 * COLUMNAS));
+            funcion.setFechaHora(LocalDateTime.now().plusDays(1).plusHours(3L * (i / 10)));
+            funcion.setPrecio(80.0);
+            funcion.setFilas(10);
+            funcion.setColumnas(COLUMNAS);
+            funcion.setOcupados(new long[MapaAsientos.palabrasPara(10 * COLUMNAS)]);
+            funcion.setBloqueos(new HashMap<>());
+            funciones.add(funcion);
+        }
+        editada = mongoTemplate.insertAll(funciones).iterator().next().getId();
+    }
+
+    @Test
+    void paginaDeInicioConYSinCache() throws Exception {
+        CatalogoCache sinCache = new CatalogoCache(0, 0);
+        List<Resultado> resultados = new ArrayList<>();
+        try {
+            usar(sinCache);
+            medir("Sin caché"); // calentamiento
+            resultados.add(medir("Sin caché"));
+        } finally {
+            usar(catalogoCache);
+        }
+        resultados.add(medir("Con caché"));
+
+        for (Resultado resultado : resultados) {
+            System.out.printf("🏠 %s: %.0f cargas/s, p50 %.3f ms, p99 %.3f ms%n",
+                    resultado.nombre(), resultado.cargasPorSegundo(), resultado.percentil(0.50),
+                    resultado.percentil(0.99));
+        }
+        System.out.println("🏠 Caché del catálogo: " + catalogoCache.getMetricas());
+    }
+
+    // Los servicios leen la caché de su campo; el benchmark lo cambia para apagarla
+    private void usar(CatalogoCache cache) {
+        ReflectionTestUtils.setField(peliculaService, "catalogoCache", cache);
+        ReflectionTestUtils.setField(funcionService, "catalogoCache", cache);
+    }
+
+    private Resultado medir(String nombre) throws Exception {
+        HttpRequest cartelera = HttpRequest.newBuilder(URI.create(url("/api/peliculas/cartelera"))).GET().build();
+        HttpRequest futuras = HttpRequest.newBuilder(URI.create(url("/api/funciones/futuras"))).GET().build();
+        AtomicInteger cargas = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTES);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<long[]>> futuros = new ArrayList<>();
+        try {
+            for (int c = 0; c < CLIENTES; c++) {
+                futuros.add(executor.submit(() -> {
+                    salida.await();
+                    long[] latencias = new long[CARGAS_POR_CLIENTE];
+                    for (int i = 0; i < CARGAS_POR_CLIENTE; i++) {
+                        long inicio = System.nanoTime();
+                        pedir(cartelera);
+                        pedir(futuras);
+                        latencias[i] = System.nanoTime() - inicio;
+                        if (cargas.incrementAndGet() % CAMBIO_CADA == 0) {
+                            eventPublisher.publishEvent(new CatalogoEvent("funcion", editada));
+                        }
+                    }
+                    return latencias;
+                }));
+            }
+            long inicio = System.nanoTime();
+            salida.countDown();
+            long[] latencias = new long[CLIENTES * CARGAS_POR_CLIENTE];
+            for (int c = 0; c < CLIENTES; c++) {
+                System.arraycopy(futuros.get(c).get(5, TimeUnit.MINUTES), 0, latencias, c * CARGAS_POR_CLIENTE, CARGAS_POR_CLIENTE);
+            }
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            Arrays.sort(latencias);
+            return new Resultado(nombre, latencias.length / segundos, latencias);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void pedir(HttpRequest request) throws Exception {
+        HttpResponse<byte[]> respuesta = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " respondió " + respuesta.statusCode());
+        }
+    }
+
+    private String url(String ruta) {
+        return "http://localhost:" + puerto + ruta;
+    }
+
+    private record Resultado(String nombre, double cargasPorSegundo, long[] latencias) {
+
+        double percentil(double p) {
+            return latencias[(int) Math.min(latencias.length - 1, latencias.length * p)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.model.ReferenciaPelicula;
+import com.cine.cinema.model.ReferenciaSala;
+import com.cine.cinema.model.Reserva;
+import com.cine.cinema.model.ResumenVentas;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Confirmar una reserva pendiente mientras el vencimiento la expira: gane quien gane,
+ * los asientos quedan vendidos solo si la reserva quedó CONFIRMADA, y el resumen de
+ * ventas cuenta cada reserva una sola vez (como venta o como expirada).
+ * Necesita Docker; sin él se omite.
+ */
+@SpringBootTest(properties = "netcinema.reservas.expiracion.intervalo-ms=3600000")
+@Testcontainers(disabledWithoutDocker = true)
+class ConfirmacionVsExpiracionTest {
+
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static final int CARRERAS = 40;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private ReservaExpirationService reservaExpirationService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void losAsientosSoloQuedanVendidosSiLaReservaQuedoConfirmada() throws Exception {
+        Funcion funcion = crearFuncion();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<String> reservaIds = new ArrayList<>();
+
+        for (int i = 0; i < CARRERAS; i++) {
+            Reserva reserva = reservaService.crearReserva(nuevaReserva(funcion, "A" + (i + 1)));
+            reservaIds.add(reserva.getId());
+            // Creada antes del bloqueo máximo: el vencimiento la toma en la siguiente pasada
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(reserva.getId())),
+                    new Update().set("fechaCreacion", LocalDateTime.now().minusHours(1)), Reserva.class);
+
+            CyclicBarrier salida = new CyclicBarrier(2);
+            Future<?> confirmar = executor.submit(() -> {
+                salida.await();
+                try {
+                    reservaService.confirmarReserva(reserva.getId(), "TARJETA");
+                } catch (RuntimeException e) {
+                    // Perdió contra el vencimiento: "La reserva ya fue procesada"
+                }
+                return null;
+            });
+            Future<?> expirar = executor.submit(() -> {
+                salida.await();
+                reservaExpirationService.expirarPendientes();
+                return null;
+            });
+            confirmar.get();
+            expirar.get();
+        }
+        executor.shutdown();
+
+        MapaAsientos mapa = mongoTemplate.findById(funcion.getId(), Funcion.class).getMapaAsientos();
+        int confirmadas = 0;
+        int expiradas = 0;
+        for (String id : reservaIds) {
+            Reserva reserva = mongoTemplate.findById(id, Reserva.class);
+            boolean vendido = mapa.isOcupado(mapa.indice(reserva.getAsientos().get(0)));
+            switch (reserva.getEstado()) {
+                case "CONFIRMADA" -> {
+                    confirmadas++;
+                    assertTrue(vendido, "confirmada sin asiento vendido: " + id);
+                }
+                case "EXPIRADA" -> {
+                    expiradas++;
+                    assertFalse(vendido, "expirada con el asiento vendido: " + id);
+                }
+                default -> throw new AssertionError("Estado inesperado " + reserva.getEstado() + " en " + id);
+            }
+        }
+
+        ResumenVentas resumen = mongoTemplate.findById(
+                ResumenVentas.id(ResumenVentas.FUNCION, funcion.getId()), ResumenVentas.class);
+        assertEquals(confirmadas, resumen.getReservasConfirmadas());
+        assertEquals(confirmadas, resumen.getBoletos());
+        assertEquals(expiradas, resumen.getExpiradas());
+        assertEquals(0, resumen.getReservasPendientes());
+    }
+
+    private Funcion crearFuncion() {
+        Funcion funcion = new Funcion();
+        funcion.setPeliculaId("pelicula-carrera");
+        funcion.setSalaId("sala-carrera");
+        funcion.setPelicula(new ReferenciaPelicula("pelicula-carrera", "Carrera", 100, "A", null));
+        funcion.setSala(new ReferenciaSala("sala-carrera", "Sala 1", "2D", 1, CARRERAS, CARRERAS));
+        funcion.setFechaHora(LocalDateTime.now().plusDays(1));
+        funcion.setPrecio(50.0);
+        funcion.setFilas(1);
+        funcion.setColumnas(CARRERAS);
+        funcion.setOcupados(new long[MapaAsientos.palabrasPara(CARRERAS)]);
+        funcion.setBloqueos(new HashMap<>());
+        return mongoTemplate.insert(funcion);
+    }
+
+    private static Reserva nuevaReserva(Funcion funcion, String asiento) {
+        Reserva reserva = new Reserva();
+        reserva.setFuncionId(funcion.getId());
+        reserva.setNombreCliente("Cliente");
+        reserva.setEmailCliente("cliente@correo.com");
+        reserva.setAsientos(List.of(asiento));
+        return reserva;
+    }
+}
@@ -0,0 +1,86 @@
+package com.cine.cinema.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Throughput con candado por función contra un monitor global, con 1, 2, 4... hilos.
+ * Solo mide e imprime; no corre con las pruebas (mvn test -Pbenchmark).
+ */
+@Tag("benchmark")
+class FuncionLockManagerBenchmark {
+
+    private static final int FUNCIONES = 64;
+    private static final int OPERACIONES_POR_HILO = 200;
+
+    @Test
+    void candadoPorFuncionContraMonitorGlobal() throws Exception {
+        FuncionLockManager manager = new FuncionLockManager();
+        ReentrantLock global = new ReentrantLock();
+        int maxHilos = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        for (int hilos = 1; hilos <= maxHilos; hilos *= 2) {
+            double porFuncion = medir(hilos, funcionId -> manager.conBloqueo(funcionId, this::viajeMongo));
+            double monitorGlobal = medir(hilos, funcionId -> {
+                global.lock();
+                try {
+                    viajeMongo();
+                } finally {
+                    global.unlock();
+                }
+            });
+            System.out.printf("🔒 %d hilos: por función %.0f ops/s, monitor global %.0f ops/s%n",
+                    hilos, porFuncion, monitorGlobal);
+        }
+    }
+
+    // Simula la latencia de una ida y vuelta a Mongo dentro de la sección crítica
+    private Void viajeMongo() {
+        try {
+            TimeUnit.MICROSECONDS.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private double medir(int hilos, OperacionFuncion operacion) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        try {
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                futuros.add(executor.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                        operacion.ejecutar("funcion-" + ((hilo * 7 + i) % FUNCIONES));
+                    }
+                    return null;
+                }));
+            }
+            long inicio = System.nanoTime();
+            salida.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get(60, TimeUnit.SECONDS);
+            }
+            double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+            return hilos * OPERACIONES_POR_HILO / segundos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface OperacionFuncion {
+        void ejecutar(String funcionId);
+    }
+}
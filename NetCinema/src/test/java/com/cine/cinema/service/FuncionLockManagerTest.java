@@ -0,0 +1,93 @@
+package com.cine.cinema.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FuncionLockManagerTest {
+
+    private static final int OPERACIONES_POR_HILO = 200;
+
+    @Test
+    void serializaLaMismaFuncion() throws Exception {
+        FuncionLockManager manager = new FuncionLockManager();
+        AtomicInteger dentro = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        int[] contador = new int[1];
+
+        ejecutar(8, hilo -> {
+            for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+                manager.conBloqueo("funcion-unica", () -> {
+                    maximo.accumulateAndGet(dentro.incrementAndGet(), Math::max);
+                    contador[0]++;
+                    dentro.decrementAndGet();
+                    return null;
+                });
+            }
+        });
+
+        assertEquals(1, maximo.get());
+        assertEquals(8 * OPERACIONES_POR_HILO, contador[0]);
+        assertEquals(0, manager.getCandadosActivos());
+    }
+
+    @Test
+    void funcionesDistintasAvanzanEnParalelo() throws Exception {
+        // Cada hilo espera, con su candado tomado, a que todos estén dentro del suyo:
+        // solo termina si los candados de funciones distintas no se excluyen
+        FuncionLockManager manager = new FuncionLockManager();
+        int hilos = 4;
+        CountDownLatch todosDentro = new CountDownLatch(hilos);
+        AtomicInteger completos = new AtomicInteger();
+
+        ejecutar(hilos, hilo -> manager.conBloqueo("funcion-" + hilo, () -> {
+            todosDentro.countDown();
+            try {
+                if (todosDentro.await(10, TimeUnit.SECONDS)) {
+                    completos.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+
+        assertEquals(hilos, completos.get());
+        assertEquals(0, manager.getCandadosActivos());
+    }
+
+    private void ejecutar(int hilos, TrabajoHilo trabajo) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        try {
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                futuros.add(executor.submit(() -> {
+                    salida.await();
+                    trabajo.ejecutar(hilo);
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface TrabajoHilo {
+        void ejecutar(int hilo);
+    }
+}
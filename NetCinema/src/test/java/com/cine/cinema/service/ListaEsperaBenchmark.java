@@ -0,0 +1,170 @@
+package com.cine.cinema.service;
+
+import com.cine.cinema.config.NotificationWebSocketHandler;
+import com.cine.cinema.dto.AsignacionAsientos;
+import com.cine.cinema.event.AsientosEvent;
+import com.cine.cinema.model.EntradaListaEspera;
+import com.cine.cinema.model.Funcion;
+import com.cine.cinema.model.MapaAsientos;
+import com.cine.cinema.repository.ListaEsperaRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cuánto tarda un usuario de la lista de espera en enterarse de que se liberaron
+ * asientos, y cuántas consultas cuesta: sondeando (cada cliente pregunta cada
+ * INTERVALO_SONDEO_MS) contra el aviso de ListaEsperaService por WebSocket.
+ * El aviso pasa por el servicio real, con el repositorio, los asientos y el
+ * WebSocket simulados. Solo mide e imprime; no corre con las pruebas (mvn test -Pbenchmark).
+ */
+@Tag("benchmark")
+class ListaEsperaBenchmark {
+
+    private static final String FUNCION = "funcion-estreno";
+    private static final int CLIENTES = 200;
+    private static final long INTERVALO_SONDEO_MS = 1000;
+    private static final long ENTRE_LIBERACIONES_MS = 20;
+
+    @Test
+    void sondeoContraAviso() throws Exception {
+        long[] sondeo = medirSondeo();
+        long[] aviso = medirAviso();
+
+        System.out.printf("📊 Sondeo cada %d ms: %d consultas, aviso medio %.1f ms, máximo %.1f ms%n",
+                INTERVALO_SONDEO_MS, sondeo[CLIENTES], media(sondeo), maximo(sondeo));
+        System.out.printf("📊 Aviso por WebSocket: %d mensajes, aviso medio %.3f ms, máximo %.3f ms%n",
+                aviso[CLIENTES], media(aviso), maximo(aviso));
+    }
+
+    // Cada cliente pregunta por su entrada cada INTERVALO_SONDEO_MS (empezando en un
+    // momento al azar); se le ofrecen asientos a uno cada ENTRE_LIBERACIONES_MS
+    private long[] medirSondeo() throws Exception {
+        Map<Integer, Long> ofrecidos = new ConcurrentHashMap<>();
+        AtomicLongArray enterados = new AtomicLongArray(CLIENTES);
+        AtomicLong consultas = new AtomicLong();
+        CountDownLatch todos = new CountDownLatch(CLIENTES);
+
+        ScheduledExecutorService clientes = Executors.newScheduledThreadPool(8);
+        try {
+            for (int i = 0; i < CLIENTES; i++) {
+                int cliente = i;
+                clientes.scheduleAtFixedRate(() -> {
+                    consultas.incrementAndGet();
+                    Long ofrecido = ofrecidos.get(cliente);
+                    if (ofrecido != null && enterados.compareAndSet(cliente, 0, System.nanoTime() - ofrecido)) {
+                        todos.countDown();
+                    }
+                }, ThreadLocalRandom.current().nextLong(INTERVALO_SONDEO_MS), INTERVALO_SONDEO_MS, TimeUnit.MILLISECONDS);
+            }
+            for (int i = 0; i < CLIENTES; i++) {
+                ofrecidos.put(i, System.nanoTime());
+                Thread.sleep(ENTRE_LIBERACIONES_MS);
+            }
+            todos.await(INTERVALO_SONDEO_MS * 3, TimeUnit.MILLISECONDS);
+        } finally {
+            clientes.shutdownNow();
+        }
+        return resultado(enterados, consultas.get());
+    }
+
+    // Se libera un asiento por vez y ListaEsperaService se lo ofrece al siguiente de la fila
+    private long[] medirAviso() throws Exception {
+        List<EntradaListaEspera> entradas = new ArrayList<>();
+        for (int i = 0; i < CLIENTES; i++) {
+            EntradaListaEspera entrada = new EntradaListaEspera(FUNCION, "usuario-" + i, 1);
+            entrada.setId("entrada-" + i);
+            entradas.add(entrada);
+        }
+        ListaEsperaRepository repositorio = mock(ListaEsperaRepository.class);
+        when(repositorio.findByFuncionIdAndEstadoOrderByFechaRegistroAsc(FUNCION, EntradaListaEspera.ESPERANDO))
+                .thenReturn(entradas);
+        when(repositorio.save(any())).thenAnswer(invocacion -> invocacion.getArgument(0));
+        when(repositorio.findByEstadoIn(anyList())).thenReturn(entradas);
+
+        AtomicInteger siguienteAsiento = new AtomicInteger();
+        FuncionService funcionService = mock(FuncionService.class);
+        when(funcionService.bloquearMejoresAsientos(eq(FUNCION), eq(1), any()))
+                .thenAnswer(invocacion -> asignacion(siguienteAsiento.getAndIncrement()));
+
+        long[] liberados = new long[CLIENTES];
+        AtomicLongArray enterados = new AtomicLongArray(CLIENTES);
+        AtomicLong mensajes = new AtomicLong();
+        CountDownLatch todos = new CountDownLatch(CLIENTES);
+        NotificationWebSocketHandler websocket = mock(NotificationWebSocketHandler.class);
+        doAnswer(invocacion -> {
+            int cliente = Integer.parseInt(invocacion.<String>getArgument(0).substring("usuario-".length()));
+            enterados.set(cliente, System.nanoTime() - liberados[cliente]);
+            mensajes.incrementAndGet();
+            todos.countDown();
+            return null;
+        }).when(websocket).notificarUsuario(anyString(), eq("ASIENTOS_OFRECIDOS"), anyMap());
+
+        ListaEsperaService servicio = new ListaEsperaService(repositorio, funcionService, mock(ReservaService.class), websocket);
+        servicio.afterSingletonsInstantiated();
+        try {
+            for (int i = 0; i < CLIENTES; i++) {
+                liberados[i] = System.nanoTime();
+                servicio.alCambiarAsientos(AsientosEvent.de(AsientosEvent.Tipo.LIBERADOS, FUNCION,
+                        List.of(MapaAsientos.codigo(i, CLIENTES))));
+                Thread.sleep(ENTRE_LIBERACIONES_MS);
+            }
+            todos.await(10, TimeUnit.SECONDS);
+        } finally {
+            servicio.detener();
+        }
+        return resultado(enterados, mensajes.get());
+    }
+
+    private static AsignacionAsientos asignacion(int asiento) {
+        Map<String, Integer> bloqueos = new HashMap<>();
+        bloqueos.put(String.valueOf(asiento), MapaAsientos.segundos(System.currentTimeMillis()) + 120);
+        Funcion funcion = new Funcion();
+        funcion.setFilas(1);
+        funcion.setColumnas(CLIENTES);
+        funcion.setOcupados(new long[MapaAsientos.palabrasPara(CLIENTES)]);
+        funcion.setBloqueos(bloqueos);
+        return new AsignacionAsientos(funcion, List.of(MapaAsientos.codigo(asiento, CLIENTES)));
+    }
+
+    // Latencia de cada cliente en nanosegundos y, al final, el costo (consultas o mensajes)
+    private static long[] resultado(AtomicLongArray enterados, long costo) {
+        long[] resultado = new long[CLIENTES + 1];
+        for (int i = 0; i < CLIENTES; i++) {
+            resultado[i] = enterados.get(i);
+        }
+        resultado[CLIENTES] = costo;
+        return resultado;
+    }
+
+    private static double media(long[] resultado) {
+        return Arrays.stream(resultado, 0, CLIENTES).average().orElse(0) / 1e6;
+    }
+
+    private static double maximo(long[] resultado) {
+        return Arrays.stream(resultado, 0, CLIENTES).max().orElse(0) / 1e6;
+    }
+}
@@ -0,0 +1,97 @@
+package com.cine.cinema.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArbolIntervalosTest {
+
+    @Test
+    void losIntervalosQueSoloSeTocanNoChocan() {
+        ArbolIntervalos arbol = new ArbolIntervalos();
+        arbol.insertar("f1", 100, 200);
+
+        // [inicio, fin): terminar justo cuando empieza otro no es choque
+        assertNull(arbol.primerSolapado(200, 300, null));
+        assertNull(arbol.primerSolapado(0, 100, null));
+        assertEquals("f1", arbol.primerSolapado(199, 300, null).id());
+        assertEquals("f1", arbol.primerSolapado(0, 101, null).id());
+        assertEquals("f1", arbol.primerSolapado(120, 130, null).id());
+    }
+
+    @Test
+    void excluyeLaFuncionQueSeEdita() {
+        ArbolIntervalos arbol = new ArbolIntervalos();
+        arbol.insertar("f1", 100, 200);
+
+        assertNull(arbol.primerSolapado(150, 250, "f1"));
+        arbol.insertar("f2", 240, 300);
+        assertEquals("f2", arbol.primerSolapado(150, 250, "f1").id());
+    }
+
+    @Test
+    void insertarElMismoIdLoReemplaza() {
+        ArbolIntervalos arbol = new ArbolIntervalos();
+        arbol.insertar("f1", 100, 200);
+        arbol.insertar("f1", 500, 600);
+
+        assertEquals(1, arbol.size());
+        assertNull(arbol.primerSolapado(100, 200, null));
+        assertEquals(new ArbolIntervalos.Intervalo("f1", 500, 600), arbol.get("f1"));
+
+        arbol.quitar("f1");
+        assertEquals(0, arbol.size());
+        assertTrue(arbol.solapados(0, 1_000).isEmpty());
+    }
+
+    @Test
+    void rechazaIntervalosVacios() {
+        ArbolIntervalos arbol = new ArbolIntervalos();
+        assertThrows(IllegalArgumentException.class, () -> arbol.insertar("f1", 100, 100));
+    }
+
+    @Test
+    void coincideConRevisarTodosLosIntervalos() {
+        Random random = new Random(7);
+        ArbolIntervalos arbol = new ArbolIntervalos();
+        Map<String, ArbolIntervalos.Intervalo> todos = new HashMap<>();
+
+        for (int paso = 0; paso < 3_000; paso++) {
+            String id = "f" + random.nextInt(500);
+            if (random.nextInt(5) == 0) {
+                arbol.quitar(id);
+                todos.remove(id);
+            } else {
+                long inicio = random.nextInt(100_000);
+                long fin = inicio + 1 + random.nextInt(2_000);
+                arbol.insertar(id, inicio, fin);
+                todos.put(id, new ArbolIntervalos.Intervalo(id, inicio, fin));
+            }
+
+            long inicio = random.nextInt(100_000);
+            long fin = inicio + 1 + random.nextInt(2_000);
+            List<ArbolIntervalos.Intervalo> esperados = new ArrayList<>();
+            for (ArbolIntervalos.Intervalo intervalo : todos.values()) {
+                if (intervalo.inicio() < fin && intervalo.fin() > inicio) {
+                    esperados.add(intervalo);
+                }
+            }
+            esperados.sort((a, b) -> a.inicio() != b.inicio()
+                    ? Long.compare(a.inicio(), b.inicio()) : a.id().compareTo(b.id()));
+
+            assertIterableEquals(esperados, arbol.solapados(inicio, fin));
+            assertEquals(esperados.isEmpty(), arbol.primerSolapado(inicio, fin, null) == null);
+            assertEquals(todos.size(), arbol.size());
+        }
+    }
+}
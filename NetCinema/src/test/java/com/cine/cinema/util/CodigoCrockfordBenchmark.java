@@ -0,0 +1,32 @@
+package com.cine.cinema.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Códigos de reserva generados por segundo en un hilo.
+ * Solo mide e imprime; no corre con las pruebas (mvn test -Pbenchmark).
+ */
+@Tag("benchmark")
+class CodigoCrockfordBenchmark {
+
+    @Test
+    void codigosPorSegundo() {
+        CodigoCrockford generador = new CodigoCrockford("RES-", 0, "clave-de-prueba-de-codigos".getBytes(StandardCharsets.UTF_8));
+        int cantidad = 2_000_000;
+        long suma = 0;
+        for (int i = 0; i < cantidad; i++) { // calentamiento
+            suma += generador.generar().length();
+        }
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < cantidad; i++) {
+            suma += generador.generar().length();
+        }
+        double porSegundo = cantidad / ((System.nanoTime() - inicio) / 1e9);
+        System.out.printf("Códigos de reserva: %.1f millones por segundo (un hilo, %d caracteres)%n",
+                porSegundo / 1e6, suma / (2L * cantidad));
+    }
+}
@@ -0,0 +1,198 @@
+package com.cine.cinema.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodigoCrockfordTest {
+
+    private static final String PREFIJO = "RES-";
+    private static final long AHORA = 1_760_000_000_000L;
+    private static final byte[] CLAVE = "clave-de-prueba-de-codigos".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void unicosEntreHilosDeLaMismaInstancia() throws Exception {
+        CodigoCrockford generador = new CodigoCrockford(PREFIJO, 3, CLAVE);
+        int hilos = 4;
+        int porHilo = 25_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        List<Future<long[]>> resultados = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            resultados.add(executor.submit(() -> {
+                long[] valores = new long[porHilo];
+                for (int i = 0; i < porHilo; i++) {
+                    valores[i] = generador.valor(generador.generar());
+                }
+                return valores;
+            }));
+        }
+        long[] todos = new long[hilos * porHilo];
+        for (int h = 0; h < hilos; h++) {
+            System.arraycopy(resultados.get(h).get(), 0, todos, h * porHilo, porHilo);
+        }
+        executor.shutdown();
+
+        assertEquals(0, repetidos(todos));
+    }
+
+    @Test
+    void unicosEntreInstanciasConElMismoReloj() {
+        // Todas las instancias en el mismo milisegundo y agotando la secuencia varias veces
+        int porNodo = 4096 + 1;
+        long[] todos = new long[CodigoCrockford.NODOS * porNodo];
+        for (int nodo = 0; nodo < CodigoCrockford.NODOS; nodo++) {
+            CodigoCrockford generador = new CodigoCrockford(PREFIJO, nodo, CLAVE, () -> AHORA);
+            for (int i = 0; i < porNodo; i++) {
+                todos[nodo * porNodo + i] = generador.valor(generador.generar());
+            }
+        }
+        assertEquals(0, repetidos(todos));
+    }
+
+    @Test
+    void noRepiteSiElRelojRetrocede() {
+        AtomicLong reloj = new AtomicLong(AHORA);
+        CodigoCrockford generador = new CodigoCrockford(PREFIJO, 0, CLAVE, reloj::get);
+
+        long[] valores = new long[20_000];
+        for (int i = 0; i < valores.length; i++) {
+            if (i % 1000 == 999) {
+                reloj.addAndGet(-5_000); // ajuste de NTP hacia atrás
+            }
+            valores[i] = generador.original(generador.generar());
+        }
+        for (int i = 1; i < valores.length; i++) {
+            assertTrue(valores[i] > valores[i - 1], "los códigos deben crecer aunque el reloj retroceda");
+        }
+    }
+
+    @Test
+    void losCodigosSeguidosNoSonVecinos() {
+        // Sin la permutación dos códigos seguidos difieren en 1; con ella caen en cualquier
+        // parte de los 2^60 valores (que dos queden a menos de 2^30 es ~2^-30 por par)
+        CodigoCrockford generador = new CodigoCrockford(PREFIJO, 0, CLAVE, () -> AHORA);
+        long anterior = generador.valor(generador.generar());
+        for (int i = 0; i < 10_000; i++) {
+            long actual = generador.valor(generador.generar());
+            assertTrue(Math.abs(actual - anterior) > (1L << 30), "dos códigos seguidos quedaron cerca");
+            anterior = actual;
+        }
+    }
+
+    @Test
+    void sinLaClaveNoSeReconstruyenLosCodigos() {
+        // Mismo reloj, nodo y secuencia: con otra clave salen otros códigos, y cada
+        // generador recupera los datos originales de los suyos
+        CodigoCrockford conClave = new CodigoCrockford(PREFIJO, 5, CLAVE, () -> AHORA);
+        CodigoCrockford otraClave = new CodigoCrockford(PREFIJO, 5,
+                "otra-clave-distinta-de-codigos".getBytes(StandardCharsets.UTF_8), () -> AHORA);
+        for (int i = 0; i < 1000; i++) {
+            String codigo = conClave.generar();
+            String otro = otraClave.generar();
+            assertNotEquals(codigo, otro);
+            assertEquals(conClave.original(codigo), otraClave.original(otro));
+        }
+    }
+
+    @Test
+    void probabilidadDeColisionContraElFormatoAnterior() {
+        // El formato anterior eran 32 bits al azar (8 hex de un UUID): con n códigos la
+        // probabilidad de alguna repetición es ~ 1 - e^(-n²/2^33), 99.99% con 300 mil.
+        // Misma cantidad con el generador nuevo en 4 instancias: ninguna
+        int cantidad = 300_000;
+        Random azar = new Random(42);
+        long[] anteriores = new long[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            anteriores[i] = azar.nextInt() & 0xFFFFFFFFL;
+        }
+        double esperada = 1 - Math.exp(-(double) cantidad * cantidad / Math.pow(2, 33));
+        assertTrue(esperada > 0.9999);
+        assertTrue(repetidos(anteriores) > 0);
+
+        long[] nuevos = new long[cantidad];
+        List<CodigoCrockford> instancias = new ArrayList<>();
+        for (int nodo = 0; nodo < 4; nodo++) {
+            instancias.add(new CodigoCrockford(PREFIJO, nodo, CLAVE, () -> AHORA));
+        }
+        for (int i = 0; i < cantidad; i++) {
+            CodigoCrockford instancia = instancias.get(i % instancias.size());
+            nuevos[i] = instancia.valor(instancia.generar());
+        }
+        assertEquals(0, repetidos(nuevos));
+    }
+
+    @Test
+    void laVerificacionDetectaErroresDeEscritura() {
+        CodigoCrockford generador = new CodigoCrockford(PREFIJO, 7, CLAVE);
+        String alfabeto = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+        for (int n = 0; n < 200; n++) {
+            String codigo = generador.generar();
+            assertEquals(codigo, generador.normalizar(codigo.toLowerCase()));
+
+            char[] caracteres = codigo.toCharArray();
+            for (int i = PREFIJO.length(); i < caracteres.length - 1; i++) {
+                char original = caracteres[i];
+                // Un carácter cambiado
+                for (char otro : alfabeto.toCharArray()) {
+                    if (otro != original) {
+                        caracteres[i] = otro;
+                        assertNull(generador.normalizar(new String(caracteres)));
+                    }
+                }
+                caracteres[i] = original;
+                // Dos contiguos intercambiados
+                if (i + 1 < caracteres.length - 1 && caracteres[i + 1] != original) {
+                    caracteres[i] = caracteres[i + 1];
+                    caracteres[i + 1] = original;
+                    assertNull(generador.normalizar(new String(caracteres)));
+                    caracteres[i + 1] = caracteres[i];
+                    caracteres[i] = original;
+                }
+            }
+        }
+    }
+
+    @Test
+    void aceptaLasConfusionesDeLectura() {
+        CodigoCrockford generador = new CodigoCrockford(PREFIJO, 1, CLAVE);
+        String codigo;
+        do {
+            codigo = generador.generar();
+        } while (codigo.indexOf('0', PREFIJO.length()) < 0 || codigo.indexOf('1', PREFIJO.length()) < 0);
+
+        String cuerpo = codigo.substring(PREFIJO.length(), codigo.length() - 1)
+                .replace('0', 'O').replace('1', 'l');
+        String escrito = PREFIJO + cuerpo + codigo.charAt(codigo.length() - 1);
+        assertEquals(codigo, generador.normalizar(escrito));
+
+        // Los códigos del formato anterior solo se pasan a mayúsculas
+        assertEquals("RES-1A2B3C4D", generador.normalizar(" res-1a2b3c4d "));
+    }
+
+    private static int repetidos(long[] valores) {
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        int repetidos = 0;
+        for (int i = 1; i < ordenados.length; i++) {
+            if (ordenados[i] == ordenados[i - 1]) {
+                repetidos++;
+            }
+        }
+        return repetidos;
+    }
+}
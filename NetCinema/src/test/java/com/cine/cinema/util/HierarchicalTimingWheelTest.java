@@ -0,0 +1,145 @@
+package com.cine.cinema.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final long AHORA = 1_760_000_000_000L;
+
+    @Test
+    void cadaUnoVenceEnElPrimerTickDespuesDeSuExpiracion() {
+        HierarchicalTimingWheel<String> rueda = new HierarchicalTimingWheel<>(TICK, AHORA);
+        List<String> vencidos = new ArrayList<>();
+        // Uno por nivel: 5 ms, ~6 s, ~7 min y ~7 h
+        rueda.agregar(AHORA + 5, "nivel0", vencidos::add);
+        rueda.agregar(AHORA + 6_000, "nivel1", vencidos::add);
+        rueda.agregar(AHORA + 400_000, "nivel2", vencidos::add);
+        rueda.agregar(AHORA + 25_000_000, "nivel3", vencidos::add);
+        assertEquals(4, rueda.size());
+
+        rueda.avanzar(AHORA + 9, vencidos::add);
+        assertTrue(vencidos.isEmpty());
+        rueda.avanzar(AHORA + 10, vencidos::add);
+        assertIterableEquals(List.of("nivel0"), vencidos);
+
+        rueda.avanzar(AHORA + 5_999, vencidos::add);
+        assertEquals(1, vencidos.size());
+        rueda.avanzar(AHORA + 6_000, vencidos::add);
+        rueda.avanzar(AHORA + 399_999, vencidos::add);
+        assertIterableEquals(List.of("nivel0", "nivel1"), vencidos);
+        rueda.avanzar(AHORA + 400_000, vencidos::add);
+        rueda.avanzar(AHORA + 24_999_999, vencidos::add);
+        assertEquals(3, vencidos.size());
+        rueda.avanzar(AHORA + 25_000_000, vencidos::add);
+
+        assertIterableEquals(List.of("nivel0", "nivel1", "nivel2", "nivel3"), vencidos);
+        assertEquals(0, rueda.size());
+    }
+
+    @Test
+    void venceAunqueCruceElLimiteDelNivelSuperior() {
+        // 100 ticks antes de un múltiplo de 2^30 ticks: cae en el nivel superior
+        long limite = ((AHORA / TICK >>> 30) + 1) << 30;
+        long inicio = (limite - 100) * TICK;
+        HierarchicalTimingWheel<String> rueda = new HierarchicalTimingWheel<>(TICK, inicio);
+        List<String> vencidos = new ArrayList<>();
+        rueda.agregar(inicio + 1_000 * TICK, "despues", vencidos::add);
+        rueda.agregar(inicio + 50 * TICK, "antes", vencidos::add);
+
+        rueda.avanzar(inicio + 999 * TICK, vencidos::add);
+        assertIterableEquals(List.of("antes"), vencidos);
+        rueda.avanzar(inicio + 1_000 * TICK, vencidos::add);
+        assertIterableEquals(List.of("antes", "despues"), vencidos);
+    }
+
+    @Test
+    void elQueYaVencioSeEntregaAlAgregarlo() {
+        HierarchicalTimingWheel<String> rueda = new HierarchicalTimingWheel<>(TICK, AHORA);
+        List<String> vencidos = new ArrayList<>();
+
+        assertNull(rueda.agregar(AHORA - 1_000, "pasado", vencidos::add));
+        assertNull(rueda.agregar(AHORA, "ahora", vencidos::add));
+
+        assertIterableEquals(List.of("pasado", "ahora"), vencidos);
+        assertEquals(0, rueda.size());
+    }
+
+    @Test
+    void unoCanceladoNoVence() {
+        HierarchicalTimingWheel<String> rueda = new HierarchicalTimingWheel<>(TICK, AHORA);
+        List<String> vencidos = new ArrayList<>();
+        HierarchicalTimingWheel.Temporizador<String> cancelado = rueda.agregar(AHORA + 50, "cancelado", vencidos::add);
+        HierarchicalTimingWheel.Temporizador<String> vence = rueda.agregar(AHORA + 50, "vence", vencidos::add);
+        assertNotNull(cancelado);
+
+        assertTrue(rueda.cancelar(cancelado));
+        assertFalse(rueda.cancelar(cancelado));
+        assertEquals(1, rueda.size());
+
+        rueda.avanzar(AHORA + 1_000, vencidos::add);
+        assertIterableEquals(List.of("vence"), vencidos);
+        // Ya venció: no queda nada que cancelar
+        assertFalse(rueda.cancelar(vence));
+        assertFalse(rueda.cancelar(null));
+    }
+
+    @Test
+    void coincideConRevisarTodosEnCadaAvance() {
+        Random random = new Random(42);
+        HierarchicalTimingWheel<Integer> rueda = new HierarchicalTimingWheel<>(TICK, AHORA);
+        Map<Integer, Long> expiraciones = new HashMap<>();
+        Map<Integer, HierarchicalTimingWheel.Temporizador<Integer>> temporizadores = new HashMap<>();
+        List<Integer> vencidos = new ArrayList<>();
+        long ahora = AHORA;
+        int siguienteId = 0;
+
+        for (int paso = 0; paso < 2_000; paso++) {
+            // Algunos nuevos (hasta ~3 h adelante) y alguna cancelación
+            for (int i = 0; i < 5; i++) {
+                int id = siguienteId++;
+                long expiracion = ahora + 1 + random.nextInt(10_000_000);
+                expiraciones.put(id, expiracion);
+                temporizadores.put(id, rueda.agregar(expiracion, id, vencidos::add));
+            }
+            if (random.nextInt(4) == 0) {
+                Integer id = temporizadores.keySet().iterator().next();
+                assertTrue(rueda.cancelar(temporizadores.remove(id)));
+                expiraciones.remove(id);
+            }
+
+            ahora += random.nextInt(20_000);
+            vencidos.clear();
+            rueda.avanzar(ahora, vencidos::add);
+
+            // Vence justo lo que llegó al tick de su expiración, ni antes ni después
+            List<Integer> esperados = new ArrayList<>();
+            long tickAhora = ahora / TICK;
+            temporizadores.keySet().removeIf(id -> {
+                long tickExpiracion = (expiraciones.get(id) + TICK - 1) / TICK;
+                if (tickExpiracion <= tickAhora) {
+                    esperados.add(id);
+                    return true;
+                }
+                return false;
+            });
+            vencidos.sort(null);
+            esperados.sort(null);
+            assertIterableEquals(esperados, vencidos);
+            assertEquals(temporizadores.size(), rueda.size());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.cine.cinema.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceInvertidoTest {
+
+    private static final double TITULO = 3.0;
+    private static final double SINOPSIS = 1.0;
+
+    @Test
+    void normalizaAcentosYMayusculas() {
+        assertEquals("accion en la montana", IndiceInvertido.normalizar("ACCIÓN en la Montaña"));
+        assertIterableEquals(List.of("spider", "man", "2"), IndiceInvertido.palabras("Spider-Man: 2"));
+        assertTrue(IndiceInvertido.palabras(null).isEmpty());
+    }
+
+    @Test
+    void laUltimaPalabraSeBuscaComoPrefijo() {
+        IndiceInvertido indice = indice();
+
+        assertIterableEquals(List.of("p1"), ids(indice.buscar("acci", 10)));
+        assertIterableEquals(List.of("p1"), ids(indice.buscar("Acción", 10)));
+        assertTrue(indice.buscar("accionx", 10).isEmpty());
+    }
+
+    @Test
+    void todasLasPalabrasDebenAparecer() {
+        IndiceInvertido indice = indice();
+
+        assertIterableEquals(List.of("p2"), ids(indice.buscar("noche terr", 10)));
+        assertTrue(indice.buscar("noche montana", 10).isEmpty());
+        // Las palabras vacías no filtran
+        assertIterableEquals(List.of("p2"), ids(indice.buscar("noche de terror", 10)));
+    }
+
+    @Test
+    void elTituloPesaMasQueLaSinopsis() {
+        IndiceInvertido indice = indice();
+
+        // "noche" es título de p2 y solo sinopsis de p3
+        assertIterableEquals(List.of("p2", "p3"), ids(indice.buscar("noche", 10)));
+        assertIterableEquals(List.of("p2"), ids(indice.buscar("noche", 1)));
+    }
+
+    @Test
+    void quitarYReemplazarActualizanLasPalabras() {
+        IndiceInvertido indice = indice();
+
+        indice.quitar("p1");
+        assertTrue(indice.buscar("acc", 10).isEmpty());
+        assertEquals(2, indice.size());
+
+        indice.indexar("p2", List.of(new IndiceInvertido.Campo("Comedia romántica", TITULO)));
+        assertTrue(indice.buscar("terror", 10).isEmpty());
+        assertIterableEquals(List.of("p2"), ids(indice.buscar("romantica", 10)));
+        assertIterableEquals(List.of("p3"), ids(indice.buscar("noche", 10)));
+
+        indice.limpiar();
+        assertEquals(0, indice.size());
+        assertTrue(indice.buscar("comedia", 10).isEmpty());
+    }
+
+    private static IndiceInvertido indice() {
+        IndiceInvertido indice = new IndiceInvertido();
+        indice.indexar("p1", List.of(
+                new IndiceInvertido.Campo("Acción en la montaña", TITULO),
+                new IndiceInvertido.Campo("Un rescate a gran altura", SINOPSIS)));
+        indice.indexar("p2", List.of(
+                new IndiceInvertido.Campo("Noche de terror", TITULO),
+                new IndiceInvertido.Campo("Una casa abandonada", SINOPSIS)));
+        indice.indexar("p3", List.of(
+                new IndiceInvertido.Campo("El faro", TITULO),
+                new IndiceInvertido.Campo("Dos guardianes pasan la noche en una isla", SINOPSIS)));
+        return indice;
+    }
+
+    private static List<String> ids(List<IndiceInvertido.Resultado> resultados) {
+        return resultados.stream().map(IndiceInvertido.Resultado::id).toList();
+    }
+}
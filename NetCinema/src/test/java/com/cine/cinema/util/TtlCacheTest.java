@@ -0,0 +1,56 @@
+package com.cine.cinema.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TtlCacheTest {
+
+    @Test
+    void cargaUnaVezYDespuesAcierta() {
+        TtlCache<String, String> cache = new TtlCache<>(10, 60_000);
+        AtomicInteger cargas = new AtomicInteger();
+
+        assertEquals("v1", cache.obtener("a", () -> "v" + cargas.incrementAndGet()));
+        assertEquals("v1", cache.obtener("a", () -> "v" + cargas.incrementAndGet()));
+        assertEquals(1, cargas.get());
+        assertEquals(1, cache.getAciertos());
+    }
+
+    @Test
+    void unaCargaQueCruzaUnaInvalidacionNoSeGuarda() {
+        TtlCache<String, String> cache = new TtlCache<>(10, 60_000);
+
+        // El catálogo cambia mientras se lee de la base: lo leído se devuelve pero no queda
+        String leido = cache.obtener("cartelera", () -> {
+            cache.invalidarTodo();
+            return "viejo";
+        });
+        assertEquals("viejo", leido);
+        assertNull(cache.get("cartelera"));
+
+        assertEquals("nuevo", cache.obtener("cartelera", () -> "nuevo"));
+        assertEquals("nuevo", cache.get("cartelera"));
+    }
+
+    @Test
+    void desalojaLaMenosUsadaYVence() throws InterruptedException {
+        TtlCache<String, String> cache = new TtlCache<>(2, 60_000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals(2, cache.size());
+
+        TtlCache<String, String> corta = new TtlCache<>(2, 1);
+        corta.put("a", "1");
+        Thread.sleep(5);
+        assertNull(corta.get("a"));
+    }
+}
@@ -1,8 +1,9 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import { funcionService } from '../services/funcionService';
 import { reservaService } from '../services/reservaService';
 import { authService } from '../services/authService';
+import { filaVirtualService } from '../services/filaVirtualService';
 
 function Asientos() {
     const { funcionId } = useParams();
@@ -11,14 +12,73 @@ function Asientos() {
     const [asientosSeleccionados, setAsientosSeleccionados] = useState([]);
     const [loading, setLoading] = useState(true);
     const [procesando, setProcesando] = useState(false);
+    const [turno, setTurno] = useState(null); // Turno de la fila virtual mientras se espera
     const user = authService.getUser();
 
+    const versionAsientos = useRef(null);
+
     useEffect(() => {
+        versionAsientos.current = null;
         cargarFuncion();
-        const interval = setInterval(cargarFuncion, 1000); // Cambiar de 5000 a 1000 (cada segundo)
+        const interval = setInterval(actualizarAsientos, 1000); // Solo pide lo que cambió
         return () => clearInterval(interval);
     }, [funcionId]);
 
+    // Mientras se espera en la fila virtual se consulta la posición hasta ser admitido
+    useEffect(() => {
+        if (!turno || turno.estado !== 'ESPERANDO') return;
+
+        const interval = setInterval(async () => {
+            try {
+                const response = await filaVirtualService.consultar(turno.token);
+                if (response.success) {
+                    setTurno(response.data);
+                    if (response.data.estado === 'ADMITIDO') {
+                        cargarFuncion();
+                    }
+                }
+            } catch (error) {
+                // El turno se perdió (por ejemplo al reiniciar el servidor): se toma otro
+                entrarEnFila();
+            }
+        }, 2000);
+        return () => clearInterval(interval);
+    }, [turno?.token, turno?.estado]);
+
+    // La función tiene fila virtual: se toma un turno y se espera la admisión
+    const entrarEnFila = async () => {
+        try {
+            const response = await filaVirtualService.entrar(funcionId, user?.id);
+            if (response.success) {
+                setTurno(response.data);
+                if (response.data.estado === 'ADMITIDO') {
+                    cargarFuncion();
+                }
+            }
+        } catch (error) {
+            setTurno({ estado: 'LLENA', mensaje: error.response?.data?.message });
+        }
+    };
+
+    const salirDeLaFila = async () => {
+        await filaVirtualService.salir();
+        navigate(-1);
+    };
+
+    // Quita los bloqueos que ya expiraron
+    const bloqueosActivos = (bloqueados) => {
+        const ahora = Date.now();
+        const activos = {};
+
+        Object.entries(bloqueados || {}).forEach(([asiento, expiracion]) => {
+            if (expiracion > ahora) {
+                activos[asiento] = expiracion;
+            }
+        });
+
+        return activos;
+    };
+
     const cargarFuncion = async () => {
         try {
             const response = await funcionService.getById(funcionId);
@@ -26,28 +86,92 @@ function Asientos() {
                 const funcionData = response.data;
 
                 // Limpiar bloqueos expirados en el cliente
-                if (funcionData.asientosBloqueados) {
-                    const ahora = Date.now();
-                    const bloqueosActivos = {};
-
-                    Object.entries(funcionData.asientosBloqueados).forEach(([asiento, expiracion]) => {
-                        if (expiracion > ahora) {
-                            bloqueosActivos[asiento] = expiracion;
-                        }
-                    });
-
-                    funcionData.asientosBloqueados = bloqueosActivos;
-                }
+                funcionData.asientosBloqueados = bloqueosActivos(funcionData.asientosBloqueados);
 
+                versionAsientos.current = funcionData.versionAsientos ?? 0;
                 setFuncion(funcionData);
             }
         } catch (error) {
-            console.error('Error al cargar función:', error);
+            if (filaVirtualService.esFilaVirtual(error)) {
+                await entrarEnFila();
+            } else {
+                console.error('Error al cargar función:', error);
+            }
         } finally {
             setLoading(false);
         }
     };
 
+    // Asientos ocupados a partir del bitmap en base64 de la instantánea
+    const decodificarOcupados = (instantanea) => {
+        const bytes = atob(instantanea.ocupados);
+        const ocupados = [];
+
+        for (let i = 0; i < instantanea.filas * instantanea.columnas; i++) {
+            if (bytes.charCodeAt(i >> 3) & (1 << (i & 7))) {
+                const fila = String.fromCharCode(65 + Math.floor(i / instantanea.columnas));
+                ocupados.push(`${fila}${(i % instantanea.columnas) + 1}`);
+            }
+        }
+
+        return ocupados;
+    };
+
+    const actualizarAsientos = async () => {
+        if (versionAsientos.current === null) return;
+
+        try {
+            const response = await funcionService.getCambiosAsientos(funcionId, versionAsientos.current);
+            if (!response || !response.success) {
+                // Sin cambios: solo vencen los bloqueos
+                setFuncion((prev) => prev && {
+                    ...prev,
+                    asientosBloqueados: bloqueosActivos(prev.asientosBloqueados),
+                });
+                return;
+            }
+
+            const cambios = response.data;
+            versionAsientos.current = cambios.version;
+
+            setFuncion((prev) => {
+                if (!prev) return prev;
+
+                if (cambios.completo) {
+                    return {
+                        ...prev,
+                        asientosOcupados: decodificarOcupados(cambios.instantanea),
+                        asientosBloqueados: bloqueosActivos(cambios.instantanea.bloqueados),
+                    };
+                }
+
+                const ocupados = new Set(prev.asientosOcupados);
+                const bloqueados = { ...prev.asientosBloqueados };
+
+                cambios.ocupados.forEach((asiento) => {
+                    ocupados.add(asiento);
+                    delete bloqueados[asiento];
+                });
+                Object.entries(cambios.bloqueados).forEach(([asiento, expiracion]) => {
+                    ocupados.delete(asiento);
+                    bloqueados[asiento] = expiracion;
+                });
+                cambios.liberados.forEach((asiento) => {
+                    ocupados.delete(asiento);
+                    delete bloqueados[asiento];
+                });
+
+                return {
+                    ...prev,
+                    asientosOcupados: [...ocupados],
+                    asientosBloqueados: bloqueosActivos(bloqueados),
+                };
+            });
+        } catch (error) {
+            console.error('Error al actualizar asientos:', error);
+        }
+    };
+
     const generarAsientos = () => {
         if (!funcion) return [];
 
@@ -135,6 +259,25 @@ function Asientos() {
         );
     }
 
+    if (!funcion && turno && turno.estado !== 'ADMITIDO') {
+        return (
+            <div style={styles.errorContainer}>
+                <h2>Fila virtual</h2>
+                {turno.estado === 'LLENA' ? (
+                    <p>{turno.mensaje || 'La fila está llena, intenta de nuevo en unos minutos'}</p>
+                ) : (
+                    <>
+                        <p>Hay mucha demanda para esta función. Te avisaremos cuando sea tu turno.</p>
+                        <p style={styles.posicionFila}>Tu lugar en la fila: {turno.posicion}</p>
+                    </>
+                )}
+                <button onClick={salirDeLaFila} style={styles.backButton}>
+                    Salir de la fila
+                </button>
+            </div>
+        );
+    }
+
     if (!funcion) {
         return (
             <div style={styles.errorContainer}>
@@ -488,6 +631,11 @@ const styles = {
         fontSize: '12px',
         fontWeight: '600',
     },
+    posicionFila: {
+        fontSize: '24px',
+        fontWeight: 'bold',
+        color: '#667eea',
+    },
     tiempoRestante: {
         fontSize: '9px',
         marginTop: '2px',
@@ -1,4 +1,4 @@
-import { useState } from 'react';
+import { useEffect, useState } from 'react';
 import { useLocation, useNavigate } from 'react-router-dom';
 import { reservaService } from '../services/reservaService';
 import { authService } from '../services/authService';
@@ -6,6 +6,10 @@ import QRCode from 'react-qr-code';
 import { downloadSvgAsPng } from '../utils/qrUtils';
 import { svgToPngDataUrl, generateReservationPdf } from '../utils/pdfUtils';
 
+// Cada cuánto se renueva el bloqueo de los asientos mientras el formulario está abierto
+// (el bloqueo dura 120 s en el servidor)
+const INTERVALO_RENOVACION_MS = 60000;
+
 function ConfirmarReserva() {
     const location = useLocation();
     const navigate = useNavigate();
@@ -20,9 +24,32 @@ function ConfirmarReserva() {
     });
 
     const [procesando, setProcesando] = useState(false);
+    // Reserva PENDIENTE que retiene los asientos mientras el cliente elige cómo pagar
+    const [reservaPendiente, setReservaPendiente] = useState(null);
     const [reservaCreada, setReservaCreada] = useState(null);
     const [error, setError] = useState('');
 
+    // Heartbeat del checkout: mientras haya una reserva pendiente se renueva su bloqueo.
+    // Se detiene al confirmar, al salir de la página o si el servidor ya no lo renueva
+    useEffect(() => {
+        if (!reservaPendiente) return;
+
+        const intervalo = setInterval(async () => {
+            try {
+                const response = await reservaService.renovar(reservaPendiente.id);
+                if (!response.success) {
+                    throw new Error(response.message);
+                }
+            } catch (error) {
+                console.error('Error al renovar el bloqueo:', error);
+                setReservaPendiente(null);
+                setError('Tus asientos se liberaron porque pasó el tiempo para pagar. Vuelve a seleccionarlos.');
+            }
+        }, INTERVALO_RENOVACION_MS);
+
+        return () => clearInterval(intervalo);
+    }, [reservaPendiente]);
+
     if (!funcionId || !asientos || !funcion) {
         return (
             <div style={styles.errorContainer}>
@@ -41,7 +68,18 @@ function ConfirmarReserva() {
         });
     };
 
-    const handleConfirmarReserva = async () => {
+    const mensajeDeError = (error) => {
+        if (error.response) {
+            // Error de respuesta del servidor
+            return error.response.data?.message ||
+                `Error del servidor: ${error.response.status}`;
+        }
+        // Error personalizado
+        return error.message || 'Error al procesar la reserva. Por favor intenta de nuevo.';
+    };
+
+    // 1. Crear la reserva pendiente: aparta los asientos y a partir de aquí se renueva el bloqueo
+    const handleApartarAsientos = async () => {
         if (!formData.nombreCliente || !formData.emailCliente) {
             setError('Por favor completa todos los campos');
             return;
@@ -51,15 +89,6 @@ function ConfirmarReserva() {
         setError('');
 
         try {
-            console.log('Creando reserva con datos:', {
-                funcionId,
-                usuarioId: user?.id,
-                nombreCliente: formData.nombreCliente,
-                emailCliente: formData.emailCliente,
-                asientos,
-            });
-
-            // 1. Crear reserva
             const reservaData = {
                 funcionId: funcionId,
                 usuarioId: user ? user.id : null,
@@ -67,6 +96,7 @@ function ConfirmarReserva() {
                 emailCliente: formData.emailCliente,
                 asientos: asientos,
             };
+            console.log('Creando reserva con datos:', reservaData);
 
             const reservaResponse = await reservaService.create(reservaData);
             console.log('Respuesta crear reserva:', reservaResponse);
@@ -75,12 +105,27 @@ function ConfirmarReserva() {
                 throw new Error(reservaResponse.message || 'Error al crear la reserva');
             }
 
-            const reserva = reservaResponse.data;
+            setReservaPendiente(reservaResponse.data);
 
-            // 2. Confirmar reserva con método de pago
-            console.log('Confirmando reserva:', reserva.id);
+        } catch (error) {
+            console.error('Error completo:', error);
+            const errorMessage = mensajeDeError(error);
+            setError(errorMessage);
+            alert(errorMessage);
+        } finally {
+            setProcesando(false);
+        }
+    };
+
+    // 2. Confirmar la reserva pendiente con el método de pago
+    const handleConfirmarReserva = async () => {
+        setProcesando(true);
+        setError('');
+
+        try {
+            console.log('Confirmando reserva:', reservaPendiente.id);
             const confirmarResponse = await reservaService.confirmar(
-                reserva.id,
+                reservaPendiente.id,
                 formData.metodoPago
             );
             console.log('Respuesta confirmar:', confirmarResponse);
@@ -89,22 +134,12 @@ function ConfirmarReserva() {
                 throw new Error(confirmarResponse.message || 'Error al confirmar la reserva');
             }
 
+            setReservaPendiente(null);
             setReservaCreada(confirmarResponse.data);
 
         } catch (error) {
             console.error('Error completo:', error);
-
-            let errorMessage = 'Error al procesar la reserva. Por favor intenta de nuevo.';
-
-            if (error.response) {
-                // Error de respuesta del servidor
-                errorMessage = error.response.data?.message ||
-                    `Error del servidor: ${error.response.status}`;
-            } else if (error.message) {
-                // Error personalizado
-                errorMessage = error.message;
-            }
-
+            const errorMessage = mensajeDeError(error);
             setError(errorMessage);
             alert(errorMessage);
         } finally {
@@ -343,6 +378,7 @@ function ConfirmarReserva() {
                                     name="nombreCliente"
                                     value={formData.nombreCliente}
                                     onChange={handleInputChange}
+                                    disabled={!!reservaPendiente}
                                     style={styles.input}
                                     placeholder="Ej: Juan Pérez"
                                     required
@@ -356,6 +392,7 @@ function ConfirmarReserva() {
                                     name="emailCliente"
                                     value={formData.emailCliente}
                                     onChange={handleInputChange}
+                                    disabled={!!reservaPendiente}
                                     style={styles.input}
                                     placeholder="tu@email.com"
                                     required
@@ -401,16 +438,24 @@ function ConfirmarReserva() {
                                 </div>
                             )}
 
+                            {reservaPendiente && (
+                                <p style={styles.hint}>
+                                    Tus asientos están apartados mientras esta página siga abierta
+                                </p>
+                            )}
+
                             <button
                                 type="button"
-                                onClick={handleConfirmarReserva}
+                                onClick={reservaPendiente ? handleConfirmarReserva : handleApartarAsientos}
                                 disabled={procesando}
                                 style={{
                                     ...styles.confirmarButton,
                                     ...(procesando && styles.confirmarButtonDisabled),
                                 }}
                             >
-                                {procesando ? 'Procesando...' : 'Confirmar y pagar'}
+                                {procesando
+                                    ? 'Procesando...'
+                                    : reservaPendiente ? 'Confirmar y pagar' : 'Apartar asientos'}
                             </button>
                         </div>
                     </div>
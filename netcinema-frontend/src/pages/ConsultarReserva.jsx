@@ -151,7 +151,7 @@ function ConsultarReserva() {
                                         value={codigoReserva}
                                         onChange={(e) => setCodigoReserva(e.target.value.toUpperCase())}
                                         style={styles.input}
-                                        placeholder="Ej: RES-ABC12345"
+                                        placeholder="Ej: RES-0TB3A4MFGM00N"
                                         required
                                     />
                                 </div>
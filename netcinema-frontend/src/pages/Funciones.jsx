@@ -218,7 +218,7 @@ function Funciones() {
                                         <div style={styles.infoItem}>
                                             <span style={styles.infoLabel}>Asientos disponibles:</span>
                                             <span style={styles.infoValue}>
-                        {funcion.sala.capacidad - funcion.asientosOcupados.length}
+                        {funcion.disponibles}
                                                 /{funcion.sala.capacidad}
                       </span>
                                         </div>
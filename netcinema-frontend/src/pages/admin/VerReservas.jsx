@@ -3,10 +3,14 @@ import { useState, useEffect } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { reservaService } from '../../services/reservaService';
 
+const RESERVAS_POR_PAGINA = 50;
+
 function VerReservas() {
     const navigate = useNavigate();
     const [reservas, setReservas] = useState([]);
     const [loading, setLoading] = useState(true);
+    const [siguienteCursor, setSiguienteCursor] = useState(null);
+    const [cargandoMas, setCargandoMas] = useState(false);
     const [filtroEstado, setFiltroEstado] = useState('TODAS');
     const [busqueda, setBusqueda] = useState('');
     const [reservaSeleccionada, setReservaSeleccionada] = useState(null);
@@ -18,9 +22,10 @@ function VerReservas() {
 
     const cargarReservas = async () => {
         try {
-            const response = await reservaService.getAll();
+            const response = await reservaService.getPagina(RESERVAS_POR_PAGINA);
             if (response.success) {
-                setReservas(response.data);
+                setReservas(response.data.contenido);
+                setSiguienteCursor(response.data.siguienteCursor);
             }
         } catch (error) {
             console.error('Error al cargar reservas:', error);
@@ -29,6 +34,21 @@ function VerReservas() {
         }
     };
 
+    const cargarMas = async () => {
+        setCargandoMas(true);
+        try {
+            const response = await reservaService.getPagina(RESERVAS_POR_PAGINA, siguienteCursor);
+            if (response.success) {
+                setReservas((actuales) => [...actuales, ...response.data.contenido]);
+                setSiguienteCursor(response.data.siguienteCursor);
+            }
+        } catch (error) {
+            console.error('Error al cargar más reservas:', error);
+        } finally {
+            setCargandoMas(false);
+        }
+    };
+
     const filtrarReservas = () => {
         let reservasFiltradas = reservas;
 
@@ -241,6 +261,12 @@ function VerReservas() {
                         </tbody>
                     </table>
                 </div>
+
+                {siguienteCursor && (
+                    <button onClick={cargarMas} disabled={cargandoMas} style={styles.loadMoreButton}>
+                        {cargandoMas ? 'Cargando...' : 'Cargar más reservas'}
+                    </button>
+                )}
             </div>
 
             {/* Modal de Detalle */}
@@ -576,6 +602,17 @@ const styles = {
         cursor: 'pointer',
         fontWeight: '600',
     },
+    loadMoreButton: {
+        display: 'block',
+        margin: '20px auto 0',
+        padding: '12px 24px',
+        backgroundColor: '#667eea',
+        color: 'white',
+        border: 'none',
+        borderRadius: '8px',
+        cursor: 'pointer',
+        fontWeight: '600',
+    },
 };
 
 export default VerReservas;
\ No newline at end of file
@@ -16,6 +16,11 @@ api.interceptors.request.use(
         if (token) {
             config.headers.Authorization = `Bearer ${token}`;
         }
+        // Turno de la fila virtual (solo lo revisan las funciones que la tienen activa)
+        const turnoFila = sessionStorage.getItem('turnoFila');
+        if (turnoFila) {
+            config.headers['X-Turno-Fila'] = turnoFila;
+        }
         return config;
     },
     (error) => {
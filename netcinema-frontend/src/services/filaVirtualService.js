@@ -0,0 +1,35 @@
+import api from './api';
+
+// Turno admitido de la fila virtual; api.js lo manda en X-Turno-Fila
+const TURNO_KEY = 'turnoFila';
+
+export const filaVirtualService = {
+    // Tomar un turno para una función con fila virtual
+    entrar: async (funcionId, usuarioId) => {
+        const response = await api.post(`/fila-virtual/${funcionId}/entrar`, { usuarioId });
+        if (response.data.success) {
+            sessionStorage.setItem(TURNO_KEY, response.data.data.token);
+        }
+        return response.data;
+    },
+
+    // Consultar la posición del turno (también avisa que el cliente sigue esperando)
+    consultar: async (token) => {
+        const response = await api.get(`/fila-virtual/turnos/${token}`);
+        return response.data;
+    },
+
+    // Salir de la fila y olvidar el turno
+    salir: async () => {
+        const token = sessionStorage.getItem(TURNO_KEY);
+        sessionStorage.removeItem(TURNO_KEY);
+        if (token) {
+            await api.delete(`/fila-virtual/turnos/${token}`);
+        }
+    },
+
+    getToken: () => sessionStorage.getItem(TURNO_KEY),
+
+    // Respuesta 429 de un endpoint protegido por la fila
+    esFilaVirtual: (error) => error.response?.status === 429,
+};
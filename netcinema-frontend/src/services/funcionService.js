@@ -19,6 +19,15 @@ export const funcionService = {
         return response.data;
     },
 
+    // Cambios de asientos desde una versión (null si no hubo cambios)
+    getCambiosAsientos: async (id, desde) => {
+        const response = await api.get(`/funciones/${id}/asientos/cambios`, {
+            params: { desde },
+            validateStatus: (status) => status === 200 || status === 304,
+        });
+        return response.status === 304 ? null : response.data;
+    },
+
     // Crear función
     create: async (funcion) => {
         const response = await api.post('/funciones', funcion);
@@ -42,4 +42,16 @@ export const peliculaService = {
         const response = await api.get(`/peliculas/buscar/titulo/${titulo}`);
         return response.data;
     },
+
+    // Buscar en cartelera (título, director, actores, géneros, descripción)
+    search: async (q, limite = 20) => {
+        const response = await api.get('/peliculas/buscar', { params: { q, limite } });
+        return response.data;
+    },
+
+    // Sugerencias de títulos mientras se escribe
+    autocomplete: async (q, limite = 8) => {
+        const response = await api.get('/peliculas/autocompletar', { params: { q, limite } });
+        return response.data;
+    },
 };
\ No newline at end of file
@@ -15,6 +15,12 @@ export const reservaService = {
         return response.data;
     },
 
+    // Renovar el bloqueo de asientos mientras se paga (llamar periódicamente)
+    renovar: async (reservaId) => {
+        const response = await api.post(`/reservas/${reservaId}/renovar`);
+        return response.data;
+    },
+
     // Buscar por código
     getByCodigo: async (codigo) => {
         const response = await api.get(`/reservas/codigo/${codigo}`);
@@ -33,6 +39,13 @@ export const reservaService = {
         return response.data;
     },
 
+    // Obtener una página de reservas (más recientes primero).
+    // data.siguienteCursor se manda como cursor para pedir la siguiente (null en la última)
+    getPagina: async (limite, cursor) => {
+        const response = await api.get('/reservas', { params: { limite, cursor } });
+        return response.data;
+    },
+
     // Cancelar reserva
     cancelar: async (reservaId) => {
         const response = await api.post(`/reservas/${reservaId}/cancelar`);
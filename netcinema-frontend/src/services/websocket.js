@@ -104,6 +104,11 @@ class WebSocketManager {
                 this.mostrarNotificacion('¡Confirmada!', data.mensaje);
                 break;
 
+            case 'RESERVA_EXPIRADA':
+                this.mostrarNotificacion('Reserva Expirada', data.mensaje);
+                this.actualizarListaReservas();
+                break;
+
             case 'PONG':
                 console.log('Pong recibido');
                 break;